@@ -0,0 +1,86 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import org.jinterop.dcom.core.JIArray;
+import org.jinterop.dcom.core.JIString;
+import org.jinterop.dcom.core.JIVariant;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JIVariantMarshaller#toJavaType(JIVariant)} benchmark.
+ *
+ * @author amarziali
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JIVariantMarshallerBenchmark {
+
+    @Param({"double", "float", "int", "short", "boolean", "string", "date", "doubleArray"})
+    public String type;
+
+    private JIVariant variant;
+
+    @Setup
+    public void setup() {
+        switch (type) {
+            case "double":
+                variant = new JIVariant(3.1415d);
+                break;
+            case "float":
+                variant = new JIVariant(3.1415f);
+                break;
+            case "int":
+                variant = new JIVariant(42);
+                break;
+            case "short":
+                variant = new JIVariant((short) 42);
+                break;
+            case "boolean":
+                variant = new JIVariant(true);
+                break;
+            case "string":
+                variant = new JIVariant(new JIString("Hello OPC"));
+                break;
+            case "date":
+                variant = new JIVariant(new Date());
+                break;
+            case "doubleArray":
+                Double[] values = new Double[100];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (double) i;
+                }
+                variant = new JIVariant(new JIArray(values, true));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    @Benchmark
+    public Object toJavaType() throws Exception {
+        return JIVariantMarshaller.toJavaType(variant);
+    }
+}
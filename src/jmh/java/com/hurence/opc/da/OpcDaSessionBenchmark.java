@@ -0,0 +1,109 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import com.hurence.opc.OpcData;
+import com.hurence.opc.OpcDataBatch;
+import com.hurence.opc.OperationStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OpcDaSession} benchmarks against a {@link SimulatedOpcDaServer}. No DCOM involved.
+ *
+ * @author amarziali
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OpcDaSessionBenchmark {
+
+    /**
+     * Batches received per stream invocation.
+     */
+    private static final int STREAMED_BATCHES = 10;
+
+    @Param({"10", "1000"})
+    public int items;
+
+    @Param({"0", "500"})
+    public int latencyMicros;
+
+    private OpcDaTemplate template;
+    private OpcDaSession session;
+    private String[] tagIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        SimulatedOpcDaServer server = new SimulatedOpcDaServer()
+                .withGeneratedItems(1, items)
+                .withLatency(Duration.ofNanos(latencyMicros * 1000L));
+        tagIds = new String[items];
+        for (int i = 0; i < items; i++) {
+            tagIds[i] = SimulatedOpcDaServer.generatedItemId(0, i);
+        }
+        template = new OpcDaTemplate(server);
+        template.connect(new OpcDaConnectionProfile()
+                .withConnectionUri(new URI("opc.da://localhost")))
+                .ignoreElement()
+                .blockingAwait();
+        session = template.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(10)))
+                .blockingGet();
+        //register items once
+        session.readBatch(tagIds).blockingGet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        session.close();
+        template.close();
+    }
+
+    @Benchmark
+    public OpcDataBatch readBatch() {
+        return session.readBatch(tagIds).blockingGet();
+    }
+
+    @Benchmark
+    public List<OpcData> read() {
+        return session.read(tagIds).blockingGet();
+    }
+
+    @Benchmark
+    public List<OperationStatus> write() {
+        return session.write(new OpcData<>("Bucket Brigade.Real8", Instant.now(), 3.1415d)).blockingGet();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAMED_BATCHES)
+    public OpcDataBatch streamBatches() {
+        return session.streamBatches(Arrays.asList(tagIds), Duration.ofMillis(10))
+                .take(STREAMED_BATCHES)
+                .blockingLast();
+    }
+}
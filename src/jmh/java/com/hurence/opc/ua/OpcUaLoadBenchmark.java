@@ -0,0 +1,116 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import com.hurence.opc.OpcDataBatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OpcUaSession} benchmarks against an in-process {@link LoadNamespace} of configurable size and rate.
+ *
+ * @author amarziali
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OpcUaLoadBenchmark {
+
+    /**
+     * Batches received per stream invocation.
+     */
+    private static final int STREAMED_BATCHES = 10;
+
+    @Param({"10"})
+    public int folders;
+
+    @Param({"100", "1000"})
+    public int variablesPerFolder;
+
+    @Param({"10000"})
+    public int changesPerSecond;
+
+    @Param({"0", "5"})
+    public int latencyMillis;
+
+    private TestOpcServer server;
+    private OpcUaTemplate template;
+    private OpcUaSession session;
+    private String[] tagIds;
+    private List<String> tagIdList;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new TestOpcServer(InetAddress.getLoopbackAddress(), null, new LoadNamespaceProfile()
+                .withFolders(folders)
+                .withVariablesPerFolder(variablesPerFolder)
+                .withChangesPerSecond(changesPerSecond)
+                .withLatency(Duration.ofMillis(latencyMillis)));
+        server.getInstance().startup().get();
+        tagIdList = server.getLoadNamespace().getTagIds();
+        tagIds = tagIdList.toArray(new String[0]);
+        template = new OpcUaTemplate();
+        template.connect(new OpcUaConnectionProfile()
+                .withConnectionUri(URI.create(server.getBindEndpoint()))
+                .withClientIdUri("hurence:opc-simple:client:benchmark")
+                .withClientName("Simple OPC benchmark client")
+                .withSocketTimeout(Duration.ofSeconds(30)))
+                .ignoreElement()
+                .blockingAwait();
+        session = template.createSession(new OpcUaSessionProfile()
+                .withPublicationInterval(Duration.ofMillis(100)))
+                .blockingGet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            session.close();
+            template.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Reads every variable of the namespace.
+     */
+    @Benchmark
+    public OpcDataBatch readAll() {
+        return session.readBatch(tagIds).blockingGet();
+    }
+
+    /**
+     * Subscribes every variable of the namespace and waits for some publications.
+     */
+    @Benchmark
+    @OperationsPerInvocation(STREAMED_BATCHES)
+    public OpcDataBatch streamAll() {
+        return session.streamBatches(tagIdList, Duration.ofMillis(100))
+                .take(STREAMED_BATCHES)
+                .blockingLast();
+    }
+}
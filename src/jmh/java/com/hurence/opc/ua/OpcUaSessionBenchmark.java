@@ -0,0 +1,97 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import com.hurence.opc.OpcData;
+import com.hurence.opc.OpcDataBatch;
+import com.hurence.opc.OpcSample;
+import com.hurence.opc.OperationStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OpcUaSession} read, write and stream benchmarks against an in-process server.
+ *
+ * @author amarziali
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OpcUaSessionBenchmark {
+
+    /**
+     * Values received per stream invocation.
+     */
+    private static final int STREAMED_VALUES = 100;
+
+    @Benchmark
+    public List<OpcData> read(TestServerState state) {
+        return state.getSession().read(TestServerState.SINE_TAG).blockingGet();
+    }
+
+    @Benchmark
+    public List<OpcSample> readSamples(TestServerState state) {
+        return state.getSession().readSamples(TestServerState.SINE_TAG).blockingGet();
+    }
+
+    @Benchmark
+    public OpcDataBatch readBatch(TestServerState state) {
+        return state.getSession().readBatch(TestServerState.SINE_TAG, TestServerState.DOUBLE_TAG).blockingGet();
+    }
+
+    @Benchmark
+    public OpcDataBatch preparedReadBatch(TestServerState state) {
+        return state.getPreparedRead().readBatch().blockingGet();
+    }
+
+    @Benchmark
+    public List<OperationStatus> write(TestServerState state) {
+        return state.getSession().write(new OpcData<>(TestServerState.DOUBLE_TAG, Instant.now(), 3.1415d))
+                .blockingGet();
+    }
+
+    /**
+     * Monitored item creation, first notification and deletion.
+     */
+    @Benchmark
+    public OpcData streamFirstValue(TestServerState state) {
+        return state.getSession().stream(TestServerState.SINE_TAG, Duration.ofMillis(1)).blockingFirst();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAMED_VALUES)
+    public OpcData stream(TestServerState state) {
+        return state.getSession().stream(TestServerState.SINE_TAG, Duration.ofMillis(1))
+                .take(STREAMED_VALUES)
+                .blockingLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAMED_VALUES)
+    public OpcSample streamSamples(TestServerState state) {
+        return state.getSession().streamSamples(TestServerState.SINE_TAG, Duration.ofMillis(1))
+                .take(STREAMED_VALUES)
+                .blockingLast();
+    }
+}
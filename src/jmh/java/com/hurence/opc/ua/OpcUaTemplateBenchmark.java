@@ -0,0 +1,48 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import com.hurence.opc.OpcTagInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OpcUaTemplate} browsing benchmarks against an in-process server.
+ *
+ * @author amarziali
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OpcUaTemplateBenchmark {
+
+    @Benchmark
+    public List<OpcTagInfo> browseTags(TestServerState state) {
+        return state.getTemplate().browseTags().toList().blockingGet();
+    }
+
+    @Benchmark
+    public List<OpcTagInfo> fetchMetadata(TestServerState state) {
+        return state.getTemplate().fetchMetadata(TestServerState.SINE_TAG, TestServerState.DOUBLE_TAG)
+                .toList().blockingGet();
+    }
+}
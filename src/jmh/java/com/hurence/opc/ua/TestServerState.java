@@ -0,0 +1,95 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Benchmark state spawning an in-process {@link TestOpcServer} with a connected {@link OpcUaTemplate}
+ * and an open {@link OpcUaSession}.
+ *
+ * @author amarziali
+ */
+@State(Scope.Benchmark)
+public class TestServerState {
+
+    /**
+     * A dynamic tag (its value changes at every read).
+     */
+    public static final String SINE_TAG = "ns=2;s=sint";
+    /**
+     * A writable tag.
+     */
+    public static final String DOUBLE_TAG = "ns=2;s=HelloWorld/Dynamic/Double";
+
+    private TestOpcServer server;
+    private OpcUaTemplate template;
+    private OpcUaSession session;
+    private OpcUaPreparedRead preparedRead;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new TestOpcServer(InetAddress.getLoopbackAddress(), null);
+        server.getInstance().startup().get();
+        template = new OpcUaTemplate();
+        template.connect(new OpcUaConnectionProfile()
+                .withConnectionUri(URI.create(server.getBindEndpoint()))
+                .withClientIdUri("hurence:opc-simple:client:benchmark")
+                .withClientName("Simple OPC benchmark client")
+                .withSocketTimeout(Duration.ofSeconds(5)))
+                .ignoreElement()
+                .blockingAwait();
+        session = template.createSession(new OpcUaSessionProfile()
+                .withPublicationInterval(Duration.ofMillis(10)))
+                .blockingGet();
+        preparedRead = session.prepareRead(SINE_TAG, DOUBLE_TAG);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            session.close();
+            template.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    public OpcUaTemplate getTemplate() {
+        return template;
+    }
+
+    public OpcUaSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return a prepared read of {@link #SINE_TAG} and {@link #DOUBLE_TAG} on the session.
+     */
+    public OpcUaPreparedRead getPreparedRead() {
+        return preparedRead;
+    }
+}
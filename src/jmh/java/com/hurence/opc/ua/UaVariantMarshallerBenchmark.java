@@ -0,0 +1,80 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UaVariantMarshaller#toJavaType(Object)} benchmark.
+ *
+ * @author amarziali
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UaVariantMarshallerBenchmark {
+
+    @Param({"double", "uint", "dateTime", "localizedText", "variant", "uintArray"})
+    public String type;
+
+    private Object value;
+
+    @Setup
+    public void setup() {
+        switch (type) {
+            case "double":
+                value = 3.1415d;
+                break;
+            case "uint":
+                value = UInteger.valueOf(42);
+                break;
+            case "dateTime":
+                value = DateTime.now();
+                break;
+            case "localizedText":
+                value = LocalizedText.english("Hello OPC");
+                break;
+            case "variant":
+                value = new Variant(3.1415d);
+                break;
+            case "uintArray":
+                UInteger[] values = new UInteger[100];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = UInteger.valueOf(i);
+                }
+                value = values;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    @Benchmark
+    public Object toJavaType() {
+        return UaVariantMarshaller.toJavaType(value);
+    }
+}
@@ -18,11 +18,18 @@
 package com.hurence.opc;
 
 import com.hurence.opc.exception.OpcException;
+import com.hurence.opc.metrics.Instrumentation;
+import com.hurence.opc.metrics.OpcMetrics;
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.Single;
 import io.reactivex.subjects.BehaviorSubject;
 
+import javax.annotation.Nonnull;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.ToIntFunction;
 
 /**
  * Abstract base class for {@link OpcOperations}
@@ -37,6 +44,86 @@ public abstract class AbstractOpcOperations<T extends ConnectionProfile, U exten
      */
     private final BehaviorSubject<ConnectionState> connectionState = BehaviorSubject.createDefault(ConnectionState.DISCONNECTED);
 
+    /**
+     * The metrics notified of each call. Sessions use the metrics set at their creation.
+     */
+    private volatile OpcMetrics metrics = OpcMetrics.NOOP;
+
+    /**
+     * Gets the metrics notified of each call.
+     *
+     * @return the {@link OpcMetrics} (Defaults to {@link OpcMetrics#NOOP}).
+     */
+    public OpcMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics notified of each call. Should be set before creating sessions.
+     *
+     * @param metrics the {@link OpcMetrics}. Use {@link OpcMetrics#NOOP} to disable instrumentation.
+     */
+    public void setMetrics(@Nonnull OpcMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "Metrics must not be null");
+    }
+
+    /**
+     * Reports a {@link Single} call to the metrics.
+     *
+     * @param operation the operation.
+     * @param source    the call.
+     * @param items     counts the items of the result.
+     * @param <R>       the result type.
+     * @return the instrumented call.
+     */
+    protected <R> Single<R> instrument(OpcMetrics.Operation operation, Single<R> source, ToIntFunction<? super R> items) {
+        return Instrumentation.single(metrics, operation, source, items);
+    }
+
+    /**
+     * Reports a {@link Completable} call to the metrics.
+     *
+     * @param operation the operation.
+     * @param source    the call.
+     * @return the instrumented call.
+     */
+    protected Completable instrument(OpcMetrics.Operation operation, Completable source) {
+        return Instrumentation.completable(metrics, operation, source);
+    }
+
+    /**
+     * Reports a {@link Flowable} call to the metrics.
+     *
+     * @param operation the operation.
+     * @param source    the call.
+     * @param <R>       the item type.
+     * @return the instrumented call.
+     */
+    protected <R> Flowable<R> instrument(OpcMetrics.Operation operation, Flowable<R> source) {
+        return Instrumentation.flowable(metrics, operation, source);
+    }
+
+    /**
+     * Reports the beginning of a keep alive check to the metrics.
+     *
+     * @return the start time to give back to {@link #checkAliveEnded(long, boolean)}.
+     */
+    protected long checkAliveStarted() {
+        metrics.started(OpcMetrics.Operation.CHECK_ALIVE);
+        return System.nanoTime();
+    }
+
+    /**
+     * Reports the end of a keep alive check to the metrics.
+     *
+     * @param startNanos the value returned by {@link #checkAliveStarted()}.
+     * @param alive      the check outcome.
+     */
+    protected void checkAliveEnded(long startNanos, boolean alive) {
+        metrics.completed(OpcMetrics.Operation.CHECK_ALIVE, System.nanoTime() - startNanos, 1,
+                alive ? OpcMetrics.Outcome.SUCCESS : OpcMetrics.Outcome.FAILURE);
+    }
+
 
     /**
      * Atomically check a state and set next state.
@@ -0,0 +1,66 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+/**
+ * An {@link OpcSample} holding a boolean value.
+ */
+public final class BooleanSample extends OpcSample {
+
+    private final boolean value;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     * @param value           the value.
+     */
+    public BooleanSample(String tag, long epochNanos, int statusCode, Quality quality,
+                         OperationStatus operationStatus, boolean value) {
+        super(tag, epochNanos, statusCode, quality, operationStatus);
+        this.value = value;
+    }
+
+    /**
+     * Gets the value.
+     *
+     * @return the primitive value.
+     */
+    public boolean getBooleanValue() {
+        return value;
+    }
+
+    @Override
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    protected boolean valueEquals(OpcSample other) {
+        return value == ((BooleanSample) other).value;
+    }
+
+    @Override
+    protected int valueHashCode() {
+        return Boolean.hashCode(value);
+    }
+}
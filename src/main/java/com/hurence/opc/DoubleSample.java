@@ -0,0 +1,97 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+/**
+ * An {@link OpcSample} holding a floating point value without boxing it.
+ */
+public final class DoubleSample extends OpcSample {
+
+    private final double value;
+    private final Class<? extends Number> boxedType;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     * @param value           the value.
+     */
+    public DoubleSample(String tag, long epochNanos, int statusCode, Quality quality,
+                        OperationStatus operationStatus, double value) {
+        this(tag, epochNanos, statusCode, quality, operationStatus, value, Double.class);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     * @param value           the value.
+     * @param boxedType       the type returned by {@link #getValue()}. Either {@link Double} or {@link Float}.
+     */
+    public DoubleSample(String tag, long epochNanos, int statusCode, Quality quality,
+                        OperationStatus operationStatus, double value, Class<? extends Number> boxedType) {
+        super(tag, epochNanos, statusCode, quality, operationStatus);
+        if (!Double.class.equals(boxedType) && !Float.class.equals(boxedType)) {
+            throw new IllegalArgumentException("Unsupported floating point type " + boxedType);
+        }
+        this.value = value;
+        this.boxedType = boxedType;
+    }
+
+    /**
+     * Gets the value.
+     *
+     * @return the primitive value.
+     */
+    public double getDoubleValue() {
+        return value;
+    }
+
+    /**
+     * Gets the type returned by {@link #getValue()}.
+     *
+     * @return either {@link Double} or {@link Float}.
+     */
+    public Class<? extends Number> getBoxedType() {
+        return boxedType;
+    }
+
+    @Override
+    public Object getValue() {
+        return Float.class.equals(boxedType) ? (Object) (float) value : (Object) value;
+    }
+
+    @Override
+    protected boolean valueEquals(OpcSample other) {
+        DoubleSample that = (DoubleSample) other;
+        return Double.compare(value, that.value) == 0 && boxedType.equals(that.boxedType);
+    }
+
+    @Override
+    protected int valueHashCode() {
+        return Double.hashCode(value);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+/**
+ * An {@link OpcSample} holding an integral value without boxing it.
+ */
+public final class LongSample extends OpcSample {
+
+    private final long value;
+    private final Class<? extends Number> boxedType;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     * @param value           the value.
+     */
+    public LongSample(String tag, long epochNanos, int statusCode, Quality quality,
+                      OperationStatus operationStatus, long value) {
+        this(tag, epochNanos, statusCode, quality, operationStatus, value, Long.class);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     * @param value           the value.
+     * @param boxedType       the type returned by {@link #getValue()}.
+     *                        One of {@link Long}, {@link Integer}, {@link Short} or {@link Byte}.
+     */
+    public LongSample(String tag, long epochNanos, int statusCode, Quality quality,
+                      OperationStatus operationStatus, long value, Class<? extends Number> boxedType) {
+        super(tag, epochNanos, statusCode, quality, operationStatus);
+        if (!Long.class.equals(boxedType) && !Integer.class.equals(boxedType) &&
+                !Short.class.equals(boxedType) && !Byte.class.equals(boxedType)) {
+            throw new IllegalArgumentException("Unsupported integral type " + boxedType);
+        }
+        this.value = value;
+        this.boxedType = boxedType;
+    }
+
+    /**
+     * Gets the value.
+     *
+     * @return the primitive value.
+     */
+    public long getLongValue() {
+        return value;
+    }
+
+    /**
+     * Gets the type returned by {@link #getValue()}.
+     *
+     * @return one of {@link Long}, {@link Integer}, {@link Short} or {@link Byte}.
+     */
+    public Class<? extends Number> getBoxedType() {
+        return boxedType;
+    }
+
+    @Override
+    public Object getValue() {
+        if (Integer.class.equals(boxedType)) {
+            return (int) value;
+        } else if (Short.class.equals(boxedType)) {
+            return (short) value;
+        } else if (Byte.class.equals(boxedType)) {
+            return (byte) value;
+        }
+        return value;
+    }
+
+    @Override
+    protected boolean valueEquals(OpcSample other) {
+        LongSample that = (LongSample) other;
+        return value == that.value && boxedType.equals(that.boxedType);
+    }
+
+    @Override
+    protected int valueHashCode() {
+        return Long.hashCode(value);
+    }
+}
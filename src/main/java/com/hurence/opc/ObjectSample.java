@@ -0,0 +1,59 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+import java.util.Objects;
+
+/**
+ * An {@link OpcSample} holding a value having no primitive specialization (strings, arrays, null...).
+ */
+public final class ObjectSample extends OpcSample {
+
+    private final Object value;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     * @param value           the value (can be null).
+     */
+    public ObjectSample(String tag, long epochNanos, int statusCode, Quality quality,
+                        OperationStatus operationStatus, Object value) {
+        super(tag, epochNanos, statusCode, quality, operationStatus);
+        this.value = value;
+    }
+
+    @Override
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    protected boolean valueEquals(OpcSample other) {
+        return Objects.equals(value, ((ObjectSample) other).value);
+    }
+
+    @Override
+    protected int valueHashCode() {
+        return Objects.hashCode(value);
+    }
+}
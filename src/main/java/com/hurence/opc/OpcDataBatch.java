@@ -0,0 +1,796 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A columnar batch of values.
+ * <p>
+ * Tags, timestamps (nanoseconds since the epoch), status codes and values are stored in parallel arrays.
+ * Floating point values are held by a double column, integral and boolean values by a long column,
+ * anything else by an object column. Columns are only allocated if the batch holds values of the matching kind.
+ * Column accessors expose the internal arrays (sized exactly to {@link #size()}) and must not be modified.
+ * <p>
+ * Batches are immutable and built with a {@link Builder}.
+ *
+ * @author amarziali
+ */
+public final class OpcDataBatch implements Iterable<OpcSample> {
+
+    /**
+     * The type of a value in the batch.
+     */
+    public enum ValueType {
+        DOUBLE(Double.class),
+        FLOAT(Float.class),
+        LONG(Long.class),
+        INT(Integer.class),
+        SHORT(Short.class),
+        BYTE(Byte.class),
+        BOOLEAN(Boolean.class),
+        OBJECT(Object.class);
+
+        private final Class<?> boxedType;
+
+        ValueType(Class<?> boxedType) {
+            this.boxedType = boxedType;
+        }
+
+        /**
+         * Gets the java type of boxed values.
+         *
+         * @return the boxed type ({@link Object} for {@link #OBJECT}).
+         */
+        public Class<?> getBoxedType() {
+            return boxedType;
+        }
+
+        /**
+         * @return true if the value is held by the double column.
+         */
+        public boolean isFloatingPoint() {
+            return this == DOUBLE || this == FLOAT;
+        }
+
+        /**
+         * @return true if the value is held by the long column.
+         */
+        public boolean isIntegral() {
+            return this == LONG || this == INT || this == SHORT || this == BYTE || this == BOOLEAN;
+        }
+
+        private static ValueType of(Class<?> boxedType) {
+            if (Double.class.equals(boxedType)) {
+                return DOUBLE;
+            } else if (Float.class.equals(boxedType)) {
+                return FLOAT;
+            } else if (Long.class.equals(boxedType)) {
+                return LONG;
+            } else if (Integer.class.equals(boxedType)) {
+                return INT;
+            } else if (Short.class.equals(boxedType)) {
+                return SHORT;
+            } else if (Byte.class.equals(boxedType)) {
+                return BYTE;
+            } else if (Boolean.class.equals(boxedType)) {
+                return BOOLEAN;
+            }
+            return OBJECT;
+        }
+    }
+
+    private static final OpcDataBatch EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final String[] tags;
+    private final long[] epochNanos;
+    private final int[] statusCodes;
+    private final Quality[] qualities;
+    private final OperationStatus[] operationStatuses;
+    private final ValueType[] valueTypes;
+    private final double[] doubleValues;
+    private final long[] longValues;
+    private final Object[] objectValues;
+
+    private OpcDataBatch(int size, String[] tags, long[] epochNanos, int[] statusCodes, Quality[] qualities,
+                         OperationStatus[] operationStatuses, ValueType[] valueTypes, double[] doubleValues,
+                         long[] longValues, Object[] objectValues) {
+        this.size = size;
+        this.tags = tags;
+        this.epochNanos = epochNanos;
+        this.statusCodes = statusCodes;
+        this.qualities = qualities;
+        this.operationStatuses = operationStatuses;
+        this.valueTypes = valueTypes;
+        this.doubleValues = doubleValues;
+        this.longValues = longValues;
+        this.objectValues = objectValues;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @param expectedSize the expected number of values (the builder grows if needed).
+     * @return a new {@link Builder}
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /**
+     * Gets an empty batch.
+     *
+     * @return the empty batch.
+     */
+    public static OpcDataBatch empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a batch from samples.
+     *
+     * @param samples the samples.
+     * @return a new {@link OpcDataBatch}
+     */
+    public static OpcDataBatch of(Collection<? extends OpcSample> samples) {
+        Builder builder = builder(samples.size());
+        samples.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the batch size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the batch holds no value.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the tag column.
+     *
+     * @return the tag ids.
+     */
+    public String[] getTags() {
+        return tags;
+    }
+
+    /**
+     * Gets the timestamp column.
+     *
+     * @return the timestamps in nanoseconds since the epoch.
+     */
+    public long[] getEpochNanos() {
+        return epochNanos;
+    }
+
+    /**
+     * Gets the raw status code column.
+     *
+     * @return the status codes (OPC-DA quality word or OPC-UA status code).
+     */
+    public int[] getStatusCodes() {
+        return statusCodes;
+    }
+
+    /**
+     * Gets the quality column.
+     *
+     * @return the qualities.
+     */
+    public Quality[] getQualities() {
+        return qualities;
+    }
+
+    /**
+     * Gets the operation status column.
+     *
+     * @return the statuses.
+     */
+    public OperationStatus[] getOperationStatuses() {
+        return operationStatuses;
+    }
+
+    /**
+     * Gets the value type column.
+     *
+     * @return the type of each value.
+     */
+    public ValueType[] getValueTypes() {
+        return valueTypes;
+    }
+
+    /**
+     * Gets the floating point value column. Only rows with a floating point {@link ValueType} are meaningful.
+     *
+     * @return the values or null if the batch holds no floating point value.
+     */
+    public double[] getDoubleValues() {
+        return doubleValues;
+    }
+
+    /**
+     * Gets the integral value column (booleans are stored as 0 or 1).
+     * Only rows with an integral {@link ValueType} are meaningful.
+     *
+     * @return the values or null if the batch holds no integral value.
+     */
+    public long[] getLongValues() {
+        return longValues;
+    }
+
+    /**
+     * Gets the object value column. Only rows of type {@link ValueType#OBJECT} are meaningful.
+     *
+     * @return the values or null if the batch holds no object value.
+     */
+    public Object[] getObjectValues() {
+        return objectValues;
+    }
+
+    /**
+     * Gets the tag of a row.
+     *
+     * @param index the row index.
+     * @return the tag id.
+     */
+    public String getTag(int index) {
+        return tags[checkIndex(index)];
+    }
+
+    /**
+     * Gets the timestamp of a row.
+     *
+     * @param index the row index.
+     * @return the nanoseconds elapsed since the epoch.
+     */
+    public long getEpochNanos(int index) {
+        return epochNanos[checkIndex(index)];
+    }
+
+    /**
+     * Gets the timestamp of a row (allocates a new {@link Instant}).
+     *
+     * @param index the row index.
+     * @return the timestamp.
+     */
+    public Instant getTimestamp(int index) {
+        long nanos = getEpochNanos(index);
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    /**
+     * Gets the raw status code of a row.
+     *
+     * @param index the row index.
+     * @return the status code.
+     */
+    public int getStatusCode(int index) {
+        return statusCodes[checkIndex(index)];
+    }
+
+    /**
+     * Gets the quality of a row.
+     *
+     * @param index the row index.
+     * @return the {@link Quality}
+     */
+    public Quality getQuality(int index) {
+        return qualities[checkIndex(index)];
+    }
+
+    /**
+     * Gets the operation status of a row.
+     *
+     * @param index the row index.
+     * @return the {@link OperationStatus}
+     */
+    public OperationStatus getOperationStatus(int index) {
+        return operationStatuses[checkIndex(index)];
+    }
+
+    /**
+     * Gets the value type of a row.
+     *
+     * @param index the row index.
+     * @return the {@link ValueType}
+     */
+    public ValueType getValueType(int index) {
+        return valueTypes[checkIndex(index)];
+    }
+
+    /**
+     * Gets a numeric value as a double.
+     *
+     * @param index the row index.
+     * @return the value.
+     * @throws IllegalStateException if the value is not numeric.
+     */
+    public double getDouble(int index) {
+        ValueType valueType = getValueType(index);
+        if (valueType.isFloatingPoint()) {
+            return doubleValues[index];
+        } else if (valueType.isIntegral() && valueType != ValueType.BOOLEAN) {
+            return longValues[index];
+        }
+        throw new IllegalStateException("Value of " + tags[index] + " is not numeric but " + valueType);
+    }
+
+    /**
+     * Gets an integral value as a long.
+     *
+     * @param index the row index.
+     * @return the value (0 or 1 for booleans).
+     * @throws IllegalStateException if the value is not integral.
+     */
+    public long getLong(int index) {
+        ValueType valueType = getValueType(index);
+        if (!valueType.isIntegral()) {
+            throw new IllegalStateException("Value of " + tags[index] + " is not integral but " + valueType);
+        }
+        return longValues[index];
+    }
+
+    /**
+     * Gets a boolean value.
+     *
+     * @param index the row index.
+     * @return the value.
+     * @throws IllegalStateException if the value is not a boolean.
+     */
+    public boolean getBoolean(int index) {
+        ValueType valueType = getValueType(index);
+        if (valueType != ValueType.BOOLEAN) {
+            throw new IllegalStateException("Value of " + tags[index] + " is not boolean but " + valueType);
+        }
+        return longValues[index] != 0L;
+    }
+
+    /**
+     * Gets the value of a row as an object. Primitive values are boxed.
+     *
+     * @param index the row index.
+     * @return the value (can be null).
+     */
+    public Object getValue(int index) {
+        switch (getValueType(index)) {
+            case DOUBLE:
+                return doubleValues[index];
+            case FLOAT:
+                return (float) doubleValues[index];
+            case LONG:
+                return longValues[index];
+            case INT:
+                return (int) longValues[index];
+            case SHORT:
+                return (short) longValues[index];
+            case BYTE:
+                return (byte) longValues[index];
+            case BOOLEAN:
+                return longValues[index] != 0L;
+            default:
+                return objectValues[index];
+        }
+    }
+
+    /**
+     * Gets a row as an {@link OpcSample}.
+     *
+     * @param index the row index.
+     * @return a new sample.
+     */
+    @SuppressWarnings("unchecked")
+    public OpcSample getSample(int index) {
+        ValueType valueType = getValueType(index);
+        if (valueType.isFloatingPoint()) {
+            return new DoubleSample(tags[index], epochNanos[index], statusCodes[index], qualities[index],
+                    operationStatuses[index], doubleValues[index], (Class<? extends Number>) valueType.boxedType);
+        } else if (valueType == ValueType.BOOLEAN) {
+            return new BooleanSample(tags[index], epochNanos[index], statusCodes[index], qualities[index],
+                    operationStatuses[index], longValues[index] != 0L);
+        } else if (valueType.isIntegral()) {
+            return new LongSample(tags[index], epochNanos[index], statusCodes[index], qualities[index],
+                    operationStatuses[index], longValues[index], (Class<? extends Number>) valueType.boxedType);
+        }
+        return new ObjectSample(tags[index], epochNanos[index], statusCodes[index], qualities[index],
+                operationStatuses[index], objectValues[index]);
+    }
+
+    /**
+     * Converts the batch to samples.
+     *
+     * @return a new list of {@link OpcSample}
+     */
+    public List<OpcSample> toSamples() {
+        List<OpcSample> ret = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ret.add(getSample(i));
+        }
+        return ret;
+    }
+
+    /**
+     * Converts the batch to {@link OpcData}.
+     *
+     * @return a new list of {@link OpcData}
+     */
+    public List<OpcData> toOpcData() {
+        List<OpcData> ret = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ret.add(new OpcData<>(tags[i], getTimestamp(i), qualities[i], getValue(i), operationStatuses[i]));
+        }
+        return ret;
+    }
+
+    /**
+     * Keeps the rows of some tags only.
+     *
+     * @param tagFilter the tags to keep.
+     * @return a new batch or this one if every row is kept.
+     */
+    public OpcDataBatch select(Predicate<String> tagFilter) {
+        int[] kept = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (tagFilter.test(tags[i])) {
+                kept[count++] = i;
+            }
+        }
+        if (count == size) {
+            return this;
+        }
+        Builder builder = builder(count);
+        for (int i = 0; i < count; i++) {
+            builder.copy(this, kept[i]);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Iterator<OpcSample> iterator() {
+        return new Iterator<OpcSample>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public OpcSample next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return getSample(next++);
+            }
+        };
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of batch of size " + size);
+        }
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OpcDataBatch that = (OpcDataBatch) o;
+        return toSamples().equals(that.toSamples());
+    }
+
+    @Override
+    public int hashCode() {
+        return toSamples().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "OpcDataBatch{" +
+                "size=" + size +
+                ", samples=" + toSamples() +
+                '}';
+    }
+
+    /**
+     * Builds an {@link OpcDataBatch} row by row.
+     * Not thread safe. A builder must not be used anymore once {@link #build()} has been called.
+     */
+    public static final class Builder {
+        private int size;
+        private String[] tags;
+        private long[] epochNanos;
+        private int[] statusCodes;
+        private Quality[] qualities;
+        private OperationStatus[] operationStatuses;
+        private ValueType[] valueTypes;
+        private double[] doubleValues;
+        private long[] longValues;
+        private Object[] objectValues;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 0);
+            tags = new String[capacity];
+            epochNanos = new long[capacity];
+            statusCodes = new int[capacity];
+            qualities = new Quality[capacity];
+            operationStatuses = new OperationStatus[capacity];
+            valueTypes = new ValueType[capacity];
+        }
+
+        /**
+         * Adds a floating point value.
+         *
+         * @param tag             the tag (item) id.
+         * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+         * @param statusCode      the raw status code.
+         * @param quality         the quality of the data.
+         * @param operationStatus the status of the operation that generated the value.
+         * @param value           the value.
+         * @return itself.
+         */
+        public Builder addDouble(String tag, long epochNanos, int statusCode, Quality quality,
+                                 OperationStatus operationStatus, double value) {
+            int index = row(tag, epochNanos, statusCode, quality, operationStatus, ValueType.DOUBLE);
+            doubleValues()[index] = value;
+            return this;
+        }
+
+        /**
+         * Adds a single precision floating point value.
+         *
+         * @param tag             the tag (item) id.
+         * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+         * @param statusCode      the raw status code.
+         * @param quality         the quality of the data.
+         * @param operationStatus the status of the operation that generated the value.
+         * @param value           the value.
+         * @return itself.
+         */
+        public Builder addFloat(String tag, long epochNanos, int statusCode, Quality quality,
+                                OperationStatus operationStatus, float value) {
+            int index = row(tag, epochNanos, statusCode, quality, operationStatus, ValueType.FLOAT);
+            doubleValues()[index] = value;
+            return this;
+        }
+
+        /**
+         * Adds a long value.
+         *
+         * @param tag             the tag (item) id.
+         * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+         * @param statusCode      the raw status code.
+         * @param quality         the quality of the data.
+         * @param operationStatus the status of the operation that generated the value.
+         * @param value           the value.
+         * @return itself.
+         */
+        public Builder addLong(String tag, long epochNanos, int statusCode, Quality quality,
+                               OperationStatus operationStatus, long value) {
+            int index = row(tag, epochNanos, statusCode, quality, operationStatus, ValueType.LONG);
+            longValues()[index] = value;
+            return this;
+        }
+
+        /**
+         * Adds an int value.
+         *
+         * @param tag             the tag (item) id.
+         * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+         * @param statusCode      the raw status code.
+         * @param quality         the quality of the data.
+         * @param operationStatus the status of the operation that generated the value.
+         * @param value           the value.
+         * @return itself.
+         */
+        public Builder addInt(String tag, long epochNanos, int statusCode, Quality quality,
+                              OperationStatus operationStatus, int value) {
+            int index = row(tag, epochNanos, statusCode, quality, operationStatus, ValueType.INT);
+            longValues()[index] = value;
+            return this;
+        }
+
+        /**
+         * Adds a short value.
+         *
+         * @param tag             the tag (item) id.
+         * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+         * @param statusCode      the raw status code.
+         * @param quality         the quality of the data.
+         * @param operationStatus the status of the operation that generated the value.
+         * @param value           the value.
+         * @return itself.
+         */
+        public Builder addShort(String tag, long epochNanos, int statusCode, Quality quality,
+                                OperationStatus operationStatus, short value) {
+            int index = row(tag, epochNanos, statusCode, quality, operationStatus, ValueType.SHORT);
+            longValues()[index] = value;
+            return this;
+        }
+
+        /**
+         * Adds a boolean value.
+         *
+         * @param tag             the tag (item) id.
+         * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+         * @param statusCode      the raw status code.
+         * @param quality         the quality of the data.
+         * @param operationStatus the status of the operation that generated the value.
+         * @param value           the value.
+         * @return itself.
+         */
+        public Builder addBoolean(String tag, long epochNanos, int statusCode, Quality quality,
+                                  OperationStatus operationStatus, boolean value) {
+            int index = row(tag, epochNanos, statusCode, quality, operationStatus, ValueType.BOOLEAN);
+            longValues()[index] = value ? 1L : 0L;
+            return this;
+        }
+
+        /**
+         * Adds a value of any type. Boxed primitives are unboxed to the matching column.
+         *
+         * @param tag             the tag (item) id.
+         * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+         * @param statusCode      the raw status code.
+         * @param quality         the quality of the data.
+         * @param operationStatus the status of the operation that generated the value.
+         * @param value           the value (can be null).
+         * @return itself.
+         */
+        public Builder addValue(String tag, long epochNanos, int statusCode, Quality quality,
+                                OperationStatus operationStatus, Object value) {
+            ValueType valueType = value == null ? ValueType.OBJECT : ValueType.of(value.getClass());
+            int index = row(tag, epochNanos, statusCode, quality, operationStatus, valueType);
+            if (valueType.isFloatingPoint()) {
+                doubleValues()[index] = ((Number) value).doubleValue();
+            } else if (valueType == ValueType.BOOLEAN) {
+                longValues()[index] = (Boolean) value ? 1L : 0L;
+            } else if (valueType.isIntegral()) {
+                longValues()[index] = ((Number) value).longValue();
+            } else {
+                objectValues()[index] = value;
+            }
+            return this;
+        }
+
+        /**
+         * Adds a sample.
+         *
+         * @param sample the sample to add.
+         * @return itself.
+         */
+        public Builder add(OpcSample sample) {
+            if (sample instanceof DoubleSample) {
+                DoubleSample s = (DoubleSample) sample;
+                int index = row(s.getTag(), s.getEpochNanos(), s.getStatusCode(), s.getQuality(),
+                        s.getOperationStatus(), ValueType.of(s.getBoxedType()));
+                doubleValues()[index] = s.getDoubleValue();
+            } else if (sample instanceof LongSample) {
+                LongSample s = (LongSample) sample;
+                int index = row(s.getTag(), s.getEpochNanos(), s.getStatusCode(), s.getQuality(),
+                        s.getOperationStatus(), ValueType.of(s.getBoxedType()));
+                longValues()[index] = s.getLongValue();
+            } else {
+                addValue(sample.getTag(), sample.getEpochNanos(), sample.getStatusCode(), sample.getQuality(),
+                        sample.getOperationStatus(), sample.getValue());
+            }
+            return this;
+        }
+
+        private void copy(OpcDataBatch batch, int index) {
+            ValueType valueType = batch.valueTypes[index];
+            int row = row(batch.tags[index], batch.epochNanos[index], batch.statusCodes[index],
+                    batch.qualities[index], batch.operationStatuses[index], valueType);
+            if (valueType.isFloatingPoint()) {
+                doubleValues()[row] = batch.doubleValues[index];
+            } else if (valueType.isIntegral()) {
+                longValues()[row] = batch.longValues[index];
+            } else {
+                objectValues()[row] = batch.objectValues[index];
+            }
+        }
+
+        /**
+         * Gets the number of rows added so far.
+         *
+         * @return the current size.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Builds the batch. Arrays are only copied if the expected size was not accurate.
+         *
+         * @return a new {@link OpcDataBatch}
+         */
+        public OpcDataBatch build() {
+            if (size != tags.length) {
+                resize(size);
+            }
+            return new OpcDataBatch(size, tags, epochNanos, statusCodes, qualities, operationStatuses, valueTypes,
+                    doubleValues, longValues, objectValues);
+        }
+
+        private int row(String tag, long epochNanos, int statusCode, Quality quality,
+                        OperationStatus operationStatus, ValueType valueType) {
+            if (size == tags.length) {
+                resize(Math.max(8, size * 2));
+            }
+            tags[size] = tag;
+            this.epochNanos[size] = epochNanos;
+            statusCodes[size] = statusCode;
+            qualities[size] = quality;
+            operationStatuses[size] = operationStatus;
+            valueTypes[size] = valueType;
+            return size++;
+        }
+
+        private void resize(int capacity) {
+            tags = Arrays.copyOf(tags, capacity);
+            epochNanos = Arrays.copyOf(epochNanos, capacity);
+            statusCodes = Arrays.copyOf(statusCodes, capacity);
+            qualities = Arrays.copyOf(qualities, capacity);
+            operationStatuses = Arrays.copyOf(operationStatuses, capacity);
+            valueTypes = Arrays.copyOf(valueTypes, capacity);
+            if (doubleValues != null) {
+                doubleValues = Arrays.copyOf(doubleValues, capacity);
+            }
+            if (longValues != null) {
+                longValues = Arrays.copyOf(longValues, capacity);
+            }
+            if (objectValues != null) {
+                objectValues = Arrays.copyOf(objectValues, capacity);
+            }
+        }
+
+        private double[] doubleValues() {
+            if (doubleValues == null) {
+                doubleValues = new double[tags.length];
+            }
+            return doubleValues;
+        }
+
+        private long[] longValues() {
+            if (longValues == null) {
+                longValues = new long[tags.length];
+            }
+            return longValues;
+        }
+
+        private Object[] objectValues() {
+            if (objectValues == null) {
+                objectValues = new Object[tags.length];
+            }
+            return objectValues;
+        }
+    }
+}
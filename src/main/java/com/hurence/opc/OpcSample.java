@@ -0,0 +1,237 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A lightweight, immutable alternative to {@link OpcData}.
+ * <p>
+ * Timestamps are kept as nanoseconds since the epoch and numeric values are held by primitive specializations
+ * ({@link DoubleSample}, {@link LongSample}, {@link BooleanSample}). Other values fall back to {@link ObjectSample}.
+ * The {@link OperationStatus} is shared among samples having the same status code.
+ * Use {@link #toOpcData()} and {@link #of(OpcData)} to convert from and to {@link OpcData}.
+ */
+public abstract class OpcSample {
+
+    /**
+     * The tag (item) id.
+     */
+    private final String tag;
+    /**
+     * The timestamp of last data change in nanoseconds since the epoch.
+     */
+    private final long epochNanos;
+    /**
+     * The raw (protocol dependent) status code.
+     */
+    private final int statusCode;
+    /**
+     * The quality of data.
+     */
+    private final Quality quality;
+    /**
+     * The status of the operation that generated this sample.
+     */
+    private final OperationStatus operationStatus;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     */
+    protected OpcSample(String tag, long epochNanos, int statusCode, Quality quality, OperationStatus operationStatus) {
+        this.tag = tag;
+        this.epochNanos = epochNanos;
+        this.statusCode = statusCode;
+        this.quality = quality;
+        this.operationStatus = operationStatus;
+    }
+
+    /**
+     * Creates the most specialized sample able to hold a value.
+     *
+     * @param tag             the tag (item) id.
+     * @param epochNanos      the timestamp of last data change in nanoseconds since the epoch.
+     * @param statusCode      the raw status code.
+     * @param quality         the quality of the data.
+     * @param operationStatus the status of the operation that generated the sample.
+     * @param value           the value (can be null).
+     * @return a primitive specialization if the value is a boxed primitive, an {@link ObjectSample} otherwise.
+     */
+    public static OpcSample of(String tag, long epochNanos, int statusCode, Quality quality,
+                               OperationStatus operationStatus, Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return new DoubleSample(tag, epochNanos, statusCode, quality, operationStatus,
+                    ((Number) value).doubleValue(), ((Number) value).getClass());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return new LongSample(tag, epochNanos, statusCode, quality, operationStatus,
+                    ((Number) value).longValue(), ((Number) value).getClass());
+        } else if (value instanceof Boolean) {
+            return new BooleanSample(tag, epochNanos, statusCode, quality, operationStatus, (Boolean) value);
+        }
+        return new ObjectSample(tag, epochNanos, statusCode, quality, operationStatus, value);
+    }
+
+    /**
+     * Adapts an {@link OpcData} to a sample.
+     *
+     * @param opcData the data to convert.
+     * @return the matching {@link OpcSample}
+     */
+    public static OpcSample of(OpcData<?> opcData) {
+        OperationStatus operationStatus = opcData.getOperationStatus();
+        return of(opcData.getTag(),
+                opcData.getTimestamp() != null ? epochNanos(opcData.getTimestamp()) : 0L,
+                operationStatus != null ? (int) operationStatus.getCode() : 0,
+                opcData.getQuality(),
+                operationStatus,
+                opcData.getValue());
+    }
+
+    /**
+     * Converts an {@link Instant} to nanoseconds since the epoch.
+     *
+     * @param instant the instant.
+     * @return the nanoseconds elapsed since the epoch.
+     */
+    public static long epochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Adapts this sample to an {@link OpcData}.
+     *
+     * @return a new {@link OpcData} holding the boxed value.
+     */
+    public OpcData<?> toOpcData() {
+        return new OpcData<>(tag, getTimestamp(), quality, getValue(), operationStatus);
+    }
+
+    /**
+     * Gets the tag (item) id.
+     *
+     * @return the tag id.
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Gets the timestamp of last data change.
+     *
+     * @return the nanoseconds elapsed since the epoch.
+     */
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    /**
+     * Gets the timestamp of last data change (allocates a new {@link Instant}).
+     *
+     * @return the timestamp.
+     */
+    public Instant getTimestamp() {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    /**
+     * Gets the raw status code. Its meaning depends on the protocol
+     * (OPC-DA quality word or OPC-UA status code).
+     *
+     * @return the status code.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Gets the quality of data.
+     *
+     * @return the {@link Quality}
+     */
+    public Quality getQuality() {
+        return quality;
+    }
+
+    /**
+     * Gets the status of the operation that generated this sample.
+     *
+     * @return the {@link OperationStatus}
+     */
+    public OperationStatus getOperationStatus() {
+        return operationStatus;
+    }
+
+    /**
+     * Gets the value as an object. Primitive specializations box it.
+     *
+     * @return the value (can be null).
+     */
+    public abstract Object getValue();
+
+    /**
+     * Compares the values of two samples of the same class.
+     *
+     * @param other the other sample.
+     * @return true if values are equal.
+     */
+    protected abstract boolean valueEquals(OpcSample other);
+
+    /**
+     * Computes the hash code of the value.
+     *
+     * @return the hash code.
+     */
+    protected abstract int valueHashCode();
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OpcSample that = (OpcSample) o;
+        return epochNanos == that.epochNanos &&
+                statusCode == that.statusCode &&
+                quality == that.quality &&
+                Objects.equals(tag, that.tag) &&
+                Objects.equals(operationStatus, that.operationStatus) &&
+                valueEquals(that);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(tag, epochNanos, statusCode, quality) + valueHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "tag='" + tag + '\'' +
+                ", timestamp=" + getTimestamp() +
+                ", quality=" + quality +
+                ", value=" + getValue() +
+                ", operationStatus=" + operationStatus +
+                '}';
+    }
+}
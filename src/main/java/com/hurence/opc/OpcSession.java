@@ -21,7 +21,10 @@ import io.reactivex.Flowable;
 import io.reactivex.Single;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Represents a session to manipulate a group of tags.
@@ -40,6 +43,74 @@ public interface OpcSession extends AutoCloseable {
      */
     Single<List<OpcData>> read(String... tags);
 
+    /**
+     * Synchronously reads a list of tags as lightweight {@link OpcSample}s.
+     * The default implementation adapts {@link #read(String...)}. Implementations should override it to build
+     * samples straight from the protocol data.
+     * May throw {@link com.hurence.opc.exception.OpcException} in case of issues.
+     *
+     * @param tags the list of tags.
+     * @return the values that have been read.
+     */
+    default Single<List<OpcSample>> readSamples(String... tags) {
+        return read(tags).map(data -> data.stream()
+                .map(opcData -> OpcSample.of((OpcData<?>) opcData))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Synchronously reads a list of tags into a columnar {@link OpcDataBatch}.
+     * The default implementation adapts {@link #readSamples(String...)}.
+     * May throw {@link com.hurence.opc.exception.OpcException} in case of issues.
+     *
+     * @param tags the list of tags.
+     * @return the values that have been read.
+     */
+    default Single<OpcDataBatch> readBatch(String... tags) {
+        return readSamples(tags).map(OpcDataBatch::of);
+    }
+
+    /**
+     * Synchronously reads a list of tags with per call {@link ReadOptions}.
+     * The default implementation ignores the options and delegates to {@link #read(String...)}.
+     * May throw {@link com.hurence.opc.exception.OpcException} in case of issues.
+     *
+     * @param options the never null read options.
+     * @param tags    the list of tags.
+     * @return the values that have been read.
+     */
+    default Single<List<OpcData>> read(ReadOptions options, String... tags) {
+        return read(tags);
+    }
+
+    /**
+     * Synchronously reads a list of tags as lightweight {@link OpcSample}s with per call {@link ReadOptions}.
+     * The default implementation adapts {@link #read(ReadOptions, String...)}.
+     * May throw {@link com.hurence.opc.exception.OpcException} in case of issues.
+     *
+     * @param options the never null read options.
+     * @param tags    the list of tags.
+     * @return the values that have been read.
+     */
+    default Single<List<OpcSample>> readSamples(ReadOptions options, String... tags) {
+        return read(options, tags).map(data -> data.stream()
+                .map(opcData -> OpcSample.of((OpcData<?>) opcData))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Synchronously reads a list of tags into a columnar {@link OpcDataBatch} with per call {@link ReadOptions}.
+     * The default implementation adapts {@link #readSamples(ReadOptions, String...)}.
+     * May throw {@link com.hurence.opc.exception.OpcException} in case of issues.
+     *
+     * @param options the never null read options.
+     * @param tags    the list of tags.
+     * @return the values that have been read.
+     */
+    default Single<OpcDataBatch> readBatch(ReadOptions options, String... tags) {
+        return readSamples(options, tags).map(OpcDataBatch::of);
+    }
+
     /**
      * Synchronously writes a list of tags and return as soon as possible.
      * May throw {@link com.hurence.opc.exception.OpcException} in case of issues.
@@ -59,4 +130,76 @@ public interface OpcSession extends AutoCloseable {
      * @return a {@link Flowable} stream of {@link OpcData}
      */
     Flowable<OpcData> stream(String tagId, Duration samplingInterval);
+
+    /**
+     * Continuously read a stream of data for a set of tags.
+     * Values of all tags are merged in a single stream.
+     * The default implementation merges a stream per tag. Implementations should override it if the underlying
+     * protocol offers a more efficient way to subscribe to several tags at once.
+     * May throw {@link com.hurence.opc.exception.OpcException} in case of issues. In this case the streaming will be interrupted.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @return a {@link Flowable} stream of {@link OpcData}
+     */
+    default Flowable<OpcData> stream(Collection<String> tagIds, Duration samplingInterval) {
+        return Flowable.merge(tagIds.stream()
+                .map(tagId -> stream(tagId, samplingInterval))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Continuously read a stream of lightweight {@link OpcSample}s for a tag.
+     * Same semantics as {@link #stream(String, Duration)}.
+     * The default implementation adapts {@link #stream(String, Duration)}. Implementations should override it to build
+     * samples straight from the protocol data.
+     *
+     * @param tagId            the tag to be read.
+     * @param samplingInterval the sampling interval.
+     * @return a {@link Flowable} stream of {@link OpcSample}
+     */
+    default Flowable<OpcSample> streamSamples(String tagId, Duration samplingInterval) {
+        return stream(tagId, samplingInterval).map(opcData -> OpcSample.of((OpcData<?>) opcData));
+    }
+
+    /**
+     * Continuously read a stream of lightweight {@link OpcSample}s for a set of tags.
+     * Same semantics as {@link #stream(Collection, Duration)}.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @return a {@link Flowable} stream of {@link OpcSample}
+     */
+    default Flowable<OpcSample> streamSamples(Collection<String> tagIds, Duration samplingInterval) {
+        return Flowable.merge(tagIds.stream()
+                .map(tagId -> streamSamples(tagId, samplingInterval))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Continuously read a set of tags as a stream of columnar {@link OpcDataBatch}es.
+     * Implementations emit a batch per server notification (or poll cycle) holding the values received at once.
+     * The default implementation buffers {@link #streamSamples(Collection, Duration)} over the sampling interval.
+     * May throw {@link com.hurence.opc.exception.OpcException} in case of issues. In this case the streaming will be interrupted.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @return a {@link Flowable} stream of non empty {@link OpcDataBatch}
+     */
+    default Flowable<OpcDataBatch> streamBatches(Collection<String> tagIds, Duration samplingInterval) {
+        return streamSamples(tagIds, samplingInterval)
+                .buffer(samplingInterval.toNanos(), TimeUnit.NANOSECONDS)
+                .filter(samples -> !samples.isEmpty())
+                .map(OpcDataBatch::of);
+    }
+
+    /**
+     * Gets the number of streamed values dropped so far because subscribers were too slow.
+     * See {@link SessionProfile#getOverflowPolicy()}.
+     *
+     * @return the number of dropped values (defaults to 0).
+     */
+    default long getDroppedSamples() {
+        return 0;
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.hurence.opc;
+
+/**
+ * What a stream does with values its subscriber is too slow to consume.
+ * Each stream subscriber owns a buffer bounded by {@link SessionProfile#getBufferSize()}.
+ *
+ * @author amarziali
+ */
+public enum OverflowPolicy {
+    /**
+     * Buffers up to the buffer size. Incoming values are dropped while the buffer is full.
+     */
+    BUFFER,
+    /**
+     * Buffers up to the buffer size. The oldest buffered value is dropped to make room for the incoming one.
+     */
+    DROP_OLDEST,
+    /**
+     * Conflates values: only the latest value of each tag is kept, whatever the update rate.
+     * Multi tag streams drain tags in the order they were first updated. Batch streams emit a single batch holding
+     * the latest value of every updated tag. The buffer size does not apply.
+     */
+    LATEST,
+    /**
+     * Buffers up to the buffer size, then blocks the thread delivering values until the subscriber catches up.
+     * Nothing is dropped but a slow subscriber also slows down every other stream fed by the same thread.
+     */
+    BLOCK
+}
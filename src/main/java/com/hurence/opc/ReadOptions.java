@@ -0,0 +1,126 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.hurence.opc;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Per call options of a read. Override the session defaults for a single read.
+ * <p>
+ * The maximum age tells how old a value may be to be served from the server cache rather than from the device.
+ * OPC-UA sends it as is (the Read maxAge parameter). OPC-DA has no such notion on synchronous reads: a zero maximum
+ * age reads from the device and any other one from the server cache.
+ *
+ * @author amarziali
+ */
+public final class ReadOptions {
+
+    /**
+     * The longest maximum age. Tells the server to return its cached value, whatever its age.
+     */
+    private static final Duration MAX_AGE_CACHE = Duration.ofMillis(Integer.MAX_VALUE);
+
+    /**
+     * Uses the session defaults.
+     */
+    public static final ReadOptions DEFAULT = new ReadOptions(null);
+
+    /**
+     * Always reads fresh values from the device.
+     */
+    public static final ReadOptions DEVICE = new ReadOptions(Duration.ZERO);
+
+    /**
+     * Reads the values the server has in cache.
+     */
+    public static final ReadOptions CACHE = new ReadOptions(MAX_AGE_CACHE);
+
+    private final Duration maxAge;
+
+    private ReadOptions(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Reads values not older than a maximum age.
+     *
+     * @param maxAge the never null, positive maximum age. Zero reads from the device.
+     * @return the options.
+     */
+    public static ReadOptions maxAge(@Nonnull Duration maxAge) {
+        if (maxAge.isNegative()) {
+            throw new IllegalArgumentException("maxAge must be positive");
+        }
+        if (maxAge.isZero()) {
+            return DEVICE;
+        }
+        return maxAge.compareTo(MAX_AGE_CACHE) >= 0 ? CACHE : new ReadOptions(maxAge);
+    }
+
+    /**
+     * Gets the maximum age of the values.
+     *
+     * @return the maximum age or null to use the session default.
+     */
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Gets the maximum age in milliseconds.
+     *
+     * @param defaultMaxAge the maximum age to use if unset.
+     * @return the maximum age, at most {@link Integer#MAX_VALUE} (served from cache).
+     */
+    public double getMaxAgeMillis(double defaultMaxAge) {
+        return maxAge != null ? maxAge.toMillis() : defaultMaxAge;
+    }
+
+    /**
+     * Tells whether values must be read from the device.
+     *
+     * @param defaultDevice what to answer if the maximum age is unset.
+     * @return true if values must be read from the device, false if the server cache can be used.
+     */
+    public boolean isDevice(boolean defaultDevice) {
+        return maxAge != null ? maxAge.isZero() : defaultDevice;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReadOptions that = (ReadOptions) o;
+        return Objects.equals(maxAge, that.maxAge);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxAge);
+    }
+
+    @Override
+    public String toString() {
+        return "ReadOptions{" +
+                "maxAge=" + maxAge +
+                '}';
+    }
+}
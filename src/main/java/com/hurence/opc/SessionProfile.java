@@ -24,5 +24,85 @@ package com.hurence.opc;
  */
 public abstract class SessionProfile<T extends SessionProfile> {
 
+    /**
+     * What streams do when a subscriber is too slow. Defaults to {@link OverflowPolicy#BUFFER}.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BUFFER;
 
+    /**
+     * The maximum number of values buffered for each stream subscriber. Defaults to 10000.
+     */
+    private int bufferSize = 10_000;
+
+    /**
+     * Get what streams do when a subscriber is too slow.
+     *
+     * @return the {@link OverflowPolicy}
+     */
+    public final OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set what streams do when a subscriber is too slow.
+     *
+     * @param overflowPolicy the never null {@link OverflowPolicy}
+     */
+    public final void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy must not be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Set what streams do when a subscriber is too slow.
+     *
+     * @param overflowPolicy the never null {@link OverflowPolicy}
+     * @return itself.
+     */
+    public final T withOverflowPolicy(OverflowPolicy overflowPolicy) {
+        setOverflowPolicy(overflowPolicy);
+        return (T) this;
+    }
+
+    /**
+     * Get the maximum number of values buffered for each stream subscriber.
+     *
+     * @return the buffer size.
+     */
+    public final int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Set the maximum number of values buffered for each stream subscriber.
+     *
+     * @param bufferSize a strictly positive buffer size.
+     */
+    public final void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be strictly positive");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Set the maximum number of values buffered for each stream subscriber.
+     *
+     * @param bufferSize a strictly positive buffer size.
+     * @return itself.
+     */
+    public final T withBufferSize(int bufferSize) {
+        setBufferSize(bufferSize);
+        return (T) this;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionProfile{" +
+                "overflowPolicy=" + overflowPolicy +
+                ", bufferSize=" + bufferSize +
+                '}';
+    }
 }
@@ -0,0 +1,501 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.hurence.opc;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableSubscriber;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Bounded buffers standing between hot value sources and stream subscribers.
+ * Applies an {@link OverflowPolicy} and reports the dropped values.
+ * <p>
+ * With {@link OverflowPolicy#LATEST} values are conflated: a slot per tag is overwritten on update and drained in
+ * the order tags were first updated. Memory only depends on the number of tags.
+ *
+ * @author amarziali
+ */
+public final class StreamBuffer {
+
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final LongAdder depth;
+    private final IntConsumer dropped;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param policy   the overflow policy.
+     * @param capacity the maximum number of items buffered per subscriber.
+     * @param depth    counts the values currently buffered. May be null.
+     * @param dropped  notified with the number of values dropped.
+     */
+    public StreamBuffer(OverflowPolicy policy, int capacity, LongAdder depth, IntConsumer dropped) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be strictly positive");
+        }
+        this.policy = policy;
+        this.capacity = capacity;
+        this.depth = depth;
+        this.dropped = dropped;
+    }
+
+    /**
+     * Buffers the values of a single tag.
+     *
+     * @param source the hot source.
+     * @param <T>    the value type.
+     * @return a {@link Flowable} honouring backpressure.
+     */
+    public <T> Flowable<T> buffer(Flowable<T> source) {
+        return subscribe(source, downstream -> policy == OverflowPolicy.LATEST ?
+                new BoundedSubscriber<>(downstream, OverflowPolicy.DROP_OLDEST, 1) :
+                new BoundedSubscriber<>(downstream, policy, capacity));
+    }
+
+    /**
+     * Merges and buffers the values of several tags.
+     *
+     * @param sources the hot sources (usually one per tag). They should not buffer by themselves.
+     * @param tagOf   tells the tag of a value.
+     * @param <T>     the value type.
+     * @return a {@link Flowable} honouring backpressure.
+     */
+    public <T> Flowable<T> bufferMerged(List<? extends Flowable<? extends T>> sources, Function<? super T, String> tagOf) {
+        final Flowable<T> merged = Flowable.merge(sources);
+        if (policy == OverflowPolicy.LATEST) {
+            return subscribe(merged, downstream -> new ConflatingSubscriber<>(downstream, tagOf));
+        }
+        return subscribe(merged, downstream -> new BoundedSubscriber<>(downstream, policy, capacity));
+    }
+
+    /**
+     * Buffers batches holding values of several tags.
+     * With {@link OverflowPolicy#LATEST} each emitted batch holds the latest value of every tag updated since the
+     * previous one.
+     *
+     * @param source the hot source.
+     * @return a {@link Flowable} honouring backpressure.
+     */
+    public Flowable<OpcDataBatch> bufferBatches(Flowable<OpcDataBatch> source) {
+        if (policy == OverflowPolicy.LATEST) {
+            return subscribe(source, downstream -> new BatchConflatingSubscriber(downstream));
+        }
+        return subscribe(source, downstream -> new BoundedSubscriber<OpcDataBatch>(downstream, policy, capacity) {
+            @Override
+            int weight(OpcDataBatch batch) {
+                return batch.size();
+            }
+        });
+    }
+
+    private <T> Flowable<T> subscribe(Flowable<T> source, Function<Subscriber<? super T>, FlowableSubscriber<T>> factory) {
+        return Flowable.fromPublisher(subscriber -> source.subscribe(factory.apply(subscriber)));
+    }
+
+    private void addDepth(int count) {
+        if (depth != null) {
+            depth.add(count);
+        }
+    }
+
+    /**
+     * Requests everything upstream and queues values until the downstream requests them.
+     *
+     * @param <T> the value type.
+     */
+    private abstract class AbstractBufferSubscriber<T> implements FlowableSubscriber<T>, Subscription {
+
+        final Subscriber<? super T> downstream;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private Subscription upstream;
+        private volatile boolean done;
+        volatile boolean cancelled;
+        private Throwable error;
+
+        AbstractBufferSubscriber(Subscriber<? super T> downstream) {
+            this.downstream = downstream;
+        }
+
+        /**
+         * Queues a value.
+         *
+         * @param t the value.
+         */
+        abstract void offer(T t);
+
+        /**
+         * Takes the next value to emit.
+         *
+         * @return the value or null if none.
+         */
+        abstract T poll();
+
+        abstract boolean isEmpty();
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            upstream = s;
+            downstream.onSubscribe(this);
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (cancelled || done) {
+                return;
+            }
+            offer(t);
+            if (cancelled) {
+                //raced with cancel() which may have already cleared the queue
+                clear();
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                downstream.onError(new IllegalArgumentException("Requested amount must be strictly positive but was " + n));
+                return;
+            }
+            long r;
+            do {
+                r = requested.get();
+            } while (r != Long.MAX_VALUE && !requested.compareAndSet(r, r + n < 0 ? Long.MAX_VALUE : r + n));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+                if (wip.getAndIncrement() == 0) {
+                    clear();
+                }
+            }
+        }
+
+        void clear() {
+            while (poll() != null) {
+                //discard
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (; ; ) {
+                long r = requested.get();
+                long e = 0;
+                while (e != r) {
+                    if (checkTerminated(done, false)) {
+                        return;
+                    }
+                    boolean d = done;
+                    T t = poll();
+                    if (checkTerminated(d, t == null)) {
+                        return;
+                    }
+                    if (t == null) {
+                        break;
+                    }
+                    downstream.onNext(t);
+                    e++;
+                }
+                if (e == r && checkTerminated(done, isEmpty())) {
+                    return;
+                }
+                if (e != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        private boolean checkTerminated(boolean d, boolean empty) {
+            if (cancelled) {
+                clear();
+                return true;
+            }
+            if (d) {
+                if (error != null) {
+                    clear();
+                    downstream.onError(error);
+                    return true;
+                }
+                if (empty) {
+                    downstream.onComplete();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Queues up to capacity values.
+     *
+     * @param <T> the value type.
+     */
+    private class BoundedSubscriber<T> extends AbstractBufferSubscriber<T> {
+
+        private final OverflowPolicy policy;
+        private final int capacity;
+        /**
+         * Guarded by itself.
+         */
+        private final ArrayDeque<T> queue = new ArrayDeque<>();
+        private final Semaphore permits;
+
+        BoundedSubscriber(Subscriber<? super T> downstream, OverflowPolicy policy, int capacity) {
+            super(downstream);
+            this.policy = policy;
+            this.capacity = capacity;
+            this.permits = policy == OverflowPolicy.BLOCK ? new Semaphore(capacity) : null;
+        }
+
+        /**
+         * Tells how many values an item holds.
+         *
+         * @param t the item.
+         * @return the number of values.
+         */
+        int weight(T t) {
+            return 1;
+        }
+
+        @Override
+        void offer(T t) {
+            if (permits != null && !acquire()) {
+                return;
+            }
+            final boolean enqueued;
+            final T evicted;
+            synchronized (queue) {
+                if (queue.size() < capacity) {
+                    enqueued = true;
+                    evicted = null;
+                } else if (policy == OverflowPolicy.BUFFER) {
+                    enqueued = false;
+                    evicted = t;
+                } else {
+                    enqueued = true;
+                    evicted = queue.poll();
+                }
+                if (enqueued) {
+                    queue.offer(t);
+                }
+            }
+            if (enqueued) {
+                addDepth(weight(t));
+            }
+            if (evicted != null) {
+                int count = weight(evicted);
+                if (enqueued) {
+                    addDepth(-count);
+                }
+                dropped.accept(count);
+            }
+        }
+
+        /**
+         * Waits for room in the buffer.
+         *
+         * @return false if cancelled or interrupted meanwhile.
+         */
+        private boolean acquire() {
+            try {
+                while (!cancelled) {
+                    if (permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        @Override
+        T poll() {
+            T t;
+            synchronized (queue) {
+                t = queue.poll();
+            }
+            if (t != null) {
+                addDepth(-weight(t));
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+            return t;
+        }
+
+        @Override
+        boolean isEmpty() {
+            synchronized (queue) {
+                return queue.isEmpty();
+            }
+        }
+    }
+
+    /**
+     * Keeps the latest value of each tag.
+     *
+     * @param <T> the value type.
+     */
+    private final class ConflatingSubscriber<T> extends AbstractBufferSubscriber<T> {
+
+        private final Function<? super T, String> tagOf;
+        /**
+         * Guarded by itself. Overwriting a slot keeps its position.
+         */
+        private final Map<String, T> slots = new LinkedHashMap<>();
+
+        ConflatingSubscriber(Subscriber<? super T> downstream, Function<? super T, String> tagOf) {
+            super(downstream);
+            this.tagOf = tagOf;
+        }
+
+        @Override
+        void offer(T t) {
+            final T previous;
+            synchronized (slots) {
+                previous = slots.put(tagOf.apply(t), t);
+            }
+            if (previous == null) {
+                addDepth(1);
+            } else {
+                dropped.accept(1);
+            }
+        }
+
+        @Override
+        T poll() {
+            T t = null;
+            synchronized (slots) {
+                Iterator<T> iterator = slots.values().iterator();
+                if (iterator.hasNext()) {
+                    t = iterator.next();
+                    iterator.remove();
+                }
+            }
+            if (t != null) {
+                addDepth(-1);
+            }
+            return t;
+        }
+
+        @Override
+        boolean isEmpty() {
+            synchronized (slots) {
+                return slots.isEmpty();
+            }
+        }
+    }
+
+    /**
+     * Keeps the latest value of each tag and emits them all at once.
+     */
+    private final class BatchConflatingSubscriber extends AbstractBufferSubscriber<OpcDataBatch> {
+
+        /**
+         * Guarded by itself. Overwriting a slot keeps its position.
+         */
+        private final Map<String, OpcSample> slots = new LinkedHashMap<>();
+
+        BatchConflatingSubscriber(Subscriber<? super OpcDataBatch> downstream) {
+            super(downstream);
+        }
+
+        @Override
+        void offer(OpcDataBatch batch) {
+            int added = 0;
+            synchronized (slots) {
+                for (int i = 0; i < batch.size(); i++) {
+                    if (slots.put(batch.getTag(i), batch.getSample(i)) == null) {
+                        added++;
+                    }
+                }
+            }
+            addDepth(added);
+            if (added < batch.size()) {
+                dropped.accept(batch.size() - added);
+            }
+        }
+
+        @Override
+        OpcDataBatch poll() {
+            final OpcDataBatch.Builder builder;
+            synchronized (slots) {
+                if (slots.isEmpty()) {
+                    return null;
+                }
+                builder = OpcDataBatch.builder(slots.size());
+                slots.values().forEach(builder::add);
+                slots.clear();
+            }
+            OpcDataBatch ret = builder.build();
+            addDepth(-ret.size());
+            return ret;
+        }
+
+        @Override
+        boolean isEmpty() {
+            synchronized (slots) {
+                return slots.isEmpty();
+            }
+        }
+    }
+}
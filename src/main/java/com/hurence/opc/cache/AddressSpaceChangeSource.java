@@ -0,0 +1,49 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.cache;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+import java.time.Instant;
+
+/**
+ * Implemented by {@link com.hurence.opc.OpcOperations} able to tell when the server address space changes.
+ * Used by {@link CachingOpcOperations} to invalidate cached metadata.
+ *
+ * @author amarziali
+ */
+public interface AddressSpaceChangeSource {
+
+    /**
+     * Computes a fingerprint of the server address space (e.g. from the OPC-UA namespace table).
+     * Two different fingerprints mean cached metadata cannot be trusted anymore.
+     * Requires an established connection.
+     *
+     * @return the fingerprint.
+     */
+    Single<String> addressSpaceFingerprint();
+
+    /**
+     * Notifies changes of the server address space.
+     * Requires an established connection. Completes when the connection is released.
+     *
+     * @return a {@link Flowable} emitting the time of each detected change.
+     */
+    Flowable<Instant> addressSpaceChanges();
+}
@@ -0,0 +1,299 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.cache;
+
+import com.hurence.opc.*;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decorates an {@link OpcOperations} with a {@link TagMetadataCache}.
+ * <p>
+ * {@link #browseTags()} and {@link #fetchMetadata(String...)} are served from the cache when possible.
+ * Stale entries are served as well and revalidated in background. The cache is persisted after each update.
+ * <p>
+ * If the decorated operations implement {@link AddressSpaceChangeSource}, the cache is dropped on connection
+ * when the address space fingerprint changed and whenever the server notifies a change.
+ * Other operations are simply delegated.
+ *
+ * @author amarziali
+ */
+public class CachingOpcOperations<T extends ConnectionProfile, U extends SessionProfile, V extends OpcSession>
+        implements OpcOperations<T, U, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingOpcOperations.class);
+
+    private final OpcOperations<T, U, V> delegate;
+    private final TagMetadataCache cache;
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean revalidatingBrowse = new AtomicBoolean();
+    private volatile Disposable changesDisposable = Disposables.disposed();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate the decorated operations.
+     * @param cache    the cache to use.
+     */
+    public CachingOpcOperations(@Nonnull OpcOperations<T, U, V> delegate, @Nonnull TagMetadataCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the underlying cache.
+     *
+     * @return the {@link TagMetadataCache}
+     */
+    public TagMetadataCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Single<CachingOpcOperations<T, U, V>> connect(@Nonnull T connectionProfile) {
+        return delegate.connect(connectionProfile)
+                .flatMapCompletable(ignored -> validateCache(String.valueOf(connectionProfile.getConnectionUri())))
+                .andThen(Single.just(this));
+    }
+
+    /**
+     * Checks the cache still matches the server and starts listening for address space changes.
+     *
+     * @param source the server identity.
+     * @return a {@link Completable} task never failing.
+     */
+    private Completable validateCache(String source) {
+        if (!(delegate instanceof AddressSpaceChangeSource)) {
+            return Completable.fromAction(() -> cache.validate(source, null));
+        }
+        AddressSpaceChangeSource changeSource = (AddressSpaceChangeSource) delegate;
+        return changeSource.addressSpaceFingerprint()
+                .doOnError(e -> logger.warn("Unable to compute address space fingerprint. Cache may be outdated", e))
+                .onErrorReturnItem("")
+                .doOnSuccess(fingerprint -> {
+                    cache.validate(source, fingerprint.isEmpty() ? null : fingerprint);
+                    changesDisposable.dispose();
+                    changesDisposable = changeSource.addressSpaceChanges()
+                            .subscribe(instant -> {
+                                        logger.info("Server address space changed at {}. Invalidating tag metadata cache", instant);
+                                        cache.invalidateAll();
+                                        save();
+                                    },
+                                    e -> logger.warn("Stopped listening for address space changes", e));
+                })
+                .ignoreElement();
+    }
+
+    @Override
+    public Completable disconnect() {
+        return Completable.fromAction(() -> {
+            changesDisposable.dispose();
+            save();
+        }).andThen(delegate.disconnect());
+    }
+
+    @Override
+    public boolean isChannelSecured() {
+        return delegate.isChannelSecured();
+    }
+
+    @Override
+    public Observable<ConnectionState> getConnectionState() {
+        return delegate.getConnectionState();
+    }
+
+    @Override
+    public Flowable<OpcTagInfo> browseTags() {
+        return Flowable.defer(() -> {
+            Optional<List<TagMetadataCache.Entry>> cached = cache.getBrowsedTags();
+            if (cached.isPresent()) {
+                if (!cached.get().isEmpty() && cached.get().get(0).isStale()) {
+                    revalidateBrowse();
+                }
+                return Flowable.fromIterable(cached.get()).map(TagMetadataCache.Entry::getTagInfo);
+            }
+            List<OpcTagInfo> browsed = Collections.synchronizedList(new ArrayList<>());
+            return delegate.browseTags()
+                    .doOnNext(browsed::add)
+                    .doOnComplete(() -> {
+                        cache.putBrowsedTags(browsed);
+                        save();
+                    });
+        });
+    }
+
+    @Override
+    public Flowable<OpcObjectInfo> fetchNextTreeLevel(@Nonnull String rootTagId) {
+        return delegate.fetchNextTreeLevel(rootTagId);
+    }
+
+    @Override
+    public Flowable<OpcTagInfo> fetchMetadata(@Nonnull String... tagIds) {
+        return Flowable.defer(() -> {
+            List<OpcTagInfo> hits = new ArrayList<>();
+            List<String> stale = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            for (String tagId : tagIds) {
+                Optional<List<TagMetadataCache.Entry>> entries = cache.getFetched(tagId);
+                if (entries.isPresent()) {
+                    entries.get().forEach(entry -> hits.add(entry.getTagInfo()));
+                    if (!entries.get().isEmpty() && entries.get().get(0).isStale()) {
+                        stale.add(tagId);
+                    }
+                } else {
+                    missing.add(tagId);
+                }
+            }
+            revalidate(stale);
+            Flowable<OpcTagInfo> ret = Flowable.fromIterable(hits);
+            if (!missing.isEmpty()) {
+                ret = ret.concatWith(fetchEach(missing)
+                        .doOnSuccess(fetched -> {
+                            fetched.forEach(cache::putFetched);
+                            save();
+                        })
+                        .flattenAsFlowable(Map::values)
+                        .concatMapIterable(tags -> tags));
+            }
+            //a tag may be requested and be the child of another requested tag as well.
+            return ret.distinct(OpcTagInfo::getId);
+        });
+    }
+
+    /**
+     * Fetches the metadata of some tags and tells what has been returned for each of them
+     * (the tag itself and its children if any).
+     * Tags are fetched with a single call unless the delegate returns children of several requested tags,
+     * which cannot be told apart. They are then fetched one by one.
+     *
+     * @param tagIds the tags to fetch.
+     * @return the fetched tags by requested tag id. Tags the delegate did not return are missing.
+     */
+    private Single<Map<String, List<OpcTagInfo>>> fetchEach(List<String> tagIds) {
+        return delegate.fetchMetadata(tagIds.toArray(new String[0]))
+                .toList()
+                .flatMap(fetched -> {
+                    Map<String, List<OpcTagInfo>> ret = new LinkedHashMap<>();
+                    if (tagIds.size() == 1) {
+                        if (!fetched.isEmpty()) {
+                            ret.put(tagIds.get(0), fetched);
+                        }
+                        return Single.just(ret);
+                    }
+                    Set<String> requested = new HashSet<>(tagIds);
+                    if (fetched.stream().allMatch(info -> requested.contains(info.getId()))) {
+                        fetched.forEach(info -> ret.put(info.getId(), Collections.singletonList(info)));
+                        return Single.just(ret);
+                    }
+                    return Flowable.fromIterable(tagIds)
+                            .concatMapSingle(tagId -> delegate.fetchMetadata(tagId)
+                                    .toList()
+                                    .map(tags -> new AbstractMap.SimpleImmutableEntry<>(tagId, tags)))
+                            .filter(entry -> !entry.getValue().isEmpty())
+                            .toMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+                });
+    }
+
+    /**
+     * Refresh some tags in background if connected.
+     *
+     * @param tagIds the tags to refresh.
+     */
+    private void revalidate(List<String> tagIds) {
+        List<String> toFetch = new ArrayList<>();
+        for (String tagId : tagIds) {
+            if (revalidating.add(tagId)) {
+                toFetch.add(tagId);
+            }
+        }
+        if (toFetch.isEmpty()) {
+            return;
+        }
+        if (!isConnected()) {
+            revalidating.removeAll(toFetch);
+            return;
+        }
+        fetchEach(toFetch)
+                .subscribeOn(Schedulers.io())
+                .doFinally(() -> revalidating.removeAll(toFetch))
+                .subscribe(fetched -> {
+                            fetched.forEach(cache::putFetched);
+                            save();
+                        },
+                        e -> logger.warn("Unable to revalidate cached metadata for tags " + toFetch, e));
+    }
+
+    /**
+     * Browse again in background if connected.
+     */
+    private void revalidateBrowse() {
+        if (!isConnected() || !revalidatingBrowse.compareAndSet(false, true)) {
+            return;
+        }
+        delegate.browseTags()
+                .subscribeOn(Schedulers.io())
+                .toList()
+                .doFinally(() -> revalidatingBrowse.set(false))
+                .subscribe(tags -> {
+                            cache.putBrowsedTags(tags);
+                            save();
+                        },
+                        e -> logger.warn("Unable to revalidate cached browse result", e));
+    }
+
+    private boolean isConnected() {
+        return delegate.getConnectionState().blockingFirst() == ConnectionState.CONNECTED;
+    }
+
+    private void save() {
+        try {
+            cache.save();
+        } catch (Exception e) {
+            logger.warn("Unable to persist tag metadata cache", e);
+        }
+    }
+
+    @Override
+    public Single<V> createSession(@Nonnull U sessionProfile) {
+        return delegate.createSession(sessionProfile);
+    }
+
+    @Override
+    public Completable releaseSession(@Nonnull V session) {
+        return delegate.releaseSession(session);
+    }
+
+    @Override
+    public void close() throws Exception {
+        changesDisposable.dispose();
+        save();
+        delegate.close();
+    }
+}
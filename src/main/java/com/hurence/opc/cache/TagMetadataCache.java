@@ -0,0 +1,563 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.cache;
+
+import com.hurence.opc.OpcTagInfo;
+import com.hurence.opc.OpcTagProperty;
+import com.hurence.opc.exception.OpcException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A size bounded cache of {@link OpcTagInfo}, optionally persisted to a local file.
+ * <p>
+ * Entries older than the configured time to live are still served but flagged as stale.
+ * Least recently used entries are evicted first once the maximum size is reached.
+ * <p>
+ * The file is a gzipped binary stream. Property values are restored with their type
+ * for java primitives, strings, {@link BigInteger} and arrays of those. Other values are stored as strings.
+ *
+ * @author amarziali
+ */
+public class TagMetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagMetadataCache.class);
+
+    private static final int MAGIC = 0x4F504343;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte T_NULL = 0;
+    private static final byte T_BOOLEAN = 1;
+    private static final byte T_BYTE = 2;
+    private static final byte T_SHORT = 3;
+    private static final byte T_INT = 4;
+    private static final byte T_LONG = 5;
+    private static final byte T_FLOAT = 6;
+    private static final byte T_DOUBLE = 7;
+    private static final byte T_STRING = 8;
+    private static final byte T_BYTES = 9;
+    private static final byte T_BIGINTEGER = 10;
+    private static final byte T_ARRAY = 11;
+    private static final byte T_CHAR = 12;
+
+    private final TagMetadataCacheProfile profile;
+    private final Clock clock;
+    private final LinkedHashMap<String, StoredEntry> entries;
+    private String source;
+    private String fingerprint;
+    private List<String> browsedTags;
+    private long browsedAt;
+    private boolean dirty;
+
+    /**
+     * Creates a cache and loads it from its file if any.
+     *
+     * @param profile the cache configuration.
+     */
+    public TagMetadataCache(TagMetadataCacheProfile profile) {
+        this(profile, Clock.systemUTC());
+    }
+
+    TagMetadataCache(TagMetadataCacheProfile profile, Clock clock) {
+        this.profile = profile;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, StoredEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredEntry> eldest) {
+                return size() > profile.getMaxEntries();
+            }
+        };
+        load();
+    }
+
+    /**
+     * A cached tag.
+     */
+    public static final class Entry {
+        private final OpcTagInfo tagInfo;
+        private final boolean stale;
+
+        private Entry(OpcTagInfo tagInfo, long fetchedAt, long timeToLive, long now) {
+            this.tagInfo = tagInfo;
+            this.stale = now - fetchedAt > timeToLive;
+        }
+
+        /**
+         * The cached metadata.
+         *
+         * @return the {@link OpcTagInfo}
+         */
+        public OpcTagInfo getTagInfo() {
+            return tagInfo;
+        }
+
+        /**
+         * Whether the entry outlived the configured time to live and should be revalidated.
+         *
+         * @return true if stale.
+         */
+        public boolean isStale() {
+            return stale;
+        }
+    }
+
+    /**
+     * Look up a tag.
+     *
+     * @param tagId the tag id.
+     * @return the cached entry or empty if unknown.
+     */
+    public synchronized Optional<Entry> get(String tagId) {
+        StoredEntry stored = entries.get(tagId);
+        return stored == null ? Optional.empty() :
+                Optional.of(new Entry(stored.tagInfo, stored.fetchedAt, ttl(), clock.millis()));
+    }
+
+    /**
+     * Stores or refreshes a tag.
+     *
+     * @param tagInfo the tag metadata.
+     */
+    public synchronized void put(OpcTagInfo tagInfo) {
+        StoredEntry previous = entries.get(tagInfo.getId());
+        entries.put(tagInfo.getId(), new StoredEntry(tagInfo, clock.millis(), previous != null ? previous.fetched : null));
+        dirty = true;
+    }
+
+    /**
+     * Gets what a metadata fetch of a tag returned last time if all those tags are still cached.
+     *
+     * @param tagId the requested tag id.
+     * @return the tag and its children if any (all stale if one of them is stale) or empty if unknown.
+     */
+    public synchronized Optional<List<Entry>> getFetched(String tagId) {
+        StoredEntry requested = entries.get(tagId);
+        if (requested == null || requested.fetched == null) {
+            return Optional.empty();
+        }
+        long now = clock.millis();
+        List<StoredEntry> stored = new ArrayList<>(requested.fetched.size());
+        long fetchedAt = requested.fetchedAt;
+        for (String id : requested.fetched) {
+            StoredEntry entry = entries.get(id);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            stored.add(entry);
+            fetchedAt = Math.min(fetchedAt, entry.fetchedAt);
+        }
+        List<Entry> ret = new ArrayList<>(stored.size());
+        for (StoredEntry entry : stored) {
+            ret.add(new Entry(entry.tagInfo, fetchedAt, ttl(), now));
+        }
+        return Optional.of(ret);
+    }
+
+    /**
+     * Records what a metadata fetch of a tag returned.
+     *
+     * @param tagId the requested tag id.
+     * @param tags  the fetched tags (the requested one and its children if any).
+     */
+    public synchronized void putFetched(String tagId, Collection<OpcTagInfo> tags) {
+        List<String> ids = new ArrayList<>(tags.size());
+        for (OpcTagInfo tag : tags) {
+            put(tag);
+            ids.add(tag.getId());
+        }
+        StoredEntry requested = entries.get(tagId);
+        if (requested != null) {
+            entries.put(tagId, new StoredEntry(requested.tagInfo, requested.fetchedAt, ids));
+        }
+    }
+
+    /**
+     * Gets the result of the last complete browse if all its tags are still cached.
+     *
+     * @return the browsed tags (stale if the browse itself is stale) or empty if unknown.
+     */
+    public synchronized Optional<List<Entry>> getBrowsedTags() {
+        if (browsedTags == null) {
+            return Optional.empty();
+        }
+        long now = clock.millis();
+        List<Entry> ret = new ArrayList<>(browsedTags.size());
+        for (String id : browsedTags) {
+            StoredEntry stored = entries.get(id);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            ret.add(new Entry(stored.tagInfo, browsedAt, ttl(), now));
+        }
+        return Optional.of(ret);
+    }
+
+    /**
+     * Records the result of a complete browse.
+     *
+     * @param tags the browsed tags.
+     */
+    public synchronized void putBrowsedTags(Collection<OpcTagInfo> tags) {
+        List<String> ids = new ArrayList<>(tags.size());
+        for (OpcTagInfo tag : tags) {
+            put(tag);
+            ids.add(tag.getId());
+        }
+        browsedTags = ids;
+        browsedAt = clock.millis();
+        dirty = true;
+    }
+
+    /**
+     * Binds the cache to a server and an address space fingerprint.
+     * Everything is dropped if they differ from the stored ones.
+     *
+     * @param source      the server identity (e.g. the connection uri).
+     * @param fingerprint the address space fingerprint (null if unknown).
+     */
+    public synchronized void validate(String source, String fingerprint) {
+        if (!Objects.equals(this.source, source) ||
+                (fingerprint != null && !Objects.equals(this.fingerprint, fingerprint))) {
+            if (!entries.isEmpty() || browsedTags != null) {
+                logger.info("Server address space changed. Invalidating tag metadata cache");
+            }
+            invalidateAll();
+            this.source = source;
+            this.fingerprint = fingerprint;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drops every cached entry.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        browsedTags = null;
+        browsedAt = 0;
+        dirty = true;
+    }
+
+    /**
+     * The number of cached tags.
+     *
+     * @return the size.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Persists the cache if backed by a file and modified since last save.
+     */
+    public synchronized void save() {
+        Path file = profile.getFile();
+        if (file == null || !dirty) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            dirty = false;
+        } catch (IOException e) {
+            throw new OpcException("Unable to save tag metadata cache to " + file, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    logger.warn("Unable to delete temporary file " + tmp, e);
+                }
+            }
+        }
+    }
+
+    private synchronized void load() {
+        Path file = profile.getFile();
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            read(in);
+            dirty = false;
+            logger.info("Loaded {} tags from metadata cache {}", entries.size(), file);
+        } catch (Exception e) {
+            logger.warn("Unable to load tag metadata cache from " + file + ". Starting empty", e);
+            entries.clear();
+            browsedTags = null;
+            source = null;
+            fingerprint = null;
+        }
+    }
+
+    private long ttl() {
+        return profile.getTimeToLive().toMillis();
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, source);
+        writeString(out, fingerprint);
+        out.writeLong(browsedAt);
+        out.writeInt(browsedTags == null ? -1 : browsedTags.size());
+        if (browsedTags != null) {
+            for (String id : browsedTags) {
+                writeString(out, id);
+            }
+        }
+        //least recently used first so that the access order survives a restart.
+        out.writeInt(entries.size());
+        for (StoredEntry entry : entries.values().toArray(new StoredEntry[0])) {
+            out.writeLong(entry.fetchedAt);
+            writeTagInfo(out, entry.tagInfo);
+            out.writeInt(entry.fetched == null ? -1 : entry.fetched.size());
+            if (entry.fetched != null) {
+                for (String id : entry.fetched) {
+                    writeString(out, id);
+                }
+            }
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported file format");
+        }
+        source = readString(in);
+        fingerprint = readString(in);
+        browsedAt = in.readLong();
+        int browsed = in.readInt();
+        if (browsed >= 0) {
+            browsedTags = new ArrayList<>(browsed);
+            for (int i = 0; i < browsed; i++) {
+                browsedTags.add(readString(in));
+            }
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long fetchedAt = in.readLong();
+            OpcTagInfo tagInfo = readTagInfo(in);
+            int fetchedCount = in.readInt();
+            List<String> fetched = null;
+            if (fetchedCount >= 0) {
+                fetched = new ArrayList<>(fetchedCount);
+                for (int j = 0; j < fetchedCount; j++) {
+                    fetched.add(readString(in));
+                }
+            }
+            entries.put(tagInfo.getId(), new StoredEntry(tagInfo, fetchedAt, fetched));
+        }
+    }
+
+    private static void writeTagInfo(DataOutputStream out, OpcTagInfo info) throws IOException {
+        writeString(out, info.getId());
+        writeString(out, info.getName());
+        writeString(out, info.getDescription().orElse(null));
+        Type type = info.getType();
+        writeString(out, type instanceof Class ? ((Class<?>) type).getName() : null);
+        out.writeLong(info.getScanRate().map(Duration::toNanos).orElse(-1L));
+        out.writeBoolean(info.getAccessRights().isReadable());
+        out.writeBoolean(info.getAccessRights().isWritable());
+        Set<OpcTagProperty> properties = info.getProperties();
+        out.writeInt(properties.size());
+        for (OpcTagProperty property : properties) {
+            writeString(out, property.getKey());
+            writeString(out, property.getDescription());
+            writeValue(out, property.getValue());
+        }
+    }
+
+    private static OpcTagInfo readTagInfo(DataInputStream in) throws IOException {
+        OpcTagInfo info = new OpcTagInfo(readString(in));
+        info.setName(readString(in));
+        info.setDescription(Optional.ofNullable(readString(in)));
+        String type = readString(in);
+        if (type != null) {
+            try {
+                info.setType(Class.forName(type, false, TagMetadataCache.class.getClassLoader()));
+            } catch (ClassNotFoundException e) {
+                logger.warn("Unable to restore type {} of tag {}", type, info.getId());
+            }
+        }
+        long scanRate = in.readLong();
+        info.setScanRate(Optional.ofNullable(scanRate >= 0 ? Duration.ofNanos(scanRate) : null));
+        info.withReadAccessRights(in.readBoolean());
+        info.withWriteAccessRights(in.readBoolean());
+        int properties = in.readInt();
+        for (int i = 0; i < properties; i++) {
+            info.addProperty(new OpcTagProperty<>(readString(in), readString(in), readValue(in)));
+        }
+        return info;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(T_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(T_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(T_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(T_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(T_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(T_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(T_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Character) {
+            out.writeByte(T_CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(T_BIGINTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value instanceof byte[]) {
+            out.writeByte(T_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            out.writeByte(T_ARRAY);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(out, Array.get(value, i));
+            }
+        } else {
+            out.writeByte(T_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case T_NULL:
+                return null;
+            case T_BOOLEAN:
+                return in.readBoolean();
+            case T_BYTE:
+                return in.readByte();
+            case T_SHORT:
+                return in.readShort();
+            case T_INT:
+                return in.readInt();
+            case T_LONG:
+                return in.readLong();
+            case T_FLOAT:
+                return in.readFloat();
+            case T_DOUBLE:
+                return in.readDouble();
+            case T_CHAR:
+                return in.readChar();
+            case T_BIGINTEGER:
+                return new BigInteger(readBytes(in));
+            case T_BYTES:
+                return readBytes(in);
+            case T_ARRAY:
+                Object[] ret = new Object[in.readInt()];
+                for (int i = 0; i < ret.length; i++) {
+                    ret[i] = readValue(in);
+                }
+                return ret;
+            case T_STRING:
+                return readString(in);
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] ret = new byte[length];
+        in.readFully(ret);
+        return ret;
+    }
+
+    /**
+     * What is actually kept in memory.
+     */
+    private static final class StoredEntry {
+        private final OpcTagInfo tagInfo;
+        private final long fetchedAt;
+        /**
+         * The tags a metadata fetch of this tag returned. Null if never fetched on its own.
+         */
+        private final List<String> fetched;
+
+        private StoredEntry(OpcTagInfo tagInfo, long fetchedAt, List<String> fetched) {
+            this.tagInfo = tagInfo;
+            this.fetchedAt = fetchedAt;
+            this.fetched = fetched;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.cache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration of a {@link TagMetadataCache}.
+ *
+ * @author amarziali
+ */
+public class TagMetadataCacheProfile {
+
+    /**
+     * The file backing the cache. Null keeps the cache in memory only.
+     */
+    private Path file;
+
+    /**
+     * The duration after which cached metadata is considered stale and revalidated. Defaults to 1 day.
+     */
+    private Duration timeToLive = Duration.ofDays(1);
+
+    /**
+     * The maximum number of tags kept. Least recently used are evicted first. Defaults to 1000000.
+     */
+    private int maxEntries = 1_000_000;
+
+    /**
+     * Gets the file backing the cache.
+     *
+     * @return the file or null if the cache is kept in memory only.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Sets the file backing the cache.
+     *
+     * @param file the file or null to keep the cache in memory only.
+     */
+    public void setFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the duration after which cached metadata is considered stale.
+     *
+     * @return the time to live (Defaults to 1 day).
+     */
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the duration after which cached metadata is considered stale.
+     *
+     * @param timeToLive the time to live. Must be positive.
+     */
+    public void setTimeToLive(Duration timeToLive) {
+        if (timeToLive == null || timeToLive.isNegative()) {
+            throw new IllegalArgumentException("The time to live must be a positive duration");
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Gets the maximum number of tags kept.
+     *
+     * @return the maximum number of entries (Defaults to 1000000).
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of tags kept.
+     *
+     * @param maxEntries the maximum number of entries. Must be strictly positive.
+     */
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The maximum number of entries must be strictly positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Sets the file backing the cache.
+     *
+     * @param file the file or null to keep the cache in memory only.
+     * @return itself.
+     */
+    public TagMetadataCacheProfile withFile(Path file) {
+        setFile(file);
+        return this;
+    }
+
+    /**
+     * Sets the duration after which cached metadata is considered stale.
+     *
+     * @param timeToLive the time to live. Must be positive.
+     * @return itself.
+     */
+    public TagMetadataCacheProfile withTimeToLive(Duration timeToLive) {
+        setTimeToLive(timeToLive);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of tags kept.
+     *
+     * @param maxEntries the maximum number of entries. Must be strictly positive.
+     * @return itself.
+     */
+    public TagMetadataCacheProfile withMaxEntries(int maxEntries) {
+        setMaxEntries(maxEntries);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "TagMetadataCacheProfile{" +
+                "file=" + file +
+                ", timeToLive=" + timeToLive +
+                ", maxEntries=" + maxEntries +
+                '}';
+    }
+}
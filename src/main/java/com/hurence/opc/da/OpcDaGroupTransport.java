@@ -0,0 +1,156 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import org.jinterop.dcom.common.JIException;
+import org.openscada.opc.dcom.common.EventHandler;
+import org.openscada.opc.dcom.common.KeyedResultSet;
+import org.openscada.opc.dcom.common.ResultSet;
+import org.openscada.opc.dcom.da.IOPCDataCallback;
+import org.openscada.opc.dcom.da.OPCDATASOURCE;
+import org.openscada.opc.dcom.da.OPCITEMDEF;
+import org.openscada.opc.dcom.da.OPCITEMRESULT;
+import org.openscada.opc.dcom.da.OPCITEMSTATE;
+import org.openscada.opc.dcom.da.WriteRequest;
+
+/**
+ * The group level OPC-DA operations used by {@link OpcDaSession}.
+ *
+ * @author amarziali
+ * @see OpcDaTransport
+ */
+interface OpcDaGroupTransport {
+
+    /**
+     * Gets the update rate revised by the server.
+     *
+     * @return the update rate in milliseconds.
+     * @throws JIException in case of any issue.
+     */
+    int getUpdateRate() throws JIException;
+
+    /**
+     * Adds items to the group.
+     *
+     * @param items the items to add.
+     * @return the outcome of each addition.
+     * @throws JIException in case of any issue.
+     */
+    KeyedResultSet<OPCITEMDEF, OPCITEMRESULT> addItems(OPCITEMDEF... items) throws JIException;
+
+    /**
+     * Removes items from the group.
+     *
+     * @param serverHandles the server handles of the items to remove.
+     * @return the outcome of each removal.
+     * @throws JIException in case of any issue.
+     */
+    ResultSet<Integer> removeItems(Integer... serverHandles) throws JIException;
+
+    /**
+     * Synchronously reads items.
+     *
+     * @param source        the data source (cache or device).
+     * @param serverHandles the server handles of the items to read.
+     * @return the item states keyed by server handle.
+     * @throws JIException in case of any issue.
+     */
+    KeyedResultSet<Integer, OPCITEMSTATE> read(OPCDATASOURCE source, Integer... serverHandles) throws JIException;
+
+    /**
+     * Synchronously writes items.
+     *
+     * @param requests the values to write.
+     * @return the outcome of each write in the requests order.
+     * @throws JIException in case of any issue.
+     */
+    ResultSet<WriteRequest> write(WriteRequest... requests) throws JIException;
+
+    /**
+     * Starts an asynchronous device read. Values are delivered to the attached callback
+     * ({@link IOPCDataCallback#readComplete}) with the same transaction id.
+     * Requires a callback attached with {@link #attach(IOPCDataCallback)}.
+     *
+     * @param transactionId the client transaction id.
+     * @param serverHandles the server handles of the items to read.
+     * @return the started transaction.
+     * @throws JIException in case of any issue.
+     */
+    AsyncRequest asyncRead(int transactionId, Integer... serverHandles) throws JIException;
+
+    /**
+     * Starts an asynchronous write. Outcomes are delivered to the attached callback
+     * ({@link IOPCDataCallback#writeComplete}) with the same transaction id.
+     * Requires a callback attached with {@link #attach(IOPCDataCallback)}.
+     *
+     * @param transactionId the client transaction id.
+     * @param requests      the values to write.
+     * @return the started transaction. Item outcomes are in the requests order.
+     * @throws JIException in case of any issue.
+     */
+    AsyncRequest asyncWrite(int transactionId, WriteRequest... requests) throws JIException;
+
+    /**
+     * Cancels a pending asynchronous transaction. The server confirms with
+     * {@link IOPCDataCallback#cancelComplete} instead of completing the transaction.
+     *
+     * @param cancelId the cancel id returned by the server when the transaction started.
+     * @throws JIException in case of any issue (e.g. the transaction already completed).
+     */
+    void cancel(int cancelId) throws JIException;
+
+    /**
+     * Registers a data change callback.
+     *
+     * @param callback the callback.
+     * @return the handler to use to detach the callback.
+     * @throws JIException in case of any issue.
+     */
+    EventHandler attach(IOPCDataCallback callback) throws JIException;
+
+    /**
+     * A started asynchronous transaction.
+     */
+    final class AsyncRequest {
+        private final ResultSet<Integer> accepted;
+        private final int cancelId;
+
+        /**
+         * @param accepted the outcome of each item request.
+         * @param cancelId the server id of the transaction.
+         */
+        AsyncRequest(ResultSet<Integer> accepted, int cancelId) {
+            this.accepted = accepted;
+            this.cancelId = cancelId;
+        }
+
+        /**
+         * @return the outcome of each item request. Failed items are not part of the completion.
+         */
+        ResultSet<Integer> getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @return the server id to cancel the transaction with.
+         */
+        int getCancelId() {
+            return cancelId;
+        }
+    }
+}
@@ -71,6 +71,17 @@ public class OpcDaQualityExtractor {
 
     public static final String OPC_QUALITY_LOCAL_OVERRIDE_DESC = "The value has been Overridden.";
 
+    /**
+     * Decoded statuses indexed by the low quality byte (the only one being decoded). Shared since immutable.
+     */
+    private static final OperationStatus[] operationStatuses = new OperationStatus[256];
+
+    static {
+        for (int i = 0; i < operationStatuses.length; i++) {
+            operationStatuses[i] = decode(i);
+        }
+    }
+
     /**
      * Extracts status from the raw value.
      *
@@ -115,9 +126,13 @@ public class OpcDaQualityExtractor {
      * Extracts the information from an encoded status value.
      *
      * @param value the encoded value
-     * @return the {@link OperationStatus} linked to the value.
+     * @return the {@link OperationStatus} linked to the value (shared among equal values).
      */
     public static OperationStatus operationStatus(long value) {
+        return operationStatuses[(int) value & 0xFF];
+    }
+
+    private static OperationStatus decode(long value) {
         OperationStatus.Level level;
         switch (quality(value)) {
             case Good:
@@ -17,37 +17,48 @@
 
 package com.hurence.opc.da;
 
-import com.hurence.opc.OpcData;
-import com.hurence.opc.OpcOperations;
-import com.hurence.opc.OpcSession;
-import com.hurence.opc.OperationStatus;
+import com.hurence.opc.*;
 import com.hurence.opc.exception.OpcException;
+import com.hurence.opc.metrics.Instrumentation;
+import com.hurence.opc.metrics.OpcMetrics;
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
 import org.jinterop.dcom.common.JIException;
 import org.jinterop.dcom.core.JIVariant;
+import org.openscada.opc.dcom.common.EventHandler;
+import org.openscada.opc.dcom.common.FILETIME;
 import org.openscada.opc.dcom.common.KeyedResult;
 import org.openscada.opc.dcom.common.KeyedResultSet;
+import org.openscada.opc.dcom.common.Result;
 import org.openscada.opc.dcom.common.ResultSet;
+import org.openscada.opc.dcom.da.IOPCDataCallback;
 import org.openscada.opc.dcom.da.OPCDATASOURCE;
 import org.openscada.opc.dcom.da.OPCITEMDEF;
+import org.openscada.opc.dcom.da.OPCITEMRESULT;
 import org.openscada.opc.dcom.da.OPCITEMSTATE;
+import org.openscada.opc.dcom.da.ValueData;
 import org.openscada.opc.dcom.da.WriteRequest;
-import org.openscada.opc.dcom.da.impl.OPCGroupStateMgt;
-import org.openscada.opc.dcom.da.impl.OPCItemMgt;
-import org.openscada.opc.dcom.da.impl.OPCServer;
-import org.openscada.opc.dcom.da.impl.OPCSyncIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
 import java.lang.ref.WeakReference;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -59,122 +70,438 @@ public class OpcDaSession implements OpcSession {
 
     private static final Logger logger = LoggerFactory.getLogger(OpcDaSession.class);
 
-    private OPCGroupStateMgt group;
-    private Map<String, Map.Entry<Integer, Integer>> handlesMap = new HashMap<>();
+    /**
+     * The group created with the session. Serves reads, writes and streams at the session refresh rate.
+     */
+    private final DaGroup sessionGroup;
+    /**
+     * The groups of the session by update rate (guarded by itself).
+     */
+    private final Map<Duration, List<DaGroup>> groups = new HashMap<>();
+    private final OpcDaTransport transport;
+    private final Duration refreshInterval;
+    private final int maxItemsPerGroup;
+    private volatile boolean detached;
+    private final Map<Integer, String> clientHandlesMap = new ConcurrentHashMap<>();
     private static final AtomicInteger clientHandleCounter = new AtomicInteger();
-    private OPCSyncIO syncIO;
-    private OPCItemMgt opcItemMgt;
+    private static final AtomicInteger sessionCounter = new AtomicInteger();
+    /**
+     * Offset between the windows FILETIME epoch (1601-01-01) and the unix epoch in 100 nanoseconds intervals.
+     */
+    private static final long FILETIME_EPOCH_OFFSET = 116_444_736_000_000_000L;
+    /**
+     * The status of an accepted asynchronous write missing from its completion.
+     */
+    private static final OperationStatus NO_WRITE_OUTCOME = new OperationStatus(OperationStatus.Level.ERROR,
+            0x80004005L, Optional.of("No write outcome received from OPC server."));
     private OPCDATASOURCE datasource;
     private final WeakReference<OpcDaTemplate> creatingOperations;
     private final Map<String, Short> dataTypeMap;
-    private final Map<String, AtomicLong> refcountMap = Collections.synchronizedMap(new HashMap<>());
-    private final Flowable<OpcData> masterFlowable;
+    private final OpcDaSessionProfile.StreamingMode streamingMode;
+    private final OpcMetrics metrics;
+    private final String sessionId = "da-" + sessionCounter.incrementAndGet();
+    /**
+     * The values buffered by stream processors. Null if metrics are disabled.
+     */
+    private final LongAdder queueDepth;
+    private final LongAdder droppedSamples = new LongAdder();
+    private final StreamBuffer streamBuffer;
+    private final Map<String, OpcDaStreamFilter> streamFilters;
+    private final OpcDaStreamFilter defaultStreamFilter;
+    /**
+     * If set, device reads and writes of the session group go through the group asynchronous I/O.
+     */
+    private final boolean asyncIO;
+    private final Duration asyncIOTimeout;
+    private final AtomicInteger transactionCounter = new AtomicInteger();
+    /**
+     * The period of the max silence checks of each stream group: a quarter of the shortest max silence interval
+     * of the stream filters, so that a value is repeated at most a quarter of its interval late. 0 if none has one.
+     */
+    private final long silenceCheckNanos;
 
-    private OpcDaSession(OpcDaTemplate creatingOperations, OPCGroupStateMgt group, OPCDATASOURCE datasource,
-                         Map<String, Short> dataTypeMap)
+    private OpcDaSession(OpcDaTemplate creatingOperations, OpcDaTransport transport, Duration refreshInterval,
+                         int maxItemsPerGroup, OPCDATASOURCE datasource,
+                         Map<String, Short> dataTypeMap, OpcDaSessionProfile.StreamingMode streamingMode,
+                         OverflowPolicy overflowPolicy, int bufferSize,
+                         Map<String, OpcDaStreamFilter> streamFilters, OpcDaStreamFilter defaultStreamFilter,
+                         boolean asyncIO, Duration asyncIOTimeout)
             throws JIException {
-        this.group = group;
-        this.opcItemMgt = group.getItemManagement();
-        this.syncIO = group.getSyncIO();
+        this.transport = transport;
+        this.refreshInterval = Duration.ofMillis(refreshInterval.toMillis());
+        this.maxItemsPerGroup = maxItemsPerGroup;
         this.datasource = datasource;
         this.creatingOperations = new WeakReference<>(creatingOperations);
         this.dataTypeMap = dataTypeMap;
-        try {
-            long refreshRate = group.getState().getUpdateRate();
-            logger.info("Using revised session refresh rate: {} milliseconds", refreshRate);
-            //start emitting hot flowable.
-            masterFlowable = Flowable.interval(refreshRate, TimeUnit.MILLISECONDS)
-                    .takeWhile(ignored -> this.group != null)
-                    .filter(ignored -> !refcountMap.isEmpty())
-                    .flatMap(ignored -> read(refcountMap.keySet().toArray(new String[refcountMap.size()]))
-                            .flattenAsFlowable(opcData -> opcData)
-                    ).share();
-
-        } catch (JIException e) {
-            throw new OpcException("Unable to get revised refresh interval", e);
+        this.streamingMode = streamingMode;
+        this.streamFilters = new HashMap<>(streamFilters);
+        this.defaultStreamFilter = defaultStreamFilter;
+        this.silenceCheckNanos = Stream.concat(this.streamFilters.values().stream(), Stream.of(defaultStreamFilter))
+                .map(OpcDaStreamFilter::getMaxSilence)
+                .filter(Objects::nonNull)
+                .mapToLong(maxSilence -> Math.max(maxSilence.toNanos() / 4, TimeUnit.MILLISECONDS.toNanos(1)))
+                .min()
+                .orElse(0);
+        this.asyncIO = asyncIO;
+        this.asyncIOTimeout = asyncIOTimeout;
+        this.metrics = creatingOperations.getMetrics();
+        if (metrics.isEnabled()) {
+            queueDepth = new LongAdder();
+            metrics.registerGauge(sessionId, OpcMetrics.MONITORED_ITEMS, clientHandlesMap::size);
+            metrics.registerGauge(sessionId, OpcMetrics.STREAM_QUEUE_DEPTH, queueDepth::sum);
+        } else {
+            queueDepth = null;
+        }
+        this.streamBuffer = new StreamBuffer(overflowPolicy, bufferSize, queueDepth, count -> {
+            droppedSamples.add(count);
+            metrics.samplesDropped(sessionId, count);
+        });
+        this.sessionGroup = addGroup(this.refreshInterval);
+        if (asyncIO && sessionGroup.dataCallbackHandler == null) {
+            //asynchronous reads and writes are completed through the data callback.
+            //data changes are not streamed in polling mode.
+            try {
+                sessionGroup.dataCallbackHandler = sessionGroup.group.attach(new DataCallback(sessionGroup, null));
+            } catch (JIException e) {
+                removeGroup(sessionGroup);
+                throw e;
+            }
         }
     }
 
-    static OpcDaSession create(OPCServer server, OpcDaSessionProfile sessionProfile, OpcDaTemplate creatingOperations) {
+    static OpcDaSession create(OpcDaTransport transport, OpcDaSessionProfile sessionProfile, OpcDaTemplate creatingOperations) {
         try {
             return new OpcDaSession(creatingOperations,
-                    server.addGroup(null, true,
-                            (int) sessionProfile.getRefreshInterval().toMillis(), clientHandleCounter.incrementAndGet(),
-                            null, null, 0),
+                    transport,
+                    sessionProfile.getRefreshInterval(),
+                    sessionProfile.getMaxItemsPerGroup(),
                     sessionProfile.isDirectRead() ? OPCDATASOURCE.OPC_DS_DEVICE : OPCDATASOURCE.OPC_DS_CACHE,
-                    sessionProfile.getDataTypeOverrideMap());
+                    sessionProfile.getDataTypeOverrideMap(),
+                    sessionProfile.getStreamingMode(),
+                    sessionProfile.getOverflowPolicy(),
+                    sessionProfile.getBufferSize(),
+                    sessionProfile.getStreamFilterMap(),
+                    sessionProfile.getDefaultStreamFilter(),
+                    sessionProfile.isAsyncIO(),
+                    sessionProfile.getAsyncIOTimeout());
         } catch (Exception e) {
             throw new OpcException("Unable to create an OPC-DA session", e);
         }
     }
 
     /**
-     * @param opcServer
+     * Creates a server group and sets up its streaming.
+     * The group is not added to the session pool.
+     *
+     * @param updateRate the requested update rate.
+     * @return the new group.
+     * @throws JIException in case of any issue.
      */
-    public void cleanup(OPCServer opcServer) {
-        logger.info("Cleaning session");
+    private DaGroup addGroup(Duration updateRate) throws JIException {
+        DaGroup ret = new DaGroup(transport.addGroup((int) updateRate.toMillis(),
+                clientHandleCounter.incrementAndGet()), updateRate);
         try {
-            opcServer.removeGroup(group, true);
+            long revisedRate = ret.group.getUpdateRate();
+            logger.info("Using revised group refresh rate: {} milliseconds (requested {})",
+                    revisedRate, updateRate.toMillis());
+            if (streamingMode == OpcDaSessionProfile.StreamingMode.SUBSCRIPTION) {
+                //the server pushes changes through the data callback.
+                final FlowableProcessor<OpcDataBatch> processor = PublishProcessor.<OpcDataBatch>create().toSerialized();
+                ret.dataCallbackHandler = ret.group.attach(new DataCallback(ret, processor));
+                ret.notificationProcessor = processor;
+                ret.masterFlowable = processor;
+            } else {
+                //start emitting hot flowable. A batch per poll cycle.
+                ret.masterFlowable = Flowable.interval(revisedRate, TimeUnit.MILLISECONDS)
+                        .takeWhile(ignored -> ret.group != null)
+                        .filter(ignored -> !ret.tagStreams.isEmpty())
+                        .flatMap(ignored -> doReadBatch(ret, ret.tagStreams.keySet().toArray(new String[0])).toFlowable())
+                        .share();
+            }
+            //filter each value once, whoever consumes it. Silent tags are repeated through the silence processor.
+            ret.filteredFlowable = ret.masterFlowable
+                    .map(batch -> filter(ret, batch))
+                    .mergeWith(ret.silenceProcessor)
+                    .filter(batch -> !batch.isEmpty())
+                    .share();
+            //route each value to its own tag subscribers. Emits nothing by itself.
+            ret.dispatcher = ret.filteredFlowable
+                    .doOnNext(batch -> dispatch(ret, batch))
+                    .ignoreElements()
+                    .<OpcSample>toFlowable()
+                    .share();
+        } catch (JIException e) {
+            removeGroup(ret);
+            throw new OpcException("Unable to setup the session streaming", e);
+        }
+        return ret;
+    }
+
+    /**
+     * Detaches the data callback of a group and removes it from the server.
+     *
+     * @param daGroup the group.
+     */
+    private void removeGroup(DaGroup daGroup) {
+        try {
+            if (daGroup.dataCallbackHandler != null) {
+                daGroup.dataCallbackHandler.detach();
+                daGroup.dataCallbackHandler = null;
+            }
+        } catch (JIException e) {
+            logger.warn("Unable to properly detach data change callback", e);
+        }
+        try {
+            transport.removeGroup(daGroup.group);
         } catch (JIException e) {
             logger.warn("Unable to properly remove group from opc server", e);
-            if (handlesMap != null) {
-                handlesMap.clear();
+        } finally {
+            daGroup.handlesMap.clear();
+            daGroup.group = null;
+            stopSilenceTimer(daGroup);
+            OpcException detached = new OpcException("Asynchronous transaction aborted. Session has been detached!");
+            daGroup.readTransactions.values().forEach(transaction -> transaction.onError(detached));
+            daGroup.writeTransactions.values().forEach(transaction -> transaction.onError(detached));
+        }
+    }
+
+    /**
+     * Finds the group a tag is streamed from at the given sampling interval.
+     * Tags sampled faster than the session refresh interval are polled at the session rate,
+     * slower ones in a group updating at their own sampling rate.
+     * A new group is created when all the groups at that rate are full.
+     *
+     * @param tagId            the tag.
+     * @param samplingInterval the requested sampling interval.
+     * @return the group.
+     */
+    private DaGroup streamGroup(String tagId, Duration samplingInterval) {
+        Duration updateRate = Duration.ofMillis(samplingInterval.toMillis());
+        if (updateRate.compareTo(refreshInterval) <= 0) {
+            updateRate = refreshInterval;
+        }
+        synchronized (groups) {
+            if (detached) {
+                throw new OpcException("Unable to read tags. Session has been detached!");
+            }
+            List<DaGroup> pool = groups.computeIfAbsent(updateRate, ignored -> new ArrayList<>());
+            if (pool.isEmpty() && updateRate.equals(refreshInterval)) {
+                pool.add(sessionGroup);
+            }
+            DaGroup target = null;
+            for (DaGroup daGroup : pool) {
+                if (daGroup.streamedTags.contains(tagId)) {
+                    return daGroup;
+                }
+                if (target == null && daGroup.streamedTags.size() < maxItemsPerGroup) {
+                    target = daGroup;
+                }
             }
-            handlesMap = null;
-            group = null;
-            opcItemMgt = null;
-            syncIO = null;
+            if (target == null) {
+                try {
+                    target = addGroup(updateRate);
+                } catch (JIException e) {
+                    throw new OpcException("Unable to add a group updating every " + updateRate, e);
+                }
+                pool.add(target);
+            }
+            target.streamedTags.add(tagId);
+            return target;
+        }
+    }
+
+    @Override
+    public long getDroppedSamples() {
+        return droppedSamples.sum();
+    }
+
+    /**
+     * @param transport the transport owning the session groups.
+     */
+    void cleanup(OpcDaTransport transport) {
+        logger.info("Cleaning session");
+        metrics.sessionClosed(sessionId);
+        final Set<DaGroup> toRemove = new LinkedHashSet<>();
+        synchronized (groups) {
+            detached = true;
+            toRemove.add(sessionGroup);
+            groups.values().forEach(toRemove::addAll);
+            groups.clear();
         }
+        toRemove.forEach(this::removeGroup);
     }
 
 
     @Override
     public Single<List<OpcData>> read(String... tags) {
+        return read(ReadOptions.DEFAULT, tags);
+    }
+
+    @Override
+    public Single<List<OpcSample>> readSamples(String... tags) {
+        return readSamples(ReadOptions.DEFAULT, tags);
+    }
+
+    @Override
+    public Single<OpcDataBatch> readBatch(String... tags) {
+        return readBatch(ReadOptions.DEFAULT, tags);
+    }
+
+    @Override
+    public Single<List<OpcData>> read(@Nonnull ReadOptions options, String... tags) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                doReadBatch(sessionGroup, datasource(options), tags).map(OpcDataBatch::toOpcData), List::size);
+    }
+
+    @Override
+    public Single<List<OpcSample>> readSamples(@Nonnull ReadOptions options, String... tags) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                doReadBatch(sessionGroup, datasource(options), tags).map(OpcDataBatch::toSamples), List::size);
+    }
+
+    @Override
+    public Single<OpcDataBatch> readBatch(@Nonnull ReadOptions options, String... tags) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                doReadBatch(sessionGroup, datasource(options), tags), OpcDataBatch::size);
+    }
+
+    /**
+     * Maps read options to a data source. DA2 synchronous reads have no maximum age:
+     * a zero maximum age reads from the device and any other one from the server cache.
+     *
+     * @param options the read options.
+     * @return the data source. The session one if the options do not tell.
+     */
+    private OPCDATASOURCE datasource(ReadOptions options) {
+        return options.isDevice(datasource == OPCDATASOURCE.OPC_DS_DEVICE) ?
+                OPCDATASOURCE.OPC_DS_DEVICE : OPCDATASOURCE.OPC_DS_CACHE;
+    }
+
+    private Single<OpcDataBatch> doReadBatch(DaGroup daGroup, String... tags) {
+        return doReadBatch(daGroup, datasource, tags);
+    }
+
+    private Single<OpcDataBatch> doReadBatch(DaGroup daGroup, OPCDATASOURCE datasource, String... tags) {
+        if (asyncIO && daGroup == sessionGroup && datasource == OPCDATASOURCE.OPC_DS_DEVICE) {
+            return doAsyncReadBatch(tags);
+        }
         return Single.fromCallable(() -> {
+            final OpcDaGroupTransport group = daGroup.group;
             if (group == null) {
                 throw new OpcException("Unable to read tags. Session has been detached!");
             }
-            Map<String, Map.Entry<Integer, Integer>> tagsHandles =
-                    Arrays.stream(tags).collect(Collectors.toMap(Function.identity(), this::resolveItemHandles));
+            ResolvedHandles resolved = resolveItemHandles(daGroup, Arrays.asList(tags));
+            Map<String, Map.Entry<Integer, Integer>> tagsHandles = resolved.handles;
             Map<Integer, String> mapsToClientHandles = tagsHandles.entrySet().stream()
                     .collect(Collectors.toMap(e -> e.getValue().getValue(), e -> e.getKey()));
-            KeyedResultSet<Integer, OPCITEMSTATE> result;
-            try {
-                result = syncIO.read(datasource, tagsHandles.values().stream().map(Map.Entry::getKey).toArray(a -> new Integer[a]));
-                return result.stream()
-                        .map(KeyedResult::getValue)
-                        .filter(value -> mapsToClientHandles.containsKey(value.getClientHandle()))
-                        .map(value -> {
+            OpcDataBatch.Builder builder = OpcDataBatch.builder(tags.length);
+            if (!tagsHandles.isEmpty()) {
+                try {
+                    KeyedResultSet<Integer, OPCITEMSTATE> result = group.read(datasource,
+                            tagsHandles.values().stream().map(Map.Entry::getKey).toArray(a -> new Integer[a]));
+                    for (KeyedResult<Integer, OPCITEMSTATE> item : result) {
+                        OPCITEMSTATE value = item.getValue();
+                        String tag = mapsToClientHandles.get(value.getClientHandle());
+                        if (tag != null) {
                             try {
-                                return new OpcData<>(mapsToClientHandles.get(value.getClientHandle()),
-                                        value.getTimestamp().asBigDecimalCalendar().toInstant(),
-                                        OpcDaQualityExtractor.quality(value.getQuality()),
-                                        JIVariantMarshaller.toJavaType(value.getValue()),
-                                        OpcDaQualityExtractor.operationStatus(value.getQuality()));
+                                addVariant(builder, tag,
+                                        epochNanos(value.getTimestamp()),
+                                        value.getQuality(),
+                                        OpcDaQualityExtractor.operationStatus(value.getQuality()),
+                                        value.getValue());
                             } catch (JIException e) {
                                 throw new OpcException("Unable to read tag " + value, e);
                             }
-                        }).collect(Collectors.toList());
+                        }
+                    }
+                } catch (JIException e) {
+                    throw new OpcException("Unable to read tags", e);
+                }
+            }
+            long now = OpcSample.epochNanos(Instant.now());
+            resolved.errors.forEach((tag, status) ->
+                    builder.addValue(tag, now, (int) status.getCode(), Quality.Bad, status, null));
+            return builder.build();
+        });
+    }
 
-            } catch (JIException e) {
-                throw new OpcException("Unable to read tags", e);
+    /**
+     * Reads tags from the device through the session group asynchronous I/O.
+     * The server accepts the request right away and sends the values with the read completion.
+     *
+     * @param tags the tags to read.
+     * @return the values.
+     */
+    private Single<OpcDataBatch> doAsyncReadBatch(String... tags) {
+        return Single.defer(() -> {
+            final OpcDaGroupTransport group = sessionGroup.group;
+            if (group == null) {
+                throw new OpcException("Unable to read tags. Session has been detached!");
             }
+            final ResolvedHandles resolved = resolveItemHandles(sessionGroup, Arrays.asList(tags));
+            final Map<Integer, String> serverHandlesToTags = new HashMap<>();
+            final Map<Integer, String> clientHandlesToTags = new HashMap<>();
+            resolved.handles.forEach((tag, handles) -> {
+                serverHandlesToTags.put(handles.getKey(), tag);
+                clientHandlesToTags.put(handles.getValue(), tag);
+            });
+            final Integer[] serverHandles = serverHandlesToTags.keySet().toArray(new Integer[0]);
+            return transaction(group, sessionGroup.readTransactions, serverHandles.length,
+                    transactionId -> group.asyncRead(transactionId, serverHandles))
+                    .map(outcome -> {
+                        OpcDataBatch.Builder builder = OpcDataBatch.builder(tags.length);
+                        if (outcome.completion != null) {
+                            for (KeyedResult<Integer, ValueData> item : outcome.completion) {
+                                String tag = clientHandlesToTags.get(item.getKey());
+                                if (tag != null) {
+                                    try {
+                                        addValueData(builder, tag, item);
+                                    } catch (JIException e) {
+                                        throw new OpcException("Unable to read tag " + tag, e);
+                                    }
+                                }
+                            }
+                        }
+                        long now = OpcSample.epochNanos(Instant.now());
+                        for (Result<Integer> item : outcome.accepted) {
+                            if (item.isFailed()) {
+                                OperationStatus status = OpcDaQualityExtractor.operationStatus(item);
+                                builder.addValue(serverHandlesToTags.get(item.getValue()), now, (int) status.getCode(),
+                                        Quality.Bad, status, null);
+                            }
+                        }
+                        resolved.errors.forEach((tag, status) ->
+                                builder.addValue(tag, now, (int) status.getCode(), Quality.Bad, status, null));
+                        return builder.build();
+                    });
         });
     }
 
 
     @Override
     public Single<List<OperationStatus>> write(OpcData... data) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.WRITE,
+                asyncIO ? doAsyncWrite(data) : doWrite(data), List::size);
+    }
+
+    private Single<List<OperationStatus>> doWrite(OpcData... data) {
         return Single.fromCallable(() -> {
+            final OpcDaGroupTransport group = sessionGroup.group;
             if (group == null) {
                 throw new OpcException("Unable to write tags. Session has been detached!");
             }
             try {
-                ResultSet<WriteRequest> result = syncIO.write(Arrays.stream(data)
-                        .map(d -> new WriteRequest(resolveItemHandles(d.getTag()).getKey(), JIVariant.makeVariant(d.getValue())))
-                        .toArray(a -> new WriteRequest[a]));
-                return result.stream()
-                        .map(OpcDaQualityExtractor::operationStatus)
+                ResolvedHandles resolved = resolveItemHandles(sessionGroup, Arrays.stream(data)
+                        .map(OpcData::getTag)
+                        .collect(Collectors.toList()));
+                WriteRequest[] requests = writeRequests(resolved, data);
+                Iterator<OperationStatus> written = requests.length == 0 ? Collections.emptyIterator() :
+                        group.write(requests).stream()
+                                .map(OpcDaQualityExtractor::operationStatus)
+                                .iterator();
+                //keep the statuses in the same order than the requested data.
+                return Arrays.stream(data)
+                        .map(d -> resolved.handles.containsKey(d.getTag()) ? written.next() : resolved.errors.get(d.getTag()))
                         .collect(Collectors.toList());
             } catch (Exception e) {
                 throw new OpcException("Unable to write data", e);
@@ -182,73 +509,820 @@ public class OpcDaSession implements OpcSession {
         });
     }
 
+    /**
+     * Writes tags through the session group asynchronous I/O.
+     * The server accepts the request right away and sends the outcomes with the write completion.
+     *
+     * @param data the data to be written.
+     * @return the status of each write operation.
+     */
+    private Single<List<OperationStatus>> doAsyncWrite(OpcData... data) {
+        return Single.defer(() -> {
+            final OpcDaGroupTransport group = sessionGroup.group;
+            if (group == null) {
+                throw new OpcException("Unable to write tags. Session has been detached!");
+            }
+            final ResolvedHandles resolved;
+            final WriteRequest[] requests;
+            try {
+                resolved = resolveItemHandles(sessionGroup, Arrays.stream(data)
+                        .map(OpcData::getTag)
+                        .collect(Collectors.toList()));
+                requests = writeRequests(resolved, data);
+            } catch (Exception e) {
+                throw new OpcException("Unable to write data", e);
+            }
+            return transaction(group, sessionGroup.writeTransactions, requests.length,
+                    transactionId -> group.asyncWrite(transactionId, requests))
+                    .map(outcome -> {
+                        final Map<Integer, OperationStatus> rejected = new HashMap<>();
+                        for (Result<Integer> item : outcome.accepted) {
+                            if (item.isFailed()) {
+                                rejected.put(item.getValue(), OpcDaQualityExtractor.operationStatus(item));
+                            }
+                        }
+                        final Map<Integer, OperationStatus> completed = new HashMap<>();
+                        if (outcome.completion != null) {
+                            for (Result<Integer> item : outcome.completion) {
+                                completed.put(item.getValue(), OpcDaQualityExtractor.operationStatus(item));
+                            }
+                        }
+                        //keep the statuses in the same order than the requested data.
+                        return Arrays.stream(data)
+                                .map(d -> {
+                                    Map.Entry<Integer, Integer> handles = resolved.handles.get(d.getTag());
+                                    if (handles == null) {
+                                        return resolved.errors.get(d.getTag());
+                                    }
+                                    OperationStatus status = rejected.get(handles.getKey());
+                                    if (status == null) {
+                                        status = completed.getOrDefault(handles.getValue(), NO_WRITE_OUTCOME);
+                                    }
+                                    return status;
+                                })
+                                .collect(Collectors.toList());
+                    });
+        });
+    }
+
+    private static WriteRequest[] writeRequests(ResolvedHandles resolved, OpcData... data) throws JIException {
+        List<WriteRequest> requests = new ArrayList<>();
+        for (OpcData d : data) {
+            Map.Entry<Integer, Integer> handles = resolved.handles.get(d.getTag());
+            if (handles != null) {
+                requests.add(new WriteRequest(handles.getKey(), JIVariant.makeVariant(d.getValue())));
+            }
+        }
+        return requests.toArray(new WriteRequest[0]);
+    }
+
+    /**
+     * Runs an asynchronous I/O transaction on the session group.
+     * The transaction is pending until its completion callback is received or the async I/O timeout elapses.
+     * A transaction timing out is cancelled on the server. The outcome is emitted on the io scheduler
+     * rather than on the thread delivering the completion callback.
+     *
+     * @param group        the group the transaction runs on.
+     * @param transactions the pending transactions of the group, looked up by the completion callback.
+     * @param items        the number of items of the request. No call is made if 0.
+     * @param call         starts the transaction.
+     * @param <T>          the completion type.
+     * @return the outcome. Comes without completion if the server rejected every item.
+     */
+    private <T> Single<AsyncOutcome<T>> transaction(OpcDaGroupTransport group,
+                                                    Map<Integer, SingleSubject<T>> transactions, int items,
+                                                    AsyncCall call) {
+        if (items == 0) {
+            return Single.just(new AsyncOutcome<T>(new ResultSet<>(), null));
+        }
+        return Single.defer(() -> {
+            int id;
+            do {
+                //0 is the transaction id of data change notifications.
+                id = transactionCounter.incrementAndGet();
+            } while (id == 0);
+            final int transactionId = id;
+            final SingleSubject<T> completion = SingleSubject.create();
+            transactions.put(transactionId, completion);
+            final OpcDaGroupTransport.AsyncRequest request;
+            try {
+                request = call.start(transactionId);
+            } catch (Exception e) {
+                transactions.remove(transactionId);
+                throw new OpcException("Unable to start asynchronous transaction " + transactionId, e);
+            }
+            final ResultSet<Integer> accepted = request.getAccepted();
+            if (accepted.stream().allMatch(Result::isFailed)) {
+                //the server will not send any completion.
+                transactions.remove(transactionId);
+                return Single.just(new AsyncOutcome<T>(accepted, null));
+            }
+            return completion
+                    .timeout(asyncIOTimeout.toNanos(), TimeUnit.NANOSECONDS, Single.defer(() -> {
+                        cancelTransaction(group, transactionId, request.getCancelId());
+                        return Single.error(
+                                new OpcException("No completion received for asynchronous transaction " + transactionId));
+                    }))
+                    .doFinally(() -> transactions.remove(transactionId))
+                    .map(completed -> new AsyncOutcome<>(accepted, completed))
+                    //the completion callback thread serves every transaction of the group.
+                    .observeOn(Schedulers.io());
+        });
+    }
+
+    /**
+     * Cancels an asynchronous transaction on the server in background.
+     * The cancel confirmation callback is ignored.
+     *
+     * @param group         the group the transaction runs on.
+     * @param transactionId the client transaction id.
+     * @param cancelId      the server id of the transaction.
+     */
+    private void cancelTransaction(OpcDaGroupTransport group, int transactionId, int cancelId) {
+        Completable.fromAction(() -> group.cancel(cancelId))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> logger.warn("Cancelled asynchronous transaction {} after {}", transactionId, asyncIOTimeout),
+                        throwable -> logger.warn("Unable to cancel asynchronous transaction {}", transactionId, throwable));
+    }
+
+
+    /**
+     * Converts a FILETIME (100 nanoseconds intervals since 1601-01-01) to nanoseconds since the epoch.
+     *
+     * @param filetime the timestamp.
+     * @return the nanoseconds elapsed since the epoch.
+     */
+    private static long epochNanos(FILETIME filetime) {
+        long ticks = ((long) filetime.getHigh() << 32) | (filetime.getLow() & 0xFFFFFFFFL);
+        return (ticks - FILETIME_EPOCH_OFFSET) * 100L;
+    }
+
+    /**
+     * Appends a variant to a batch. Most common numeric types are extracted without boxing.
+     * Boxed values have the same type {@link JIVariantMarshaller#toJavaType(JIVariant)} would return.
+     *
+     * @param builder         the batch builder.
+     * @param tag             the tag id.
+     * @param epochNanos      the timestamp in nanoseconds since the epoch.
+     * @param quality         the raw OPC-DA quality.
+     * @param operationStatus the operation status.
+     * @param variant         the value.
+     * @throws JIException in case of any issue.
+     */
+    private static void addVariant(OpcDataBatch.Builder builder, String tag, long epochNanos, short quality,
+                                   OperationStatus operationStatus, JIVariant variant) throws JIException {
+        Quality q = OpcDaQualityExtractor.quality(quality);
+        int statusCode = quality & 0xFFFF;
+        switch (variant.getType()) {
+            case JIVariant.VT_R8:
+                builder.addDouble(tag, epochNanos, statusCode, q, operationStatus, variant.getObjectAsDouble());
+                break;
+            case JIVariant.VT_R4:
+                builder.addFloat(tag, epochNanos, statusCode, q, operationStatus, variant.getObjectAsFloat());
+                break;
+            case JIVariant.VT_I8:
+                builder.addLong(tag, epochNanos, statusCode, q, operationStatus, variant.getObjectAsLong());
+                break;
+            case JIVariant.VT_I4:
+            case JIVariant.VT_INT:
+                builder.addInt(tag, epochNanos, statusCode, q, operationStatus, variant.getObjectAsInt());
+                break;
+            case JIVariant.VT_I2:
+                builder.addShort(tag, epochNanos, statusCode, q, operationStatus, variant.getObjectAsShort());
+                break;
+            case JIVariant.VT_BOOL:
+                builder.addBoolean(tag, epochNanos, statusCode, q, operationStatus, variant.getObjectAsBoolean());
+                break;
+            default:
+                builder.addValue(tag, epochNanos, statusCode, q, operationStatus, JIVariantMarshaller.toJavaType(variant));
+                break;
+        }
+    }
+
+    /**
+     * Appends a value received through the data callback to a batch.
+     *
+     * @param builder the batch builder.
+     * @param tag     the tag id.
+     * @param item    the value keyed by client handle.
+     * @throws JIException in case of any issue.
+     */
+    private static void addValueData(OpcDataBatch.Builder builder, String tag, KeyedResult<Integer, ValueData> item)
+            throws JIException {
+        ValueData valueData = item.getValue();
+        addVariant(builder, tag,
+                valueData.getTimestamp().getTimeInMillis() * 1_000_000L,
+                valueData.getQuality(),
+                item.isFailed() ? OpcDaQualityExtractor.operationStatus(item) :
+                        OpcDaQualityExtractor.operationStatus(valueData.getQuality()),
+                valueData.getValue());
+    }
+
+    /**
+     * Applies the {@link OpcDaStreamFilter} of each tag to a batch. Values of tags nobody streams are dropped.
+     *
+     * @param daGroup the group the batch comes from.
+     * @param batch   the values to filter.
+     * @return the values to emit.
+     */
+    private OpcDataBatch filter(DaGroup daGroup, OpcDataBatch batch) {
+        long now = System.nanoTime();
+        OpcDataBatch.Builder builder = OpcDataBatch.builder(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            TagStream tagStream = daGroup.tagStreams.get(batch.getTag(i));
+            if (tagStream != null) {
+                tagStream.accept(batch.getSample(i), now, builder::add);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Routes each value of a filtered batch to the subscribers of its tag.
+     *
+     * @param daGroup the group the batch comes from.
+     * @param batch   the values to dispatch.
+     */
+    private void dispatch(DaGroup daGroup, OpcDataBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            TagStream tagStream = daGroup.tagStreams.get(batch.getTag(i));
+            if (tagStream != null) {
+                tagStream.processor.onNext(batch.getSample(i));
+            }
+        }
+    }
 
-    private void incrementRefCount(String tagId) {
-        if (refcountMap != null) {
-            refcountMap.compute(tagId, (s, atomicLong) -> {
-                if (atomicLong == null) {
-                    atomicLong = new AtomicLong();
+    /**
+     * Starts the periodic max silence check of a group. A single timer serves every tag of the group:
+     * the latest value of each silent tag is repeated in one batch through the group silence processor.
+     *
+     * @param daGroup the group.
+     */
+    private void startSilenceTimer(DaGroup daGroup) {
+        daGroup.silenceTimer = Schedulers.computation().schedulePeriodicallyDirect(() -> {
+            final long now = System.nanoTime();
+            final OpcDataBatch.Builder builder = OpcDataBatch.builder(daGroup.tagStreams.size());
+            for (TagStream tagStream : daGroup.tagStreams.values()) {
+                if (tagStream.silent) {
+                    tagStream.tick(now, builder::add);
                 }
-                atomicLong.incrementAndGet();
-                return atomicLong;
-            });
+            }
+            final OpcDataBatch batch = builder.build();
+            if (!batch.isEmpty()) {
+                daGroup.silenceProcessor.onNext(batch);
+            }
+        }, silenceCheckNanos, silenceCheckNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void stopSilenceTimer(DaGroup daGroup) {
+        final Disposable silenceTimer = daGroup.silenceTimer;
+        if (silenceTimer != null) {
+            silenceTimer.dispose();
+            daGroup.silenceTimer = null;
         }
     }
 
-    private void decrementRefCount(String tagId) {
-        if (refcountMap != null) {
-            refcountMap.compute(tagId, (s, atomicLong) -> {
-                if (atomicLong != null && atomicLong.decrementAndGet() <= 0) {
-                    atomicLong = null;
+    private OpcDaStreamFilter streamFilter(String tagId) {
+        return streamFilters.getOrDefault(tagId, defaultStreamFilter);
+    }
+
+    /**
+     * Places tags in their stream groups and takes a reference on their tag streams.
+     * Must be balanced by {@link #releaseTagStreams(Map)}.
+     *
+     * @param tags             the tags to stream.
+     * @param samplingInterval the requested sampling interval.
+     * @return the tags by group.
+     */
+    private Map<DaGroup, List<String>> acquireTagStreams(List<String> tags, Duration samplingInterval) {
+        final Map<DaGroup, List<String>> ret = new LinkedHashMap<>();
+        synchronized (groups) {
+            try {
+                for (String tagId : tags) {
+                    DaGroup daGroup = streamGroup(tagId, samplingInterval);
+                    daGroup.tagStreams.compute(tagId, (s, tagStream) -> {
+                        if (tagStream == null) {
+                            tagStream = new TagStream(streamFilter(tagId));
+                        }
+                        tagStream.refCount++;
+                        return tagStream;
+                    });
+                    if (daGroup.tagStreams.get(tagId).silent && daGroup.silenceTimer == null) {
+                        startSilenceTimer(daGroup);
+                    }
+                    ret.computeIfAbsent(daGroup, ignored -> new ArrayList<>()).add(tagId);
+                }
+            } catch (RuntimeException e) {
+                releaseTagStreams(ret);
+                throw e;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Releases the references taken by {@link #acquireTagStreams(List, Duration)}.
+     * Tags no longer streamed are removed from their stream group and stream groups left empty are removed
+     * from the server. The items of the session group are kept since reads and writes use them as well.
+     *
+     * @param placement the tags by group.
+     */
+    private void releaseTagStreams(Map<DaGroup, List<String>> placement) {
+        final Map<OpcDaGroupTransport, List<Integer>> itemsToRemove = new LinkedHashMap<>();
+        final List<DaGroup> groupsToRemove = new ArrayList<>();
+        synchronized (groups) {
+            placement.forEach((daGroup, groupTags) -> {
+                for (String tagId : groupTags) {
+                    TagStream tagStream = daGroup.tagStreams.get(tagId);
+                    if (tagStream == null || --tagStream.refCount > 0) {
+                        continue;
+                    }
+                    daGroup.tagStreams.remove(tagId);
+                    if (daGroup.tagStreams.isEmpty()) {
+                        stopSilenceTimer(daGroup);
+                    }
+                    daGroup.streamedTags.remove(tagId);
+                    if (daGroup == sessionGroup || daGroup.group == null || daGroup.streamedTags.isEmpty()) {
+                        continue;
+                    }
+                    Map.Entry<Integer, Integer> handles = daGroup.handlesMap.remove(tagId);
+                    if (handles != null) {
+                        clientHandlesMap.remove(handles.getValue());
+                        itemsToRemove.computeIfAbsent(daGroup.group, ignored -> new ArrayList<>()).add(handles.getKey());
+                    }
+                }
+                if (daGroup != sessionGroup && daGroup.group != null && daGroup.streamedTags.isEmpty()) {
+                    List<DaGroup> pool = groups.get(daGroup.updateRate);
+                    if (pool != null && pool.remove(daGroup) && pool.isEmpty()) {
+                        groups.remove(daGroup.updateRate);
+                    }
+                    daGroup.handlesMap.values().forEach(handles -> clientHandlesMap.remove(handles.getValue()));
+                    itemsToRemove.remove(daGroup.group);
+                    groupsToRemove.add(daGroup);
                 }
-                return atomicLong;
             });
         }
+        itemsToRemove.forEach((group, serverHandles) -> {
+            try {
+                group.removeItems(serverHandles.toArray(new Integer[0]));
+            } catch (JIException e) {
+                logger.warn("Unable to properly remove items from opc server", e);
+            }
+        });
+        groupsToRemove.forEach(this::removeGroup);
     }
 
     @Override
     public Flowable<OpcData> stream(String tagId, Duration samplingInterval) {
-        if (masterFlowable == null) {
+        return streamSamples(tagId, samplingInterval).map(OpcSample::toOpcData);
+    }
+
+    @Override
+    public Flowable<OpcData> stream(Collection<String> tagIds, Duration samplingInterval) {
+        return streamSamples(tagIds, samplingInterval).map(OpcSample::toOpcData);
+    }
+
+    @Override
+    public Flowable<OpcSample> streamSamples(String tagId, Duration samplingInterval) {
+        if (detached) {
             return Flowable.error(new OpcException("Unable to read tags. Session has been detached!"));
         }
-        //validate tag
-        return Single.fromCallable(() -> resolveItemHandles(tagId))
-                .ignoreElement()
-                .andThen(masterFlowable)
-                .filter(opcData -> opcData.getTag().equals(tagId))
-                .distinctUntilChanged()
-                .throttleLatest(samplingInterval.toNanos(), TimeUnit.NANOSECONDS)
-                .doOnSubscribe(ignored -> incrementRefCount(tagId))
-                .doOnTerminate(() -> decrementRefCount(tagId));
+        //place and validate tag
+        return Flowable.using(() -> acquireTagStreams(Collections.singletonList(tagId), samplingInterval),
+                placement -> {
+                    registerTags(placement);
+                    DaGroup daGroup = placement.keySet().iterator().next();
+                    return streamBuffer.buffer(tagStream(daGroup, tagId, samplingInterval));
+                },
+                this::releaseTagStreams)
+                .compose(this::instrumentSamples);
+    }
+
+    /**
+     * Continuously read a stream of data for a set of tags. Tags are registered at once (per group).
+     * With {@link com.hurence.opc.OverflowPolicy#LATEST} the stream is conflated per tag.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @return a {@link Flowable} stream of {@link OpcSample}
+     */
+    @Override
+    public Flowable<OpcSample> streamSamples(Collection<String> tagIds, Duration samplingInterval) {
+        if (detached) {
+            return Flowable.error(new OpcException("Unable to read tags. Session has been detached!"));
+        }
+        final List<String> tags = new ArrayList<>(new LinkedHashSet<>(tagIds));
+        //place and validate tags
+        return Flowable.using(() -> acquireTagStreams(tags, samplingInterval),
+                placement -> {
+                    registerTags(placement);
+                    return streamBuffer.bufferMerged(placement.entrySet().stream()
+                            .flatMap(e -> e.getValue().stream()
+                                    .map(tagId -> tagStream(e.getKey(), tagId, samplingInterval)))
+                            .collect(Collectors.toList()), OpcSample::getTag);
+                },
+                this::releaseTagStreams)
+                .compose(this::instrumentSamples);
+    }
+
+    /**
+     * Registers placed tags (with a single call per group).
+     *
+     * @param placement the tags by group.
+     * @throws OpcException if any tag cannot be added.
+     */
+    private void registerTags(Map<DaGroup, List<String>> placement) {
+        final Map<String, OperationStatus> errors = new HashMap<>();
+        placement.forEach((daGroup, groupTags) -> errors.putAll(resolveItemHandles(daGroup, groupTags).errors));
+        if (!errors.isEmpty()) {
+            throw new OpcException("Unable to add items " + errors);
+        }
+    }
+
+    /**
+     * Streams the changes of a tag. The returned {@link Flowable} does not buffer.
+     * The tag stream must have been acquired with {@link #acquireTagStreams(List, Duration)}.
+     *
+     * @param daGroup          the group the tag is placed in.
+     * @param tagId            the tag.
+     * @param samplingInterval the minimum interval between two values.
+     * @return a {@link Flowable} of {@link OpcSample}
+     */
+    private Flowable<OpcSample> tagStream(DaGroup daGroup, String tagId, Duration samplingInterval) {
+        Flowable<OpcSample> ret = daGroup.tagStreams.get(tagId).processor
+                .mergeWith(daGroup.dispatcher);
+        if (streamingMode == OpcDaSessionProfile.StreamingMode.SUBSCRIPTION) {
+            ret = ret.mergeWith(initialValues(daGroup, tagId).concatMapIterable(OpcDataBatch::toSamples));
+        }
+        if (streamFilter(tagId).getMaxSilence() == null) {
+            //with a max silence interval the filter drops repeated values itself but must be able to repeat one.
+            ret = ret.distinctUntilChanged();
+        }
+        return ret.throttleLatest(samplingInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Provides the initial values of tags streamed in {@link OpcDaSessionProfile.StreamingMode#SUBSCRIPTION} mode,
+     * where the server only notifies changes. Emits the last values the tag filters already emitted if any.
+     * The current values are then read and pushed with the data change notifications of the group:
+     * they go through the tag filters (seeding their state) and reach subscribers through the group filtered flowable.
+     * Must be subscribed after the filtered flowable of the group.
+     *
+     * @param daGroup the group the tags are placed in.
+     * @param tags    the tags.
+     * @return a {@link Flowable} emitting at most the last emitted values.
+     */
+    private Flowable<OpcDataBatch> initialValues(DaGroup daGroup, String... tags) {
+        return Flowable.defer(() -> {
+            final OpcDataBatch.Builder builder = OpcDataBatch.builder(tags.length);
+            for (String tag : tags) {
+                TagStream tagStream = daGroup.tagStreams.get(tag);
+                OpcSample last = tagStream != null ? tagStream.lastEmitted() : null;
+                if (last != null) {
+                    builder.add(last);
+                }
+            }
+            final OpcDataBatch lastEmitted = builder.build();
+            Flowable<OpcDataBatch> ret = doReadBatch(daGroup, tags)
+                    .doOnSuccess(daGroup.notificationProcessor::onNext)
+                    .ignoreElement()
+                    .toFlowable();
+            return lastEmitted.isEmpty() ? ret : ret.startWith(lastEmitted);
+        });
+    }
+
+    private Flowable<OpcSample> instrumentSamples(Flowable<OpcSample> source) {
+        if (metrics.isEnabled()) {
+            source = source.doOnNext(sample -> metrics.samplesEmitted(sessionId, sample.getTag(), 1));
+        }
+        return Instrumentation.flowable(metrics, OpcMetrics.Operation.STREAM, source);
     }
 
 
+    /**
+     * Emits a batch per poll cycle (or per data change callback in {@link OpcDaSessionProfile.StreamingMode#SUBSCRIPTION} mode)
+     * of each group holding the requested tags.
+     * The pace is driven by the update rate of the groups, that is the session refresh interval
+     * or the sampling interval if slower. Values go through the same tag {@link OpcDaStreamFilter} as
+     * {@link #streamSamples(Collection, Duration)}.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @return a {@link Flowable} stream of non empty {@link OpcDataBatch}
+     */
+    @Override
+    public Flowable<OpcDataBatch> streamBatches(Collection<String> tagIds, Duration samplingInterval) {
+        if (detached) {
+            return Flowable.error(new OpcException("Unable to read tags. Session has been detached!"));
+        }
+        final List<String> tags = new ArrayList<>(new LinkedHashSet<>(tagIds));
+        //place and validate tags
+        return Flowable.using(() -> acquireTagStreams(tags, samplingInterval),
+                placement -> {
+                    registerTags(placement);
+                    final List<Flowable<OpcDataBatch>> sources = new ArrayList<>();
+                    placement.forEach((daGroup, groupTags) -> {
+                        final Set<String> tagSet = new HashSet<>(groupTags);
+                        Flowable<OpcDataBatch> source = daGroup.filteredFlowable
+                                .map(batch -> batch.select(tagSet::contains))
+                                .filter(batch -> !batch.isEmpty());
+                        if (streamingMode == OpcDaSessionProfile.StreamingMode.SUBSCRIPTION) {
+                            source = source.mergeWith(initialValues(daGroup, groupTags.toArray(new String[0])));
+                        }
+                        sources.add(source);
+                    });
+                    return streamBuffer.bufferBatches(Flowable.merge(sources));
+                },
+                this::releaseTagStreams)
+                .compose(source -> {
+                    if (metrics.isEnabled()) {
+                        source = source.doOnNext(batch -> {
+                            for (int i = 0; i < batch.size(); i++) {
+                                metrics.samplesEmitted(sessionId, batch.getTag(i), 1);
+                            }
+                        });
+                    }
+                    return Instrumentation.flowable(metrics, OpcMetrics.Operation.STREAM, source);
+                });
+    }
+
     /**
      * Resolve tag names into server/client couple of Integer handles looking in a local cache to avoid resolving several time the same object.
+     * Tags not yet known are registered together with a single call to the server.
      *
-     * @param tag the tag to resolve.
-     * @return a couple of Integers. First is the server handle. Second is the client handle.
-     */
-    private synchronized Map.Entry<Integer, Integer> resolveItemHandles(String tag) {
-        Map.Entry<Integer, Integer> handles = handlesMap.get(tag);
-        if (handles == null) {
-            OPCITEMDEF opcitemdef = new OPCITEMDEF();
-            opcitemdef.setActive(true);
-            opcitemdef.setClientHandle(clientHandleCounter.incrementAndGet());
-            opcitemdef.setItemID(tag);
-            opcitemdef.setRequestedDataType(dataTypeMap.getOrDefault(tag, (short) JIVariant.VT_EMPTY));
-            try {
-                Integer serverHandle = opcItemMgt.add(opcitemdef).get(0).getValue().getServerHandle();
-                if (serverHandle == null || serverHandle == 0) {
-                    throw new OpcException("Received invalid handle from OPC server.");
+     * @param daGroup the group the tags belong to.
+     * @param tags    the tags to resolve.
+     * @return the resolved handles and the status of every tag that could not be resolved.
+     */
+    private ResolvedHandles resolveItemHandles(DaGroup daGroup, Collection<String> tags) {
+        ResolvedHandles ret = new ResolvedHandles();
+        Map<String, Map.Entry<Integer, Integer>> cache = daGroup.handlesMap;
+        OpcDaGroupTransport group = daGroup.group;
+        if (group == null) {
+            throw new OpcException("Unable to resolve tags. Session has been detached!");
+        }
+        Set<String> unknown = new LinkedHashSet<>();
+        for (String tag : tags) {
+            Map.Entry<Integer, Integer> handles = cache.get(tag);
+            if (handles != null) {
+                ret.handles.put(tag, handles);
+            } else {
+                unknown.add(tag);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return ret;
+        }
+        synchronized (daGroup.registrationLock) {
+            //somebody else may have registered them in the meantime.
+            Map<String, OPCITEMDEF> toAdd = new LinkedHashMap<>();
+            for (String tag : unknown) {
+                Map.Entry<Integer, Integer> handles = cache.get(tag);
+                if (handles != null) {
+                    ret.handles.put(tag, handles);
+                } else {
+                    OPCITEMDEF opcitemdef = new OPCITEMDEF();
+                    opcitemdef.setActive(true);
+                    opcitemdef.setClientHandle(clientHandleCounter.incrementAndGet());
+                    opcitemdef.setItemID(tag);
+                    opcitemdef.setRequestedDataType(dataTypeMap.getOrDefault(tag, (short) JIVariant.VT_EMPTY));
+                    toAdd.put(tag, opcitemdef);
                 }
-                handles = new AbstractMap.SimpleEntry<>(serverHandle, opcitemdef.getClientHandle());
+            }
+            if (toAdd.isEmpty()) {
+                return ret;
+            }
+            KeyedResultSet<OPCITEMDEF, OPCITEMRESULT> result;
+            try {
+                result = group.addItems(toAdd.values().toArray(new OPCITEMDEF[0]));
             } catch (Exception e) {
-                throw new OpcException("Unable to add item " + tag, e);
+                throw new OpcException("Unable to add items " + toAdd.keySet(), e);
             }
-            handlesMap.put(tag, handles);
+            for (KeyedResult<OPCITEMDEF, OPCITEMRESULT> item : result) {
+                String tag = item.getKey().getItemID();
+                Integer serverHandle = item.getValue() != null ? item.getValue().getServerHandle() : null;
+                if (item.isFailed() || serverHandle == null || serverHandle == 0) {
+                    logger.warn("Unable to add item {}. Error code {}", tag, item.getErrorCode());
+                    ret.errors.put(tag, item.isFailed() ? OpcDaQualityExtractor.operationStatus(item) :
+                            new OperationStatus(OperationStatus.Level.ERROR, item.getErrorCode(),
+                                    Optional.of("Received invalid handle from OPC server.")));
+                } else {
+                    Map.Entry<Integer, Integer> handles =
+                            new AbstractMap.SimpleEntry<>(serverHandle, item.getKey().getClientHandle());
+                    clientHandlesMap.put(handles.getValue(), tag);
+                    cache.put(tag, handles);
+                    ret.handles.put(tag, handles);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The outcome of a tag handles resolution.
+     */
+    private static final class ResolvedHandles {
+        private final Map<String, Map.Entry<Integer, Integer>> handles = new HashMap<>();
+        private final Map<String, OperationStatus> errors = new HashMap<>();
+    }
+
+    /**
+     * Starts an asynchronous I/O transaction.
+     */
+    @FunctionalInterface
+    private interface AsyncCall {
+
+        /**
+         * @param transactionId the client transaction id.
+         * @return the started transaction.
+         * @throws JIException in case of any issue.
+         */
+        OpcDaGroupTransport.AsyncRequest start(int transactionId) throws JIException;
+    }
+
+    /**
+     * The outcome of an asynchronous I/O transaction.
+     *
+     * @param <T> the completion type.
+     */
+    private static final class AsyncOutcome<T> {
+        /**
+         * The outcome of each item request. Failed items are not part of the completion.
+         */
+        private final ResultSet<Integer> accepted;
+        /**
+         * The completion received from the server. Null if no item has been accepted.
+         */
+        private final T completion;
+
+        private AsyncOutcome(ResultSet<Integer> accepted, T completion) {
+            this.accepted = accepted;
+            this.completion = completion;
+        }
+    }
+
+    /**
+     * The subscribers of a streamed tag with the state of its {@link OpcDaStreamFilter}.
+     */
+    private static final class TagStream {
+        private final FlowableProcessor<OpcSample> processor = PublishProcessor.<OpcSample>create().toSerialized();
+        private final OpcDaStreamFilter.State filterState;
+        /**
+         * True if the filter has a max silence interval, checked by the group silence timer.
+         */
+        private final boolean silent;
+        private int refCount;
+
+        /**
+         * @param filter the tag filter.
+         */
+        private TagStream(OpcDaStreamFilter filter) {
+            this.filterState = filter.newState();
+            this.silent = filter.getMaxSilence() != null;
+        }
+
+        /**
+         * Filters a value. The state is shared with the group silence timer and new subscribers.
+         *
+         * @param sample     the value.
+         * @param nowNanos   the current time in nanoseconds.
+         * @param downstream receives the values to emit.
+         */
+        private synchronized void accept(OpcSample sample, long nowNanos, Consumer<OpcSample> downstream) {
+            filterState.accept(sample, nowNanos, downstream);
+        }
+
+        /**
+         * @return the last value emitted by the filter. Null if none or if the filter lets everything through.
+         */
+        private synchronized OpcSample lastEmitted() {
+            return filterState.lastEmitted();
+        }
+
+        /**
+         * Repeats the latest value if the max silence interval elapsed.
+         *
+         * @param nowNanos   the current time in nanoseconds.
+         * @param downstream receives the value to emit.
+         */
+        private synchronized void tick(long nowNanos, Consumer<OpcSample> downstream) {
+            filterState.tick(nowNanos, downstream);
+        }
+    }
+
+    /**
+     * A server group with its registered items and streamed tags.
+     */
+    private static final class DaGroup {
+        private volatile OpcDaGroupTransport group;
+        private final Duration updateRate;
+        private final Map<String, Map.Entry<Integer, Integer>> handlesMap = new ConcurrentHashMap<>();
+        private final Object registrationLock = new Object();
+        /**
+         * The tags placed in this group for streaming (guarded by the session groups lock).
+         */
+        private final Set<String> streamedTags = new HashSet<>();
+        private final Map<String, TagStream> tagStreams = new ConcurrentHashMap<>();
+        private Flowable<OpcDataBatch> masterFlowable;
+        /**
+         * The data change notifications of the group in {@link OpcDaSessionProfile.StreamingMode#SUBSCRIPTION} mode.
+         * Null in polling mode.
+         */
+        private FlowableProcessor<OpcDataBatch> notificationProcessor;
+        /**
+         * The values of the master flowable once filtered, followed by the values of silent tags.
+         */
+        private Flowable<OpcDataBatch> filteredFlowable;
+        private final FlowableProcessor<OpcDataBatch> silenceProcessor =
+                PublishProcessor.<OpcDataBatch>create().toSerialized();
+        /**
+         * Checks the max silence interval of the group tags. Null if no tag has one (guarded by the session groups lock).
+         */
+        private volatile Disposable silenceTimer;
+        private Flowable<OpcSample> dispatcher;
+        private EventHandler dataCallbackHandler;
+        /**
+         * The pending asynchronous reads and writes by transaction id.
+         */
+        private final Map<Integer, SingleSubject<KeyedResultSet<Integer, ValueData>>> readTransactions =
+                new ConcurrentHashMap<>();
+        private final Map<Integer, SingleSubject<ResultSet<Integer>>> writeTransactions = new ConcurrentHashMap<>();
+
+        /**
+         * @param group      the server group.
+         * @param updateRate the requested update rate (the key of the group in the session pool).
+         */
+        private DaGroup(OpcDaGroupTransport group, Duration updateRate) {
+            this.group = group;
+            this.updateRate = updateRate;
+        }
+    }
+
+    /**
+     * Receives data changes pushed by the server for the group items and completes asynchronous reads and writes.
+     */
+    private final class DataCallback implements IOPCDataCallback {
+
+        private final DaGroup daGroup;
+        private final FlowableProcessor<OpcDataBatch> processor;
+
+        /**
+         * @param daGroup   the group.
+         * @param processor the processor data changes are pushed to. Null to ignore data changes.
+         */
+        private DataCallback(DaGroup daGroup, FlowableProcessor<OpcDataBatch> processor) {
+            this.daGroup = daGroup;
+            this.processor = processor;
+        }
+
+        @Override
+        public void dataChange(int transactionId, int serverGroupHandle, int masterQuality, int masterErrorCode,
+                               KeyedResultSet<Integer, ValueData> result) {
+            if (processor == null) {
+                return;
+            }
+            OpcDataBatch.Builder builder = OpcDataBatch.builder(result.size());
+            for (KeyedResult<Integer, ValueData> item : result) {
+                String tag = clientHandlesMap.get(item.getKey());
+                if (tag == null || !daGroup.tagStreams.containsKey(tag)) {
+                    continue;
+                }
+                try {
+                    addValueData(builder, tag, item);
+                } catch (Exception e) {
+                    logger.warn("Unable to decode data change for tag " + tag + ". Skipping!", e);
+                }
+            }
+            if (builder.size() > 0) {
+                processor.onNext(builder.build());
+            }
+        }
+
+        @Override
+        public void readComplete(int transactionId, int serverGroupHandle, int masterQuality, int masterErrorCode,
+                                 KeyedResultSet<Integer, ValueData> result) {
+            SingleSubject<KeyedResultSet<Integer, ValueData>> transaction = daGroup.readTransactions.remove(transactionId);
+            if (transaction != null) {
+                transaction.onSuccess(result);
+            } else {
+                logger.debug("Ignoring completion of unknown read transaction {}", transactionId);
+            }
+        }
+
+        @Override
+        public void writeComplete(int transactionId, int serverGroupHandle, int masterErrorCode, ResultSet<Integer> result) {
+            SingleSubject<ResultSet<Integer>> transaction = daGroup.writeTransactions.remove(transactionId);
+            if (transaction != null) {
+                transaction.onSuccess(result);
+            } else {
+                logger.debug("Ignoring completion of unknown write transaction {}", transactionId);
+            }
+        }
+
+        @Override
+        public void cancelComplete(int transactionId, int serverGroupHandle) {
+            //nothing to cancel
         }
-        return handles;
     }
 
     @Override
@@ -32,6 +32,21 @@ import java.util.Optional;
  */
 public class OpcDaSessionProfile extends SessionProfile<OpcDaSessionProfile> {
 
+    /**
+     * How tag values are streamed from the server.
+     */
+    public enum StreamingMode {
+        /**
+         * All the streamed tags are read at each refresh interval.
+         */
+        POLLING,
+        /**
+         * The server notifies only changed values through the group data change callback (OnDataChange).
+         * The client must accept inbound DCOM connections.
+         */
+        SUBSCRIPTION
+    }
+
     /**
      * If set, server cache will be ignored and the value will be read directly from the device. Defaults to false.
      */
@@ -42,15 +57,49 @@ public class OpcDaSessionProfile extends SessionProfile<OpcDaSessionProfile> {
      * The item requested refresh interval. The server may not support as low as you set.
      * In this case the value will be refreshed at the server rate.
      * If you need a very low refresh delay, please consider use direct read mode.
+     * Tags streamed with a slower sampling interval are placed in a group updating at their own rate.
      * Defaults to 1 second.
      */
     private Duration refreshInterval = Duration.ofSeconds(1);
 
+    /**
+     * The maximum number of streamed tags placed in a single group.
+     * Another group updating at the same rate is created once reached. Defaults to 10000.
+     */
+    private int maxItemsPerGroup = 10_000;
+
     /**
      * The client can negotiate with the server which data type should be used for a tag.
      */
     private Map<String, Short> dataTypeOverrideMap = new HashMap<>();
 
+    /**
+     * The streaming mode. Defaults to {@link StreamingMode#POLLING}
+     */
+    private StreamingMode streamingMode = StreamingMode.POLLING;
+
+    /**
+     * The client side stream filters by tag.
+     */
+    private Map<String, OpcDaStreamFilter> streamFilterMap = new HashMap<>();
+
+    /**
+     * The client side stream filter of tags without a specific one. Defaults to {@link OpcDaStreamFilter#NONE}
+     */
+    private OpcDaStreamFilter defaultStreamFilter = OpcDaStreamFilter.NONE;
+
+    /**
+     * If set, device reads and writes go through the group asynchronous I/O (IOPCAsyncIO2) and are completed by the
+     * group data callback. Several calls can then be in flight at once. Reads from the cache stay synchronous.
+     * The client must accept inbound DCOM connections. Defaults to false.
+     */
+    private boolean asyncIO;
+
+    /**
+     * How long to wait for the completion callback of an asynchronous read or write. Defaults to 30 seconds.
+     */
+    private Duration asyncIOTimeout = Duration.ofSeconds(30);
+
     /**
      * Forces a datatype for a tag.
      *
@@ -82,6 +131,72 @@ public class OpcDaSessionProfile extends SessionProfile<OpcDaSessionProfile> {
         return Collections.unmodifiableMap(dataTypeOverrideMap);
     }
 
+    /**
+     * Filters client side the values streamed for a tag.
+     *
+     * @param tagId  the tag id.
+     * @param filter the never null {@link OpcDaStreamFilter}
+     * @return itself
+     */
+    public OpcDaSessionProfile withStreamFilterForTag(String tagId, OpcDaStreamFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("The stream filter must be any non null valid value.");
+        }
+        streamFilterMap.put(tagId, filter);
+        return this;
+    }
+
+    /**
+     * Get the stream filter for a certain tag.
+     *
+     * @param tagId the tag id
+     * @return the filter set for the tag or the default one.
+     */
+    public OpcDaStreamFilter streamFilterForTag(String tagId) {
+        return streamFilterMap.getOrDefault(tagId, defaultStreamFilter);
+    }
+
+    /**
+     * Get the whole stream filter mapping.
+     *
+     * @return an unmodifiable map.
+     */
+    public Map<String, OpcDaStreamFilter> getStreamFilterMap() {
+        return Collections.unmodifiableMap(streamFilterMap);
+    }
+
+    /**
+     * Gets the stream filter of tags without a specific one.
+     *
+     * @return the never null {@link OpcDaStreamFilter}
+     */
+    public OpcDaStreamFilter getDefaultStreamFilter() {
+        return defaultStreamFilter;
+    }
+
+    /**
+     * Sets the stream filter of tags without a specific one.
+     *
+     * @param defaultStreamFilter the never null {@link OpcDaStreamFilter}
+     */
+    public void setDefaultStreamFilter(OpcDaStreamFilter defaultStreamFilter) {
+        if (defaultStreamFilter == null) {
+            throw new IllegalArgumentException("The stream filter must be any non null valid value.");
+        }
+        this.defaultStreamFilter = defaultStreamFilter;
+    }
+
+    /**
+     * Sets the stream filter of tags without a specific one.
+     *
+     * @param defaultStreamFilter the never null {@link OpcDaStreamFilter}
+     * @return itself.
+     */
+    public OpcDaSessionProfile withDefaultStreamFilter(OpcDaStreamFilter defaultStreamFilter) {
+        setDefaultStreamFilter(defaultStreamFilter);
+        return this;
+    }
+
     /**
      * Gets the refresh interval.
      *
@@ -114,6 +229,38 @@ public class OpcDaSessionProfile extends SessionProfile<OpcDaSessionProfile> {
         return this;
     }
 
+    /**
+     * Gets the maximum number of streamed tags placed in a single group.
+     *
+     * @return the maximum number of tags.
+     */
+    public int getMaxItemsPerGroup() {
+        return maxItemsPerGroup;
+    }
+
+    /**
+     * Sets the maximum number of streamed tags placed in a single group.
+     *
+     * @param maxItemsPerGroup a strictly positive number of tags.
+     */
+    public void setMaxItemsPerGroup(int maxItemsPerGroup) {
+        if (maxItemsPerGroup <= 0) {
+            throw new IllegalArgumentException("maxItemsPerGroup must be strictly positive");
+        }
+        this.maxItemsPerGroup = maxItemsPerGroup;
+    }
+
+    /**
+     * Sets the maximum number of streamed tags placed in a single group.
+     *
+     * @param maxItemsPerGroup a strictly positive number of tags.
+     * @return itself.
+     */
+    public OpcDaSessionProfile withMaxItemsPerGroup(int maxItemsPerGroup) {
+        setMaxItemsPerGroup(maxItemsPerGroup);
+        return this;
+    }
+
     public boolean isDirectRead() {
         return directRead;
     }
@@ -127,12 +274,111 @@ public class OpcDaSessionProfile extends SessionProfile<OpcDaSessionProfile> {
         return this;
     }
 
+    /**
+     * Gets the streaming mode.
+     *
+     * @return the never null {@link StreamingMode}
+     */
+    public StreamingMode getStreamingMode() {
+        return streamingMode;
+    }
+
+    /**
+     * Sets the streaming mode.
+     *
+     * @param streamingMode the never null {@link StreamingMode}
+     */
+    public void setStreamingMode(StreamingMode streamingMode) {
+        if (streamingMode == null) {
+            throw new IllegalArgumentException("The streaming mode must be any non null valid value.");
+        }
+        this.streamingMode = streamingMode;
+    }
+
+    /**
+     * Sets the streaming mode.
+     *
+     * @param streamingMode the never null {@link StreamingMode}
+     * @return itself.
+     */
+    public OpcDaSessionProfile withStreamingMode(StreamingMode streamingMode) {
+        setStreamingMode(streamingMode);
+        return this;
+    }
+
+    /**
+     * Tells whether device reads and writes use the group asynchronous I/O.
+     *
+     * @return true if enabled.
+     */
+    public boolean isAsyncIO() {
+        return asyncIO;
+    }
+
+    /**
+     * Sets whether device reads and writes use the group asynchronous I/O.
+     *
+     * @param asyncIO true to enable.
+     */
+    public void setAsyncIO(boolean asyncIO) {
+        this.asyncIO = asyncIO;
+    }
+
+    /**
+     * Sets whether device reads and writes use the group asynchronous I/O.
+     *
+     * @param asyncIO true to enable.
+     * @return itself.
+     */
+    public OpcDaSessionProfile withAsyncIO(boolean asyncIO) {
+        setAsyncIO(asyncIO);
+        return this;
+    }
+
+    /**
+     * Gets how long to wait for the completion callback of an asynchronous read or write.
+     *
+     * @return a {@link Duration}
+     */
+    public Duration getAsyncIOTimeout() {
+        return asyncIOTimeout;
+    }
+
+    /**
+     * Sets how long to wait for the completion callback of an asynchronous read or write.
+     *
+     * @param asyncIOTimeout the never null, strictly positive timeout.
+     */
+    public void setAsyncIOTimeout(Duration asyncIOTimeout) {
+        if (asyncIOTimeout == null || asyncIOTimeout.isNegative() || asyncIOTimeout.isZero()) {
+            throw new IllegalArgumentException("The async I/O timeout must be strictly positive.");
+        }
+        this.asyncIOTimeout = asyncIOTimeout;
+    }
+
+    /**
+     * Sets how long to wait for the completion callback of an asynchronous read or write.
+     *
+     * @param asyncIOTimeout the never null, strictly positive timeout.
+     * @return itself.
+     */
+    public OpcDaSessionProfile withAsyncIOTimeout(Duration asyncIOTimeout) {
+        setAsyncIOTimeout(asyncIOTimeout);
+        return this;
+    }
+
     @Override
     public String toString() {
         return "OpcDaSessionProfile{" +
                 "directRead=" + directRead +
                 ", refreshInterval=" + refreshInterval +
+                ", maxItemsPerGroup=" + maxItemsPerGroup +
                 ", dataTypeOverrideMap=" + dataTypeOverrideMap +
+                ", streamingMode=" + streamingMode +
+                ", streamFilterMap=" + streamFilterMap +
+                ", defaultStreamFilter=" + defaultStreamFilter +
+                ", asyncIO=" + asyncIO +
+                ", asyncIOTimeout=" + asyncIOTimeout +
                 "} " + super.toString();
     }
 }
@@ -0,0 +1,380 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import com.hurence.opc.DoubleSample;
+import com.hurence.opc.LongSample;
+import com.hurence.opc.OpcSample;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Client side filter of the values streamed for a tag, applied by {@link OpcDaSession} before values are
+ * dispatched to subscribers.
+ * <p>
+ * Numeric values are filtered according to the {@link Method}. Non numeric values are only emitted when they change.
+ * A quality, status code or operation status change is always emitted.
+ * If a max silence interval is set, the latest value is emitted anyway when nothing has been emitted for that long,
+ * even if the tag did not change at all. Repeated identical values are then dropped by the filter itself
+ * (including with {@link Method#NONE}).
+ *
+ * @author amarziali
+ */
+public final class OpcDaStreamFilter {
+
+    /**
+     * How numeric values are filtered.
+     */
+    public enum Method {
+        /**
+         * Every value is emitted.
+         */
+        NONE,
+        /**
+         * Values differing less than the deviation from the last emitted value are dropped.
+         */
+        DEADBAND,
+        /**
+         * Like {@link #DEADBAND} but the last dropped value is emitted as well before the value exceeding
+         * the deviation. This keeps the shape of ramps and steps.
+         */
+        BOXCAR,
+        /**
+         * Swinging door compression: values that can be linearly interpolated within the deviation between
+         * two emitted values are dropped. Values are emitted with one value delay.
+         */
+        SWINGING_DOOR
+    }
+
+    /**
+     * The filter letting everything through.
+     */
+    public static final OpcDaStreamFilter NONE = new OpcDaStreamFilter(Method.NONE, 0.0, null);
+
+    private final Method method;
+    private final double deviation;
+    private final Duration maxSilence;
+
+    private OpcDaStreamFilter(Method method, double deviation, Duration maxSilence) {
+        this.method = method;
+        this.deviation = deviation;
+        this.maxSilence = maxSilence;
+    }
+
+    private static double checkDeviation(double deviation) {
+        if (!(deviation >= 0.0) || Double.isInfinite(deviation)) {
+            throw new IllegalArgumentException("The deviation must be a positive number");
+        }
+        return deviation;
+    }
+
+    /**
+     * Drops changes smaller than an absolute value.
+     *
+     * @param value the deadband in the tag unit. Must be positive.
+     * @return a new filter.
+     */
+    public static OpcDaStreamFilter absoluteDeadband(double value) {
+        return new OpcDaStreamFilter(Method.DEADBAND, checkDeviation(value), null);
+    }
+
+    /**
+     * Drops changes smaller than a percentage of the tag engineering unit range.
+     * The range is usually exposed by the item properties {@link OpcDaItemProperties#RECOMMENDED_LOW_EU}
+     * and {@link OpcDaItemProperties#RECOMMENDED_HIGH_EU}.
+     *
+     * @param percent the deadband percentage. Must be between 0 and 100.
+     * @param low     the low end of the range.
+     * @param high    the high end of the range. Must not be lower than low.
+     * @return a new filter.
+     */
+    public static OpcDaStreamFilter percentDeadband(double percent, double low, double high) {
+        if (!(percent >= 0.0 && percent <= 100.0)) {
+            throw new IllegalArgumentException("The percent deadband must be between 0 and 100");
+        }
+        if (!(high >= low)) {
+            throw new IllegalArgumentException("The high end of the range must not be lower than the low end");
+        }
+        return new OpcDaStreamFilter(Method.DEADBAND, checkDeviation(percent * (high - low) / 100.0), null);
+    }
+
+    /**
+     * Boxcar compression.
+     *
+     * @param deviation the deviation in the tag unit. Must be positive.
+     * @return a new filter.
+     * @see Method#BOXCAR
+     */
+    public static OpcDaStreamFilter boxcar(double deviation) {
+        return new OpcDaStreamFilter(Method.BOXCAR, checkDeviation(deviation), null);
+    }
+
+    /**
+     * Swinging door compression.
+     *
+     * @param deviation the deviation in the tag unit. Must be positive.
+     * @return a new filter.
+     * @see Method#SWINGING_DOOR
+     */
+    public static OpcDaStreamFilter swingingDoor(double deviation) {
+        return new OpcDaStreamFilter(Method.SWINGING_DOOR, checkDeviation(deviation), null);
+    }
+
+    /**
+     * Copies this filter with a max silence interval.
+     *
+     * @param maxSilence the max interval without emitted values. Null to disable. Must be strictly positive.
+     * @return a new filter.
+     */
+    public OpcDaStreamFilter withMaxSilence(Duration maxSilence) {
+        if (maxSilence != null && (maxSilence.isNegative() || maxSilence.isZero())) {
+            throw new IllegalArgumentException("The max silence interval must be a strictly positive duration");
+        }
+        return new OpcDaStreamFilter(method, deviation, maxSilence);
+    }
+
+    /**
+     * Get how numeric values are filtered.
+     *
+     * @return the {@link Method}
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the deviation.
+     *
+     * @return the deviation in the tag unit.
+     */
+    public double getDeviation() {
+        return deviation;
+    }
+
+    /**
+     * Get the max interval without emitted values.
+     *
+     * @return the max silence interval or null if disabled.
+     */
+    public Duration getMaxSilence() {
+        return maxSilence;
+    }
+
+    /**
+     * Creates the filtering state of a tag.
+     *
+     * @return a new {@link State}
+     */
+    State newState() {
+        return new State();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OpcDaStreamFilter that = (OpcDaStreamFilter) o;
+        return Double.compare(that.deviation, deviation) == 0 &&
+                method == that.method &&
+                Objects.equals(maxSilence, that.maxSilence);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(method, deviation, maxSilence);
+    }
+
+    @Override
+    public String toString() {
+        return "OpcDaStreamFilter{" +
+                "method=" + method +
+                ", deviation=" + deviation +
+                ", maxSilence=" + maxSilence +
+                '}';
+    }
+
+    /**
+     * The filtering state of a tag. Not thread safe.
+     */
+    final class State {
+        /**
+         * The last emitted sample.
+         */
+        private OpcSample last;
+        private long lastEmittedAt;
+        /**
+         * The last dropped sample not yet superseded by an emitted one.
+         */
+        private OpcSample held;
+        /**
+         * The swinging door slopes (per nanosecond) from the last emitted sample.
+         */
+        private double minSlope;
+        private double maxSlope;
+
+        private State() {
+        }
+
+        /**
+         * Filters a sample.
+         *
+         * @param sample     the sample.
+         * @param nowNanos   the current time in nanoseconds (only used against the max silence interval).
+         * @param downstream receives the samples to emit.
+         */
+        void accept(OpcSample sample, long nowNanos, Consumer<OpcSample> downstream) {
+            if (method == Method.NONE) {
+                if (maxSilence == null) {
+                    downstream.accept(sample);
+                } else if (last == null || !sample.equals(last) || isSilent(nowNanos)) {
+                    emit(sample, nowNanos, downstream);
+                } else {
+                    held = sample;
+                }
+                return;
+            }
+            if (last == null) {
+                emit(sample, nowNanos, downstream);
+                return;
+            }
+            boolean silent = isSilent(nowNanos);
+            if (silent || !sameStatus(sample) || !isNumeric(sample) || !isNumeric(last)) {
+                if (silent || !sameStatus(sample) || !Objects.equals(sample.getValue(), last.getValue())) {
+                    flush(sample, nowNanos, downstream);
+                } else {
+                    held = sample;
+                }
+                return;
+            }
+            double value = numericValue(sample);
+            double lastValue = numericValue(last);
+            switch (method) {
+                case DEADBAND:
+                    if (Math.abs(value - lastValue) > deviation) {
+                        emit(sample, nowNanos, downstream);
+                    }
+                    break;
+                case BOXCAR:
+                    if (Math.abs(value - lastValue) > deviation) {
+                        flush(sample, nowNanos, downstream);
+                    } else {
+                        held = sample;
+                    }
+                    break;
+                case SWINGING_DOOR:
+                    swingingDoor(sample, value, lastValue, nowNanos, downstream);
+                    break;
+                default:
+                    downstream.accept(sample);
+            }
+        }
+
+        /**
+         * @return the last emitted sample. Null if none or if the filter lets everything through.
+         */
+        OpcSample lastEmitted() {
+            return last;
+        }
+
+        /**
+         * Emits the latest known sample if nothing has been emitted for the max silence interval.
+         * Called periodically so that the interval elapses even if no new sample is received
+         * (e.g. a constant tag in {@link OpcDaSessionProfile.StreamingMode#SUBSCRIPTION} mode).
+         *
+         * @param nowNanos   the current time in nanoseconds.
+         * @param downstream receives the sample to emit.
+         */
+        void tick(long nowNanos, Consumer<OpcSample> downstream) {
+            if (last != null && isSilent(nowNanos)) {
+                emit(held != null ? held : last, nowNanos, downstream);
+            }
+        }
+
+        private boolean isSilent(long nowNanos) {
+            return maxSilence != null && nowNanos - lastEmittedAt >= maxSilence.toNanos();
+        }
+
+        private void swingingDoor(OpcSample sample, double value, double lastValue, long nowNanos,
+                                  Consumer<OpcSample> downstream) {
+            long dt = sample.getEpochNanos() - last.getEpochNanos();
+            if (dt <= 0) {
+                //no time axis to interpolate on.
+                if (Math.abs(value - lastValue) > deviation) {
+                    flush(sample, nowNanos, downstream);
+                } else {
+                    held = sample;
+                }
+                return;
+            }
+            double min = Math.max(minSlope, (value - deviation - lastValue) / dt);
+            double max = Math.min(maxSlope, (value + deviation - lastValue) / dt);
+            if (min <= max) {
+                //still within the doors.
+                minSlope = min;
+                maxSlope = max;
+                held = sample;
+            } else if (held == null) {
+                emit(sample, nowNanos, downstream);
+            } else {
+                //doors opened. The previous sample closes the segment and the new one is evaluated from it.
+                emit(held, nowNanos, downstream);
+                swingingDoor(sample, value, numericValue(last), nowNanos, downstream);
+            }
+        }
+
+        /**
+         * Emits the held sample if any, then the sample.
+         */
+        private void flush(OpcSample sample, long nowNanos, Consumer<OpcSample> downstream) {
+            if (held != null && method != Method.DEADBAND) {
+                downstream.accept(held);
+            }
+            emit(sample, nowNanos, downstream);
+        }
+
+        private void emit(OpcSample sample, long nowNanos, Consumer<OpcSample> downstream) {
+            downstream.accept(sample);
+            last = sample;
+            lastEmittedAt = nowNanos;
+            held = null;
+            minSlope = Double.NEGATIVE_INFINITY;
+            maxSlope = Double.POSITIVE_INFINITY;
+        }
+
+        private boolean sameStatus(OpcSample sample) {
+            return sample.getQuality() == last.getQuality() &&
+                    sample.getStatusCode() == last.getStatusCode() &&
+                    Objects.equals(sample.getOperationStatus(), last.getOperationStatus());
+        }
+
+        private boolean isNumeric(OpcSample sample) {
+            return sample instanceof DoubleSample || sample instanceof LongSample || sample.getValue() instanceof Number;
+        }
+
+        private double numericValue(OpcSample sample) {
+            if (sample instanceof DoubleSample) {
+                return ((DoubleSample) sample).getDoubleValue();
+            } else if (sample instanceof LongSample) {
+                return ((LongSample) sample).getLongValue();
+            }
+            return ((Number) sample.getValue()).doubleValue();
+        }
+    }
+}
@@ -18,10 +18,8 @@
 package com.hurence.opc.da;
 
 import com.hurence.opc.*;
-import com.hurence.opc.auth.Credentials;
-import com.hurence.opc.auth.NtlmCredentials;
 import com.hurence.opc.exception.OpcException;
-import io.reactivex.BackpressureStrategy;
+import com.hurence.opc.metrics.OpcMetrics;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
@@ -31,13 +29,13 @@ import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.CompletableSubject;
 import org.jinterop.dcom.common.JIException;
 import org.jinterop.dcom.common.JISystem;
-import org.jinterop.dcom.core.*;
+import org.jinterop.dcom.core.JIVariant;
 import org.openscada.opc.dcom.common.KeyedResult;
 import org.openscada.opc.dcom.common.KeyedResultSet;
-import org.openscada.opc.dcom.common.impl.EnumString;
-import org.openscada.opc.dcom.da.*;
-import org.openscada.opc.dcom.da.impl.OPCItemProperties;
-import org.openscada.opc.dcom.da.impl.OPCServer;
+import org.openscada.opc.dcom.da.OPCBROWSETYPE;
+import org.openscada.opc.dcom.da.OPCSERVERSTATE;
+import org.openscada.opc.dcom.da.OPCSERVERSTATUS;
+import org.openscada.opc.dcom.da.PropertyDescription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,13 +64,26 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
 
     private static final Logger logger = LoggerFactory.getLogger(OpcDaTemplate.class);
 
-    private JISession session;
-    private JIComServer comServer;
-    private OPCServer opcServer;
-    private OPCItemProperties opcItemProperties;
+    private final OpcDaTransport.Factory transportFactory;
+    private OpcDaTransport transport;
     private Disposable watcherTaskDisposable = Disposables.disposed();
     private final Set<OpcDaSession> sessions = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
 
+    /**
+     * Creates a template connecting through DCOM.
+     */
+    public OpcDaTemplate() {
+        this(UtgardDaTransport::connect);
+    }
+
+    /**
+     * Creates a template connecting through a custom transport (e.g. an in-memory simulator).
+     *
+     * @param transportFactory the transport factory.
+     */
+    OpcDaTemplate(OpcDaTransport.Factory transportFactory) {
+        this.transportFactory = transportFactory;
+    }
 
     /**
      * Check if the underlying connection to the com server is still alive.
@@ -80,10 +91,11 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
      */
     private synchronized void checkAlive() {
         ConnectionState connectionState = getConnectionState().blockingFirst();
-        if (opcServer != null && (connectionState == ConnectionState.CONNECTING || connectionState == ConnectionState.CONNECTED)) {
+        if (transport != null && (connectionState == ConnectionState.CONNECTING || connectionState == ConnectionState.CONNECTED)) {
+            final long start = checkAliveStarted();
             boolean inError = false;
             try {
-                OPCSERVERSTATUS status = opcServer.getStatus();
+                OPCSERVERSTATUS status = transport.getStatus();
 
                 if (status == null || status.getServerState() == null || !status.getServerState().equals(OPCSERVERSTATE.OPC_STATUS_RUNNING)) {
                     logger.warn("Server is no more running but rather is in state {}", status != null ? status.getServerState() : null);
@@ -93,6 +105,7 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
                 logger.error("Unable to read server state. Marking as disconnected", e);
                 inError = true;
             }
+            checkAliveEnded(start, !inError);
 
             if (inError) {
                 disconnect().blockingAwait();
@@ -105,9 +118,9 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
 
     @Override
     public Single<OpcDaOperations> connect(@Nonnull OpcDaConnectionProfile connectionProfile) {
-        return CompletableSubject.fromAction(() -> doConnect(connectionProfile))
+        return instrument(OpcMetrics.Operation.CONNECT, CompletableSubject.fromAction(() -> doConnect(connectionProfile))
                 .andThen(waitUntilConnected())
-                .andThen(Single.just(this));
+                .andThen(Single.just(this)), ignored -> 1);
     }
 
     private void doConnect(OpcDaConnectionProfile connectionProfile) {
@@ -115,19 +128,6 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
             throw new OpcException("Please provide any valid non null connection profile");
         }
 
-        Credentials credentials = connectionProfile.getCredentials();
-
-        Objects.requireNonNull(credentials, "Credentials must be provided");
-
-        if (!(credentials instanceof NtlmCredentials)) {
-            throw new OpcException("Credentials " + credentials.getClass().getCanonicalName() +
-                    " is not supported by OPC-DA connector. Please use " + NtlmCredentials.class.getCanonicalName());
-        }
-
-        String username = ((NtlmCredentials) credentials).getUser();
-        String password = ((NtlmCredentials) credentials).getPassword();
-        String domain = ((NtlmCredentials) credentials).getDomain();
-
 
         ConnectionState cs = getConnectionState().blockingFirst();
         if (cs != ConnectionState.DISCONNECTED) {
@@ -135,30 +135,7 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
         }
         try {
             getStateAndSet(Optional.of(ConnectionState.CONNECTING));
-            //ugly: custom port not supported by UtGard since hardcoded?
-            String connectionString = connectionProfile.getConnectionUri().getHost();
-            if (connectionProfile.getComClsId() != null) {
-                this.session = JISession.createSession(domain, username, password);
-                if (connectionProfile.getSocketTimeout() != null) {
-                    this.session.setGlobalSocketTimeout((int) connectionProfile.getSocketTimeout().toMillis());
-                }
-                this.comServer = new JIComServer(JIClsid.valueOf(connectionProfile.getComClsId()),
-                        connectionString, this.session);
-            } else if (connectionProfile.getComProgId() != null) {
-                this.session = JISession.createSession(domain, username, password);
-                if (connectionProfile.getSocketTimeout() != null) {
-                    this.session.setGlobalSocketTimeout((int) connectionProfile.getSocketTimeout().toMillis());
-                }
-                this.comServer = new JIComServer(JIProgId.valueOf(connectionProfile.getComProgId()),
-                        connectionString, this.session);
-            } else {
-                throw new IllegalArgumentException("Neither clsid nor progid is valid!");
-            }
-
-
-            opcServer = new OPCServer(comServer.createInstance());
-
-            opcItemProperties = opcServer.getItemPropertiesService();
+            transport = transportFactory.connect(connectionProfile);
             watcherTaskDisposable.dispose();
 
             watcherTaskDisposable = Schedulers.io().schedulePeriodicallyDirect(this::checkAlive, 0,
@@ -176,8 +153,8 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
 
     @Override
     public Completable disconnect() {
-        return CompletableSubject.fromAction(this::doDisconnect)
-                .andThen(waitUntilDisconnected());
+        return instrument(OpcMetrics.Operation.DISCONNECT, CompletableSubject.fromAction(this::doDisconnect)
+                .andThen(waitUntilDisconnected()));
     }
 
     private synchronized void doDisconnect() {
@@ -202,24 +179,18 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
             try {
                 OpcDaSession s = sessions.stream().findFirst().get();
                 sessions.remove(s);
-                s.cleanup(opcServer);
+                s.cleanup(transport);
             } catch (Exception e) {
                 logger.warn("Group not properly released", e);
             }
         }
-        try {
-            JISession.destroySession(session);
-
-        } catch (Exception e) {
-            throw new OpcException("Unable to properly destroy dcom session", e);
+        if (transport != null) {
+            transport.close();
         }
     }
 
     private void cleanup() {
-        opcItemProperties = null;
-        comServer = null;
-        session = null;
-        opcServer = null;
+        transport = null;
         watcherTaskDisposable = Disposables.disposed();
     }
 
@@ -258,59 +229,55 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
         if (getConnectionState().blockingFirst() != ConnectionState.CONNECTED) {
             throw new OpcException("Unable to fetch metadata. Not connected!");
         }
-        return Flowable.create(emitter -> {
-            for (String s : tagIds) {
-                try {
-                    Map<Integer, PropertyDescription> properties = opcItemProperties.queryAvailableProperties(s)
-                            .stream().collect(Collectors.toMap(PropertyDescription::getId, Function.identity()));
-
-                    final OpcTagInfo ret = new OpcTagInfo(s).withName(nameFromId(s));
-
-                    KeyedResultSet<Integer, JIVariant> rawProps = opcItemProperties.getItemProperties(s,
-                            properties.keySet().stream().mapToInt(Integer::intValue).toArray());
-                    Map<Integer, OpcTagProperty> tagProps = new HashMap<>();
-                    for (KeyedResult<Integer, JIVariant> result : rawProps) {
-                        tagProps.put(result.getKey(), new OpcTagProperty<>(result.getKey().toString(),
-                                toggleNullTermination(properties.get(result.getKey()).getDescription()),
-                                JIVariantMarshaller.toJavaType(result.getValue())));
-                    }
-                    ret.setProperties(new HashSet<>(tagProps.values()));
-                    //set common properties
-                    if (tagProps.containsKey(OpcDaItemProperties.MANDATORY_DATA_TYPE)) {
-                        OpcTagProperty<Short> tmp = tagProps.get(OpcDaItemProperties.MANDATORY_DATA_TYPE);
-                        ret.setType(JIVariantMarshaller.findJavaClass(tmp != null && tmp.getValue() != null ? tmp.getValue() : JIVariant.VT_EMPTY));
-                    }
-
-                    ret.setScanRate(Optional.ofNullable(extractFromProperty(
-                            (OpcTagProperty<Float>) tagProps.get(OpcDaItemProperties.MANDATORY_SERVER_SCAN_RATE),
-                            (rate -> Duration.ofMillis(Math.round(rate))))));
-                    ret.setDescription(Optional.ofNullable((extractFromProperty(
-                            (OpcTagProperty<String>) tagProps.get(OpcDaItemProperties.RECOMMENDED_ITEM_DESCRIPTION),
-                            Function.identity()))));
-                    //access rights part
-                    Integer accessRightsBits = extractFromProperty(
-                            (OpcTagProperty<Integer>) tagProps.get(OpcDaItemProperties.MANDATORY_ITEM_ACCESS_RIGHTS),
-                            Function.identity());
-                    if (accessRightsBits != null) {
-                        ret.withWriteAccessRights((accessRightsBits & OpcDaItemProperties.OPC_ACCESS_RIGHTS_WRITABLE) != 0);
-                        ret.withReadAccessRights((accessRightsBits & OpcDaItemProperties.OPC_ACCESS_RIGHTS_READABLE) != 0);
-
-                    }
-                    emitter.onNext(ret);
-
-                } catch (JIException e) {
-                    emitter.onError(new OpcException("Unable to fetch metadata for tag " + s, e));
+        return instrument(OpcMetrics.Operation.FETCH_METADATA, Flowable.fromArray(tagIds).map(s -> {
+            try {
+                Map<Integer, PropertyDescription> properties = transport.queryAvailableProperties(s)
+                        .stream().collect(Collectors.toMap(PropertyDescription::getId, Function.identity()));
+
+                final OpcTagInfo ret = new OpcTagInfo(s).withName(nameFromId(s));
+
+                KeyedResultSet<Integer, JIVariant> rawProps = transport.getItemProperties(s,
+                        properties.keySet().stream().mapToInt(Integer::intValue).toArray());
+                Map<Integer, OpcTagProperty> tagProps = new HashMap<>();
+                for (KeyedResult<Integer, JIVariant> result : rawProps) {
+                    tagProps.put(result.getKey(), new OpcTagProperty<>(result.getKey().toString(),
+                            toggleNullTermination(properties.get(result.getKey()).getDescription()),
+                            JIVariantMarshaller.toJavaType(result.getValue())));
+                }
+                ret.setProperties(new HashSet<>(tagProps.values()));
+                //set common properties
+                if (tagProps.containsKey(OpcDaItemProperties.MANDATORY_DATA_TYPE)) {
+                    OpcTagProperty<Short> tmp = tagProps.get(OpcDaItemProperties.MANDATORY_DATA_TYPE);
+                    ret.setType(JIVariantMarshaller.findJavaClass(tmp != null && tmp.getValue() != null ? tmp.getValue() : JIVariant.VT_EMPTY));
                 }
-            }
-            emitter.onComplete();
 
-        }, BackpressureStrategy.MISSING);
+                ret.setScanRate(Optional.ofNullable(extractFromProperty(
+                        (OpcTagProperty<Float>) tagProps.get(OpcDaItemProperties.MANDATORY_SERVER_SCAN_RATE),
+                        (rate -> Duration.ofMillis(Math.round(rate))))));
+                ret.setDescription(Optional.ofNullable((extractFromProperty(
+                        (OpcTagProperty<String>) tagProps.get(OpcDaItemProperties.RECOMMENDED_ITEM_DESCRIPTION),
+                        Function.identity()))));
+                //access rights part
+                Integer accessRightsBits = extractFromProperty(
+                        (OpcTagProperty<Integer>) tagProps.get(OpcDaItemProperties.MANDATORY_ITEM_ACCESS_RIGHTS),
+                        Function.identity());
+                if (accessRightsBits != null) {
+                    ret.withWriteAccessRights((accessRightsBits & OpcDaItemProperties.OPC_ACCESS_RIGHTS_WRITABLE) != 0);
+                    ret.withReadAccessRights((accessRightsBits & OpcDaItemProperties.OPC_ACCESS_RIGHTS_READABLE) != 0);
+
+                }
+                return ret;
+
+            } catch (JIException e) {
+                throw new OpcException("Unable to fetch metadata for tag " + s, e);
+            }
+        }));
     }
 
 
     private String resolveItemId(String name) {
         try {
-            return toggleNullTermination(sanitize(opcServer.getBrowser().getItemID(name)));
+            return toggleNullTermination(sanitize(transport.getItemId(name)));
         } catch (JIException e) {
             throw new OpcException("Unable to resolve ID for item name " + name, e);
         }
@@ -318,10 +285,10 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
 
     @Override
     public Flowable<OpcObjectInfo> fetchNextTreeLevel(@Nonnull String rootTagId) {
-        return Flowable.fromCallable(() -> doFetchNextTreeLevel(rootTagId))
+        return instrument(OpcMetrics.Operation.FETCH_NEXT_TREE_LEVEL, Flowable.fromCallable(() -> doFetchNextTreeLevel(rootTagId))
                 .subscribeOn(Schedulers.io())
                 .observeOn(Schedulers.computation())
-                .flatMap(Flowable::fromIterable);
+                .flatMap(Flowable::fromIterable));
     }
 
 
@@ -331,12 +298,12 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
         }
         synchronized (this) {
             try {
-                opcServer.getBrowser().changePosition(rootTagId, OPCBROWSEDIRECTION.OPC_BROWSE_TO);
+                transport.changeBrowsePosition(rootTagId);
 
                 return Stream.concat(
-                        opcServer.getBrowser().browse(OPCBROWSETYPE.OPC_BRANCH, "", 0, JIVariant.VT_EMPTY).asCollection().stream()
+                        transport.browse(OPCBROWSETYPE.OPC_BRANCH).stream()
                                 .map(s -> new OpcContainerInfo((resolveItemId(s))).withName(s)),
-                        opcServer.getBrowser().browse(OPCBROWSETYPE.OPC_LEAF, "", 0, JIVariant.VT_EMPTY).asCollection().stream()
+                        transport.browse(OPCBROWSETYPE.OPC_LEAF).stream()
                                 .map(s -> new OpcTagInfo(resolveItemId(s)).withName(s)))
                         .collect(Collectors.toList());
             } catch (Exception e) {
@@ -350,38 +317,34 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
         if (getConnectionState().blockingFirst() != ConnectionState.CONNECTED) {
             return Flowable.error(new OpcException("Unable to browse tags. Not connected!"));
         }
-        return Flowable.fromCallable(this::doListAllTags)
-                .flatMap(tags -> fetchMetadata(tags.toArray(new String[tags.size()])));
+        return instrument(OpcMetrics.Operation.BROWSE_TAGS, Flowable.fromCallable(this::doListAllTags)
+                .flatMap(tags -> fetchMetadata(tags.toArray(new String[tags.size()]))));
     }
 
 
     private Collection<String> doListAllTags() {
-        synchronized (opcServer) {
+        synchronized (transport) {
             try {
-                opcServer.getBrowser().changePosition(null, OPCBROWSEDIRECTION.OPC_BROWSE_TO);
-                EnumString res = opcServer.getBrowser().browse(OPCBROWSETYPE.OPC_FLAT, "", 0, JIVariant.VT_EMPTY);
-                if (res != null) {
-                    return res.asCollection();
-                }
+                transport.changeBrowsePosition(null);
+                return transport.browse(OPCBROWSETYPE.OPC_FLAT);
             } catch (Exception e) {
                 throw new OpcException("Unable to browse tags", e);
             }
         }
-        return Collections.emptyList();
     }
 
     @Override
     public Single<OpcDaSession> createSession(@Nonnull OpcDaSessionProfile sessionProfile) {
-        return getConnectionState().firstOrError().flatMap(connectionState -> {
+        return instrument(OpcMetrics.Operation.CREATE_SESSION, getConnectionState().firstOrError().flatMap(connectionState -> {
             if (connectionState != ConnectionState.CONNECTED) {
                 return Single.error(new OpcException("Unable to create a session. Not connected!"));
             }
             return Single.fromCallable(() -> {
-                OpcDaSession ret = OpcDaSession.create(opcServer, sessionProfile, this);
+                OpcDaSession ret = OpcDaSession.create(transport, sessionProfile, this);
                 sessions.add(ret);
                 return ret;
             });
-        });
+        }), ignored -> 1);
 
     }
 
@@ -390,7 +353,7 @@ public class OpcDaTemplate extends AbstractOpcOperations<OpcDaConnectionProfile,
         Objects.requireNonNull(session, "Please provide a valid non null session");
         return Completable.fromRunnable(() -> {
             if (sessions.remove(session)) {
-                session.cleanup(opcServer);
+                session.cleanup(transport);
             }
         });
     }
@@ -0,0 +1,132 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import org.jinterop.dcom.common.JIException;
+import org.jinterop.dcom.core.JIVariant;
+import org.openscada.opc.dcom.common.KeyedResultSet;
+import org.openscada.opc.dcom.da.OPCBROWSETYPE;
+import org.openscada.opc.dcom.da.OPCSERVERSTATUS;
+import org.openscada.opc.dcom.da.PropertyDescription;
+
+import java.util.Collection;
+
+/**
+ * The server side OPC-DA operations used by {@link OpcDaTemplate}.
+ * <p>
+ * Decouples the client from DCOM. The default implementation ({@link UtgardDaTransport}) talks to a real server
+ * through Utgard while tests and benchmarks can plug an in-memory one.
+ * Values are exchanged with Utgard structures that do not require any DCOM connection.
+ *
+ * @author amarziali
+ */
+interface OpcDaTransport extends AutoCloseable {
+
+    /**
+     * Creates {@link OpcDaTransport} connected to a server.
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * Connects to a server.
+         *
+         * @param connectionProfile the connection profile.
+         * @return a connected transport.
+         * @throws Exception in case of any issue.
+         */
+        OpcDaTransport connect(OpcDaConnectionProfile connectionProfile) throws Exception;
+    }
+
+    /**
+     * Gets the server status.
+     *
+     * @return the {@link OPCSERVERSTATUS}
+     * @throws JIException in case of any issue.
+     */
+    OPCSERVERSTATUS getStatus() throws JIException;
+
+    /**
+     * Moves the browse position.
+     *
+     * @param position the branch to go to. Null goes back to the root.
+     * @throws JIException in case of any issue.
+     */
+    void changeBrowsePosition(String position) throws JIException;
+
+    /**
+     * Browses the address space from the current browse position.
+     *
+     * @param browseType the kind of elements to return.
+     * @return the element names.
+     * @throws JIException in case of any issue.
+     */
+    Collection<String> browse(OPCBROWSETYPE browseType) throws JIException;
+
+    /**
+     * Resolves the fully qualified item id of an element at the current browse position.
+     *
+     * @param name the element name.
+     * @return the item id.
+     * @throws JIException in case of any issue.
+     */
+    String getItemId(String name) throws JIException;
+
+    /**
+     * Lists the properties available for an item.
+     *
+     * @param itemId the item id.
+     * @return the property descriptions.
+     * @throws JIException in case of any issue.
+     */
+    Collection<PropertyDescription> queryAvailableProperties(String itemId) throws JIException;
+
+    /**
+     * Reads some properties of an item.
+     *
+     * @param itemId      the item id.
+     * @param propertyIds the properties to read.
+     * @return the property values keyed by property id.
+     * @throws JIException in case of any issue.
+     */
+    KeyedResultSet<Integer, JIVariant> getItemProperties(String itemId, int... propertyIds) throws JIException;
+
+    /**
+     * Creates an active group.
+     *
+     * @param updateRate   the requested update rate in milliseconds.
+     * @param clientHandle the client handle of the group.
+     * @return the group.
+     * @throws JIException in case of any issue.
+     */
+    OpcDaGroupTransport addGroup(int updateRate, int clientHandle) throws JIException;
+
+    /**
+     * Removes a group previously created with {@link #addGroup(int, int)}.
+     *
+     * @param group the group.
+     * @throws JIException in case of any issue.
+     */
+    void removeGroup(OpcDaGroupTransport group) throws JIException;
+
+    /**
+     * Releases the connection.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,293 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import com.hurence.opc.auth.Credentials;
+import com.hurence.opc.auth.NtlmCredentials;
+import com.hurence.opc.exception.OpcException;
+import org.jinterop.dcom.common.JIException;
+import org.jinterop.dcom.core.IJIComObject;
+import org.jinterop.dcom.core.JIArray;
+import org.jinterop.dcom.core.JICallBuilder;
+import org.jinterop.dcom.core.JIClsid;
+import org.jinterop.dcom.core.JIComServer;
+import org.jinterop.dcom.core.JIFlags;
+import org.jinterop.dcom.core.JIPointer;
+import org.jinterop.dcom.core.JIProgId;
+import org.jinterop.dcom.core.JISession;
+import org.jinterop.dcom.core.JIVariant;
+import org.openscada.opc.dcom.common.EventHandler;
+import org.openscada.opc.dcom.common.KeyedResultSet;
+import org.openscada.opc.dcom.common.Result;
+import org.openscada.opc.dcom.common.ResultSet;
+import org.openscada.opc.dcom.common.impl.EnumString;
+import org.openscada.opc.dcom.common.impl.Helper;
+import org.openscada.opc.dcom.da.*;
+import org.openscada.opc.dcom.da.impl.OPCAsyncIO2;
+import org.openscada.opc.dcom.da.impl.OPCGroupStateMgt;
+import org.openscada.opc.dcom.da.impl.OPCItemMgt;
+import org.openscada.opc.dcom.da.impl.OPCItemProperties;
+import org.openscada.opc.dcom.da.impl.OPCServer;
+import org.openscada.opc.dcom.da.impl.OPCSyncIO;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * {@link OpcDaTransport} talking DCOM through Utgard.
+ *
+ * @author amarziali
+ */
+final class UtgardDaTransport implements OpcDaTransport {
+
+    private final JISession session;
+    private final OPCServer opcServer;
+    private final OPCItemProperties opcItemProperties;
+
+    private UtgardDaTransport(JISession session, OPCServer opcServer) {
+        this.session = session;
+        this.opcServer = opcServer;
+        this.opcItemProperties = opcServer.getItemPropertiesService();
+    }
+
+    /**
+     * Connects to a COM server.
+     *
+     * @param connectionProfile the connection profile. Only {@link NtlmCredentials} are supported.
+     * @return the connected transport.
+     * @throws Exception in case of any issue.
+     */
+    static UtgardDaTransport connect(OpcDaConnectionProfile connectionProfile) throws Exception {
+        Credentials credentials = connectionProfile.getCredentials();
+
+        Objects.requireNonNull(credentials, "Credentials must be provided");
+
+        if (!(credentials instanceof NtlmCredentials)) {
+            throw new OpcException("Credentials " + credentials.getClass().getCanonicalName() +
+                    " is not supported by OPC-DA connector. Please use " + NtlmCredentials.class.getCanonicalName());
+        }
+
+        String username = ((NtlmCredentials) credentials).getUser();
+        String password = ((NtlmCredentials) credentials).getPassword();
+        String domain = ((NtlmCredentials) credentials).getDomain();
+        //ugly: custom port not supported by UtGard since hardcoded?
+        String connectionString = connectionProfile.getConnectionUri().getHost();
+        if (connectionProfile.getComClsId() == null && connectionProfile.getComProgId() == null) {
+            throw new IllegalArgumentException("Neither clsid nor progid is valid!");
+        }
+        JISession session = JISession.createSession(domain, username, password);
+        try {
+            if (connectionProfile.getSocketTimeout() != null) {
+                session.setGlobalSocketTimeout((int) connectionProfile.getSocketTimeout().toMillis());
+            }
+            JIComServer comServer = connectionProfile.getComClsId() != null ?
+                    new JIComServer(JIClsid.valueOf(connectionProfile.getComClsId()), connectionString, session) :
+                    new JIComServer(JIProgId.valueOf(connectionProfile.getComProgId()), connectionString, session);
+            return new UtgardDaTransport(session, new OPCServer(comServer.createInstance()));
+        } catch (Exception e) {
+            JISession.destroySession(session);
+            throw e;
+        }
+    }
+
+    @Override
+    public OPCSERVERSTATUS getStatus() throws JIException {
+        return opcServer.getStatus();
+    }
+
+    @Override
+    public void changeBrowsePosition(String position) throws JIException {
+        opcServer.getBrowser().changePosition(position, OPCBROWSEDIRECTION.OPC_BROWSE_TO);
+    }
+
+    @Override
+    public Collection<String> browse(OPCBROWSETYPE browseType) throws JIException {
+        try {
+            EnumString res = opcServer.getBrowser().browse(browseType, "", 0, JIVariant.VT_EMPTY);
+            return res != null ? res.asCollection() : Collections.emptyList();
+        } catch (JIException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OpcException("Unable to browse the address space", e);
+        }
+    }
+
+    @Override
+    public String getItemId(String name) throws JIException {
+        return opcServer.getBrowser().getItemID(name);
+    }
+
+    @Override
+    public Collection<PropertyDescription> queryAvailableProperties(String itemId) throws JIException {
+        return opcItemProperties.queryAvailableProperties(itemId);
+    }
+
+    @Override
+    public KeyedResultSet<Integer, JIVariant> getItemProperties(String itemId, int... propertyIds) throws JIException {
+        return opcItemProperties.getItemProperties(itemId, propertyIds);
+    }
+
+    @Override
+    public OpcDaGroupTransport addGroup(int updateRate, int clientHandle) throws JIException {
+        try {
+            return new Group(opcServer.addGroup(null, true, updateRate, clientHandle, null, null, 0));
+        } catch (JIException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OpcException("Unable to create an OPC-DA group", e);
+        }
+    }
+
+    @Override
+    public void removeGroup(OpcDaGroupTransport group) throws JIException {
+        opcServer.removeGroup(((Group) group).stateMgt, true);
+    }
+
+    @Override
+    public void close() {
+        try {
+            JISession.destroySession(session);
+        } catch (Exception e) {
+            throw new OpcException("Unable to properly destroy dcom session", e);
+        }
+    }
+
+    /**
+     * A Utgard group.
+     */
+    private static final class Group implements OpcDaGroupTransport {
+        /**
+         * IOPCAsyncIO2::Write operation number. Utgard only wraps Read.
+         */
+        private static final int ASYNC_WRITE_OPNUM = 1;
+
+        private final OPCGroupStateMgt stateMgt;
+        private final OPCItemMgt itemMgt;
+        private final OPCSyncIO syncIO;
+        /**
+         * The group IOPCAsyncIO2 interface. Set once a callback is attached.
+         */
+        private volatile IJIComObject asyncIO;
+        /**
+         * The Utgard wrapper of {@link #asyncIO}.
+         */
+        private volatile OPCAsyncIO2 asyncIO2;
+
+        private Group(OPCGroupStateMgt stateMgt) throws JIException {
+            this.stateMgt = stateMgt;
+            this.itemMgt = stateMgt.getItemManagement();
+            this.syncIO = stateMgt.getSyncIO();
+        }
+
+        @Override
+        public int getUpdateRate() throws JIException {
+            return stateMgt.getState().getUpdateRate();
+        }
+
+        @Override
+        public KeyedResultSet<OPCITEMDEF, OPCITEMRESULT> addItems(OPCITEMDEF... items) throws JIException {
+            return itemMgt.add(items);
+        }
+
+        @Override
+        public ResultSet<Integer> removeItems(Integer... serverHandles) throws JIException {
+            return itemMgt.remove(serverHandles);
+        }
+
+        @Override
+        public KeyedResultSet<Integer, OPCITEMSTATE> read(OPCDATASOURCE source, Integer... serverHandles) throws JIException {
+            return syncIO.read(source, serverHandles);
+        }
+
+        @Override
+        public ResultSet<WriteRequest> write(WriteRequest... requests) throws JIException {
+            return syncIO.write(requests);
+        }
+
+        @Override
+        public AsyncRequest asyncRead(int transactionId, Integer... serverHandles) throws JIException {
+            final OPCAsyncIO2.AsyncResult result = asyncIO2().read(transactionId, serverHandles);
+            return new AsyncRequest(result.getResult(), result.getCancelId() != null ? result.getCancelId() : 0);
+        }
+
+        @Override
+        public AsyncRequest asyncWrite(int transactionId, WriteRequest... requests) throws JIException {
+            final Integer[] serverHandles = new Integer[requests.length];
+            final JIVariant[] values = new JIVariant[requests.length];
+            for (int i = 0; i < requests.length; i++) {
+                serverHandles[i] = requests[i].getServerHandle();
+                JIVariant value = requests[i].getValue();
+                values[i] = value.isArray() ? value : Helper.fixVariant(value);
+            }
+            final JICallBuilder callObject = new JICallBuilder(true);
+            callObject.setOpnum(ASYNC_WRITE_OPNUM);
+            callObject.addInParamAsInt(requests.length, JIFlags.FLAG_NULL);
+            callObject.addInParamAsArray(new JIArray(serverHandles, true), JIFlags.FLAG_NULL);
+            callObject.addInParamAsArray(new JIArray(values, true), JIFlags.FLAG_NULL);
+            callObject.addInParamAsInt(transactionId, JIFlags.FLAG_NULL);
+            //cancel id
+            callObject.addOutParamAsType(Integer.class, JIFlags.FLAG_NULL);
+            callObject.addOutParamAsObject(new JIPointer(new JIArray(Integer.class, null, 1, true)), JIFlags.FLAG_NULL);
+            final Object[] result = Helper.callRespectSFALSE(asyncIO(), callObject);
+            final Integer[] errorCodes = (Integer[]) ((JIArray) ((JIPointer) result[1]).getReferent()).getArrayInstance();
+            final ResultSet<Integer> accepted = new ResultSet<>();
+            for (int i = 0; i < serverHandles.length; i++) {
+                accepted.add(new Result<>(serverHandles[i], errorCodes[i]));
+            }
+            return new AsyncRequest(accepted, result[0] != null ? (Integer) result[0] : 0);
+        }
+
+        @Override
+        public void cancel(int cancelId) throws JIException {
+            asyncIO2().cancel(cancelId);
+        }
+
+        private IJIComObject asyncIO() {
+            final IJIComObject ret = asyncIO;
+            if (ret == null) {
+                throw new OpcException("Asynchronous I/O requires a data callback attached to the group");
+            }
+            return ret;
+        }
+
+        private OPCAsyncIO2 asyncIO2() {
+            final OPCAsyncIO2 ret = asyncIO2;
+            if (ret == null) {
+                throw new OpcException("Asynchronous I/O requires a data callback attached to the group");
+            }
+            return ret;
+        }
+
+        @Override
+        public EventHandler attach(IOPCDataCallback callback) throws JIException {
+            final EventHandler ret = stateMgt.attach(callback);
+            //the event handler holds the group object the callback has been advised on.
+            final IJIComObject comObject = ret.getObject().queryInterface(Constants.IOPCAsyncIO2_IID);
+            try {
+                asyncIO2 = new OPCAsyncIO2(comObject);
+            } catch (JIException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new OpcException("Unable to access the group asynchronous I/O interface", e);
+            }
+            asyncIO = comObject;
+            return ret;
+        }
+    }
+}
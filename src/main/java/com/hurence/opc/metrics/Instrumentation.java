@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.metrics;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decorates reactive calls to report them to an {@link OpcMetrics}.
+ * Sources are returned untouched when metrics are disabled.
+ *
+ * @author amarziali
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Times a {@link Single} from subscription to termination.
+     *
+     * @param metrics   the metrics.
+     * @param operation the operation.
+     * @param source    the instrumented source.
+     * @param items     counts the items of the result.
+     * @param <T>       the result type.
+     * @return the instrumented {@link Single}
+     */
+    public static <T> Single<T> single(OpcMetrics metrics, OpcMetrics.Operation operation, Single<T> source,
+                                       ToIntFunction<? super T> items) {
+        if (!metrics.isEnabled()) {
+            return source;
+        }
+        return Single.defer(() -> {
+            metrics.started(operation);
+            final long start = System.nanoTime();
+            final AtomicBoolean completed = new AtomicBoolean();
+            return source
+                    .doOnSuccess(t -> {
+                        if (completed.compareAndSet(false, true)) {
+                            metrics.completed(operation, System.nanoTime() - start, items.applyAsInt(t),
+                                    OpcMetrics.Outcome.SUCCESS);
+                        }
+                    })
+                    .doOnError(e -> completed(metrics, operation, start, 0, OpcMetrics.Outcome.FAILURE, completed))
+                    .doOnDispose(() -> completed(metrics, operation, start, 0, OpcMetrics.Outcome.CANCELLED, completed));
+        });
+    }
+
+    /**
+     * Times a {@link Completable} from subscription to termination.
+     *
+     * @param metrics   the metrics.
+     * @param operation the operation.
+     * @param source    the instrumented source.
+     * @return the instrumented {@link Completable}
+     */
+    public static Completable completable(OpcMetrics metrics, OpcMetrics.Operation operation, Completable source) {
+        if (!metrics.isEnabled()) {
+            return source;
+        }
+        return Completable.defer(() -> {
+            metrics.started(operation);
+            final long start = System.nanoTime();
+            final AtomicBoolean completed = new AtomicBoolean();
+            return source
+                    .doOnComplete(() -> completed(metrics, operation, start, 0, OpcMetrics.Outcome.SUCCESS, completed))
+                    .doOnError(e -> completed(metrics, operation, start, 0, OpcMetrics.Outcome.FAILURE, completed))
+                    .doOnDispose(() -> completed(metrics, operation, start, 0, OpcMetrics.Outcome.CANCELLED, completed));
+        });
+    }
+
+    /**
+     * Times a {@link Flowable} from subscription to termination and counts its items.
+     *
+     * @param metrics   the metrics.
+     * @param operation the operation.
+     * @param source    the instrumented source.
+     * @param <T>       the item type.
+     * @return the instrumented {@link Flowable}
+     */
+    public static <T> Flowable<T> flowable(OpcMetrics metrics, OpcMetrics.Operation operation, Flowable<T> source) {
+        if (!metrics.isEnabled()) {
+            return source;
+        }
+        return Flowable.defer(() -> {
+            metrics.started(operation);
+            final long start = System.nanoTime();
+            final int[] count = new int[1];
+            final AtomicBoolean completed = new AtomicBoolean();
+            return source
+                    .doOnNext(t -> count[0]++)
+                    .doOnComplete(() -> completed(metrics, operation, start, count[0], OpcMetrics.Outcome.SUCCESS,
+                            completed))
+                    .doOnError(e -> completed(metrics, operation, start, count[0], OpcMetrics.Outcome.FAILURE,
+                            completed))
+                    .doOnCancel(() -> completed(metrics, operation, start, count[0], OpcMetrics.Outcome.CANCELLED,
+                            completed));
+        });
+    }
+
+    /**
+     * Reports the end of an operation unless already reported.
+     * Disposing after termination (e.g. a downstream timeout or take) must not count the call twice.
+     *
+     * @param metrics   the metrics.
+     * @param operation the operation.
+     * @param start     the start time in nanoseconds.
+     * @param items     the number of items handled.
+     * @param outcome   how the operation ended.
+     * @param completed set once the end has been reported.
+     */
+    private static void completed(OpcMetrics metrics, OpcMetrics.Operation operation, long start, int items,
+                                  OpcMetrics.Outcome outcome, AtomicBoolean completed) {
+        if (completed.compareAndSet(false, true)) {
+            metrics.completed(operation, System.nanoTime() - start, items, outcome);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics SPI notified by {@link com.hurence.opc.OpcOperations} and {@link com.hurence.opc.OpcSession} implementations.
+ * <p>
+ * Every method is called on hot paths and must neither block nor allocate. Default implementations do nothing.
+ * Use {@link #NOOP} to disable instrumentation altogether.
+ *
+ * @author amarziali
+ */
+public interface OpcMetrics {
+
+    /**
+     * Gauge name of the number of monitored items (OPC-UA) or registered items (OPC-DA) of a session.
+     */
+    String MONITORED_ITEMS = "opc.monitored.items";
+
+    /**
+     * Gauge name of the number of values buffered by the stream processors of a session.
+     */
+    String STREAM_QUEUE_DEPTH = "opc.stream.queue.depth";
+
+    /**
+     * Does nothing. Instrumentation is skipped altogether.
+     */
+    OpcMetrics NOOP = new OpcMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * The instrumented operations.
+     */
+    enum Operation {
+        CONNECT,
+        DISCONNECT,
+        CHECK_ALIVE,
+        BROWSE_TAGS,
+        FETCH_METADATA,
+        FETCH_NEXT_TREE_LEVEL,
+        CREATE_SESSION,
+        READ,
+        WRITE,
+        STREAM
+    }
+
+    /**
+     * How an operation ended.
+     */
+    enum Outcome {
+        SUCCESS,
+        FAILURE,
+        /**
+         * The subscriber cancelled before completion.
+         */
+        CANCELLED
+    }
+
+    /**
+     * Tells whether calls should be instrumented at all.
+     *
+     * @return false to skip any instrumentation (defaults to true).
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * An operation started.
+     *
+     * @param operation the operation.
+     */
+    default void started(Operation operation) {
+    }
+
+    /**
+     * An operation ended.
+     *
+     * @param operation     the operation.
+     * @param durationNanos the elapsed time since {@link #started(Operation)}.
+     * @param items         the number of items handled (tags read, written, browsed...).
+     * @param outcome       how the operation ended.
+     */
+    default void completed(Operation operation, long durationNanos, int items, Outcome outcome) {
+    }
+
+    /**
+     * Values have been emitted by a stream.
+     *
+     * @param session the session identifier.
+     * @param tagId   the tag.
+     * @param count   the number of values.
+     */
+    default void samplesEmitted(String session, String tagId, int count) {
+    }
+
+    /**
+     * Values have been dropped by a stream buffer according to the session {@link com.hurence.opc.OverflowPolicy}.
+     *
+     * @param session the session identifier.
+     * @param count   the number of values.
+     */
+    default void samplesDropped(String session, int count) {
+    }
+
+    /**
+     * Registers a gauge bound to a session (e.g. {@link #MONITORED_ITEMS} or {@link #STREAM_QUEUE_DEPTH}).
+     *
+     * @param session the session identifier.
+     * @param name    the gauge name.
+     * @param value   the gauge value supplier. Must be thread safe.
+     */
+    default void registerGauge(String session, String name, LongSupplier value) {
+    }
+
+    /**
+     * A session has been released. Its gauges and counters can be dropped.
+     *
+     * @param session the session identifier.
+     */
+    default void sessionClosed(String session) {
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.metrics.micrometer;
+
+import com.hurence.opc.metrics.OpcMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link OpcMetrics} backed by a Micrometer {@link MeterRegistry}.
+ * <p>
+ * Requires io.micrometer:micrometer-core on the classpath (optional dependency). Publishes:
+ * <ul>
+ * <li>opc.calls: a timer with percentile histogram per operation and outcome.</li>
+ * <li>opc.call.items: a distribution of the items handled per call and operation.</li>
+ * <li>opc.calls.inflight: a gauge of running calls per operation.</li>
+ * <li>opc.samples: a counter of streamed values per session and tag.</li>
+ * <li>opc.samples.dropped: a counter of values dropped by stream buffers per session.</li>
+ * <li>Session gauges ({@link OpcMetrics#MONITORED_ITEMS}, {@link OpcMetrics#STREAM_QUEUE_DEPTH}).</li>
+ * </ul>
+ * Meters are resolved once and then cached so that reporting does not allocate.
+ *
+ * @author amarziali
+ */
+public class MicrometerOpcMetrics implements OpcMetrics {
+
+    private final MeterRegistry registry;
+    private final Tags commonTags;
+    private final Map<Operation, Timer[]> timers = new EnumMap<>(Operation.class);
+    private final Map<Operation, DistributionSummary> itemSummaries = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicInteger> inFlight = new EnumMap<>(Operation.class);
+    private final Map<String, Map<String, Counter>> sampleCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> droppedCounters = new ConcurrentHashMap<>();
+    private final Map<String, List<Meter>> sessionMeters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param registry the registry.
+     */
+    public MicrometerOpcMetrics(MeterRegistry registry) {
+        this(registry, Tags.empty());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param registry   the registry.
+     * @param commonTags tags added to every meter (e.g. the server name).
+     */
+    public MicrometerOpcMetrics(MeterRegistry registry, Tags commonTags) {
+        this.registry = registry;
+        this.commonTags = commonTags;
+        for (Operation operation : Operation.values()) {
+            Outcome[] outcomes = Outcome.values();
+            Timer[] operationTimers = new Timer[outcomes.length];
+            for (Outcome outcome : outcomes) {
+                operationTimers[outcome.ordinal()] = Timer.builder("opc.calls")
+                        .description("OPC calls latency")
+                        .tags(commonTags)
+                        .tag("operation", operation.name().toLowerCase())
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+            timers.put(operation, operationTimers);
+            itemSummaries.put(operation, DistributionSummary.builder("opc.call.items")
+                    .description("Items handled per OPC call")
+                    .tags(commonTags)
+                    .tag("operation", operation.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry));
+            AtomicInteger running = new AtomicInteger();
+            Gauge.builder("opc.calls.inflight", running, AtomicInteger::get)
+                    .description("Running OPC calls")
+                    .tags(commonTags)
+                    .tag("operation", operation.name().toLowerCase())
+                    .register(registry);
+            inFlight.put(operation, running);
+        }
+    }
+
+    @Override
+    public void started(Operation operation) {
+        inFlight.get(operation).incrementAndGet();
+    }
+
+    @Override
+    public void completed(Operation operation, long durationNanos, int items, Outcome outcome) {
+        inFlight.get(operation).decrementAndGet();
+        timers.get(operation)[outcome.ordinal()].record(durationNanos, TimeUnit.NANOSECONDS);
+        if (outcome == Outcome.SUCCESS) {
+            itemSummaries.get(operation).record(items);
+        }
+    }
+
+    @Override
+    public void samplesEmitted(String session, String tagId, int count) {
+        Map<String, Counter> counters = sampleCounters.get(session);
+        if (counters == null) {
+            counters = sampleCounters.computeIfAbsent(session, s -> new ConcurrentHashMap<>());
+        }
+        Counter counter = counters.get(tagId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(tagId, t -> Counter.builder("opc.samples")
+                    .description("Values emitted by OPC streams")
+                    .tags(commonTags)
+                    .tag("session", session)
+                    .tag("tag", t)
+                    .register(registry));
+        }
+        counter.increment(count);
+    }
+
+    @Override
+    public void samplesDropped(String session, int count) {
+        Counter counter = droppedCounters.get(session);
+        if (counter == null) {
+            counter = droppedCounters.computeIfAbsent(session, s -> Counter.builder("opc.samples.dropped")
+                    .description("Values dropped by OPC stream buffers")
+                    .tags(commonTags)
+                    .tag("session", s)
+                    .register(registry));
+        }
+        counter.increment(count);
+    }
+
+    @Override
+    public void registerGauge(String session, String name, LongSupplier value) {
+        Meter gauge = Gauge.builder(name, value, LongSupplier::getAsLong)
+                .tags(commonTags)
+                .tag("session", session)
+                .register(registry);
+        sessionMeters.computeIfAbsent(session, s -> new CopyOnWriteArrayList<>()).add(gauge);
+    }
+
+    @Override
+    public void sessionClosed(String session) {
+        List<Meter> meters = new ArrayList<>();
+        List<Meter> gauges = sessionMeters.remove(session);
+        if (gauges != null) {
+            meters.addAll(gauges);
+        }
+        Map<String, Counter> counters = sampleCounters.remove(session);
+        if (counters != null) {
+            meters.addAll(counters.values());
+        }
+        Counter dropped = droppedCounters.remove(session);
+        if (dropped != null) {
+            meters.add(dropped);
+        }
+        meters.forEach(registry::remove);
+    }
+}
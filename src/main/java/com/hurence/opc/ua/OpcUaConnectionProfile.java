@@ -49,6 +49,18 @@ public class OpcUaConnectionProfile extends ConnectionProfile<OpcUaConnectionPro
      */
     private X509Credentials secureChannelEncryption;
 
+    /**
+     * The maximum number of nodes browsed with a single Browse request while crawling the address space.
+     * Defaults to 100.
+     */
+    private int browseBatchSize = 100;
+
+    /**
+     * The maximum number of Browse requests kept in flight while crawling the address space.
+     * Defaults to 4.
+     */
+    private int maxConcurrentBrowseRequests = 4;
+
 
     /**
      * Get the client URI.
@@ -106,6 +118,48 @@ public class OpcUaConnectionProfile extends ConnectionProfile<OpcUaConnectionPro
         this.secureChannelEncryption = secureChannelEncryption;
     }
 
+    /**
+     * Gets the maximum number of nodes browsed with a single Browse request while crawling the address space.
+     *
+     * @return the batch size (Defaults to 100).
+     */
+    public int getBrowseBatchSize() {
+        return browseBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of nodes browsed with a single Browse request while crawling the address space.
+     *
+     * @param browseBatchSize the batch size. Must be strictly positive.
+     */
+    public void setBrowseBatchSize(int browseBatchSize) {
+        if (browseBatchSize <= 0) {
+            throw new IllegalArgumentException("The browse batch size must be strictly positive");
+        }
+        this.browseBatchSize = browseBatchSize;
+    }
+
+    /**
+     * Gets the maximum number of Browse requests kept in flight while crawling the address space.
+     *
+     * @return the maximum number of concurrent requests (Defaults to 4).
+     */
+    public int getMaxConcurrentBrowseRequests() {
+        return maxConcurrentBrowseRequests;
+    }
+
+    /**
+     * Sets the maximum number of Browse requests kept in flight while crawling the address space.
+     *
+     * @param maxConcurrentBrowseRequests the maximum number of concurrent requests. Must be strictly positive.
+     */
+    public void setMaxConcurrentBrowseRequests(int maxConcurrentBrowseRequests) {
+        if (maxConcurrentBrowseRequests <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent browse requests must be strictly positive");
+        }
+        this.maxConcurrentBrowseRequests = maxConcurrentBrowseRequests;
+    }
+
     /**
      * Set the client URI.
      *
@@ -139,12 +193,36 @@ public class OpcUaConnectionProfile extends ConnectionProfile<OpcUaConnectionPro
         return this;
     }
 
+    /**
+     * Sets the maximum number of nodes browsed with a single Browse request while crawling the address space.
+     *
+     * @param browseBatchSize the batch size. Must be strictly positive.
+     * @return itself.
+     */
+    public OpcUaConnectionProfile withBrowseBatchSize(int browseBatchSize) {
+        setBrowseBatchSize(browseBatchSize);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of Browse requests kept in flight while crawling the address space.
+     *
+     * @param maxConcurrentBrowseRequests the maximum number of concurrent requests. Must be strictly positive.
+     * @return itself.
+     */
+    public OpcUaConnectionProfile withMaxConcurrentBrowseRequests(int maxConcurrentBrowseRequests) {
+        setMaxConcurrentBrowseRequests(maxConcurrentBrowseRequests);
+        return this;
+    }
+
     @Override
     public String toString() {
         return "OpcUaConnectionProfile{" +
                 "clientIdUri='" + clientIdUri + '\'' +
                 ", clientName='" + clientName + '\'' +
                 ", secureChannelEncryption=" + secureChannelEncryption +
+                ", browseBatchSize=" + browseBatchSize +
+                ", maxConcurrentBrowseRequests=" + maxConcurrentBrowseRequests +
                 "} " + super.toString();
     }
 }
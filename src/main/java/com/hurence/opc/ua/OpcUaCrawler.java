@@ -0,0 +1,477 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import com.hurence.opc.OpcTagInfo;
+import com.hurence.opc.OpcTagProperty;
+import com.hurence.opc.exception.OpcException;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.*;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseDirection;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseResultMask;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReferenceDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.ViewDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Crawls an OPC-UA address space level by level.
+ * <p>
+ * The nodes of a level are browsed in batches (one Browse request per batch, continuation points included)
+ * and a bounded number of requests is kept in flight. {@link OpcTagInfo} are emitted as soon as their batch
+ * has been processed. Properties of a variable are attached to the variable itself.
+ *
+ * @author amarziali
+ */
+class OpcUaCrawler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpcUaCrawler.class);
+
+    private static final ViewDescription DEFAULT_VIEW = new ViewDescription(NodeId.NULL_VALUE, DateTime.MIN_VALUE, UInteger.valueOf(0));
+
+    /**
+     * The attributes read for each variable. Order matters.
+     */
+    private static final AttributeId[] VARIABLE_ATTRIBUTES = {
+            AttributeId.DataType,
+            AttributeId.ValueRank,
+            AttributeId.MinimumSamplingInterval,
+            AttributeId.Historizing,
+            AttributeId.Description,
+            AttributeId.DisplayName,
+            AttributeId.UserAccessLevel
+    };
+
+    /**
+     * The attributes read for each property. Order matters.
+     */
+    private static final AttributeId[] PROPERTY_ATTRIBUTES = {
+            AttributeId.Description,
+            AttributeId.DisplayName,
+            AttributeId.Value
+    };
+
+    private final OpcUaClient client;
+    private final int batchSize;
+    private final int maxConcurrency;
+    private final int maxNodesPerRead;
+
+    /**
+     * Creates a new crawler.
+     *
+     * @param client          the connected client.
+     * @param batchSize       the maximum number of nodes per Browse request.
+     * @param maxConcurrency  the maximum number of requests in flight.
+     * @param maxNodesPerRead the maximum number of attributes per Read request (0 if the server has no limit).
+     */
+    OpcUaCrawler(OpcUaClient client, int batchSize, int maxConcurrency, int maxNodesPerRead) {
+        this.client = client;
+        this.batchSize = batchSize;
+        this.maxConcurrency = maxConcurrency;
+        this.maxNodesPerRead = maxNodesPerRead;
+    }
+
+    /**
+     * Crawls the address space starting from a root object.
+     *
+     * @param root the root node. It is not emitted itself.
+     * @return the variables found below the root.
+     */
+    Flowable<OpcTagInfo> crawl(NodeId root) {
+        return Flowable.defer(() -> {
+            Set<NodeId> visited = ConcurrentHashMap.newKeySet();
+            visited.add(root);
+            return crawlLevel(Collections.singletonList(new CrawlNode(root, NodeClass.Object, null)), visited);
+        });
+    }
+
+    /**
+     * Crawls the address space starting from some variables.
+     *
+     * @param variables the variables. They are emitted as well as their own children.
+     * @return the variables and their children.
+     * @throws OpcException (on subscribe) if one of the nodes is not a variable.
+     */
+    Flowable<OpcTagInfo> crawlVariables(Collection<NodeId> variables) {
+        List<NodeId> nodes = new ArrayList<>(variables);
+        List<ReadValueId> readValueIds = new ArrayList<>();
+        for (NodeId nodeId : nodes) {
+            readValueIds.add(new ReadValueId(nodeId, AttributeId.NodeClass.uid(), null, QualifiedName.NULL_VALUE));
+            readValueIds.add(new ReadValueId(nodeId, AttributeId.BrowseName.uid(), null, QualifiedName.NULL_VALUE));
+        }
+        return read(readValueIds)
+                .map(results -> {
+                    List<CrawlNode> ret = new ArrayList<>();
+                    for (int i = 0; i < nodes.size(); i++) {
+                        Object nodeClass = valueOf(results.get(2 * i));
+                        Object browseName = valueOf(results.get(2 * i + 1));
+                        if (!(nodeClass instanceof Integer) || NodeClass.from((Integer) nodeClass) != NodeClass.Variable) {
+                            throw new OpcException("Tag " + nodes.get(i).toParseableString() + " is not a Variable node");
+                        }
+                        ret.add(new CrawlNode(nodes.get(i), NodeClass.Variable,
+                                browseName instanceof QualifiedName ? ((QualifiedName) browseName).getName() : null));
+                    }
+                    return ret;
+                })
+                .flatMapPublisher(level -> {
+                    Set<NodeId> visited = ConcurrentHashMap.newKeySet();
+                    visited.addAll(nodes);
+                    return crawlLevel(level, visited);
+                });
+    }
+
+    /**
+     * Browse a whole level, then the next one.
+     *
+     * @param level   the nodes of the current level.
+     * @param visited the nodes already queued (shared by every level).
+     * @return the variables found on this level and below.
+     */
+    private Flowable<OpcTagInfo> crawlLevel(List<CrawlNode> level, Set<NodeId> visited) {
+        if (level.isEmpty()) {
+            return Flowable.empty();
+        }
+        final List<CrawlNode> nextLevel = Collections.synchronizedList(new ArrayList<>());
+        return Flowable.fromIterable(OpcUaSession.partition(level, batchSize))
+                .flatMap(batch -> browseBatch(batch, visited, nextLevel).toFlowable(), false, maxConcurrency)
+                .concatMapIterable(tags -> tags)
+                .concatWith(Flowable.defer(() -> crawlLevel(new ArrayList<>(nextLevel), visited)));
+    }
+
+    /**
+     * Browse a batch of nodes with a single request.
+     *
+     * @param batch     the nodes to browse.
+     * @param visited   the nodes already queued.
+     * @param nextLevel where to put the children that still need to be browsed.
+     * @return the variables of the batch with their properties.
+     */
+    private Single<List<OpcTagInfo>> browseBatch(List<CrawlNode> batch, Set<NodeId> visited, List<CrawlNode> nextLevel) {
+        List<BrowseDescription> descriptions = batch.stream()
+                .map(node -> new BrowseDescription(node.nodeId, BrowseDirection.Forward,
+                        Identifiers.HierarchicalReferences, true,
+                        UInteger.valueOf(NodeClass.Object.getValue() | NodeClass.Variable.getValue()),
+                        UInteger.valueOf(BrowseResultMask.All.getValue())))
+                .collect(Collectors.toList());
+
+        return browseAll(descriptions)
+                .flatMap(references -> {
+                    List<VariableToDescribe> variables = new ArrayList<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        CrawlNode node = batch.get(i);
+                        List<CrawlNode> properties = new ArrayList<>();
+                        for (ReferenceDescription ref : references.get(i)) {
+                            Optional<NodeId> child = ref.getNodeId().local();
+                            if (!child.isPresent()) {
+                                continue;
+                            }
+                            CrawlNode childNode = new CrawlNode(child.get(), ref.getNodeClass(),
+                                    ref.getBrowseName() != null ? ref.getBrowseName().getName() : null);
+                            if (node.nodeClass == NodeClass.Variable && isProperty(ref)) {
+                                properties.add(childNode);
+                            } else if (visited.add(childNode.nodeId)) {
+                                nextLevel.add(childNode);
+                            }
+                        }
+                        if (node.nodeClass == NodeClass.Variable) {
+                            variables.add(new VariableToDescribe(node, properties));
+                        }
+                    }
+                    return describe(variables);
+                });
+    }
+
+    /**
+     * Browse and follow the continuation points until every reference has been fetched.
+     *
+     * @param descriptions what to browse.
+     * @return for each description, the list of references found.
+     */
+    private Single<List<List<ReferenceDescription>>> browseAll(List<BrowseDescription> descriptions) {
+        return toSingle(client.browse(DEFAULT_VIEW, UInteger.valueOf(0), descriptions))
+                .flatMap(response -> {
+                    List<List<ReferenceDescription>> ret = new ArrayList<>();
+                    List<Integer> indexes = new ArrayList<>();
+                    for (int i = 0; i < descriptions.size(); i++) {
+                        indexes.add(i);
+                        ret.add(new ArrayList<>());
+                    }
+                    return followContinuationPoints(response.getResults(), indexes, ret).toSingleDefault(ret);
+                });
+    }
+
+    /**
+     * Collects the references of some browse results and issue a BrowseNext for the incomplete ones.
+     *
+     * @param results    the browse results.
+     * @param indexes    the position of each result in the original request.
+     * @param references the references collected so far.
+     * @return a {@link Completable} completing once everything has been fetched.
+     */
+    private Completable followContinuationPoints(BrowseResult[] results, List<Integer> indexes,
+                                                 List<List<ReferenceDescription>> references) {
+        List<Integer> nextIndexes = new ArrayList<>();
+        List<ByteString> continuationPoints = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            BrowseResult result = results[i];
+            if (result.getStatusCode() != null && !result.getStatusCode().isGood()) {
+                logger.warn("Unable to browse node at index {}: {}", indexes.get(i), result.getStatusCode());
+            }
+            if (result.getReferences() != null) {
+                references.get(indexes.get(i)).addAll(Arrays.asList(result.getReferences()));
+            }
+            if (result.getContinuationPoint() != null && result.getContinuationPoint().isNotNull()) {
+                nextIndexes.add(indexes.get(i));
+                continuationPoints.add(result.getContinuationPoint());
+            }
+        }
+        if (continuationPoints.isEmpty()) {
+            return Completable.complete();
+        }
+        return toSingle(client.browseNext(false, continuationPoints))
+                .flatMapCompletable(response -> followContinuationPoints(response.getResults(), nextIndexes, references));
+    }
+
+    /**
+     * Builds the tag information of some variables.
+     * Every attribute of the variables and of their properties is fetched with a single Read request
+     * (split if the server MaxNodesPerRead requires it).
+     *
+     * @param variables the variables with their properties.
+     * @return the tags information. Variables whose type cannot be resolved are skipped.
+     */
+    private Single<List<OpcTagInfo>> describe(List<VariableToDescribe> variables) {
+        if (variables.isEmpty()) {
+            return Single.just(Collections.emptyList());
+        }
+        List<ReadValueId> readValueIds = new ArrayList<>();
+        for (VariableToDescribe variable : variables) {
+            addReadValueIds(readValueIds, variable.node.nodeId, VARIABLE_ATTRIBUTES);
+            for (CrawlNode property : variable.properties) {
+                addReadValueIds(readValueIds, property.nodeId, PROPERTY_ATTRIBUTES);
+            }
+        }
+        return read(readValueIds)
+                .flatMap(results -> {
+                    List<OpcTagInfo> ret = new ArrayList<>();
+                    //variables whose data type is not built in. We need their value to guess the type.
+                    Map<VariableToDescribe, Integer> unresolved = new LinkedHashMap<>();
+                    int offset = 0;
+                    for (VariableToDescribe variable : variables) {
+                        variable.attributes = results.subList(offset,
+                                offset + VARIABLE_ATTRIBUTES.length + variable.properties.size() * PROPERTY_ATTRIBUTES.length)
+                                .toArray(new DataValue[0]);
+                        offset += variable.attributes.length;
+                        Optional<OpcTagInfo> info = toTagInfo(variable, null);
+                        if (info.isPresent()) {
+                            ret.add(info.get());
+                        } else if (valueOf(variable.attributes[1]) instanceof Integer) {
+                            unresolved.put(variable, ret.size());
+                        }
+                    }
+                    if (unresolved.isEmpty()) {
+                        return Single.just(ret);
+                    }
+                    List<ReadValueId> valueIds = new ArrayList<>();
+                    unresolved.keySet().forEach(variable ->
+                            addReadValueIds(valueIds, variable.node.nodeId, new AttributeId[]{AttributeId.Value}));
+                    return read(valueIds)
+                            .map(values -> {
+                                //insert in reverse order to keep the positions valid.
+                                List<Map.Entry<VariableToDescribe, Integer>> entries = new ArrayList<>(unresolved.entrySet());
+                                for (int i = entries.size() - 1; i >= 0; i--) {
+                                    final int position = entries.get(i).getValue();
+                                    toTagInfo(entries.get(i).getKey(), valueOf(values.get(i)))
+                                            .ifPresent(info -> ret.add(position, info));
+                                }
+                                return ret;
+                            });
+                });
+    }
+
+    /**
+     * Maps the attributes read for a variable (and its properties) to an {@link OpcTagInfo}.
+     *
+     * @param variable the variable with its attributes.
+     * @param value    the variable value if already known (can be null).
+     * @return the tag information or empty if its java type cannot be determined.
+     */
+    private Optional<OpcTagInfo> toTagInfo(VariableToDescribe variable, Object value) {
+        DataValue[] attributes = variable.attributes;
+        Object dataType = valueOf(attributes[0]);
+        Object valueRank = valueOf(attributes[1]);
+        Optional<Class<?>> cls = UaVariantMarshaller.findJavaClass(dataType instanceof NodeId ? (NodeId) dataType : null,
+                valueRank instanceof Integer ? (Integer) valueRank : null, value);
+        if (!cls.isPresent()) {
+            return Optional.empty();
+        }
+        OpcTagInfo info = new OpcTagInfo(variable.node.nodeId.toParseableString())
+                .withName(variable.node.browseName)
+                .withType(cls.get());
+
+        Number d = (Number) UaVariantMarshaller.toJavaType(attributes[2]);
+        info.setScanRate(Optional.ofNullable(
+                d != null && d.doubleValue() > 0.0 ? Duration.ofNanos(Math.round(d.doubleValue() * 1e6)) : null));
+        if (d != null) {
+            info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.MinimumSamplingInterval.id()),
+                    AttributeId.MinimumSamplingInterval.toString(),
+                    d));
+        }
+
+        Object historizing = valueOf(attributes[3]);
+        info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.Historizing.id()),
+                AttributeId.Historizing.toString(), historizing instanceof Boolean ? historizing : false));
+
+        String description = textOf(attributes[4]);
+        String displayName = textOf(attributes[5]);
+        if (description != null) {
+            info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.Description.id()),
+                    AttributeId.Description.toString(), description));
+        }
+        if (displayName != null) {
+            info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.DisplayName.id()),
+                    AttributeId.DisplayName.toString(), displayName));
+        }
+        info.setDescription(Optional.ofNullable(description != null ? description : displayName));
+
+        Object accessLevel = valueOf(attributes[6]);
+        if (accessLevel instanceof UByte) {
+            EnumSet<AccessLevel> levels = AccessLevel.fromMask((UByte) accessLevel);
+            info.withReadAccessRights(levels.contains(AccessLevel.CurrentRead));
+            info.withWriteAccessRights(levels.contains(AccessLevel.CurrentWrite));
+            //set the mask for more advanced usages
+            info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.UserAccessLevel.id()),
+                    AttributeId.UserAccessLevel.toString(), ((UByte) accessLevel).intValue()));
+        }
+
+        int offset = VARIABLE_ATTRIBUTES.length;
+        for (CrawlNode property : variable.properties) {
+            String propertyDescription = textOf(attributes[offset]);
+            if (propertyDescription == null) {
+                propertyDescription = textOf(attributes[offset + 1]);
+            }
+            info.addProperty(new OpcTagProperty<>(property.nodeId.toParseableString(),
+                    propertyDescription != null ? propertyDescription : property.browseName,
+                    UaVariantMarshaller.toJavaType(valueOf(attributes[offset + 2]))));
+            offset += PROPERTY_ATTRIBUTES.length;
+        }
+        return Optional.of(info);
+    }
+
+    /**
+     * Reads some attributes. Requests larger than the server MaxNodesPerRead are sent in chunks, one after the other.
+     *
+     * @param readValueIds the attributes to read.
+     * @return the values in the same order than the attributes.
+     */
+    private Single<List<DataValue>> read(List<ReadValueId> readValueIds) {
+        if (maxNodesPerRead <= 0 || readValueIds.size() <= maxNodesPerRead) {
+            return toSingle(client.read(0.0, TimestampsToReturn.Neither, readValueIds))
+                    .map(response -> Arrays.asList(response.getResults()));
+        }
+        return Flowable.fromIterable(OpcUaSession.partition(readValueIds, maxNodesPerRead))
+                .concatMapSingle(this::read)
+                .concatMapIterable(values -> values)
+                .toList();
+    }
+
+    private static void addReadValueIds(List<ReadValueId> target, NodeId nodeId, AttributeId[] attributes) {
+        for (AttributeId attributeId : attributes) {
+            target.add(new ReadValueId(nodeId, attributeId.uid(), null, QualifiedName.NULL_VALUE));
+        }
+    }
+
+    private static String textOf(DataValue dataValue) {
+        Object value = valueOf(dataValue);
+        return value instanceof LocalizedText ? ((LocalizedText) value).getText() : null;
+    }
+
+    private static boolean isProperty(ReferenceDescription ref) {
+        return ref.getTypeDefinition() != null && ref.getTypeDefinition().isLocal() &&
+                Identifiers.PropertyType.equals(ref.getTypeDefinition().local().orElse(null));
+    }
+
+    private static Object valueOf(DataValue dataValue) {
+        return dataValue != null && dataValue.getValue() != null ? dataValue.getValue().getValue() : null;
+    }
+
+    /**
+     * Adapts a {@link CompletableFuture} without blocking any thread while waiting for its completion.
+     *
+     * @param future the future.
+     * @param <T>    the result type.
+     * @return a {@link Single}.
+     */
+    static <T> Single<T> toSingle(CompletableFuture<T> future) {
+        return Single.create(emitter -> future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                emitter.onError(throwable);
+            } else {
+                emitter.onSuccess(result);
+            }
+        }));
+    }
+
+    /**
+     * A node queued for browsing.
+     */
+    private static final class CrawlNode {
+        private final NodeId nodeId;
+        private final NodeClass nodeClass;
+        private final String browseName;
+
+        private CrawlNode(NodeId nodeId, NodeClass nodeClass, String browseName) {
+            this.nodeId = nodeId;
+            this.nodeClass = nodeClass;
+            this.browseName = browseName;
+        }
+    }
+
+    /**
+     * A variable together with its properties.
+     */
+    private static final class VariableToDescribe {
+        private final CrawlNode node;
+        private final List<CrawlNode> properties;
+        private DataValue[] attributes;
+
+        private VariableToDescribe(CrawlNode node, List<CrawlNode> properties) {
+            this.node = node;
+            this.properties = properties;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.hurence.opc.ua;
+
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DataChangeTrigger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DeadbandType;
+import org.eclipse.milo.opcua.stack.core.types.structured.DataChangeFilter;
+
+import java.util.Objects;
+
+/**
+ * Server side filter of the data changes reported for a streamed tag (OPC-UA DataChangeFilter).
+ * <p>
+ * Percent deadbands are relative to the EURange property of the tag
+ * (see {@link OpcUaTemplate#fetchEuRange(String)}). Servers refuse them for tags without EURange.
+ *
+ * @author amarziali
+ */
+public final class OpcUaDataChangeFilter {
+
+    /**
+     * What makes the server report a change.
+     */
+    public enum Trigger {
+        /**
+         * A status change only.
+         */
+        STATUS(DataChangeTrigger.Status),
+        /**
+         * A status or value change.
+         */
+        STATUS_VALUE(DataChangeTrigger.StatusValue),
+        /**
+         * A status, value or source timestamp change.
+         */
+        STATUS_VALUE_TIMESTAMP(DataChangeTrigger.StatusValueTimestamp);
+
+        private final DataChangeTrigger uaTrigger;
+
+        Trigger(DataChangeTrigger uaTrigger) {
+            this.uaTrigger = uaTrigger;
+        }
+    }
+
+    /**
+     * How the deadband value applies.
+     */
+    public enum Deadband {
+        /**
+         * Every value change is reported.
+         */
+        NONE(DeadbandType.None),
+        /**
+         * Changes smaller than the deadband value are ignored.
+         */
+        ABSOLUTE(DeadbandType.Absolute),
+        /**
+         * Changes smaller than the deadband value percentage of the EURange are ignored.
+         */
+        PERCENT(DeadbandType.Percent);
+
+        private final DeadbandType uaDeadbandType;
+
+        Deadband(DeadbandType uaDeadbandType) {
+            this.uaDeadbandType = uaDeadbandType;
+        }
+    }
+
+    /**
+     * The server default: status or value changes, no deadband.
+     */
+    public static final OpcUaDataChangeFilter DEFAULT = new OpcUaDataChangeFilter(Trigger.STATUS_VALUE, Deadband.NONE, 0.0);
+
+    private final Trigger trigger;
+    private final Deadband deadband;
+    private final double deadbandValue;
+
+    private OpcUaDataChangeFilter(Trigger trigger, Deadband deadband, double deadbandValue) {
+        this.trigger = trigger;
+        this.deadband = deadband;
+        this.deadbandValue = deadbandValue;
+    }
+
+    /**
+     * Ignores changes smaller than an absolute value.
+     *
+     * @param value the deadband in the tag unit. Must be positive.
+     * @return a new filter triggered by status or value changes.
+     */
+    public static OpcUaDataChangeFilter absoluteDeadband(double value) {
+        if (!(value >= 0.0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("The absolute deadband must be a positive number");
+        }
+        return new OpcUaDataChangeFilter(Trigger.STATUS_VALUE, Deadband.ABSOLUTE, value);
+    }
+
+    /**
+     * Ignores changes smaller than a percentage of the tag EURange.
+     *
+     * @param percent the deadband percentage. Must be between 0 and 100.
+     * @return a new filter triggered by status or value changes.
+     */
+    public static OpcUaDataChangeFilter percentDeadband(double percent) {
+        if (!(percent >= 0.0 && percent <= 100.0)) {
+            throw new IllegalArgumentException("The percent deadband must be between 0 and 100");
+        }
+        return new OpcUaDataChangeFilter(Trigger.STATUS_VALUE, Deadband.PERCENT, percent);
+    }
+
+    /**
+     * Copies this filter with another trigger.
+     *
+     * @param trigger the never null trigger.
+     * @return a new filter.
+     */
+    public OpcUaDataChangeFilter withTrigger(Trigger trigger) {
+        if (trigger == null) {
+            throw new IllegalArgumentException("trigger must not be null");
+        }
+        return new OpcUaDataChangeFilter(trigger, deadband, deadbandValue);
+    }
+
+    /**
+     * Get what makes the server report a change.
+     *
+     * @return the {@link Trigger}
+     */
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Get how the deadband value applies.
+     *
+     * @return the {@link Deadband}
+     */
+    public Deadband getDeadband() {
+        return deadband;
+    }
+
+    /**
+     * Get the deadband value.
+     *
+     * @return an absolute value or a percentage depending on {@link #getDeadband()}.
+     */
+    public double getDeadbandValue() {
+        return deadbandValue;
+    }
+
+    /**
+     * Encodes the filter for a monitored item creation request.
+     *
+     * @return the encoded filter or null for {@link #DEFAULT}.
+     */
+    ExtensionObject toExtensionObject() {
+        if (DEFAULT.equals(this)) {
+            return null;
+        }
+        return ExtensionObject.encode(new DataChangeFilter(trigger.uaTrigger,
+                        UInteger.valueOf(deadband.uaDeadbandType.getValue()), deadbandValue),
+                Identifiers.DataChangeFilter_Encoding_DefaultBinary);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OpcUaDataChangeFilter that = (OpcUaDataChangeFilter) o;
+        return Double.compare(that.deadbandValue, deadbandValue) == 0 &&
+                trigger == that.trigger &&
+                deadband == that.deadband;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(trigger, deadband, deadbandValue);
+    }
+
+    @Override
+    public String toString() {
+        return "OpcUaDataChangeFilter{" +
+                "trigger=" + trigger +
+                ", deadband=" + deadband +
+                ", deadbandValue=" + deadbandValue +
+                '}';
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import io.reactivex.Completable;
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.SessionActivityListener;
+import org.eclipse.milo.opcua.sdk.client.api.UaSession;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The nodes of a session registered with the RegisterNodes service.
+ * <p>
+ * Servers may hand out optimized node ids for registered nodes. Nodes are registered either explicitly
+ * or once accessed often enough (at least threshold times within a time window).
+ * Registered node ids are only valid for the session that registered them: they are forgotten
+ * whenever the client session becomes inactive.
+ *
+ * @author amarziali
+ */
+final class OpcUaNodeRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpcUaNodeRegistry.class);
+
+    private final int threshold;
+    private final long windowNanos;
+    /**
+     * The registered node ids by original node id.
+     */
+    private final Map<NodeId, NodeId> registered = new ConcurrentHashMap<>();
+    /**
+     * The nodes being registered.
+     */
+    private final Set<NodeId> pending = ConcurrentHashMap.newKeySet();
+    private final Map<NodeId, AccessCounter> counters = new ConcurrentHashMap<>();
+    /**
+     * Incremented at each change of the registered nodes.
+     */
+    private final AtomicInteger version = new AtomicInteger();
+    /**
+     * Incremented each time the client session becomes inactive. Registrations started before are dropped.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    /**
+     * When expired access counters were last evicted.
+     */
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+    private final SessionActivityListener sessionActivityListener = new SessionActivityListener() {
+        @Override
+        public void onSessionInactive(UaSession session) {
+            forget();
+        }
+    };
+    private volatile boolean closed;
+
+    /**
+     * @param threshold the number of accesses within the window making a node registered. 0 disables it.
+     * @param window    the access counting window.
+     */
+    OpcUaNodeRegistry(int threshold, Duration window) {
+        this.threshold = threshold;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Starts following the client session activity.
+     *
+     * @param client the client.
+     */
+    void attach(OpcUaClient client) {
+        client.addSessionActivityListener(sessionActivityListener);
+    }
+
+    /**
+     * @return true if frequently accessed nodes are registered automatically.
+     */
+    boolean isCounting() {
+        return threshold > 0;
+    }
+
+    /**
+     * @return the version of the registered nodes. Changes whenever nodes are registered or released.
+     */
+    int getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Resolves the node id to send to the server.
+     *
+     * @param nodeId the original node id.
+     * @return the registered node id or the original one if not registered.
+     */
+    NodeId resolve(NodeId nodeId) {
+        return registered.getOrDefault(nodeId, nodeId);
+    }
+
+    /**
+     * Resolves the node ids to send to the server.
+     *
+     * @param nodeIds the original node ids.
+     * @return the registered node ids (or the original ones if not registered).
+     */
+    List<NodeId> resolve(List<NodeId> nodeIds) {
+        if (registered.isEmpty()) {
+            return nodeIds;
+        }
+        List<NodeId> ret = new ArrayList<>(nodeIds.size());
+        for (NodeId nodeId : nodeIds) {
+            ret.add(resolve(nodeId));
+        }
+        return ret;
+    }
+
+    /**
+     * Accounts an access to some nodes. Nodes crossing the threshold are registered in background.
+     *
+     * @param client  the client.
+     * @param nodeIds the accessed nodes.
+     */
+    void accessed(OpcUaClient client, Collection<NodeId> nodeIds) {
+        if (!isCounting() || closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        evictExpiredCounters(now);
+        List<NodeId> hot = null;
+        for (NodeId nodeId : nodeIds) {
+            if (registered.containsKey(nodeId) || pending.contains(nodeId)) {
+                continue;
+            }
+            if (counters.computeIfAbsent(nodeId, ignored -> new AccessCounter()).hit(now, threshold, windowNanos)) {
+                if (hot == null) {
+                    hot = new ArrayList<>();
+                }
+                hot.add(nodeId);
+            }
+        }
+        if (hot != null) {
+            register(client, hot).subscribe(() -> {
+            }, throwable -> logger.warn("Unable to register frequently accessed nodes", throwable));
+        }
+    }
+
+    /**
+     * Accounts an access to a set of nodes accessed together (e.g. a prepared read).
+     * The whole set is registered in background once the counter crosses the threshold.
+     *
+     * @param client  the client.
+     * @param counter the access counter of the set.
+     * @param nodeIds the nodes.
+     */
+    void accessed(OpcUaClient client, AccessCounter counter, Collection<NodeId> nodeIds) {
+        if (isCounting() && !closed && counter.hit(System.nanoTime(), threshold, windowNanos)) {
+            register(client, nodeIds).subscribe(() -> {
+            }, throwable -> logger.warn("Unable to register frequently accessed nodes", throwable));
+        }
+    }
+
+    /**
+     * Registers nodes not yet registered with a single RegisterNodes request.
+     *
+     * @param client  the client.
+     * @param nodeIds the nodes.
+     * @return a {@link Completable} completing once the nodes are registered.
+     */
+    Completable register(OpcUaClient client, Collection<NodeId> nodeIds) {
+        return Completable.defer(() -> {
+            if (closed) {
+                return Completable.complete();
+            }
+            final int registrationGeneration = generation.get();
+            final List<NodeId> toRegister = new ArrayList<>();
+            for (NodeId nodeId : nodeIds) {
+                if (!registered.containsKey(nodeId) && pending.add(nodeId)) {
+                    toRegister.add(nodeId);
+                }
+            }
+            if (toRegister.isEmpty()) {
+                return Completable.complete();
+            }
+            return OpcUaCrawler.toSingle(client.registerNodes(toRegister))
+                    .doOnSuccess(response -> {
+                        NodeId[] registeredNodeIds = response.getRegisteredNodeIds();
+                        synchronized (this) {
+                            if (closed) {
+                                //released meanwhile: do not keep registrations nobody will release.
+                                if (registeredNodeIds != null && registeredNodeIds.length > 0) {
+                                    client.unregisterNodes(Arrays.asList(registeredNodeIds));
+                                }
+                                return;
+                            }
+                            if (registrationGeneration != generation.get()) {
+                                //registered within a session no longer active.
+                                return;
+                            }
+                            for (int i = 0; i < toRegister.size() && registeredNodeIds != null &&
+                                    i < registeredNodeIds.length; i++) {
+                                registered.put(toRegister.get(i), registeredNodeIds[i]);
+                                counters.remove(toRegister.get(i));
+                            }
+                            version.incrementAndGet();
+                        }
+                        logger.info("Registered {} nodes", toRegister.size());
+                    })
+                    .ignoreElement()
+                    .doFinally(() -> pending.removeAll(toRegister));
+        });
+    }
+
+    /**
+     * Releases all the registered nodes with a single UnregisterNodes request (blocking).
+     *
+     * @param client the client. If null registrations are just forgotten.
+     */
+    void unregisterAll(OpcUaClient client) {
+        final List<NodeId> toUnregister;
+        synchronized (this) {
+            closed = true;
+            toUnregister = new ArrayList<>(registered.values());
+            registered.clear();
+            counters.clear();
+            version.incrementAndGet();
+        }
+        if (client == null) {
+            return;
+        }
+        client.removeSessionActivityListener(sessionActivityListener);
+        if (toUnregister.isEmpty()) {
+            return;
+        }
+        try {
+            client.unregisterNodes(toUnregister)
+                    .get(client.getConfig().getRequestTimeout().longValue(), TimeUnit.MILLISECONDS);
+            logger.info("Unregistered {} nodes", toUnregister.size());
+        } catch (Exception e) {
+            logger.warn("Unable to properly unregister nodes", e);
+        }
+    }
+
+    /**
+     * Forgets the registered nodes and the access counts. Registrations in progress are dropped.
+     * Registered node ids are no longer valid once the session that registered them is gone.
+     */
+    synchronized void forget() {
+        generation.incrementAndGet();
+        registered.clear();
+        pending.clear();
+        counters.clear();
+        version.incrementAndGet();
+        logger.info("Session inactive. Registered nodes forgotten");
+    }
+
+    /**
+     * @return the number of nodes whose accesses are being counted.
+     */
+    int countedNodes() {
+        return counters.size();
+    }
+
+    /**
+     * Evicts the counters of nodes not accessed within the window. Done at most once per window.
+     *
+     * @param now the current time in nanoseconds.
+     */
+    private void evictExpiredCounters(long now) {
+        long last = lastEviction.get();
+        if (now - last > windowNanos && lastEviction.compareAndSet(last, now)) {
+            counters.values().removeIf(counter -> counter.isExpired(now, windowNanos));
+        }
+    }
+
+    /**
+     * Counts accesses within a time window.
+     */
+    static final class AccessCounter {
+        private long windowStart = Long.MIN_VALUE;
+        private int count;
+
+        /**
+         * Accounts an access.
+         *
+         * @param now         the current time in nanoseconds.
+         * @param threshold   the number of accesses to reach.
+         * @param windowNanos the window length in nanoseconds.
+         * @return true if the threshold is reached by this access.
+         */
+        synchronized boolean hit(long now, int threshold, long windowNanos) {
+            if (windowStart == Long.MIN_VALUE || now - windowStart > windowNanos) {
+                windowStart = now;
+                count = 0;
+            }
+            return ++count == threshold;
+        }
+
+        /**
+         * @param now         the current time in nanoseconds.
+         * @param windowNanos the window length in nanoseconds.
+         * @return true if the window of the last access is over.
+         */
+        synchronized boolean isExpired(long now, long windowNanos) {
+            return windowStart == Long.MIN_VALUE || now - windowStart > windowNanos;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The server operation limits (Server_ServerCapabilities_OperationLimits) the client honours.
+ * A limit of 0 means the server does not enforce any.
+ *
+ * @author amarziali
+ */
+final class OpcUaOperationLimits {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpcUaOperationLimits.class);
+
+    /**
+     * No limit at all. Used until the server limits are known or if they cannot be read.
+     */
+    static final OpcUaOperationLimits UNLIMITED = new OpcUaOperationLimits(0, 0, 0);
+
+    /**
+     * The limit nodes. Order matters.
+     */
+    private static final List<NodeId> LIMIT_NODES = Arrays.asList(
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRead,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerWrite,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxMonitoredItemsPerCall);
+
+    private final int maxNodesPerRead;
+    private final int maxNodesPerWrite;
+    private final int maxMonitoredItemsPerCall;
+
+    OpcUaOperationLimits(int maxNodesPerRead, int maxNodesPerWrite, int maxMonitoredItemsPerCall) {
+        this.maxNodesPerRead = maxNodesPerRead;
+        this.maxNodesPerWrite = maxNodesPerWrite;
+        this.maxMonitoredItemsPerCall = maxMonitoredItemsPerCall;
+    }
+
+    /**
+     * Reads the operation limits of a connected server with a single Read request.
+     * Limits the server does not expose are considered unset.
+     *
+     * @param client the connected client.
+     * @return the limits. {@link #UNLIMITED} in case of any issue.
+     */
+    static OpcUaOperationLimits fetch(OpcUaClient client) {
+        try {
+            List<DataValue> values = client.readValues(0.0, TimestampsToReturn.Neither, LIMIT_NODES)
+                    .get(client.getConfig().getRequestTimeout().longValue(), TimeUnit.MILLISECONDS);
+            OpcUaOperationLimits ret = new OpcUaOperationLimits(limit(values.get(0)), limit(values.get(1)),
+                    limit(values.get(2)));
+            logger.info("Using server {}", ret);
+            return ret;
+        } catch (Exception e) {
+            logger.warn("Unable to read server operation limits. Requests will not be split according to them", e);
+            return UNLIMITED;
+        }
+    }
+
+    private static int limit(DataValue dataValue) {
+        Object value = dataValue != null && dataValue.getValue() != null ?
+                UaVariantMarshaller.toJavaType(dataValue.getValue().getValue()) : null;
+        if (value instanceof Number && ((Number) value).longValue() > 0) {
+            return (int) Math.min(Integer.MAX_VALUE, ((Number) value).longValue());
+        }
+        return 0;
+    }
+
+    /**
+     * Combines a client side batch size with a server limit.
+     *
+     * @param serverLimit the server limit (0 if unset).
+     * @param batchSize   the strictly positive client batch size.
+     * @return the smallest of both.
+     */
+    static int batchSize(int serverLimit, int batchSize) {
+        return serverLimit > 0 ? Math.min(serverLimit, batchSize) : batchSize;
+    }
+
+    int getMaxNodesPerRead() {
+        return maxNodesPerRead;
+    }
+
+    int getMaxNodesPerWrite() {
+        return maxNodesPerWrite;
+    }
+
+    int getMaxMonitoredItemsPerCall() {
+        return maxMonitoredItemsPerCall;
+    }
+
+    @Override
+    public String toString() {
+        return "OpcUaOperationLimits{" +
+                "maxNodesPerRead=" + maxNodesPerRead +
+                ", maxNodesPerWrite=" + maxNodesPerWrite +
+                ", maxMonitoredItemsPerCall=" + maxMonitoredItemsPerCall +
+                '}';
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import com.hurence.opc.OpcData;
+import com.hurence.opc.OpcDataBatch;
+import com.hurence.opc.OpcSample;
+import com.hurence.opc.ReadOptions;
+import io.reactivex.Single;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of tags registered once for repeated reads on an {@link OpcUaSession}.
+ * <p>
+ * Tags are parsed when preparing and the Read requests are built (and split according to the session read batch size)
+ * on first read. Following reads only send the prebuilt requests.
+ * Requests are built again only if the session registers nodes meanwhile.
+ * Use {@link OpcUaSession#prepareRead(String...)} to obtain an instance.
+ *
+ * @author amarziali
+ */
+public final class OpcUaPreparedRead {
+
+    private final OpcUaSession session;
+    private final String[] tags;
+    private final List<NodeId> nodeIds;
+    private final OpcUaNodeRegistry.AccessCounter accessCounter = new OpcUaNodeRegistry.AccessCounter();
+    private volatile Requests requests;
+
+    OpcUaPreparedRead(OpcUaSession session, String[] tags, List<NodeId> nodeIds) {
+        this.session = session;
+        this.tags = tags;
+        this.nodeIds = nodeIds;
+    }
+
+    /**
+     * Gets the prepared tags.
+     *
+     * @return an unmodifiable list of tag ids (in the order values are returned).
+     */
+    public List<String> getTags() {
+        return Collections.unmodifiableList(Arrays.asList(tags));
+    }
+
+    /**
+     * Reads the prepared tags.
+     *
+     * @return a {@link Single} emitting a value per tag (in the same order of the tags).
+     */
+    public Single<List<OpcData>> read() {
+        return read(ReadOptions.DEFAULT);
+    }
+
+    /**
+     * Reads the prepared tags.
+     *
+     * @param options the never null read options.
+     * @return a {@link Single} emitting a value per tag (in the same order of the tags).
+     */
+    public Single<List<OpcData>> read(@Nonnull ReadOptions options) {
+        return session.read(this, options);
+    }
+
+    /**
+     * Reads the prepared tags as {@link OpcSample}s.
+     *
+     * @return a {@link Single} emitting a sample per tag (in the same order of the tags).
+     */
+    public Single<List<OpcSample>> readSamples() {
+        return readSamples(ReadOptions.DEFAULT);
+    }
+
+    /**
+     * Reads the prepared tags as {@link OpcSample}s.
+     *
+     * @param options the never null read options.
+     * @return a {@link Single} emitting a sample per tag (in the same order of the tags).
+     */
+    public Single<List<OpcSample>> readSamples(@Nonnull ReadOptions options) {
+        return session.readSamples(this, options);
+    }
+
+    /**
+     * Reads the prepared tags into a columnar batch.
+     *
+     * @return a {@link Single} emitting a batch holding a value per tag (in the same order of the tags).
+     */
+    public Single<OpcDataBatch> readBatch() {
+        return readBatch(ReadOptions.DEFAULT);
+    }
+
+    /**
+     * Reads the prepared tags into a columnar batch.
+     *
+     * @param options the never null read options.
+     * @return a {@link Single} emitting a batch holding a value per tag (in the same order of the tags).
+     */
+    public Single<OpcDataBatch> readBatch(@Nonnull ReadOptions options) {
+        return session.readBatch(this, options);
+    }
+
+    String[] tags() {
+        return tags;
+    }
+
+    List<NodeId> nodeIds() {
+        return nodeIds;
+    }
+
+    OpcUaNodeRegistry.AccessCounter accessCounter() {
+        return accessCounter;
+    }
+
+    /**
+     * Gets the prebuilt requests.
+     *
+     * @param version the current version of the session registered nodes.
+     * @return the requests or null if not built yet or built for another version.
+     */
+    List<List<ReadValueId>> requests(int version) {
+        Requests current = requests;
+        return current != null && current.version == version ? current.chunks : null;
+    }
+
+    void requests(int version, List<List<ReadValueId>> chunks) {
+        requests = new Requests(version, chunks);
+    }
+
+    /**
+     * The Read requests of each chunk built for a version of the session registered nodes.
+     */
+    private static final class Requests {
+        private final int version;
+        private final List<List<ReadValueId>> chunks;
+
+        private Requests(int version, List<List<ReadValueId>> chunks) {
+            this.version = version;
+            this.chunks = chunks;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import com.hurence.opc.OperationStatus;
+import io.reactivex.Single;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of tags registered once for repeated writes on an {@link OpcUaSession}.
+ * <p>
+ * Tags are parsed when preparing. Each write then only converts the values.
+ * Use {@link OpcUaSession#prepareWrite(String...)} to obtain an instance.
+ *
+ * @author amarziali
+ */
+public final class OpcUaPreparedWrite {
+
+    private final OpcUaSession session;
+    private final String[] tags;
+    private final List<NodeId> nodeIds;
+    private final OpcUaNodeRegistry.AccessCounter accessCounter = new OpcUaNodeRegistry.AccessCounter();
+
+    OpcUaPreparedWrite(OpcUaSession session, String[] tags, List<NodeId> nodeIds) {
+        this.session = session;
+        this.tags = tags;
+        this.nodeIds = nodeIds;
+    }
+
+    /**
+     * Gets the prepared tags.
+     *
+     * @return an unmodifiable list of tag ids (in the order values are expected).
+     */
+    public List<String> getTags() {
+        return Collections.unmodifiableList(Arrays.asList(tags));
+    }
+
+    /**
+     * Writes a value to each prepared tag.
+     *
+     * @param values the values. One per tag in the same order of the tags.
+     * @return a {@link Single} emitting the outcome of each write (in the same order of the tags).
+     */
+    public Single<List<OperationStatus>> write(Object... values) {
+        if (values.length != tags.length) {
+            return Single.error(new IllegalArgumentException("Expected " + tags.length + " values but got " +
+                    values.length));
+        }
+        return session.write(this, values);
+    }
+
+    List<NodeId> nodeIds() {
+        return nodeIds;
+    }
+
+    OpcUaNodeRegistry.AccessCounter accessCounter() {
+        return accessCounter;
+    }
+}
@@ -22,7 +22,9 @@ import com.hurence.opc.Quality;
 import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Opc UA quality decoder.
@@ -31,6 +33,12 @@ import java.util.Optional;
  */
 public class OpcUaQualityExtractor {
 
+    /**
+     * Decoded statuses are immutable and shared. Servers only use a handful of codes.
+     */
+    private static final Map<Long, OperationStatus> operationStatusCache = new ConcurrentHashMap<>();
+    private static final OperationStatus GOOD = decode(StatusCode.GOOD);
+
     /**
      * Convert quality from opc-ua to common format.
      *
@@ -53,9 +61,16 @@ public class OpcUaQualityExtractor {
      * Translates the ua status code to the {@link OperationStatus}
      *
      * @param statusCode the ua status code.
-     * @return the resulting {@link OperationStatus}
+     * @return the resulting {@link OperationStatus} (shared among equal codes).
      */
     public static final OperationStatus operationStatus(final StatusCode statusCode) {
+        if (statusCode.getValue() == 0L) {
+            return GOOD;
+        }
+        return operationStatusCache.computeIfAbsent(statusCode.getValue(), ignored -> decode(statusCode));
+    }
+
+    private static OperationStatus decode(final StatusCode statusCode) {
         OperationStatus.Level level = OperationStatus.Level.WARNING;
         if (statusCode.isBad()) {
             level = OperationStatus.Level.ERROR;
@@ -18,19 +18,29 @@
 package com.hurence.opc.ua;
 
 import com.hurence.opc.OpcData;
+import com.hurence.opc.OpcDataBatch;
+import com.hurence.opc.OpcSample;
 import com.hurence.opc.OpcSession;
 import com.hurence.opc.OperationStatus;
+import com.hurence.opc.OverflowPolicy;
+import com.hurence.opc.ReadOptions;
+import com.hurence.opc.StreamBuffer;
 import com.hurence.opc.exception.OpcException;
+import com.hurence.opc.metrics.Instrumentation;
+import com.hurence.opc.metrics.OpcMetrics;
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
-import io.reactivex.disposables.Disposable;
-import io.reactivex.processors.UnicastProcessor;
+import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
 import io.reactivex.subjects.CompletableSubject;
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
 import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
 import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
 import org.eclipse.milo.opcua.stack.core.AttributeId;
 import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
 import org.eclipse.milo.opcua.stack.core.types.builtin.*;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
@@ -41,12 +51,18 @@ import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
 import java.lang.ref.WeakReference;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -60,20 +76,82 @@ public class OpcUaSession implements OpcSession {
     private static final Logger logger = LoggerFactory.getLogger(OpcUaSession.class);
 
 
+    /**
+     * Offset between the OPC-UA epoch (1601-01-01) and the unix epoch in 100 nanoseconds intervals.
+     */
+    private static final long EPOCH_OFFSET_100NS = 116_444_736_000_000_000L;
+
     private static final AtomicInteger clientHandleCounter = new AtomicInteger();
+    private static final AtomicInteger sessionCounter = new AtomicInteger();
     private final Duration publicationInterval;
+    private final int maxMonitoredItemsPerSubscription;
+    private final int monitoredItemsBatchSize;
+    private final int readBatchSize;
+    private final int writeBatchSize;
+    private final int maxConcurrentRequests;
+    private final OpcUaNodeRegistry nodeRegistry;
     private final WeakReference<OpcUaClient> client;
     private final WeakReference<OpcUaTemplate> creatingOperations;
-    private UaSubscription subscription;
     private final CompletableSubject terminationSignal = CompletableSubject.create();
+    /**
+     * Monitored items shared among stream subscribers (guarded by itself).
+     */
+    private final Map<MonitoredItemKey, SharedMonitoredItem> monitoredItems = new HashMap<>();
+    /**
+     * The subscriptions of the session by publishing interval (guarded by monitoredItems).
+     */
+    private final Map<Duration, List<PooledSubscription>> subscriptions = new HashMap<>();
+    /**
+     * The data change notifications of each publish response.
+     */
+    private final FlowableProcessor<Publication> publications = PublishProcessor.<Publication>create().toSerialized();
+    private final OpcMetrics metrics;
+    private final String sessionId = "ua-" + sessionCounter.incrementAndGet();
+    /**
+     * The values buffered by stream processors. Null if metrics are disabled.
+     */
+    private final LongAdder queueDepth;
+    private final LongAdder droppedSamples = new LongAdder();
+    private final StreamBuffer streamBuffer;
 
 
     private OpcUaSession(OpcUaTemplate creatingOperations,
                          OpcUaClient client,
-                         Duration publicationInterval) {
+                         OpcUaSessionProfile sessionProfile,
+                         OpcUaOperationLimits operationLimits) {
         this.client = new WeakReference<>(client);
         this.creatingOperations = new WeakReference<>(creatingOperations);
-        this.publicationInterval = publicationInterval;
+        this.publicationInterval = sessionProfile.getPublicationInterval();
+        this.maxMonitoredItemsPerSubscription = sessionProfile.getMaxMonitoredItemsPerSubscription();
+        this.monitoredItemsBatchSize = OpcUaOperationLimits.batchSize(operationLimits.getMaxMonitoredItemsPerCall(),
+                sessionProfile.getMonitoredItemsBatchSize());
+        this.readBatchSize = OpcUaOperationLimits.batchSize(operationLimits.getMaxNodesPerRead(),
+                sessionProfile.getReadBatchSize());
+        this.writeBatchSize = OpcUaOperationLimits.batchSize(operationLimits.getMaxNodesPerWrite(),
+                sessionProfile.getWriteBatchSize());
+        this.maxConcurrentRequests = sessionProfile.getMaxConcurrentRequests();
+        this.nodeRegistry = new OpcUaNodeRegistry(sessionProfile.getRegisterNodesThreshold(),
+                sessionProfile.getRegisterNodesWindow());
+        nodeRegistry.attach(client);
+        logger.info("Using batch sizes of {} monitored items, {} reads and {} writes",
+                monitoredItemsBatchSize, readBatchSize, writeBatchSize);
+        this.metrics = creatingOperations.getMetrics();
+        if (metrics.isEnabled()) {
+            queueDepth = new LongAdder();
+            metrics.registerGauge(sessionId, OpcMetrics.MONITORED_ITEMS, () -> {
+                synchronized (monitoredItems) {
+                    return monitoredItems.size();
+                }
+            });
+            metrics.registerGauge(sessionId, OpcMetrics.STREAM_QUEUE_DEPTH, queueDepth::sum);
+        } else {
+            queueDepth = null;
+        }
+        this.streamBuffer = new StreamBuffer(sessionProfile.getOverflowPolicy(), sessionProfile.getBufferSize(),
+                queueDepth, count -> {
+                    droppedSamples.add(count);
+                    metrics.samplesDropped(sessionId, count);
+                });
     }
 
 
@@ -81,42 +159,40 @@ public class OpcUaSession implements OpcSession {
                                OpcUaClient client,
                                OpcUaSessionProfile sessionProfile) {
         try {
-            return new OpcUaSession(creatingOperations, client, sessionProfile.getPublicationInterval());
+            return new OpcUaSession(creatingOperations, client, sessionProfile, creatingOperations.getOperationLimits());
 
         } catch (Exception e) {
             throw new OpcException("Unable to create an OPC-UA session", e);
         }
     }
 
-    private synchronized UaSubscription subscription() {
-        try {
-            if (subscription == null && client.get() != null) {
-                subscription = client.get().getSubscriptionManager().createSubscription(Math.round(publicationInterval.toNanos() / 1.0e6)).get();
-            }
-        } catch (Exception e) {
-            throw new OpcException("Unable to create subscription", e);
-        }
-        return this.subscription;
-    }
-
-
     public void cleanup() {
         logger.info("Destroying UA session");
+        nodeRegistry.unregisterAll(client.get());
+        final List<PooledSubscription> toDelete = new ArrayList<>();
+        synchronized (monitoredItems) {
+            subscriptions.values().forEach(toDelete::addAll);
+            subscriptions.clear();
+            monitoredItems.clear();
+        }
         try {
-            if (client.get() != null) {
-                if (subscription != null) {
-                    client.get().getSubscriptionManager().deleteSubscription(subscription.getSubscriptionId())
-                            .get(client.get().getConfig().getRequestTimeout().longValue(), TimeUnit.MILLISECONDS);
-                    logger.info("Released subscription {}", subscription.getSubscriptionId());
+            for (PooledSubscription pooled : toDelete) {
+                pooled.retire();
+                final UaSubscription current = pooled.subscription;
+                if (current != null && client.get() != null) {
+                    try {
+                        client.get().getSubscriptionManager().deleteSubscription(current.getSubscriptionId())
+                                .get(client.get().getConfig().getRequestTimeout().longValue(), TimeUnit.MILLISECONDS);
+                        logger.info("Released subscription {}", current.getSubscriptionId());
+                    } catch (Exception e) {
+                        logger.warn("Unable to properly clear subscription " + current.getSubscriptionId(), e);
+                    }
                 }
-
             }
-        } catch (Exception e) {
-            logger.warn("Unable to properly clear subscription " + subscription.getSubscriptionId(), e);
         } finally {
-            subscription = null;
             client.clear();
             terminationSignal.onComplete();
+            metrics.sessionClosed(sessionId);
         }
     }
 
@@ -128,7 +204,7 @@ public class OpcUaSession implements OpcSession {
     }
 
 
-    private OpcData<?> opcData(String tag, DataValue dataValue) {
+    private OpcData opcData(String tag, DataValue dataValue) {
         Instant instant = Instant.now();
         DateTime dt = null;
         double picos = 0.0;
@@ -155,102 +231,818 @@ public class OpcUaSession implements OpcSession {
     }
 
 
+    /**
+     * Builds a sample straight from the data value, without allocating an {@link Instant}.
+     *
+     * @param tag       the tag id.
+     * @param dataValue the received value.
+     * @return the most specialized {@link OpcSample} for the value type.
+     */
+    private OpcSample opcSample(String tag, DataValue dataValue) {
+        StatusCode statusCode = dataValue.getStatusCode();
+        return OpcSample.of(tag,
+                epochNanos(dataValue),
+                (int) statusCode.getValue(),
+                OpcUaQualityExtractor.quality(statusCode),
+                OpcUaQualityExtractor.operationStatus(statusCode),
+                UaVariantMarshaller.toJavaType(dataValue.getValue()));
+    }
+
+    /**
+     * Appends a data value to a batch.
+     *
+     * @param builder   the batch builder.
+     * @param tag       the tag id.
+     * @param dataValue the received value.
+     */
+    private static void addDataValue(OpcDataBatch.Builder builder, String tag, DataValue dataValue) {
+        StatusCode statusCode = dataValue.getStatusCode();
+        builder.addValue(tag,
+                epochNanos(dataValue),
+                (int) statusCode.getValue(),
+                OpcUaQualityExtractor.quality(statusCode),
+                OpcUaQualityExtractor.operationStatus(statusCode),
+                UaVariantMarshaller.toJavaType(dataValue.getValue()));
+    }
+
+    /**
+     * Extracts the source (or server if missing) timestamp of a value.
+     *
+     * @param dataValue the value.
+     * @return the nanoseconds elapsed since the epoch. Defaults to now if the value has no timestamp.
+     */
+    private static long epochNanos(DataValue dataValue) {
+        DateTime dt = null;
+        long picos = 0;
+        if (dataValue.getSourceTime() != null) {
+            dt = dataValue.getSourceTime();
+            if (dataValue.getSourcePicoseconds() != null) {
+                picos = dataValue.getSourcePicoseconds().longValue();
+            }
+        } else if (dataValue.getServerTime() != null) {
+            dt = dataValue.getServerTime();
+            if (dataValue.getServerPicoseconds() != null) {
+                picos = dataValue.getServerPicoseconds().longValue();
+            }
+        }
+        if (dt != null) {
+            return (dt.getUtcTime() - EPOCH_OFFSET_100NS) * 100L + Math.round(picos / 1.0e3);
+        }
+        return OpcSample.epochNanos(Instant.now());
+    }
+
+
     @Override
     public Single<List<OpcData>> read(String... tags) {
+        return read(ReadOptions.DEFAULT, tags);
+    }
+
+    @Override
+    public Single<List<OpcSample>> readSamples(String... tags) {
+        return readSamples(ReadOptions.DEFAULT, tags);
+    }
+
+    @Override
+    public Single<OpcDataBatch> readBatch(String... tags) {
+        return readBatch(ReadOptions.DEFAULT, tags);
+    }
+
+    @Override
+    public Single<List<OpcData>> read(@Nonnull ReadOptions options, String... tags) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                readDataValues(tags, maxAge(options), this::opcData), List::size);
+    }
+
+    @Override
+    public Single<List<OpcSample>> readSamples(@Nonnull ReadOptions options, String... tags) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                readDataValues(tags, maxAge(options), this::opcSample), List::size);
+    }
+
+    @Override
+    public Single<OpcDataBatch> readBatch(@Nonnull ReadOptions options, String... tags) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                readDataValues(tags, maxAge(options), (tag, dataValue) -> dataValue)
+                        .map(dataValues -> toBatch(tags, dataValues)), OpcDataBatch::size);
+    }
+
+    /**
+     * Gets the Read maxAge parameter. Values are read from the device unless told otherwise.
+     *
+     * @param options the read options.
+     * @return the maximum age in milliseconds.
+     */
+    private static double maxAge(ReadOptions options) {
+        return options.getMaxAgeMillis(0.0);
+    }
+
+    /**
+     * Parses tags and builds the Read requests once for repeated reads.
+     *
+     * @param tags the tags to be read.
+     * @return a {@link OpcUaPreparedRead} bound to this session.
+     * @throws IllegalArgumentException if a tag is not a valid node id.
+     */
+    public OpcUaPreparedRead prepareRead(String... tags) {
+        return new OpcUaPreparedRead(this, tags.clone(), parseNodeIds(tags));
+    }
+
+    /**
+     * Parses tags once for repeated writes.
+     *
+     * @param tags the tags to be written.
+     * @return a {@link OpcUaPreparedWrite} bound to this session.
+     * @throws IllegalArgumentException if a tag is not a valid node id.
+     */
+    public OpcUaPreparedWrite prepareWrite(String... tags) {
+        return new OpcUaPreparedWrite(this, tags.clone(), parseNodeIds(tags));
+    }
+
+    /**
+     * Registers tags with the RegisterNodes service.
+     * Following reads and writes of these tags use the node ids returned by the server.
+     * Registrations are released when the session is closed.
+     *
+     * @param tags the tags to register.
+     * @return a {@link Completable} completing once the server registered the tags.
+     */
+    public Completable registerNodes(String... tags) {
         return fetchValidClient()
-                .flatMap(c -> Single.fromFuture(
-                        c.readValues(0.0, TimestampsToReturn.Both, Arrays.stream(tags).map(NodeId::parseSafe)
-                                .map(Optional::get).collect(Collectors.toList()))
-                                .thenApply(dataValues -> {
-                                    if (dataValues.size() != tags.length) {
-                                        throw new OpcException("Input tags does not match received tags. Aborting");
-                                    }
-                                    List<OpcData> ret = new ArrayList<>();
-                                    for (int i = 0; i < dataValues.size(); i++) {
-                                        try {
-                                            ret.add(opcData(tags[i], dataValues.get(i)));
+                .flatMapCompletable(c -> nodeRegistry.register(c, parseNodeIds(tags)));
+    }
 
-                                        } catch (Exception e) {
-                                            logger.warn("Unable to properly map tag " + tags[i] + ". Skipping!", e);
-                                        }
-                                    }
-                                    return ret;
-                                })));
+    private static List<NodeId> parseNodeIds(String[] tags) {
+        final List<NodeId> ret = new ArrayList<>(tags.length);
+        for (String tag : tags) {
+            ret.add(NodeId.parse(tag));
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    Single<List<OpcData>> read(OpcUaPreparedRead prepared, ReadOptions options) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                readPrepared(prepared, maxAge(options), this::opcData), List::size);
+    }
+
+    Single<List<OpcSample>> readSamples(OpcUaPreparedRead prepared, ReadOptions options) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                readPrepared(prepared, maxAge(options), this::opcSample), List::size);
+    }
+
+    Single<OpcDataBatch> readBatch(OpcUaPreparedRead prepared, ReadOptions options) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                readPrepared(prepared, maxAge(options), (tag, dataValue) -> dataValue)
+                        .map(dataValues -> toBatch(prepared.tags(), dataValues)), OpcDataBatch::size);
+    }
+
+    Single<List<OperationStatus>> write(OpcUaPreparedWrite prepared, Object[] values) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.WRITE, Single.defer(() -> {
+            final List<DataValue> dataValues = new ArrayList<>(values.length);
+            for (Object value : values) {
+                dataValues.add(DataValue.valueOnly(new Variant(value)));
+            }
+            return writeDataValues(prepared.nodeIds(), dataValues, prepared.accessCounter());
+        }), List::size);
+    }
+
+    private OpcDataBatch toBatch(String[] tags, List<DataValue> dataValues) {
+        OpcDataBatch.Builder builder = OpcDataBatch.builder(tags.length);
+        for (int i = 0; i < tags.length; i++) {
+            addDataValue(builder, tags[i], dataValues.get(i));
+        }
+        return builder.build();
+    }
+
+    private <R> Single<List<R>> readDataValues(String[] tags, double maxAge, BiFunction<String, DataValue, R> mapper) {
+        return fetchValidClient()
+                .flatMap(c -> {
+                    final List<NodeId> parsed = Arrays.stream(tags).map(NodeId::parseSafe)
+                            .map(Optional::get).collect(Collectors.toList());
+                    nodeRegistry.accessed(c, parsed);
+                    final List<NodeId> nodeIds = nodeRegistry.resolve(parsed);
+                    return chunked(nodeIds.size(), readBatchSize, (from, to) ->
+                            c.readValues(maxAge, TimestampsToReturn.Both, nodeIds.subList(from, to)));
+                })
+                .map(dataValues -> mapDataValues(tags, dataValues, mapper));
+    }
+
+    private <R> Single<List<R>> readPrepared(OpcUaPreparedRead prepared, double maxAge,
+                                             BiFunction<String, DataValue, R> mapper) {
+        return fetchValidClient()
+                .flatMap(c -> {
+                    nodeRegistry.accessed(c, prepared.accessCounter(), prepared.nodeIds());
+                    final List<List<ReadValueId>> requests = readRequests(prepared);
+                    return inChunks(prepared.tags().length, requests.size(), chunk ->
+                            c.read(maxAge, TimestampsToReturn.Both, requests.get(chunk))
+                                    .thenApply(response -> response.getResults() != null ?
+                                            Arrays.asList(response.getResults()) : Collections.<DataValue>emptyList()));
+                })
+                .map(dataValues -> mapDataValues(prepared.tags(), dataValues, mapper));
+    }
+
+    /**
+     * Gets the Read requests of a prepared read. They are built again if nodes have been registered since last time.
+     *
+     * @param prepared the prepared read.
+     * @return the requests of each chunk.
+     */
+    private List<List<ReadValueId>> readRequests(OpcUaPreparedRead prepared) {
+        final int version = nodeRegistry.getVersion();
+        List<List<ReadValueId>> ret = prepared.requests(version);
+        if (ret == null) {
+            final List<ReadValueId> readValueIds = new ArrayList<>(prepared.nodeIds().size());
+            for (NodeId nodeId : nodeRegistry.resolve(prepared.nodeIds())) {
+                readValueIds.add(new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE));
+            }
+            ret = new ArrayList<>();
+            for (List<ReadValueId> chunk : partition(readValueIds, readBatchSize)) {
+                ret.add(Collections.unmodifiableList(new ArrayList<>(chunk)));
+            }
+            ret = Collections.unmodifiableList(ret);
+            prepared.requests(version, ret);
+        }
+        return ret;
+    }
+
+    private <R> List<R> mapDataValues(String[] tags, List<DataValue> dataValues, BiFunction<String, DataValue, R> mapper) {
+        if (dataValues.size() != tags.length) {
+            throw new OpcException("Input tags does not match received tags. Aborting");
+        }
+        List<R> ret = new ArrayList<>(dataValues.size());
+        for (int i = 0; i < dataValues.size(); i++) {
+            try {
+                ret.add(mapper.apply(tags[i], dataValues.get(i)));
+
+            } catch (Exception e) {
+                logger.warn("Unable to properly map tag " + tags[i] + ". Skipping!", e);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Splits a request in chunks of at most batchSize items.
+     * Up to maxConcurrentRequests chunks are in flight at once and the results are concatenated in input order.
+     *
+     * @param size      the number of items to be requested.
+     * @param batchSize the maximum number of items per request.
+     * @param request   issues the request of the items in range [from, to).
+     * @param <R>       the result type.
+     * @return the results of all the items (in the same order of the items).
+     */
+    private <R> Single<List<R>> chunked(int size, int batchSize,
+                                        BiFunction<Integer, Integer, CompletableFuture<List<R>>> request) {
+        if (size <= batchSize) {
+            return OpcUaCrawler.toSingle(request.apply(0, size));
+        }
+        return inChunks(size, (size + batchSize - 1) / batchSize, chunk ->
+                request.apply(chunk * batchSize, Math.min(size, (chunk + 1) * batchSize)));
+    }
+
+    /**
+     * Issues a request per chunk. Up to maxConcurrentRequests chunks are in flight at once
+     * and the results are concatenated in chunk order.
+     *
+     * @param size    the total number of items (sizing hint).
+     * @param chunks  the number of chunks.
+     * @param request issues the request of a chunk given its index.
+     * @param <R>     the result type.
+     * @return the results of all the chunks.
+     */
+    private <R> Single<List<R>> inChunks(int size, int chunks, IntFunction<CompletableFuture<List<R>>> request) {
+        if (chunks == 0) {
+            return Single.just(Collections.emptyList());
+        }
+        if (chunks == 1) {
+            return OpcUaCrawler.toSingle(request.apply(0));
+        }
+        return Flowable.range(0, chunks)
+                .concatMapEager(chunk -> OpcUaCrawler.toSingle(request.apply(chunk)).toFlowable(),
+                        maxConcurrentRequests, 1)
+                .<List<R>>collect(() -> new ArrayList<>(size), List::addAll);
     }
 
 
     @Override
     public Single<List<OperationStatus>> write(OpcData... data) {
+        return Instrumentation.single(metrics, OpcMetrics.Operation.WRITE, Single.defer(() -> writeDataValues(
+                Arrays.stream(data)
+                        .map(OpcData::getTag)
+                        .map(NodeId::parse)
+                        .collect(Collectors.toList()),
+                Arrays.stream(data)
+                        .map(OpcData::getValue)
+                        .map(Variant::new)
+                        .map(DataValue::valueOnly)
+                        .collect(Collectors.toList()), null)), List::size);
+    }
+
+    /**
+     * Writes values in chunks.
+     *
+     * @param nodeIds       the original node ids.
+     * @param values        the values (one per node).
+     * @param accessCounter the access counter of a prepared write. Null to count accesses per node.
+     * @return the outcome of each write.
+     */
+    private Single<List<OperationStatus>> writeDataValues(List<NodeId> nodeIds, List<DataValue> values,
+                                                          OpcUaNodeRegistry.AccessCounter accessCounter) {
         return fetchValidClient()
-                .flatMap(c -> Single.fromFuture(c.writeValues(
-                        Arrays.stream(data)
-                                .map(OpcData::getTag)
-                                .map(NodeId::parse)
-                                .collect(Collectors.toList()),
-                        Arrays.stream(data)
-                                .map(OpcData::getValue)
-                                .map(Variant::new)
-                                .map(DataValue::valueOnly)
-                                .collect(Collectors.toList())
-                ).thenApply(statusCodes -> statusCodes.stream()
+                .flatMap(c -> {
+                    if (accessCounter != null) {
+                        nodeRegistry.accessed(c, accessCounter, nodeIds);
+                    } else {
+                        nodeRegistry.accessed(c, nodeIds);
+                    }
+                    final List<NodeId> resolved = nodeRegistry.resolve(nodeIds);
+                    return chunked(resolved.size(), writeBatchSize, (from, to) ->
+                            c.writeValues(resolved.subList(from, to), values.subList(from, to)));
+                })
+                .map(statusCodes -> statusCodes.stream()
                         .map(OpcUaQualityExtractor::operationStatus)
-                        .collect(Collectors.toList()))));
+                        .collect(Collectors.toList()));
+    }
 
+    @Override
+    public Flowable<OpcData> stream(String tagId, Duration duration) {
+        return stream(Collections.singletonList(tagId), duration);
+    }
 
+    /**
+     * Continuously read a stream of data for a tag. The server only reports changes passing the filter.
+     *
+     * @param tagId    the tag to be read.
+     * @param duration the sampling interval.
+     * @param filter   the server side data change filter.
+     * @return a {@link Flowable} stream of {@link OpcData}
+     */
+    public Flowable<OpcData> stream(String tagId, Duration duration, @Nonnull OpcUaDataChangeFilter filter) {
+        return stream(Collections.singletonList(tagId), duration, filter);
     }
 
     @Override
-    public Flowable<OpcData> stream(String tagId, Duration duration) {
-        logger.info("Creating monitored item for tag {}", tagId);
-        return Single.fromFuture(subscription().createMonitoredItems(TimestampsToReturn.Both,
-                Collections.singletonList(new MonitoredItemCreateRequest(
-                        new ReadValueId(NodeId.parse(tagId), AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE),
-                        MonitoringMode.Reporting,
-                        new MonitoringParameters(UInteger.valueOf(clientHandleCounter.incrementAndGet()),
-                                (double) duration.toMillis(),
-                                null,
-                                UInteger.valueOf(Math.round(Math.ceil((double) publicationInterval.toNanos() /
-                                        (double) duration.toNanos())))
-                                , true)))
-        ).toCompletableFuture())
-                .map(uaMonitoredItems -> uaMonitoredItems.stream()
-                        .findFirst()
-                        .orElseThrow(() -> new OpcException("Received empty response for subscription to tag " + tagId)))
-                .toFlowable()
-                .flatMap(uaMonitoredItem -> {
-                    logger.info("Subscription for item {} with revised polling time {}",
-                            uaMonitoredItem.getReadValueId().getNodeId().toParseableString(),
-                            uaMonitoredItem.getRevisedSamplingInterval());
-
-                    UnicastProcessor<OpcData> ret = UnicastProcessor.create();
-                    uaMonitoredItem.setValueConsumer((uaMonitoredItem1, dataValue) ->
-                            ret.onNext(opcData(uaMonitoredItem1.getReadValueId().getNodeId().toParseableString(), dataValue)));
-                    final Disposable disposable = terminationSignal.subscribe(() ->
-                            ret.onError(new OpcException("EOF reading from the stream. Client closed unexpectedly")));
-                    return ret
-                            .doOnComplete(() -> {
-                                logger.info("Clearing subscription for item {}", uaMonitoredItem);
-                                removeSubscriptions(Collections.singletonList(uaMonitoredItem));
-                            }).doFinally(() -> disposable.dispose())
-                            .share();
-
-                }).takeWhile(ignored -> !terminationSignal.hasComplete());
-    }
-
-
-    private void removeSubscriptions(List<UaMonitoredItem> results) {
-        if (subscription != null) {
-            try {
-                List<StatusCode> removeResult = subscription.deleteMonitoredItems(results).get();
-                for (int i = 0; i < removeResult.size(); i++) {
-                    if (!removeResult.get(i).isGood()) {
-                        logger.warn("Unable to properly unsubscribe for item {}: {}",
-                                results.get(i).getReadValueId().getNodeId().toParseableString(),
-                                StatusCodes.lookup(removeResult.get(i).getValue()));
+    public Flowable<OpcData> stream(Collection<String> tagIds, Duration duration) {
+        return stream(tagIds, duration, OpcUaDataChangeFilter.DEFAULT);
+    }
+
+    /**
+     * Continuously read a stream of data for a set of tags. The server only reports changes passing the filter.
+     *
+     * @param tagIds   the tags to be read.
+     * @param duration the sampling interval.
+     * @param filter   the server side data change filter.
+     * @return a {@link Flowable} stream of {@link OpcData}
+     */
+    public Flowable<OpcData> stream(Collection<String> tagIds, Duration duration, @Nonnull OpcUaDataChangeFilter filter) {
+        return monitor(tagIds, duration, filter, this::opcData, OpcData::getTag);
+    }
+
+    @Override
+    public Flowable<OpcSample> streamSamples(String tagId, Duration samplingInterval) {
+        return streamSamples(Collections.singletonList(tagId), samplingInterval);
+    }
+
+    @Override
+    public Flowable<OpcSample> streamSamples(Collection<String> tagIds, Duration samplingInterval) {
+        return streamSamples(tagIds, samplingInterval, OpcUaDataChangeFilter.DEFAULT);
+    }
+
+    /**
+     * Continuously read a stream of {@link OpcSample}s for a set of tags.
+     * The server only reports changes passing the filter.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @param filter           the server side data change filter.
+     * @return a {@link Flowable} stream of {@link OpcSample}
+     */
+    public Flowable<OpcSample> streamSamples(Collection<String> tagIds, Duration samplingInterval,
+                                             @Nonnull OpcUaDataChangeFilter filter) {
+        return monitor(tagIds, samplingInterval, filter, this::opcSample, OpcSample::getTag);
+    }
+
+    /**
+     * Emits a batch per publish response holding the data changes of the requested tags.
+     * The first batch holds the last known value of tags already monitored by other subscribers.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @return a {@link Flowable} stream of non empty {@link OpcDataBatch}
+     */
+    @Override
+    public Flowable<OpcDataBatch> streamBatches(Collection<String> tagIds, Duration samplingInterval) {
+        return streamBatches(tagIds, samplingInterval, OpcUaDataChangeFilter.DEFAULT);
+    }
+
+    /**
+     * Emits a batch per publish response holding the data changes of the requested tags.
+     * The server only reports changes passing the filter.
+     *
+     * @param tagIds           the tags to be read.
+     * @param samplingInterval the sampling interval.
+     * @param filter           the server side data change filter.
+     * @return a {@link Flowable} stream of non empty {@link OpcDataBatch}
+     */
+    public Flowable<OpcDataBatch> streamBatches(Collection<String> tagIds, Duration samplingInterval,
+                                                @Nonnull OpcUaDataChangeFilter filter) {
+        Objects.requireNonNull(filter, "Please provide a valid non null filter");
+        final List<MonitoredItemKey> keys = tagIds.stream()
+                .map(tagId -> new MonitoredItemKey(tagId, samplingInterval, filter))
+                .distinct()
+                .collect(Collectors.toList());
+        return Flowable.defer(() -> {
+            final List<SharedMonitoredItem> items = acquireMonitoredItems(keys);
+            return Completable.merge(items.stream().map(item -> item.created).collect(Collectors.toList()))
+                    .andThen(Flowable.defer(() -> {
+                        final Map<UaMonitoredItem, String> tagsByItem = new IdentityHashMap<>();
+                        for (SharedMonitoredItem item : items) {
+                            tagsByItem.put(item.monitoredItem, item.key.tagId);
+                        }
+                        return streamBuffer.bufferBatches(publications
+                                .map(publication -> publication.toBatch(tagsByItem))
+                                .filter(batch -> !batch.isEmpty()))
+                                .mergeWith(Flowable.fromCallable(() -> {
+                                    OpcDataBatch.Builder builder = OpcDataBatch.builder(items.size());
+                                    for (SharedMonitoredItem item : items) {
+                                        DataValue last = item.processor.getValue();
+                                        if (last != null) {
+                                            addDataValue(builder, item.key.tagId, last);
+                                        }
+                                    }
+                                    return builder.build();
+                                }))
+                                .filter(batch -> !batch.isEmpty())
+                                .doOnNext(this::samplesEmitted);
+                    }))
+                    .mergeWith(terminationSignal.andThen(Completable.error(
+                            new OpcException("EOF reading from the stream. Client closed unexpectedly"))))
+                    .doFinally(() -> releaseMonitoredItems(items));
+        }).takeWhile(ignored -> !terminationSignal.hasComplete())
+                .compose(source -> Instrumentation.flowable(metrics, OpcMetrics.Operation.STREAM, source));
+    }
+
+    @Override
+    public long getDroppedSamples() {
+        return droppedSamples.sum();
+    }
+
+    /**
+     * Reports the values of an emitted batch to the metrics.
+     *
+     * @param batch the emitted batch.
+     */
+    private void samplesEmitted(OpcDataBatch batch) {
+        if (metrics.isEnabled()) {
+            for (int i = 0; i < batch.size(); i++) {
+                metrics.samplesEmitted(sessionId, batch.getTag(i), 1);
+            }
+        }
+    }
+
+    /**
+     * Streams the values of shared monitored items.
+     *
+     * @param tagIds   the tags to be monitored.
+     * @param duration the sampling interval.
+     * @param filter   the server side data change filter.
+     * @param mapper   converts received values.
+     * @param tagOf    tells the tag of a converted value.
+     * @param <R>      the emitted type.
+     * @return a {@link Flowable} of converted values.
+     */
+    private <R> Flowable<R> monitor(Collection<String> tagIds, Duration duration, OpcUaDataChangeFilter filter,
+                                    BiFunction<String, DataValue, R> mapper, Function<? super R, String> tagOf) {
+        Objects.requireNonNull(filter, "Please provide a valid non null filter");
+        final List<MonitoredItemKey> keys = tagIds.stream()
+                .map(tagId -> new MonitoredItemKey(tagId, duration, filter))
+                .distinct()
+                .collect(Collectors.toList());
+        return Flowable.defer(() -> {
+            final List<SharedMonitoredItem> items = acquireMonitoredItems(keys);
+            return Completable.merge(items.stream().map(item -> item.created).collect(Collectors.toList()))
+                    .andThen(Flowable.defer(() -> {
+                        Flowable<R> ret = streamBuffer.bufferMerged(items.stream()
+                                .map(item -> item.processor.map(dataValue -> mapper.apply(item.key.tagId, dataValue)))
+                                .collect(Collectors.toList()), tagOf);
+                        if (metrics.isEnabled()) {
+                            ret = ret.doOnNext(value -> metrics.samplesEmitted(sessionId, tagOf.apply(value), 1));
+                        }
+                        return ret;
+                    }))
+                    .mergeWith(terminationSignal.andThen(Completable.error(
+                            new OpcException("EOF reading from the stream. Client closed unexpectedly"))))
+                    .doFinally(() -> releaseMonitoredItems(items));
+        }).takeWhile(ignored -> !terminationSignal.hasComplete())
+                .compose(source -> Instrumentation.flowable(metrics, OpcMetrics.Operation.STREAM, source));
+    }
+
+    /**
+     * Attach to the monitored items matching the keys. Missing items are placed in a subscription
+     * and created (in batches).
+     *
+     * @param keys the items to acquire.
+     * @return the shared monitored items (in the same order of the keys).
+     */
+    private List<SharedMonitoredItem> acquireMonitoredItems(List<MonitoredItemKey> keys) {
+        final List<SharedMonitoredItem> ret = new ArrayList<>(keys.size());
+        final Map<PooledSubscription, List<SharedMonitoredItem>> toCreate = new LinkedHashMap<>();
+        synchronized (monitoredItems) {
+            for (MonitoredItemKey key : keys) {
+                SharedMonitoredItem item = monitoredItems.get(key);
+                if (item == null) {
+                    item = new SharedMonitoredItem(key, placeMonitoredItem(key));
+                    monitoredItems.put(key, item);
+                    toCreate.computeIfAbsent(item.subscription, ignored -> new ArrayList<>()).add(item);
+                }
+                item.refCount++;
+                ret.add(item);
+            }
+        }
+        toCreate.forEach(this::createMonitoredItems);
+        return ret;
+    }
+
+    /**
+     * Reserves a slot for a new monitored item in a subscription publishing at the rate required by the item.
+     * A new subscription is added to the pool if all the matching ones are full.
+     * Must be called holding the monitoredItems lock.
+     *
+     * @param key the item to place.
+     * @return the subscription the item belongs to.
+     */
+    private PooledSubscription placeMonitoredItem(MonitoredItemKey key) {
+        final Duration interval = publishingInterval(key.samplingInterval);
+        final List<PooledSubscription> pool = subscriptions.computeIfAbsent(interval, ignored -> new ArrayList<>());
+        PooledSubscription target = null;
+        for (PooledSubscription pooled : pool) {
+            if (pooled.size < maxMonitoredItemsPerSubscription) {
+                target = pooled;
+                break;
+            }
+        }
+        if (target == null) {
+            target = new PooledSubscription(interval);
+            pool.add(target);
+        }
+        target.size++;
+        target.pending++;
+        return target;
+    }
+
+    /**
+     * Computes the publishing interval of a subscription holding items sampled at the given rate.
+     * Items sampled faster than the session publication interval are published at the session rate,
+     * slower ones are published at their own sampling rate.
+     *
+     * @param samplingInterval the requested sampling interval.
+     * @return the publishing interval.
+     */
+    private Duration publishingInterval(Duration samplingInterval) {
+        return samplingInterval.compareTo(publicationInterval) > 0 ? samplingInterval : publicationInterval;
+    }
+
+    /**
+     * Creates the monitored items newly placed in a subscription.
+     *
+     * @param pooled the subscription.
+     * @param items  the items to create.
+     */
+    private void createMonitoredItems(PooledSubscription pooled, List<SharedMonitoredItem> items) {
+        logger.info("Creating monitored items for {} tags in subscription publishing every {}",
+                items.size(), pooled.publishingInterval);
+        //the items created so far. Deleted if a later batch fails.
+        final List<UaMonitoredItem> created = Collections.synchronizedList(new ArrayList<>());
+        createMonitoredItemsInBatches(pooled, items, created).subscribe(uaMonitoredItems -> {
+            final List<UaMonitoredItem> orphans = new ArrayList<>();
+            final Map<SharedMonitoredItem, StatusCode> failed = new LinkedHashMap<>();
+            final boolean empty;
+            synchronized (monitoredItems) {
+                for (int i = 0; i < items.size(); i++) {
+                    SharedMonitoredItem item = items.get(i);
+                    UaMonitoredItem uaMonitoredItem = uaMonitoredItems.get(i);
+                    StatusCode statusCode = uaMonitoredItem.getStatusCode();
+                    if (statusCode != null && statusCode.isBad()) {
+                        //not shared anymore. Subscribers release it when failing.
+                        monitoredItems.remove(item.key, item);
+                        failed.put(item, statusCode);
+                        orphans.add(uaMonitoredItem);
+                    } else {
+                        item.monitoredItem = uaMonitoredItem;
+                        if (item.refCount <= 0) {
+                            orphans.add(uaMonitoredItem);
+                        }
                     }
                 }
-            } catch (Exception e) {
-                logger.error("Unable to properly removed monitored items", e);
+                pooled.pending -= items.size();
+                empty = retireIfEmpty(pooled);
+            }
+            if (empty) {
+                deleteSubscription(pooled);
+            } else {
+                removeSubscriptions(pooled, orphans);
+            }
+            items.forEach(item -> {
+                StatusCode statusCode = failed.get(item);
+                if (statusCode == null) {
+                    item.created.onComplete();
+                } else {
+                    item.created.onError(new OpcException("Unable to monitor item " + item.key.tagId + ": " +
+                            StatusCodes.lookup(statusCode.getValue()).map(lookup -> lookup[0])
+                                    .orElse(statusCode.toString()),
+                            new UaException(statusCode)));
+                }
+            });
+        }, throwable -> {
+            final boolean empty;
+            synchronized (monitoredItems) {
+                items.forEach(item -> monitoredItems.remove(item.key, item));
+                pooled.pending -= items.size();
+                empty = retireIfEmpty(pooled);
+            }
+            if (empty) {
+                deleteSubscription(pooled);
+            } else {
+                synchronized (created) {
+                    removeSubscriptions(pooled, new ArrayList<>(created));
+                }
+            }
+            items.forEach(item -> item.created.onError(throwable));
+        });
+    }
+
+    /**
+     * Detach from previously acquired monitored items.
+     * Items not used anymore by any subscriber are deleted (in batches).
+     * Subscriptions left without items are deleted as well.
+     *
+     * @param items the items to release.
+     */
+    private void releaseMonitoredItems(List<SharedMonitoredItem> items) {
+        final Map<PooledSubscription, List<UaMonitoredItem>> toRemove = new LinkedHashMap<>();
+        final List<PooledSubscription> toDelete = new ArrayList<>();
+        synchronized (monitoredItems) {
+            for (SharedMonitoredItem item : items) {
+                if (--item.refCount <= 0) {
+                    monitoredItems.remove(item.key, item);
+                    final List<UaMonitoredItem> removed = toRemove.computeIfAbsent(item.subscription,
+                            ignored -> new ArrayList<>());
+                    item.subscription.size--;
+                    if (item.monitoredItem != null) {
+                        removed.add(item.monitoredItem);
+                    }
+                }
+            }
+            for (PooledSubscription pooled : toRemove.keySet()) {
+                if (retireIfEmpty(pooled)) {
+                    toDelete.add(pooled);
+                }
+            }
+        }
+        toDelete.forEach(pooled -> {
+            toRemove.remove(pooled);
+            deleteSubscription(pooled);
+        });
+        toRemove.forEach((pooled, removed) -> {
+            if (!removed.isEmpty()) {
+                logger.info("Clearing subscription for {} items", removed.size());
+                removeSubscriptions(pooled, removed);
+            }
+        });
+    }
+
+    /**
+     * Removes a subscription from the pool if it has neither items nor pending creations.
+     * Must be called holding the monitoredItems lock.
+     *
+     * @param pooled the subscription.
+     * @return true if the subscription has been removed and should be deleted.
+     */
+    private boolean retireIfEmpty(PooledSubscription pooled) {
+        if (pooled.size > 0 || pooled.pending > 0) {
+            return false;
+        }
+        final List<PooledSubscription> pool = subscriptions.get(pooled.publishingInterval);
+        if (pool == null || !pool.remove(pooled)) {
+            return false;
+        }
+        if (pool.isEmpty()) {
+            subscriptions.remove(pooled.publishingInterval);
+        }
+        return true;
+    }
+
+    /**
+     * Asynchronously deletes a retired subscription (and its monitored items) on the server.
+     *
+     * @param pooled the subscription.
+     */
+    private void deleteSubscription(PooledSubscription pooled) {
+        pooled.retire();
+        final UaSubscription current = pooled.subscription;
+        final OpcUaClient c = client.get();
+        if (current != null && c != null) {
+            c.getSubscriptionManager().deleteSubscription(current.getSubscriptionId())
+                    .whenComplete((ignored, throwable) -> {
+                        if (throwable != null) {
+                            logger.warn("Unable to properly clear subscription " + current.getSubscriptionId(), throwable);
+                        } else {
+                            logger.info("Released subscription {}", current.getSubscriptionId());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Splits a list in chunks of at most batchSize items.
+     *
+     * @param list      the list to split.
+     * @param batchSize the maximum chunk size.
+     * @param <T>       the item type.
+     * @return the list of chunks (views of the original list).
+     */
+    static <T> List<List<T>> partition(List<T> list, int batchSize) {
+        List<List<T>> ret = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += batchSize) {
+            ret.add(list.subList(i, Math.min(list.size(), i + batchSize)));
+        }
+        return ret;
+    }
+
+    /**
+     * Creates monitored items in batches (a request per batch).
+     * Requests are all built before the first batch is sent.
+     *
+     * @param pooled  the subscription the items belong to.
+     * @param items   the shared items to be bound to a new {@link UaMonitoredItem}.
+     * @param created collects the items created so far, so that they can be deleted if a later batch fails.
+     * @return the created {@link UaMonitoredItem}s (in the same order of the items).
+     */
+    private Single<List<UaMonitoredItem>> createMonitoredItemsInBatches(PooledSubscription pooled,
+                                                                        List<SharedMonitoredItem> items,
+                                                                        List<UaMonitoredItem> created) {
+        return Single.fromCallable(() -> items.stream().map(item -> new MonitoredItemCreateRequest(
+                new ReadValueId(NodeId.parse(item.key.tagId), AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE),
+                MonitoringMode.Reporting,
+                new MonitoringParameters(UInteger.valueOf(clientHandleCounter.incrementAndGet()),
+                        (double) item.key.samplingInterval.toMillis(),
+                        item.key.filter.toExtensionObject(),
+                        UInteger.valueOf(Math.round(Math.ceil((double) pooled.publishingInterval.toNanos() /
+                                (double) item.key.samplingInterval.toNanos())))
+                        , true)))
+                .collect(Collectors.toList()))
+                .flatMap(requests -> Flowable.range(0, (items.size() + monitoredItemsBatchSize - 1) / monitoredItemsBatchSize)
+                        .concatMapSingle(chunkIndex -> {
+                            final int from = chunkIndex * monitoredItemsBatchSize;
+                            final int to = Math.min(items.size(), from + monitoredItemsBatchSize);
+                            final List<SharedMonitoredItem> chunk = items.subList(from, to);
+                            return Single.fromFuture(pooled.get().createMonitoredItems(TimestampsToReturn.Both,
+                                    requests.subList(from, to),
+                                    (uaMonitoredItem, index) -> {
+                                        final SharedMonitoredItem item = chunk.get(index);
+                                        uaMonitoredItem.setValueConsumer((ignored, dataValue) ->
+                                                item.processor.onNext(dataValue));
+                                    }).toCompletableFuture())
+                                    .doOnSuccess(uaMonitoredItems -> {
+                                        created.addAll(uaMonitoredItems);
+                                        if (uaMonitoredItems.size() != chunk.size()) {
+                                            throw new OpcException("Received " + uaMonitoredItems.size() +
+                                                    " monitored items while " + chunk.size() + " were requested");
+                                        }
+                                    });
+                        })
+                        .flatMapIterable(uaMonitoredItems -> uaMonitoredItems)
+                        .doOnNext(uaMonitoredItem -> {
+                            if (uaMonitoredItem.getStatusCode() != null && uaMonitoredItem.getStatusCode().isBad()) {
+                                logger.warn("Unable to monitor item {}: {}",
+                                        uaMonitoredItem.getReadValueId().getNodeId().toParseableString(),
+                                        StatusCodes.lookup(uaMonitoredItem.getStatusCode().getValue()));
+                            } else {
+                                logger.debug("Subscription for item {} with revised polling time {}",
+                                        uaMonitoredItem.getReadValueId().getNodeId().toParseableString(),
+                                        uaMonitoredItem.getRevisedSamplingInterval());
+                            }
+                        })
+                        .toList());
+    }
+
+
+    private void removeSubscriptions(PooledSubscription pooled, List<UaMonitoredItem> results) {
+        final UaSubscription current = pooled.subscription;
+        if (current != null && !results.isEmpty()) {
+            for (List<UaMonitoredItem> chunk : partition(results, monitoredItemsBatchSize)) {
+                current.deleteMonitoredItems(chunk).whenComplete((removeResult, throwable) -> {
+                    if (throwable != null) {
+                        logger.error("Unable to properly removed monitored items", throwable);
+                        return;
+                    }
+                    for (int i = 0; i < removeResult.size(); i++) {
+                        if (!removeResult.get(i).isGood()) {
+                            logger.warn("Unable to properly unsubscribe for item {}: {}",
+                                    chunk.get(i).getReadValueId().getNodeId().toParseableString(),
+                                    StatusCodes.lookup(removeResult.get(i).getValue()));
+                        }
+                    }
+                });
             }
         }
     }
@@ -266,4 +1058,135 @@ public class OpcUaSession implements OpcSession {
             }
         }
     }
+
+
+    /**
+     * Identifies a monitored item of the session, whichever pooled subscription it has been placed in.
+     */
+    private static final class MonitoredItemKey {
+        private final String tagId;
+        private final Duration samplingInterval;
+        private final OpcUaDataChangeFilter filter;
+
+        private MonitoredItemKey(String tagId, Duration samplingInterval, OpcUaDataChangeFilter filter) {
+            this.tagId = tagId;
+            this.samplingInterval = samplingInterval;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MonitoredItemKey that = (MonitoredItemKey) o;
+            return Objects.equals(tagId, that.tagId) &&
+                    Objects.equals(samplingInterval, that.samplingInterval) &&
+                    Objects.equals(filter, that.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tagId, samplingInterval, filter);
+        }
+    }
+
+    /**
+     * The data changes notified by a publish response.
+     */
+    private static final class Publication {
+        private final List<UaMonitoredItem> items;
+        private final List<DataValue> values;
+
+        private Publication(List<UaMonitoredItem> items, List<DataValue> values) {
+            this.items = items;
+            this.values = values;
+        }
+
+        private OpcDataBatch toBatch(Map<UaMonitoredItem, String> tagsByItem) {
+            OpcDataBatch.Builder builder = OpcDataBatch.builder(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                String tag = tagsByItem.get(items.get(i));
+                if (tag != null) {
+                    addDataValue(builder, tag, values.get(i));
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * A reference counted {@link UaMonitoredItem} with its hot stream of raw values.
+     * The last value is replayed to late subscribers.
+     */
+    private static final class SharedMonitoredItem {
+        private final MonitoredItemKey key;
+        private final PooledSubscription subscription;
+        private final BehaviorProcessor<DataValue> processor = BehaviorProcessor.create();
+        private final CompletableSubject created = CompletableSubject.create();
+        private UaMonitoredItem monitoredItem;
+        private int refCount;
+
+        private SharedMonitoredItem(MonitoredItemKey key, PooledSubscription subscription) {
+            this.key = key;
+            this.subscription = subscription;
+        }
+    }
+
+    /**
+     * A subscription of the session pool. The server side {@link UaSubscription} is lazily created.
+     * Item counters are guarded by the monitoredItems lock.
+     */
+    private final class PooledSubscription {
+        private final Duration publishingInterval;
+        /**
+         * The number of monitored items placed in this subscription.
+         */
+        private int size;
+        /**
+         * The number of monitored items still being created.
+         */
+        private int pending;
+        private boolean retired;
+        private volatile UaSubscription subscription;
+
+        private PooledSubscription(Duration publishingInterval) {
+            this.publishingInterval = publishingInterval;
+        }
+
+        private synchronized UaSubscription get() {
+            if (retired) {
+                throw new OpcException("Subscription has already been released");
+            }
+            try {
+                if (subscription == null && client.get() != null) {
+                    subscription = client.get().getSubscriptionManager()
+                            .createSubscription(publishingInterval.toNanos() / 1.0e6).get();
+                    logger.info("Created subscription {} publishing every {}",
+                            subscription.getSubscriptionId(), publishingInterval);
+                    subscription.addNotificationListener(new UaSubscription.NotificationListener() {
+                        @Override
+                        public void onDataChangeNotification(UaSubscription subscription, List<UaMonitoredItem> items,
+                                                             List<DataValue> values, DateTime publishTime) {
+                            if (publications.hasSubscribers()) {
+                                publications.onNext(new Publication(items, values));
+                            }
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                throw new OpcException("Unable to create subscription", e);
+            }
+            if (subscription == null) {
+                throw new OpcException("Unable to create subscription. OPC-UA Client has been garbage collected");
+            }
+            return subscription;
+        }
+
+        /**
+         * Prevents the server side subscription from being created after the subscription left the pool.
+         */
+        private synchronized void retire() {
+            retired = true;
+        }
+    }
 }
@@ -31,9 +31,51 @@ public class OpcUaSessionProfile extends SessionProfile<OpcUaSessionProfile> {
 
     /**
      * The data publication interval (we ask the server to publish at this rate).
+     * Tags sampled slower than this interval are published at their own sampling rate in a dedicated subscription.
      */
     private Duration publicationInterval = Duration.ofSeconds(1);
 
+    /**
+     * The maximum number of monitored items created or deleted with a single request.
+     * The server limit (MaxMonitoredItemsPerCall) is honoured as well if lower. Defaults to 1000.
+     */
+    private int monitoredItemsBatchSize = 1000;
+
+    /**
+     * The maximum number of monitored items held by a single subscription.
+     * Another subscription publishing at the same rate is created once reached. Defaults to 10000.
+     */
+    private int maxMonitoredItemsPerSubscription = 10_000;
+
+    /**
+     * The maximum number of tags read with a single request.
+     * The server limit (MaxNodesPerRead) is honoured as well if lower. Defaults to 1000.
+     */
+    private int readBatchSize = 1000;
+
+    /**
+     * The maximum number of tags written with a single request.
+     * The server limit (MaxNodesPerWrite) is honoured as well if lower. Defaults to 1000.
+     */
+    private int writeBatchSize = 1000;
+
+    /**
+     * The maximum number of read or write requests in flight for a single split read or write. Defaults to 4.
+     */
+    private int maxConcurrentRequests = 4;
+
+    /**
+     * The number of reads or writes of a tag (or of a prepared read or write) within
+     * {@link #registerNodesWindow} after which the tag is registered with the RegisterNodes service.
+     * Defaults to 0 (no automatic registration).
+     */
+    private int registerNodesThreshold = 0;
+
+    /**
+     * The window accesses are counted in to tell frequently accessed tags. Defaults to 1 minute.
+     */
+    private Duration registerNodesWindow = Duration.ofMinutes(1);
+
     /**
      * Get The data publication interval (we ask the server to publish at this rate).
      *
@@ -63,10 +105,229 @@ public class OpcUaSessionProfile extends SessionProfile<OpcUaSessionProfile> {
         return this;
     }
 
+    /**
+     * Get the maximum number of monitored items created or deleted with a single request.
+     *
+     * @return the batch size.
+     */
+    public int getMonitoredItemsBatchSize() {
+        return monitoredItemsBatchSize;
+    }
+
+    /**
+     * Set the maximum number of monitored items created or deleted with a single request.
+     *
+     * @param monitoredItemsBatchSize a strictly positive batch size.
+     */
+    public void setMonitoredItemsBatchSize(int monitoredItemsBatchSize) {
+        if (monitoredItemsBatchSize <= 0) {
+            throw new IllegalArgumentException("monitoredItemsBatchSize must be strictly positive");
+        }
+        this.monitoredItemsBatchSize = monitoredItemsBatchSize;
+    }
+
+    /**
+     * Set the maximum number of monitored items created or deleted with a single request.
+     *
+     * @param monitoredItemsBatchSize a strictly positive batch size.
+     * @return itself.
+     */
+    public OpcUaSessionProfile withMonitoredItemsBatchSize(int monitoredItemsBatchSize) {
+        setMonitoredItemsBatchSize(monitoredItemsBatchSize);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of monitored items held by a single subscription.
+     *
+     * @return the maximum number of items.
+     */
+    public int getMaxMonitoredItemsPerSubscription() {
+        return maxMonitoredItemsPerSubscription;
+    }
+
+    /**
+     * Set the maximum number of monitored items held by a single subscription.
+     *
+     * @param maxMonitoredItemsPerSubscription a strictly positive number of items.
+     */
+    public void setMaxMonitoredItemsPerSubscription(int maxMonitoredItemsPerSubscription) {
+        if (maxMonitoredItemsPerSubscription <= 0) {
+            throw new IllegalArgumentException("maxMonitoredItemsPerSubscription must be strictly positive");
+        }
+        this.maxMonitoredItemsPerSubscription = maxMonitoredItemsPerSubscription;
+    }
+
+    /**
+     * Set the maximum number of monitored items held by a single subscription.
+     *
+     * @param maxMonitoredItemsPerSubscription a strictly positive number of items.
+     * @return itself.
+     */
+    public OpcUaSessionProfile withMaxMonitoredItemsPerSubscription(int maxMonitoredItemsPerSubscription) {
+        setMaxMonitoredItemsPerSubscription(maxMonitoredItemsPerSubscription);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of tags read with a single request.
+     *
+     * @return the batch size.
+     */
+    public int getReadBatchSize() {
+        return readBatchSize;
+    }
+
+    /**
+     * Set the maximum number of tags read with a single request.
+     *
+     * @param readBatchSize a strictly positive batch size.
+     */
+    public void setReadBatchSize(int readBatchSize) {
+        if (readBatchSize <= 0) {
+            throw new IllegalArgumentException("readBatchSize must be strictly positive");
+        }
+        this.readBatchSize = readBatchSize;
+    }
+
+    /**
+     * Set the maximum number of tags read with a single request.
+     *
+     * @param readBatchSize a strictly positive batch size.
+     * @return itself.
+     */
+    public OpcUaSessionProfile withReadBatchSize(int readBatchSize) {
+        setReadBatchSize(readBatchSize);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of tags written with a single request.
+     *
+     * @return the batch size.
+     */
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Set the maximum number of tags written with a single request.
+     *
+     * @param writeBatchSize a strictly positive batch size.
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        if (writeBatchSize <= 0) {
+            throw new IllegalArgumentException("writeBatchSize must be strictly positive");
+        }
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    /**
+     * Set the maximum number of tags written with a single request.
+     *
+     * @param writeBatchSize a strictly positive batch size.
+     * @return itself.
+     */
+    public OpcUaSessionProfile withWriteBatchSize(int writeBatchSize) {
+        setWriteBatchSize(writeBatchSize);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of read or write requests in flight for a single split read or write.
+     *
+     * @return the number of requests.
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Set the maximum number of read or write requests in flight for a single split read or write.
+     *
+     * @param maxConcurrentRequests a strictly positive number of requests.
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be strictly positive");
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Set the maximum number of read or write requests in flight for a single split read or write.
+     *
+     * @param maxConcurrentRequests a strictly positive number of requests.
+     * @return itself.
+     */
+    public OpcUaSessionProfile withMaxConcurrentRequests(int maxConcurrentRequests) {
+        setMaxConcurrentRequests(maxConcurrentRequests);
+        return this;
+    }
+
+    /**
+     * Get the number of accesses within the register nodes window after which a tag is registered.
+     *
+     * @return the threshold. 0 if disabled.
+     */
+    public int getRegisterNodesThreshold() {
+        return registerNodesThreshold;
+    }
+
+    /**
+     * Set the number of accesses within the register nodes window after which a tag is registered.
+     *
+     * @param registerNodesThreshold a positive threshold. 0 disables automatic registration.
+     */
+    public void setRegisterNodesThreshold(int registerNodesThreshold) {
+        if (registerNodesThreshold < 0) {
+            throw new IllegalArgumentException("registerNodesThreshold must be positive");
+        }
+        this.registerNodesThreshold = registerNodesThreshold;
+    }
+
+    /**
+     * Get the window accesses are counted in to tell frequently accessed tags.
+     *
+     * @return a {@link Duration}
+     */
+    public Duration getRegisterNodesWindow() {
+        return registerNodesWindow;
+    }
+
+    /**
+     * Set the window accesses are counted in to tell frequently accessed tags.
+     *
+     * @param registerNodesWindow the never null window.
+     */
+    public void setRegisterNodesWindow(@Nonnull Duration registerNodesWindow) {
+        this.registerNodesWindow = registerNodesWindow;
+    }
+
+    /**
+     * Registers with the RegisterNodes service the tags read or written at least threshold times within a window.
+     *
+     * @param threshold a positive threshold. 0 disables automatic registration.
+     * @param window    the never null window.
+     * @return itself.
+     */
+    public OpcUaSessionProfile withRegisterNodes(int threshold, @Nonnull Duration window) {
+        setRegisterNodesThreshold(threshold);
+        setRegisterNodesWindow(window);
+        return this;
+    }
+
     @Override
     public String toString() {
         return "OpcUaSessionProfile{" +
                 "publicationInterval=" + publicationInterval +
+                ", monitoredItemsBatchSize=" + monitoredItemsBatchSize +
+                ", maxMonitoredItemsPerSubscription=" + maxMonitoredItemsPerSubscription +
+                ", readBatchSize=" + readBatchSize +
+                ", writeBatchSize=" + writeBatchSize +
+                ", maxConcurrentRequests=" + maxConcurrentRequests +
+                ", registerNodesThreshold=" + registerNodesThreshold +
+                ", registerNodesWindow=" + registerNodesWindow +
                 "} " + super.toString();
     }
 }
@@ -21,7 +21,9 @@ import com.hurence.opc.*;
 import com.hurence.opc.auth.Credentials;
 import com.hurence.opc.auth.UsernamePasswordCredentials;
 import com.hurence.opc.auth.X509Credentials;
+import com.hurence.opc.cache.AddressSpaceChangeSource;
 import com.hurence.opc.exception.OpcException;
+import com.hurence.opc.metrics.OpcMetrics;
 import io.reactivex.*;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.disposables.Disposables;
@@ -35,37 +37,46 @@ import org.eclipse.milo.opcua.sdk.client.api.identity.AnonymousProvider;
 import org.eclipse.milo.opcua.sdk.client.api.identity.IdentityProvider;
 import org.eclipse.milo.opcua.sdk.client.api.identity.UsernameProvider;
 import org.eclipse.milo.opcua.sdk.client.api.identity.X509IdentityProvider;
-import org.eclipse.milo.opcua.sdk.client.api.nodes.Node;
-import org.eclipse.milo.opcua.sdk.client.api.nodes.VariableNode;
-import org.eclipse.milo.opcua.sdk.client.api.nodes.VariableTypeNode;
-import org.eclipse.milo.opcua.sdk.client.nodes.UaVariableNode;
-import org.eclipse.milo.opcua.sdk.core.AccessLevel;
-import org.eclipse.milo.opcua.stack.client.UaTcpStackClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
 import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.client.UaTcpStackClient;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.UaException;
 import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.*;
 import org.eclipse.milo.opcua.stack.core.types.structured.BrowseDescription;
 import org.eclipse.milo.opcua.stack.core.types.structured.BrowseResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ContentFilter;
 import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.EventFilter;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.Range;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.SimpleAttributeOperand;
 import org.eclipse.milo.opcua.stack.core.util.CertificateUtil;
 import org.eclipse.milo.opcua.stack.core.util.CryptoRestrictions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.Security;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * OPC-UA implementation of {@link com.hurence.opc.OpcOperations}
@@ -73,13 +84,18 @@ import java.util.concurrent.TimeUnit;
  * @author amarziali
  */
 public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile, OpcUaSessionProfile, OpcUaSession>
-        implements OpcUaOperations {
+        implements OpcUaOperations, AddressSpaceChangeSource {
 
     /**
      * The logger.
      */
     private static final Logger logger = LoggerFactory.getLogger(OpcUaTemplate.class);
 
+    /**
+     * Browse name of the engineering units range property of analog items.
+     */
+    private static final String EU_RANGE = "EURange";
+
     /**
      * Map of held sessions.
      */
@@ -96,6 +112,14 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
      * Milo UA client.
      */
     private OpcUaClient client;
+    /**
+     * The address space crawler.
+     */
+    private OpcUaCrawler crawler;
+    /**
+     * The server operation limits. Read once connected.
+     */
+    private volatile OpcUaOperationLimits operationLimits = OpcUaOperationLimits.UNLIMITED;
     /**
      * The watcher task disposable.
      */
@@ -108,6 +132,7 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
     private synchronized void checkAlive() {
         ConnectionState connectionState = getConnectionState().blockingFirst();
         if (client != null && (connectionState == ConnectionState.CONNECTING || connectionState == ConnectionState.CONNECTED)) {
+            final long start = checkAliveStarted();
             boolean inError = false;
             try {
                 // Get a typed reference to the Server object: ServerNode
@@ -127,6 +152,7 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
                 logger.error("Unable to read server state. Marking as disconnected", e);
                 inError = true;
             }
+            checkAliveEnded(start, !inError);
 
             if (inError) {
                 disconnect().blockingAwait();
@@ -246,6 +272,15 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
                 serverCertificate);
     }
 
+    /**
+     * Gets the operation limits of the connected server.
+     *
+     * @return the limits. {@link OpcUaOperationLimits#UNLIMITED} if not connected.
+     */
+    OpcUaOperationLimits getOperationLimits() {
+        return operationLimits;
+    }
+
     @Override
     public boolean isChannelSecured() {
         if (client == null || !getConnectionState().blockingFirst().equals(ConnectionState.CONNECTED)) {
@@ -257,10 +292,10 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
 
     @Override
     public Single<OpcUaOperations> connect(@Nonnull OpcUaConnectionProfile connectionProfile) {
-        return Completable
+        return instrument(OpcMetrics.Operation.CONNECT, Completable
                 .fromAction(() -> doConnect(connectionProfile))
                 .andThen(waitUntilConnected())
-                .andThen(Single.just(this));
+                .andThen(Single.just(this)), ignored -> 1);
     }
 
     private void doConnect(OpcUaConnectionProfile connectionProfile) {
@@ -281,6 +316,9 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
             client = new OpcUaClient(config);
             //block until connected
             client.connect().get(client.getConfig().getRequestTimeout().longValue(), TimeUnit.MILLISECONDS);
+            operationLimits = OpcUaOperationLimits.fetch(client);
+            crawler = new OpcUaCrawler(client, connectionProfile.getBrowseBatchSize(),
+                    connectionProfile.getMaxConcurrentBrowseRequests(), operationLimits.getMaxNodesPerRead());
             watcherTaskDisposable.dispose();
             watcherTaskDisposable = Schedulers.io().schedulePeriodicallyDirect(
                     this::checkAlive, 0, connectionProfile.getKeepAliveInterval().toNanos(), TimeUnit.NANOSECONDS);
@@ -296,8 +334,8 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
 
     @Override
     public Completable disconnect() {
-        return CompletableSubject.fromAction(this::doDisconnect)
-                .andThen(waitUntilDisconnected());
+        return instrument(OpcMetrics.Operation.DISCONNECT, CompletableSubject.fromAction(this::doDisconnect)
+                .andThen(waitUntilDisconnected()));
     }
 
     private void doDisconnect() {
@@ -335,99 +373,55 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
             getStateAndSet(Optional.of(ConnectionState.DISCONNECTED));
             watcherTaskDisposable = Disposables.disposed();
             client = null;
+            crawler = null;
+            operationLimits = OpcUaOperationLimits.UNLIMITED;
         }
     }
 
     @Override
     public Flowable<OpcTagInfo> fetchMetadata(@Nonnull String... tagIds) {
-        return Flowable.fromArray(tagIds)
-                .flatMap(t -> Flowable.create(emitter -> {
-                    try {
-                        NodeId target = NodeId.parse(t);
-                        Node node = client.getAddressSpace().createNode(target).get();
-
-                        if (!(node instanceof VariableNode)) {
-                            emitter.onError(new IllegalArgumentException("Tag " + t + " is not a Variable node"));
-                        }
-
-                        final NodeId nodeId = node.getNodeId().get();
-                        browse(nodeId, null, emitter);
-                        emitter.onComplete();
-                    } catch (Exception e) {
-                        emitter.onError(new OpcException("Unable to fetch metadata for tag " + t, e));
-                    }
-                }, BackpressureStrategy.MISSING));
+        return instrument(OpcMetrics.Operation.FETCH_METADATA, Flowable.defer(() -> {
+            List<NodeId> nodeIds = new ArrayList<>();
+            for (String t : tagIds) {
+                nodeIds.add(NodeId.parse(t));
+            }
+            return crawler.crawlVariables(nodeIds);
+        }).onErrorResumeNext((Throwable e) -> Flowable.error(e instanceof OpcException ? e :
+                new OpcException("Unable to fetch metadata for tags " + Arrays.toString(tagIds), e))));
     }
 
-
     /**
-     * Internally browse the whole tag tree with a DFS algorithm.
-     * It retains only {@link VariableNode} objects.
+     * Looks up the engineering units range (EURange property) of an analog tag.
+     * {@link OpcUaDataChangeFilter#percentDeadband(double)} is relative to this range.
      *
-     * @param root        the root path.
-     * @param prevTagInfo the previous found tag (only if coming from -1 level.) This is used to decorate
-     *                    a variable node tag with properties found in level +1.
-     * @param subscriber  the subject who subscribed for this data.
-     * @throws Exception in case of any issue.
+     * @param tagId the tag.
+     * @return a {@link Single} emitting the range or an empty {@link Optional} if the tag has no EURange.
      */
-    private void browse(NodeId root, OpcTagInfo prevTagInfo, Emitter<? super OpcTagInfo> subscriber) throws Exception {
-        Node n;
-        try {
-            n = client.getAddressSpace().createNode(root).get();
-        } catch (Exception e) {
-            logger.warn("Unable to read after tag {} : {}", prevTagInfo, e.getMessage());
-            return;
-        }
-
-        OpcTagInfo currentTagInfo = null;
-
-        if (n != null && n instanceof VariableNode) {
-
-            UaVariableNode vn = (UaVariableNode) n;
-
-            final NodeId nodeId = vn.getNodeId().get();
-            VariableTypeNode vtn;
-
-            try {
-                vtn = vn.getTypeDefinition().get();
-            } catch (Exception e) {
-                logger.warn("Unable to resolve property type for {}. Defaulting to BaseDataVariableType", nodeId);
-                vtn = client.getAddressSpace().createVariableTypeNode(Identifiers.BaseDataVariableType);
-            }
-
-
-            if (prevTagInfo != null && Identifiers.PropertyType.equals(vtn.getNodeId().get())) {
-                OpcTagInfo info = fillOpcTagInformation(new OpcTagInfo(nodeId.toParseableString()), vn);
-
-                prevTagInfo.addProperty(new OpcTagProperty<>(info.getId(),
-                        info.getDescription().orElse(info.getName()),
-                        vn.getValue().exceptionally(e -> null).thenApply(UaVariantMarshaller::toJavaType).get()));
-
-
-            } else {
-                Optional<Class<?>> cls = UaVariantMarshaller.findJavaClass(client, n.getNodeId().get());
-                if (cls.isPresent()) {
-                    currentTagInfo = new OpcTagInfo(nodeId.toParseableString())
-                            .withName(n.getBrowseName().get().getName())
-                            .withType(cls.get());
-                    subscriber.onNext(fillOpcTagInformation(currentTagInfo, vn));
-                }
-
-            }
-
-        }
-        //browse next
-        List<Node> nodes = client.getAddressSpace().browse(root).get();
-        if (nodes != null && !nodes.isEmpty()) {
-            for (Node child : nodes) {
-                try {
-                    browse(child.getNodeId().get(), currentTagInfo, subscriber);
-                } catch (Exception e) {
-                    logger.warn("Skipping node {} because of an unexpected error: {}", child, e.getMessage());
-                }
-            }
-        }
-
+    public Single<Optional<Range>> fetchEuRange(@Nonnull String tagId) {
+        return Single.defer(() -> OpcUaCrawler.toSingle(client.browse(new BrowseDescription(NodeId.parse(tagId),
+                BrowseDirection.Forward, Identifiers.HasProperty, false,
+                UInteger.valueOf(NodeClass.Variable.getValue()),
+                UInteger.valueOf(BrowseResultMask.All.getValue())))))
+                .flatMap(browseResult -> {
+                    Optional<NodeId> property = browseResult.getReferences() == null ? Optional.empty() :
+                            Arrays.stream(browseResult.getReferences())
+                                    .filter(reference -> EU_RANGE.equals(Optional.ofNullable(reference.getBrowseName())
+                                            .map(QualifiedName::getName).orElse(null)))
+                                    .findFirst()
+                                    .flatMap(reference -> reference.getNodeId().local());
+                    if (!property.isPresent()) {
+                        return Single.just(Optional.<Range>empty());
+                    }
+                    return OpcUaCrawler.toSingle(client.readValue(0.0, TimestampsToReturn.Neither, property.get()))
+                            .map(dataValue -> {
+                                Object value = dataValue.getValue() != null ? dataValue.getValue().getValue() : null;
+                                if (value instanceof ExtensionObject) {
+                                    value = ((ExtensionObject) value).decode();
+                                }
+                                return value instanceof Range ? Optional.of((Range) value) : Optional.<Range>empty();
+                            });
+                })
+                .onErrorResumeNext(e -> Single.error(new OpcException("Unable to fetch EURange of tag " + tagId, e)));
     }
 
     private Flowable<BrowseResult> doBrowseAll(@Nonnull BrowseResult previous) {
@@ -442,7 +436,7 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
 
     @Override
     public Flowable<OpcObjectInfo> fetchNextTreeLevel(@Nonnull String rootTagId) {
-        return Flowable.fromFuture(client.browse(new BrowseDescription(NodeId.parse(rootTagId), BrowseDirection.Forward,
+        return instrument(OpcMetrics.Operation.FETCH_NEXT_TREE_LEVEL, Flowable.fromFuture(client.browse(new BrowseDescription(NodeId.parse(rootTagId), BrowseDirection.Forward,
                 Identifiers.HierarchicalReferences, true,
                 UInteger.valueOf(NodeClass.Object.getValue() | NodeClass.Variable.getValue()),
                 UInteger.valueOf(BrowseResultMask.All.getValue()))))
@@ -455,94 +449,103 @@ public class OpcUaTemplate extends AbstractOpcOperations<OpcUaConnectionProfile,
                         new OpcContainerInfo(referenceDescription.getNodeId().local().get().toParseableString()) :
                         new OpcTagInfo(referenceDescription.getNodeId().local().get().toParseableString()))
                         .withDescription(referenceDescription.getDisplayName().getText())
-                        .withName(referenceDescription.getBrowseName().getName()));
+                        .withName(referenceDescription.getBrowseName().getName())));
 
 
     }
 
     @Override
     public Flowable<OpcTagInfo> browseTags() {
-        return Flowable.create(emitter -> {
-            try {
-                browse(Identifiers.RootFolder, null, emitter);
-                emitter.onComplete();
-            } catch (Exception e) {
-                emitter.onError(new OpcException("Unexpected exception while browsing tags", e));
-            }
-        }, BackpressureStrategy.MISSING);
+        return instrument(OpcMetrics.Operation.BROWSE_TAGS, Flowable.defer(() -> crawler.crawl(Identifiers.RootFolder))
+                .onErrorResumeNext((Throwable e) -> Flowable.error(
+                        new OpcException("Unexpected exception while browsing tags", e))));
+    }
+
+
+    @Override
+    public Single<String> addressSpaceFingerprint() {
+        return Single.defer(() -> OpcUaCrawler.toSingle(client.readValue(0.0, TimestampsToReturn.Neither, Identifiers.Server_NamespaceArray)))
+                .map(OpcUaTemplate::fingerprint);
     }
 
     /**
-     * Introspects a variable node and return structured information.
+     * Computes a digest of the namespace table.
      *
-     * @param info the opc tag container.
-     * @param vn   the {@link VariableNode} to introspect.
-     * @return the info value.
+     * @param namespaceArray the NamespaceArray value.
+     * @return an hex encoded SHA-256 digest.
+     * @throws NoSuchAlgorithmException never.
      */
-    private OpcTagInfo fillOpcTagInformation(OpcTagInfo info, VariableNode vn) {
-        try {
-            //final VariableNode vn = client.getAddressSpace().createVariableNode(ref.getNodeId().local().get());
-
-            CompletableFuture.allOf(
-                    vn.readMinimumSamplingInterval().exceptionally(e -> null).whenCompleteAsync((raw, e) -> {
-                        Number d = (Number) UaVariantMarshaller.toJavaType(raw);
-                        info.setScanRate(Optional.ofNullable(
-                                d != null && d.doubleValue() > 0.0 ? Duration.ofNanos(Math.round(d.doubleValue() * 1e6)) : null));
-                        if (d != null) {
-                            info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.MinimumSamplingInterval.id()),
-                                    AttributeId.MinimumSamplingInterval.toString(),
-                                    d));
-                        }
-
-                    }),
-                    vn.getHistorizing().exceptionally(e -> null).whenCompleteAsync((historizing, e) -> info.addProperty(new OpcTagProperty<>(
-                            Integer.toString(AttributeId.Historizing.id()), AttributeId.Historizing.toString(), historizing == null ? false : historizing))),
-                    vn.getDescription().exceptionally(e -> null).whenCompleteAsync((description, e1) -> {
-                        try {
-                            LocalizedText displayName = vn.getDescription().exceptionally(e -> null).get();
-                            String toSet = null;
-                            if (description != null && description.getText() != null) {
-                                toSet = description.getText();
-                                info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.Description.id()),
-                                        AttributeId.Description.toString(),
-                                        description.getText()));
-                            }
-                            if (displayName != null && displayName.getText() != null) {
-                                info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.DisplayName.id()),
-                                        AttributeId.DisplayName.toString(),
-                                        displayName.getText()));
-                                if (toSet == null) {
-                                    toSet = displayName.getText();
-                                }
-                            }
-                            info.setDescription(Optional.ofNullable(toSet));
+    private static String fingerprint(DataValue namespaceArray) throws NoSuchAlgorithmException {
+        Object value = namespaceArray.getValue() != null ? namespaceArray.getValue().getValue() : null;
+        if (!(value instanceof String[])) {
+            throw new OpcException("Unable to read server namespace array. Got " + namespaceArray);
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String namespace : (String[]) value) {
+            digest.update(namespace.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        StringBuilder ret = new StringBuilder();
+        for (byte b : digest.digest()) {
+            ret.append(String.format("%02x", b));
+        }
+        return ret.toString();
+    }
 
-                        } catch (Exception e2) {
-                            //just swallow
+    @Override
+    public Flowable<Instant> addressSpaceChanges() {
+        return Flowable.<Instant>create(emitter -> {
+            final OpcUaClient uaClient = client;
+            final UaSubscription subscription = uaClient.getSubscriptionManager().createSubscription(1000.0).get();
+            emitter.setCancellable(() -> uaClient.getSubscriptionManager().deleteSubscription(subscription.getSubscriptionId()));
+            final AtomicReference<Object> namespaces = new AtomicReference<>();
+            EventFilter eventFilter = new EventFilter(new SimpleAttributeOperand[]{
+                    new SimpleAttributeOperand(Identifiers.BaseEventType,
+                            new QualifiedName[]{new QualifiedName(0, "EventType")},
+                            AttributeId.Value.uid(), null)},
+                    new ContentFilter(null));
+            List<MonitoredItemCreateRequest> requests = Arrays.asList(
+                    new MonitoredItemCreateRequest(
+                            new ReadValueId(Identifiers.Server, AttributeId.EventNotifier.uid(), null, QualifiedName.NULL_VALUE),
+                            MonitoringMode.Reporting,
+                            new MonitoringParameters(UInteger.valueOf(1), 0.0,
+                                    ExtensionObject.encode(eventFilter, Identifiers.EventFilter_Encoding_DefaultBinary),
+                                    UInteger.valueOf(100), true)),
+                    new MonitoredItemCreateRequest(
+                            new ReadValueId(Identifiers.Server_NamespaceArray, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE),
+                            MonitoringMode.Reporting,
+                            new MonitoringParameters(UInteger.valueOf(2), 1000.0, null, UInteger.valueOf(1), true)));
+            subscription.createMonitoredItems(TimestampsToReturn.Neither, requests, (item, index) -> {
+                if (index == 0) {
+                    item.setEventConsumer((ignored, fields) -> {
+                        Object eventType = fields != null && fields.length > 0 && fields[0] != null ? fields[0].getValue() : null;
+                        if (Identifiers.GeneralModelChangeEventType.equals(eventType) ||
+                                Identifiers.BaseModelChangeEventType.equals(eventType)) {
+                            emitter.onNext(Instant.now());
                         }
-                    }),
-                    vn.getUserAccessLevel().exceptionally(e -> null).whenCompleteAsync((accessLevel, e) -> {
-                        if (accessLevel != null) {
-                            EnumSet<AccessLevel> levels = AccessLevel.fromMask(accessLevel);
-                            info.withReadAccessRights(levels.contains(AccessLevel.CurrentRead));
-                            info.withWriteAccessRights(levels.contains(AccessLevel.CurrentWrite));
-                            //set the mask for more advanced usages
-                            info.addProperty(new OpcTagProperty<>(Integer.toString(AttributeId.UserAccessLevel.id()), AttributeId.UserAccessLevel.toString(), accessLevel.intValue()));
+                    });
+                } else {
+                    item.setValueConsumer((ignored, dataValue) -> {
+                        Object value = dataValue.getValue() != null ? dataValue.getValue().getValue() : null;
+                        Object previous = namespaces.getAndSet(value);
+                        //the first notification is the initial value.
+                        if (previous != null && !Objects.deepEquals(previous, value)) {
+                            emitter.onNext(Instant.now());
                         }
-                    })
-            ).get();
-
-        } catch (Exception e) {
-            logger.warn("Unable to properly fill information for tag " + vn, e);
-        }
-        return info;
+                    });
+                }
+            }).get();
+        }, BackpressureStrategy.LATEST)
+                .takeUntil(getConnectionState().filter(state -> state == ConnectionState.DISCONNECTING ||
+                        state == ConnectionState.DISCONNECTED).toFlowable(BackpressureStrategy.LATEST))
+                .subscribeOn(Schedulers.io());
     }
 
-
     @Override
     public Single<OpcUaSession> createSession(@Nonnull OpcUaSessionProfile sessionProfile) {
-        return Single.fromCallable(() -> OpcUaSession.create(this, client, sessionProfile))
-                .doOnSuccess(sessions::add);
+        return instrument(OpcMetrics.Operation.CREATE_SESSION,
+                Single.fromCallable(() -> OpcUaSession.create(this, client, sessionProfile))
+                        .doOnSuccess(sessions::add), ignored -> 1);
     }
 
     @Override
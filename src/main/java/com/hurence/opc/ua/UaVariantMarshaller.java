@@ -61,16 +61,39 @@ public class UaVariantMarshaller {
         try {
             VariableNode vn = client.getAddressSpace().createVariableNode(node);
             Integer valueRank = vn.getValueRank().get();
+            NodeId dataType = vn.getDataType().exceptionally(e -> null).get();
+            Optional<Class<?>> ret = findJavaClass(dataType, valueRank, null);
+            if (!ret.isPresent() && valueRank != null) {
+                ret = findJavaClass(dataType, valueRank, vn.getValue().exceptionally(e -> null).get());
+            }
+            return ret;
+        } catch (Exception e) {
+            logger.warn("Unable to map opc-ua type to java.", e);
+
+        }
+        return Optional.empty();
+    }
 
+    /**
+     * Find the java {@link Class} of data held by a opc-ua variable node from its already fetched attributes.
+     *
+     * @param dataType  the DataType attribute (can be null).
+     * @param valueRank the ValueRank attribute.
+     * @param value     the current value. Only used when the data type is not built in (can be null).
+     * @return the java class or empty if it cannot be determined.
+     */
+    public static Optional<Class<?>> findJavaClass(NodeId dataType, Integer valueRank, Object value) {
+        if (valueRank == null) {
+            return Optional.empty();
+        }
+        try {
             boolean isArray = ValueRanks.Scalar != valueRank;
             Class<?> cls = null;
-            NodeId dataType = vn.getDataType().exceptionally(e -> null).get();
             if (dataType != null) {
                 cls = TypeUtil.getBackingClass(dataType.expanded());
             }
 
             if (cls == null) {
-                Object value = vn.getValue().exceptionally(e -> null).get();
                 //try to convert to enumeration
                 if (value instanceof Integer) {
                     //here we have an enumeration
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link OpcDataBatch} tests.
+ *
+ * @author amarziali
+ */
+public class OpcDataBatchTest {
+
+    private final OperationStatus good = new OperationStatus(OperationStatus.Level.INFO, 0, Optional.empty());
+
+    @Test
+    public void testColumns() {
+        OpcDataBatch batch = OpcDataBatch.builder(1)
+                .addDouble("d", 1, 0, Quality.Good, good, 1.5)
+                .addFloat("f", 2, 0, Quality.Good, good, 2.5f)
+                .addLong("l", 3, 0, Quality.Good, good, 3L)
+                .addInt("i", 4, 0, Quality.Good, good, 4)
+                .addBoolean("b", 5, 0, Quality.Good, good, true)
+                .addValue("s", 6, 0x80000000, Quality.Bad, good, "hello")
+                .addValue("n", 7, 0, Quality.Good, good, null)
+                .build();
+        Assert.assertEquals(7, batch.size());
+        Assert.assertEquals(7, batch.getTags().length);
+        Assert.assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6, 7}, batch.getEpochNanos());
+        Assert.assertEquals(1.5, batch.getDoubleValues()[0], 0.0);
+        Assert.assertEquals(3L, batch.getLongValues()[2]);
+        Assert.assertEquals("hello", batch.getObjectValues()[5]);
+        Assert.assertEquals(OpcDataBatch.ValueType.FLOAT, batch.getValueType(1));
+        Assert.assertEquals(Float.class, batch.getValue(1).getClass());
+        Assert.assertEquals(Integer.class, batch.getValue(3).getClass());
+        Assert.assertEquals(4.0, batch.getDouble(3), 0.0);
+        Assert.assertTrue(batch.getBoolean(4));
+        Assert.assertEquals(0x80000000, batch.getStatusCode(5));
+        Assert.assertNull(batch.getValue(6));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotNumeric() {
+        OpcDataBatch.builder(1).addValue("s", 1, 0, Quality.Good, good, "hello").build().getDouble(0);
+    }
+
+    @Test
+    public void testOnlyNeededColumnsAllocated() {
+        OpcDataBatch batch = OpcDataBatch.builder(2)
+                .addDouble("a", 1, 0, Quality.Good, good, 1.0)
+                .addDouble("b", 1, 0, Quality.Good, good, 2.0)
+                .build();
+        Assert.assertNotNull(batch.getDoubleValues());
+        Assert.assertNull(batch.getLongValues());
+        Assert.assertNull(batch.getObjectValues());
+    }
+
+    @Test
+    public void testConversions() {
+        Instant now = Instant.parse("2019-03-01T10:15:30.123456789Z");
+        List<OpcData> data = Arrays.asList(
+                new OpcData<>("a", now, Quality.Good, (short) 12, good),
+                new OpcData<>("b", now, Quality.Uncertain, 1.0f, good),
+                new OpcData<>("c", now, Quality.Good, new Integer[]{1, 2}, good));
+        OpcDataBatch.Builder builder = OpcDataBatch.builder(0);
+        data.forEach(d -> builder.add(OpcSample.of((OpcData<?>) d)));
+        OpcDataBatch batch = builder.build();
+        Assert.assertEquals(data, batch.toOpcData());
+        Assert.assertEquals(batch, OpcDataBatch.of(batch.toSamples()));
+        int count = 0;
+        for (OpcSample sample : batch) {
+            Assert.assertEquals(data.get(count++), sample.toOpcData());
+        }
+        Assert.assertEquals(3, count);
+    }
+
+    @Test
+    public void testSelect() {
+        OpcDataBatch batch = OpcDataBatch.builder(3)
+                .addDouble("a", 1, 0, Quality.Good, good, 1.0)
+                .addLong("b", 2, 0, Quality.Good, good, 2)
+                .addValue("c", 3, 0, Quality.Good, good, "3")
+                .build();
+        Assert.assertSame(batch, batch.select(tag -> true));
+        OpcDataBatch selected = batch.select(tag -> !tag.equals("b"));
+        Assert.assertEquals(2, selected.size());
+        Assert.assertEquals("c", selected.getTag(1));
+        Assert.assertEquals("3", selected.getValue(1));
+        Assert.assertNull(selected.getLongValues());
+        Assert.assertTrue(batch.select(tag -> false).isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * {@link OpcSample} tests.
+ */
+public class OpcSampleTest {
+
+    private final OperationStatus good = new OperationStatus(OperationStatus.Level.INFO, 0, Optional.empty());
+
+    private OpcSample roundTrip(Object value) {
+        OpcData<?> data = new OpcData<>("tag", Instant.parse("2019-03-01T10:15:30.123456789Z"), Quality.Good, value, good);
+        OpcSample sample = OpcSample.of(data);
+        Assert.assertEquals(data, sample.toOpcData());
+        return sample;
+    }
+
+    @Test
+    public void testSpecialization() {
+        Assert.assertEquals(42.5, ((DoubleSample) roundTrip(42.5)).getDoubleValue(), 0.0);
+        Assert.assertEquals(Float.class, roundTrip(1.5f).getValue().getClass());
+        Assert.assertEquals(42L, ((LongSample) roundTrip(42L)).getLongValue());
+        Assert.assertEquals(Integer.class, roundTrip(42).getValue().getClass());
+        Assert.assertEquals(Short.class, roundTrip((short) -3).getValue().getClass());
+        Assert.assertEquals(Byte.class, roundTrip((byte) 7).getValue().getClass());
+        Assert.assertTrue(((BooleanSample) roundTrip(true)).getBooleanValue());
+        Assert.assertTrue(roundTrip("hello") instanceof ObjectSample);
+        Assert.assertTrue(roundTrip(null) instanceof ObjectSample);
+        Assert.assertTrue(roundTrip(new String[]{"a", "b"}) instanceof ObjectSample);
+    }
+
+    @Test
+    public void testTimestamp() {
+        Instant instant = Instant.parse("1969-12-31T23:59:59.999999999Z");
+        OpcSample sample = OpcSample.of(new OpcData<>("tag", instant, Quality.Bad, 1.0, good));
+        Assert.assertEquals(-1L, sample.getEpochNanos());
+        Assert.assertEquals(instant, sample.getTimestamp());
+    }
+
+    @Test
+    public void testEquality() {
+        Assert.assertEquals(new DoubleSample("a", 1, 0, Quality.Good, good, 2.0),
+                new DoubleSample("a", 1, 0, Quality.Good, good, 2.0));
+        Assert.assertNotEquals(new DoubleSample("a", 1, 0, Quality.Good, good, 2.0),
+                new DoubleSample("a", 1, 0, Quality.Good, good, 2.0, Float.class));
+        Assert.assertNotEquals(new LongSample("a", 1, 0, Quality.Good, good, 2),
+                new DoubleSample("a", 1, 0, Quality.Good, good, 2.0));
+        Assert.assertEquals(new LongSample("a", 1, 0, Quality.Good, good, 2).hashCode(),
+                new LongSample("a", 1, 0, Quality.Good, good, 2).hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedBoxedType() {
+        new LongSample("a", 1, 0, Quality.Good, good, 2, Double.class);
+    }
+}
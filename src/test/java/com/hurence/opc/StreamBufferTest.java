@@ -0,0 +1,177 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.hurence.opc;
+
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link StreamBuffer} tests.
+ *
+ * @author amarziali
+ */
+public class StreamBufferTest {
+
+    private final OperationStatus good = new OperationStatus(OperationStatus.Level.INFO, 0, Optional.empty());
+    private final LongAdder depth = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private TestSubscriber<Integer> overflow(OverflowPolicy policy) {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        TestSubscriber<Integer> ret = new StreamBuffer(policy, 3, depth, dropped::add)
+                .buffer(source)
+                .test(0);
+        for (int i = 0; i < 5; i++) {
+            source.onNext(i);
+        }
+        source.onComplete();
+        return ret;
+    }
+
+    @Test
+    public void testBuffer() {
+        TestSubscriber<Integer> subscriber = overflow(OverflowPolicy.BUFFER);
+        Assert.assertEquals(3, depth.sum());
+        Assert.assertEquals(2, dropped.sum());
+        subscriber.requestMore(10);
+        subscriber.assertValues(0, 1, 2).assertComplete();
+        Assert.assertEquals(0, depth.sum());
+    }
+
+    @Test
+    public void testDropOldest() {
+        TestSubscriber<Integer> subscriber = overflow(OverflowPolicy.DROP_OLDEST);
+        Assert.assertEquals(2, dropped.sum());
+        subscriber.requestMore(1);
+        subscriber.assertValues(2).assertNotComplete();
+        subscriber.requestMore(10);
+        subscriber.assertValues(2, 3, 4).assertComplete();
+        Assert.assertEquals(0, depth.sum());
+    }
+
+    @Test
+    public void testLatest() {
+        TestSubscriber<Integer> subscriber = overflow(OverflowPolicy.LATEST);
+        Assert.assertEquals(4, dropped.sum());
+        subscriber.requestMore(10);
+        subscriber.assertValues(4).assertComplete();
+    }
+
+    @Test
+    public void testConflateMerged() {
+        PublishProcessor<OpcSample> a = PublishProcessor.create();
+        PublishProcessor<OpcSample> b = PublishProcessor.create();
+        TestSubscriber<OpcSample> subscriber = new StreamBuffer(OverflowPolicy.LATEST, 3, depth, dropped::add)
+                .bufferMerged(Arrays.asList(a, b), OpcSample::getTag)
+                .test(0);
+        for (int i = 0; i < 1000; i++) {
+            a.onNext(new DoubleSample("a", i, 0, Quality.Good, good, i));
+            b.onNext(new DoubleSample("b", i, 0, Quality.Good, good, -i));
+        }
+        Assert.assertEquals(2, depth.sum());
+        Assert.assertEquals(1998, dropped.sum());
+        subscriber.requestMore(1);
+        Assert.assertEquals("a", subscriber.values().get(0).getTag());
+        Assert.assertEquals(999, ((DoubleSample) subscriber.values().get(0)).getDoubleValue(), 0);
+        a.onNext(new DoubleSample("a", 1000, 0, Quality.Good, good, 1000));
+        subscriber.requestMore(10);
+        subscriber.assertValueCount(3);
+        Assert.assertEquals(-999, ((DoubleSample) subscriber.values().get(1)).getDoubleValue(), 0);
+        Assert.assertEquals(1000, ((DoubleSample) subscriber.values().get(2)).getDoubleValue(), 0);
+        Assert.assertEquals(0, depth.sum());
+    }
+
+    @Test
+    public void testConflateBatches() {
+        PublishProcessor<OpcDataBatch> source = PublishProcessor.create();
+        TestSubscriber<OpcDataBatch> subscriber = new StreamBuffer(OverflowPolicy.LATEST, 1, depth, dropped::add)
+                .bufferBatches(source)
+                .test(0);
+        for (int i = 0; i < 3; i++) {
+            source.onNext(OpcDataBatch.builder(2)
+                    .addDouble("a", i, 0, Quality.Good, good, i)
+                    .addDouble("b", i, 0, Quality.Good, good, -i)
+                    .build());
+        }
+        source.onNext(OpcDataBatch.builder(1)
+                .addDouble("c", 3, 0, Quality.Good, good, 3)
+                .build());
+        Assert.assertEquals(4, dropped.sum());
+        Assert.assertEquals(3, depth.sum());
+        subscriber.requestMore(10);
+        subscriber.assertValueCount(1);
+        OpcDataBatch batch = subscriber.values().get(0);
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals("a", batch.getTag(0));
+        Assert.assertEquals(2, batch.getDouble(0), 0);
+        Assert.assertEquals(-2, batch.getDouble(1), 0);
+        Assert.assertEquals(3, batch.getDouble(2), 0);
+        Assert.assertEquals(0, depth.sum());
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        TestSubscriber<Integer> subscriber = new StreamBuffer(OverflowPolicy.BLOCK, 3, depth, dropped::add)
+                .buffer(source)
+                .test(0);
+        CountDownLatch produced = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                source.onNext(i);
+            }
+            source.onComplete();
+            produced.countDown();
+        });
+        producer.start();
+        Assert.assertFalse(produced.await(200, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(3, depth.sum());
+        subscriber.requestMore(Long.MAX_VALUE);
+        Assert.assertTrue(produced.await(5, TimeUnit.SECONDS));
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertValues(0, 1, 2, 3, 4, 5, 6, 7, 8, 9).assertComplete();
+        Assert.assertEquals(0, dropped.sum());
+    }
+
+    @Test
+    public void testCancelUnblocksProducer() throws Exception {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        TestSubscriber<Integer> subscriber = new StreamBuffer(OverflowPolicy.BLOCK, 1, depth, dropped::add)
+                .buffer(source)
+                .test(0);
+        CountDownLatch produced = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            source.onNext(1);
+            source.onNext(2);
+            produced.countDown();
+        });
+        producer.start();
+        Assert.assertFalse(produced.await(200, TimeUnit.MILLISECONDS));
+        subscriber.cancel();
+        Assert.assertTrue(produced.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, depth.sum());
+        Assert.assertFalse(source.hasSubscribers());
+    }
+}
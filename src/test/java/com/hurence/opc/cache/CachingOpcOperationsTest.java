@@ -0,0 +1,179 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.cache;
+
+import com.hurence.opc.ConnectionState;
+import com.hurence.opc.OpcObjectInfo;
+import com.hurence.opc.OpcOperations;
+import com.hurence.opc.OpcTagInfo;
+import com.hurence.opc.ua.OpcUaConnectionProfile;
+import com.hurence.opc.ua.OpcUaSession;
+import com.hurence.opc.ua.OpcUaSessionProfile;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link CachingOpcOperations} tests.
+ */
+public class CachingOpcOperationsTest {
+
+    /**
+     * Serves metadata of a fixed tree and records every fetch.
+     * Like OPC-UA, fetching a tag also returns its children.
+     */
+    private static final class StubOperations
+            implements OpcOperations<OpcUaConnectionProfile, OpcUaSessionProfile, OpcUaSession> {
+
+        private final Map<String, List<String>> children = new HashMap<>();
+        private final List<List<String>> fetches = new CopyOnWriteArrayList<>();
+
+        private StubOperations() {
+            children.put("a", Arrays.asList("a.1", "a.2"));
+            children.put("b", Collections.emptyList());
+            children.put("c", Collections.emptyList());
+        }
+
+        @Override
+        public Single<? extends OpcOperations<OpcUaConnectionProfile, OpcUaSessionProfile, OpcUaSession>> connect(
+                @Nonnull OpcUaConnectionProfile connectionProfile) {
+            return Single.just(this);
+        }
+
+        @Override
+        public Completable disconnect() {
+            return Completable.complete();
+        }
+
+        @Override
+        public boolean isChannelSecured() {
+            return false;
+        }
+
+        @Override
+        public Observable<ConnectionState> getConnectionState() {
+            return Observable.just(ConnectionState.CONNECTED);
+        }
+
+        @Override
+        public Flowable<OpcTagInfo> browseTags() {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<OpcObjectInfo> fetchNextTreeLevel(@Nonnull String rootTagId) {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<OpcTagInfo> fetchMetadata(@Nonnull String... tagIds) {
+            return Flowable.defer(() -> {
+                fetches.add(Arrays.asList(tagIds));
+                Set<String> ret = new LinkedHashSet<>();
+                for (String tagId : tagIds) {
+                    if (children.containsKey(tagId)) {
+                        ret.add(tagId);
+                        ret.addAll(children.get(tagId));
+                    }
+                }
+                return Flowable.fromIterable(ret).map(OpcTagInfo::new);
+            });
+        }
+
+        @Override
+        public Single<OpcUaSession> createSession(@Nonnull OpcUaSessionProfile sessionProfile) {
+            return Single.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Completable releaseSession(@Nonnull OpcUaSession session) {
+            return Completable.complete();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final StubOperations delegate = new StubOperations();
+    private final CachingOpcOperations<OpcUaConnectionProfile, OpcUaSessionProfile, OpcUaSession> operations =
+            new CachingOpcOperations<>(delegate, new TagMetadataCache(new TagMetadataCacheProfile()));
+
+    private Set<String> fetchMetadata(String... tagIds) {
+        return operations.fetchMetadata(tagIds)
+                .map(OpcTagInfo::getId)
+                .collect(HashSet<String>::new, Set::add)
+                .blockingGet();
+    }
+
+    @Test
+    public void testMissThenHit() {
+        Set<String> expected = new HashSet<>(Arrays.asList("a", "a.1", "a.2"));
+        Assert.assertEquals(expected, fetchMetadata("a"));
+        Assert.assertEquals(1, delegate.fetches.size());
+        //children are returned from the cache as well
+        Assert.assertEquals(expected, fetchMetadata("a"));
+        Assert.assertEquals(1, delegate.fetches.size());
+        //children fetched on their own are not cached yet
+        Assert.assertEquals(Collections.singleton("a.1"), fetchMetadata("a.1"));
+        Assert.assertEquals(2, delegate.fetches.size());
+    }
+
+    @Test
+    public void testPartialMiss() {
+        fetchMetadata("a");
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "a.1", "a.2", "b", "c")), fetchMetadata("a", "b", "c"));
+        //only missing tags are fetched, with a single call
+        Assert.assertEquals(Arrays.asList(Collections.singletonList("a"), Arrays.asList("b", "c")), delegate.fetches);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("b", "c")), fetchMetadata("b", "c"));
+        Assert.assertEquals(2, delegate.fetches.size());
+    }
+
+    @Test
+    public void testMissesWithChildren() {
+        Set<String> expected = new HashSet<>(Arrays.asList("a", "a.1", "a.2", "b"));
+        Assert.assertEquals(expected, fetchMetadata("a", "b", "unknown"));
+        //children cannot be told apart in the combined fetch: tags are fetched again one by one
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a", "b", "unknown"), Collections.singletonList("a"),
+                Collections.singletonList("b"), Collections.singletonList("unknown")), delegate.fetches);
+        delegate.fetches.clear();
+        Assert.assertEquals(expected, fetchMetadata("b", "a"));
+        Assert.assertTrue(delegate.fetches.isEmpty());
+        //unknown tags are never cached
+        Assert.assertTrue(fetchMetadata("unknown").isEmpty());
+        Assert.assertEquals(Collections.singletonList(Collections.singletonList("unknown")), delegate.fetches);
+    }
+
+    @Test
+    public void testDuplicatesAreEmittedOnce() {
+        fetchMetadata("a");
+        List<String> ids = operations.fetchMetadata("a", "a.1")
+                .map(OpcTagInfo::getId)
+                .toList()
+                .blockingGet();
+        Assert.assertEquals(3, ids.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "a.1", "a.2")), new HashSet<>(ids));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.cache;
+
+import com.hurence.opc.OpcTagInfo;
+import com.hurence.opc.OpcTagProperty;
+import com.hurence.opc.exception.OpcException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link TagMetadataCache} tests.
+ *
+ * @author amarziali
+ */
+public class TagMetadataCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MutableClock clock = new MutableClock();
+
+    private OpcTagInfo tag(String id) {
+        return new OpcTagInfo(id)
+                .withName("name-" + id)
+                .withDescription("description of " + id)
+                .withType(Double.class)
+                .withScanRate(Duration.ofMillis(250))
+                .withWriteAccessRights(false);
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.bin");
+        TagMetadataCacheProfile profile = new TagMetadataCacheProfile().withFile(file);
+        TagMetadataCache cache = new TagMetadataCache(profile, clock);
+        cache.validate("opc.tcp://localhost:12345", "abc");
+        OpcTagInfo info = tag("ns=2;s=sint").withType(Long[].class);
+        info.addProperty(new OpcTagProperty<>("1", "an int", 42));
+        info.addProperty(new OpcTagProperty<>("2", "a string", "hello"));
+        info.addProperty(new OpcTagProperty<>("3", "a big integer", BigInteger.TEN));
+        info.addProperty(new OpcTagProperty<>("4", "an array", new Short[]{1, 2}));
+        info.addProperty(new OpcTagProperty<>("5", "nothing", null));
+        cache.putBrowsedTags(Arrays.asList(info, tag("other")));
+        cache.putFetched("other", Arrays.asList(tag("other"), tag("child")));
+        cache.save();
+
+        TagMetadataCache reloaded = new TagMetadataCache(profile, clock);
+        Assert.assertEquals(3, reloaded.size());
+        OpcTagInfo restored = reloaded.get("ns=2;s=sint").map(TagMetadataCache.Entry::getTagInfo).orElse(null);
+        Assert.assertNotNull(restored);
+        Assert.assertEquals(info.getName(), restored.getName());
+        Assert.assertEquals(info.getDescription(), restored.getDescription());
+        Assert.assertEquals(Long[].class, restored.getType());
+        Assert.assertEquals(Optional.of(Duration.ofMillis(250)), restored.getScanRate());
+        Assert.assertTrue(restored.getAccessRights().isReadable());
+        Assert.assertFalse(restored.getAccessRights().isWritable());
+        Assert.assertEquals(5, restored.getProperties().size());
+        Assert.assertTrue(restored.getProperties().contains(new OpcTagProperty<>("1", "an int", 42)));
+        Assert.assertTrue(restored.getProperties().contains(new OpcTagProperty<>("3", "a big integer", BigInteger.TEN)));
+        Assert.assertTrue(reloaded.getBrowsedTags().isPresent());
+        Assert.assertEquals(2, reloaded.getBrowsedTags().get().size());
+        Assert.assertEquals(2, reloaded.getFetched("other").map(List::size).orElse(0).intValue());
+        Assert.assertFalse(reloaded.getFetched("ns=2;s=sint").isPresent());
+
+        //same server and address space
+        reloaded.validate("opc.tcp://localhost:12345", "abc");
+        Assert.assertEquals(3, reloaded.size());
+        //address space changed
+        reloaded.validate("opc.tcp://localhost:12345", "def");
+        Assert.assertEquals(0, reloaded.size());
+        Assert.assertFalse(reloaded.getBrowsedTags().isPresent());
+    }
+
+    @Test
+    public void testFailedSaveLeavesNoTemporaryFile() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.bin");
+        //a non empty directory in place of the cache file makes the final move fail.
+        Files.createDirectories(file.resolve("content"));
+        TagMetadataCache cache = new TagMetadataCache(new TagMetadataCacheProfile().withFile(file), clock);
+        cache.putBrowsedTags(Collections.singletonList(tag("tag")));
+        try {
+            cache.save();
+            Assert.fail("Save should have failed");
+        } catch (OpcException e) {
+            //expected
+        }
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            Assert.assertEquals(Collections.singletonList(file), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testTimeToLive() {
+        TagMetadataCache cache = new TagMetadataCache(new TagMetadataCacheProfile()
+                .withTimeToLive(Duration.ofMinutes(10)), clock);
+        cache.put(tag("a"));
+        Assert.assertFalse(cache.get("a").get().isStale());
+        clock.advance(Duration.ofMinutes(11));
+        Assert.assertTrue(cache.get("a").get().isStale());
+        cache.put(tag("a"));
+        Assert.assertFalse(cache.get("a").get().isStale());
+        Assert.assertFalse(cache.get("b").isPresent());
+    }
+
+    @Test
+    public void testEviction() {
+        TagMetadataCache cache = new TagMetadataCache(new TagMetadataCacheProfile()
+                .withMaxEntries(2), clock);
+        cache.putBrowsedTags(Collections.singletonList(tag("a")));
+        cache.put(tag("b"));
+        //a is now the most recently used
+        Assert.assertTrue(cache.get("a").isPresent());
+        cache.put(tag("c"));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertTrue(cache.get("a").isPresent());
+        Assert.assertFalse(cache.get("b").isPresent());
+        Assert.assertTrue(cache.getBrowsedTags().isPresent());
+        //c is now the most recently used
+        Assert.assertTrue(cache.get("c").isPresent());
+        cache.put(tag("d"));
+        //browse result is no more complete
+        Assert.assertFalse(cache.getBrowsedTags().isPresent());
+    }
+
+    @Test
+    public void testCorruptedFileIsIgnored() throws Exception {
+        Path file = folder.newFile("corrupted.bin").toPath();
+        java.nio.file.Files.write(file, new byte[]{1, 2, 3});
+        TagMetadataCache cache = new TagMetadataCache(new TagMetadataCacheProfile().withFile(file), clock);
+        Assert.assertEquals(0, cache.size());
+        List<OpcTagInfo> tags = Collections.singletonList(tag("a"));
+        cache.putBrowsedTags(tags);
+        cache.save();
+        Assert.assertEquals(1, new TagMetadataCache(new TagMetadataCacheProfile().withFile(file), clock).size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2019-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
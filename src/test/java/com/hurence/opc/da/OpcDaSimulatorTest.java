@@ -0,0 +1,527 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import com.hurence.opc.*;
+import com.hurence.opc.exception.OpcException;
+import com.hurence.opc.metrics.OpcMetrics;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link OpcDaTemplate} tests against a {@link SimulatedOpcDaServer}.
+ *
+ * @author amarziali
+ */
+public class OpcDaSimulatorTest {
+
+    private SimulatedOpcDaServer server;
+    private OpcDaTemplate opcDaOperations;
+
+    @Before
+    public void init() throws Exception {
+        server = new SimulatedOpcDaServer();
+        opcDaOperations = new OpcDaTemplate(server);
+        opcDaOperations.connect(new OpcDaConnectionProfile()
+                .withConnectionUri(new URI("opc.da://localhost"))
+                .withKeepAliveInterval(Duration.ofMillis(100)))
+                .ignoreElement()
+                .blockingAwait();
+    }
+
+    @After
+    public void done() throws Exception {
+        opcDaOperations.close();
+    }
+
+    @Test
+    public void testBrowse() {
+        Assert.assertEquals(11, opcDaOperations.browseTags().count().blockingGet().intValue());
+        List<OpcObjectInfo> root = opcDaOperations.fetchNextTreeLevel("").toList().blockingGet();
+        Assert.assertEquals(3, root.size());
+        Assert.assertTrue(root.stream().allMatch(OpcContainerInfo.class::isInstance));
+        List<OpcObjectInfo> random = opcDaOperations.fetchNextTreeLevel("Random").toList().blockingGet();
+        Assert.assertEquals(6, random.size());
+        Assert.assertTrue(random.stream().anyMatch(info -> "Random.Real8".equals(info.getId())));
+    }
+
+    @Test
+    public void testFetchMetadata() {
+        Map<String, OpcTagInfo> tags = opcDaOperations.fetchMetadata("Random.Int4", "Bucket Brigade.Real8")
+                .toMap(OpcTagInfo::getId)
+                .blockingGet();
+        Assert.assertEquals(Integer.class, tags.get("Random.Int4").getType());
+        Assert.assertFalse(tags.get("Random.Int4").getAccessRights().isWritable());
+        Assert.assertEquals(Double.class, tags.get("Bucket Brigade.Real8").getType());
+        Assert.assertTrue(tags.get("Bucket Brigade.Real8").getAccessRights().isWritable());
+    }
+
+    @Test
+    public void testReadWrite() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()).blockingGet()) {
+            List<OperationStatus> statuses = session.write(
+                    new OpcData<>("Bucket Brigade.Real8", Instant.now(), 3.14),
+                    new OpcData<>("Random.Real8", Instant.now(), 3.14),
+                    new OpcData<>("Unknown.Item", Instant.now(), 3.14)).blockingGet();
+            Assert.assertEquals(OperationStatus.Level.INFO, statuses.get(0).getLevel());
+            Assert.assertNotEquals(OperationStatus.Level.INFO, statuses.get(1).getLevel());
+            Assert.assertNotEquals(OperationStatus.Level.INFO, statuses.get(2).getLevel());
+
+            Map<String, OpcData> read = session.read("Bucket Brigade.Real8", "Random.Boolean", "Unknown.Item")
+                    .blockingGet().stream()
+                    .collect(Collectors.toMap(OpcData::getTag, Function.identity()));
+            Assert.assertEquals(3.14, read.get("Bucket Brigade.Real8").getValue());
+            Assert.assertEquals(Quality.Good, read.get("Bucket Brigade.Real8").getQuality());
+            Assert.assertTrue(read.get("Random.Boolean").getValue() instanceof Boolean);
+            Assert.assertEquals(Quality.Bad, read.get("Unknown.Item").getQuality());
+        }
+    }
+
+    @Test
+    public void testAsyncReadWrite() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withAsyncIO(true)
+                .withDirectRead(true)).blockingGet()) {
+            long before = server.getAsyncCallCount();
+            List<OperationStatus> statuses = session.write(
+                    new OpcData<>("Bucket Brigade.Real8", Instant.now(), 3.14),
+                    new OpcData<>("Random.Real8", Instant.now(), 3.14),
+                    new OpcData<>("Unknown.Item", Instant.now(), 3.14)).blockingGet();
+            Assert.assertEquals(OperationStatus.Level.INFO, statuses.get(0).getLevel());
+            Assert.assertNotEquals(OperationStatus.Level.INFO, statuses.get(1).getLevel());
+            Assert.assertNotEquals(OperationStatus.Level.INFO, statuses.get(2).getLevel());
+
+            Map<String, OpcData> read = session.read("Bucket Brigade.Real8", "Random.Boolean", "Unknown.Item")
+                    .blockingGet().stream()
+                    .collect(Collectors.toMap(OpcData::getTag, Function.identity()));
+            Assert.assertEquals(3.14, read.get("Bucket Brigade.Real8").getValue());
+            Assert.assertEquals(Quality.Good, read.get("Bucket Brigade.Real8").getQuality());
+            Assert.assertTrue(read.get("Random.Boolean").getValue() instanceof Boolean);
+            Assert.assertEquals(Quality.Bad, read.get("Unknown.Item").getQuality());
+            Assert.assertEquals(2, server.getAsyncCallCount() - before);
+
+            //concurrent transactions are completed with their own values.
+            session.write(new OpcData<>("Bucket Brigade.Int4", Instant.now(), 42),
+                    new OpcData<>("Bucket Brigade.String", Instant.now(), "pipelined")).blockingGet();
+            Map<String, Object> expected = new HashMap<>();
+            expected.put("Bucket Brigade.Real8", 3.14);
+            expected.put("Bucket Brigade.Int4", 42);
+            expected.put("Bucket Brigade.String", "pipelined");
+            String[] tags = expected.keySet().toArray(new String[0]);
+            List<OpcData> values = Flowable.range(0, 30)
+                    .flatMapSingle(i -> session.read(tags[i % tags.length])
+                            .subscribeOn(Schedulers.io())
+                            .map(data -> data.get(0)), false, 8)
+                    .toList()
+                    .blockingGet();
+            Assert.assertEquals(30, values.size());
+            values.forEach(data -> Assert.assertEquals(expected.get(data.getTag()), data.getValue()));
+            //cache reads stay synchronous.
+            before = server.getAsyncCallCount();
+            session.read(ReadOptions.CACHE, "Bucket Brigade.Real8").blockingGet();
+            Assert.assertEquals(0, server.getAsyncCallCount() - before);
+        }
+    }
+
+    @Test
+    public void testAsyncCompletionIsNotObservedOnCallbackThread() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withAsyncIO(true)
+                .withDirectRead(true)).blockingGet()) {
+            String thread = session.read("Random.Real8")
+                    .map(data -> Thread.currentThread().getName())
+                    .blockingGet();
+            Assert.assertNotEquals("simulated-opc-da", thread);
+        }
+    }
+
+    @Test
+    public void testAsyncTimeoutCancelsTransaction() throws Exception {
+        server.withAsyncCompletionDelay(Duration.ofSeconds(10));
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withAsyncIO(true)
+                .withDirectRead(true)
+                .withAsyncIOTimeout(Duration.ofMillis(100))).blockingGet()) {
+            session.read("Random.Real8").test()
+                    .awaitDone(5, TimeUnit.SECONDS)
+                    .assertError(OpcException.class);
+            //the cancel request is sent in background.
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.getCancelCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, server.getCancelCount());
+        }
+    }
+
+    @Test
+    public void testCancelledWriteDoesNotReachTheDevice() throws Exception {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withAsyncIO(true)
+                .withAsyncIOTimeout(Duration.ofMillis(100))).blockingGet()) {
+            session.write(new OpcData<>("Bucket Brigade.Int4", Instant.now(), 1)).blockingGet();
+            server.withAsyncCompletionDelay(Duration.ofMillis(500));
+            session.write(new OpcData<>("Bucket Brigade.Int4", Instant.now(), 2)).test()
+                    .awaitDone(5, TimeUnit.SECONDS)
+                    .assertError(OpcException.class);
+            Thread.sleep(1000);
+            Assert.assertEquals(1, server.getCancelCount());
+            Assert.assertEquals(1, session.read(ReadOptions.CACHE, "Bucket Brigade.Int4").blockingGet()
+                    .get(0).getValue());
+        }
+    }
+
+    @Test
+    public void testItemsAreRegisteredOnce() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()).blockingGet()) {
+            String[] tags = {"Random.Real8", "Random.Real4", "Random.Int4", "Random.Int2", "Random.String"};
+            long before = server.getCallCount();
+            OpcDataBatch batch = session.readBatch(tags).blockingGet();
+            Assert.assertEquals(tags.length, batch.size());
+            //one bulk item registration plus one read
+            Assert.assertEquals(2, server.getCallCount() - before);
+            before = server.getCallCount();
+            session.readBatch(tags).blockingGet();
+            Assert.assertEquals(1, server.getCallCount() - before);
+        }
+    }
+
+    @Test
+    public void testUnknownItemsAreRegisteredInBulk() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()).blockingGet()) {
+            long before = server.getCallCount();
+            OpcDataBatch batch = session.readBatch("Random.Int4", "Unknown.Item", "Random.Real8").blockingGet();
+            //one bulk item registration for known and unknown tags plus one read
+            Assert.assertEquals(2, server.getCallCount() - before);
+            Assert.assertEquals(3, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Assert.assertEquals("Unknown.Item".equals(batch.getTag(i)) ? Quality.Bad : Quality.Good,
+                        batch.getQuality(i));
+            }
+            List<OperationStatus> statuses = session.write(
+                    new OpcData<>("Unknown.Other", Instant.now(), 1),
+                    new OpcData<>("Bucket Brigade.Int4", Instant.now(), 1)).blockingGet();
+            Assert.assertNotEquals(OperationStatus.Level.INFO, statuses.get(0).getLevel());
+            Assert.assertEquals(OperationStatus.Level.INFO, statuses.get(1).getLevel());
+            session.stream("Unknown.Item", Duration.ofMillis(10))
+                    .test()
+                    .awaitDone(5, TimeUnit.SECONDS)
+                    .assertError(OpcException.class);
+        }
+    }
+
+    @Test
+    public void testReadOptions() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()).blockingGet()) {
+            long before = server.getDeviceReadCount();
+            session.read("Random.Int4").blockingGet();
+            Assert.assertEquals(0, server.getDeviceReadCount() - before);
+            Assert.assertEquals(1, session.readBatch(ReadOptions.DEVICE, "Random.Int4").blockingGet().size());
+            Assert.assertEquals(1, server.getDeviceReadCount() - before);
+            session.readSamples(ReadOptions.maxAge(Duration.ofSeconds(1)), "Random.Int4").blockingGet();
+            Assert.assertEquals(1, server.getDeviceReadCount() - before);
+        }
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile().withDirectRead(true))
+                .blockingGet()) {
+            long before = server.getDeviceReadCount();
+            session.read("Random.Int4").blockingGet();
+            Assert.assertEquals(1, server.getDeviceReadCount() - before);
+            session.read(ReadOptions.CACHE, "Random.Int4").blockingGet();
+            Assert.assertEquals(1, server.getDeviceReadCount() - before);
+        }
+    }
+
+    @Test
+    public void testStreamPolling() {
+        testStream(OpcDaSessionProfile.StreamingMode.POLLING);
+    }
+
+    @Test
+    public void testStreamSubscription() {
+        testStream(OpcDaSessionProfile.StreamingMode.SUBSCRIPTION);
+    }
+
+    private void testStream(OpcDaSessionProfile.StreamingMode streamingMode) {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))
+                .withStreamingMode(streamingMode)).blockingGet()) {
+            List<OpcData> values = session.stream("Random.Real8", Duration.ofMillis(10))
+                    .take(5)
+                    .timeout(5, TimeUnit.SECONDS)
+                    .toList()
+                    .blockingGet();
+            Assert.assertEquals(5, values.stream().map(OpcData::getValue).distinct().count());
+        }
+    }
+
+    @Test
+    public void testStreamDispatchesPerTag() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))).blockingGet()) {
+            List<String> tags = Arrays.asList("Random.Real8", "Random.Int4", "Random.String");
+            List<TestSubscriber<OpcSample>> subscribers = tags.stream()
+                    .map(tag -> session.streamSamples(tag, Duration.ofMillis(10)).test())
+                    .collect(Collectors.toList());
+            subscribers.forEach(subscriber -> subscriber.awaitCount(5));
+            //cancelling a subscriber does not affect the others
+            subscribers.get(0).cancel();
+            int count = subscribers.get(1).valueCount();
+            subscribers.get(1).awaitCount(count + 5);
+            for (int i = 0; i < tags.size(); i++) {
+                String tag = tags.get(i);
+                subscribers.get(i).assertNoErrors();
+                Assert.assertTrue(subscribers.get(i).values().stream().allMatch(sample -> tag.equals(sample.getTag())));
+            }
+            subscribers.forEach(TestSubscriber::cancel);
+        }
+    }
+
+    @Test
+    public void testStreamSubscriptionPushesChanges() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))
+                .withStreamingMode(OpcDaSessionProfile.StreamingMode.SUBSCRIPTION)).blockingGet()) {
+            session.write(new OpcData<>("Bucket Brigade.Int4", Instant.now(), 1)).blockingGet();
+            TestSubscriber<Object> subscriber = session.stream("Bucket Brigade.Int4", Duration.ofMillis(10))
+                    .map(OpcData::getValue)
+                    .distinctUntilChanged()
+                    .take(2)
+                    .test();
+            subscriber.awaitCount(1);
+            session.write(new OpcData<>("Bucket Brigade.Int4", Instant.now(), 2)).blockingGet();
+            subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+            subscriber.assertComplete().assertValues(1, 2);
+        }
+    }
+
+    @Test
+    public void testSubscriptionInitialValueIsFiltered() throws Exception {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))
+                .withStreamingMode(OpcDaSessionProfile.StreamingMode.SUBSCRIPTION)
+                .withStreamFilterForTag("Bucket Brigade.Real8", OpcDaStreamFilter.absoluteDeadband(10))).blockingGet()) {
+            session.write(new OpcData<>("Bucket Brigade.Real8", Instant.now(), 1.0)).blockingGet();
+            TestSubscriber<Object> subscriber = session.stream("Bucket Brigade.Real8", Duration.ofMillis(10))
+                    .map(OpcData::getValue)
+                    .take(2)
+                    .test();
+            subscriber.awaitCount(1);
+            //within the deadband of the initial value.
+            session.write(new OpcData<>("Bucket Brigade.Real8", Instant.now(), 2.0)).blockingGet();
+            Thread.sleep(200);
+            session.write(new OpcData<>("Bucket Brigade.Real8", Instant.now(), 20.0)).blockingGet();
+            subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+            subscriber.assertComplete().assertValues(1.0, 20.0);
+        }
+    }
+
+    @Test
+    public void testStreamGroupsByRate() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))
+                .withMaxItemsPerGroup(1)).blockingGet()) {
+            TestSubscriber<OpcSample> fast = session.streamSamples(Arrays.asList("Random.Real8", "Random.Int4"),
+                    Duration.ofMillis(10)).test();
+            TestSubscriber<OpcSample> slow = session.streamSamples("Random.Real4", Duration.ofMillis(200)).test();
+            Assert.assertEquals(Arrays.asList(20, 20, 200), server.getGroupUpdateRates());
+            fast.awaitCount(20);
+            Assert.assertEquals(2, fast.values().stream().map(OpcSample::getTag).distinct().count());
+            Assert.assertTrue(slow.valueCount() < 5);
+            fast.cancel();
+            slow.cancel();
+        }
+        Assert.assertTrue(server.getGroupUpdateRates().isEmpty());
+    }
+
+    @Test
+    public void testReleasedStreamGroups() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))).blockingGet()) {
+            TestSubscriber<OpcSample> real = session.streamSamples("Random.Real4", Duration.ofMillis(200)).test();
+            TestSubscriber<OpcSample> integer = session.streamSamples("Random.Int4", Duration.ofMillis(200)).test();
+            Assert.assertEquals(Arrays.asList(20, 200), server.getGroupUpdateRates());
+            Assert.assertEquals(Arrays.asList(0, 2), server.getGroupItemCounts());
+            real.cancel();
+            Assert.assertEquals(Arrays.asList(0, 1), server.getGroupItemCounts());
+            integer.awaitCount(2);
+            integer.cancel();
+            Assert.assertEquals(Collections.singletonList(20), server.getGroupUpdateRates());
+            //streaming again places the tag in a new group.
+            session.streamSamples("Random.Real4", Duration.ofMillis(200)).take(1).test()
+                    .awaitDone(5, TimeUnit.SECONDS)
+                    .assertValueCount(1);
+            Assert.assertEquals(Collections.singletonList(20), server.getGroupUpdateRates());
+        }
+    }
+
+    @Test
+    public void testFilteredStream() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))
+                .withStreamFilterForTag("Random.Real8", OpcDaStreamFilter.absoluteDeadband(0.5))).blockingGet()) {
+            List<Double> values = session.stream("Random.Real8", Duration.ofMillis(1))
+                    .map(data -> (Double) data.getValue())
+                    .take(5)
+                    .timeout(5, TimeUnit.SECONDS)
+                    .toList()
+                    .blockingGet();
+            for (int i = 1; i < values.size(); i++) {
+                Assert.assertTrue(Math.abs(values.get(i) - values.get(i - 1)) > 0.5);
+            }
+        }
+    }
+
+    @Test
+    public void testFilteredBatches() {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))
+                .withStreamFilterForTag("Random.Real8", OpcDaStreamFilter.absoluteDeadband(0.5))).blockingGet()) {
+            List<Double> values = session.streamBatches(Arrays.asList("Random.Real8", "Random.Int4"), Duration.ofMillis(1))
+                    .concatMapIterable(OpcDataBatch::toSamples)
+                    .filter(sample -> "Random.Real8".equals(sample.getTag()))
+                    .map(sample -> ((DoubleSample) sample).getDoubleValue())
+                    .take(5)
+                    .timeout(5, TimeUnit.SECONDS)
+                    .toList()
+                    .blockingGet();
+            for (int i = 1; i < values.size(); i++) {
+                Assert.assertTrue(Math.abs(values.get(i) - values.get(i - 1)) > 0.5);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxSilenceOfConstantTagPolling() {
+        testMaxSilenceOfConstantTag(OpcDaSessionProfile.StreamingMode.POLLING);
+    }
+
+    @Test
+    public void testMaxSilenceOfConstantTagSubscription() {
+        testMaxSilenceOfConstantTag(OpcDaSessionProfile.StreamingMode.SUBSCRIPTION);
+    }
+
+    private void testMaxSilenceOfConstantTag(OpcDaSessionProfile.StreamingMode streamingMode) {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))
+                .withStreamingMode(streamingMode)
+                .withStreamFilterForTag("Bucket Brigade.Int4",
+                        OpcDaStreamFilter.absoluteDeadband(1).withMaxSilence(Duration.ofMillis(200)))).blockingGet()) {
+            session.write(new OpcData<>("Bucket Brigade.Int4", Instant.now(), 7)).blockingGet();
+            long start = System.nanoTime();
+            List<OpcData> values = session.stream("Bucket Brigade.Int4", Duration.ofMillis(10))
+                    .take(4)
+                    .timeout(5, TimeUnit.SECONDS)
+                    .toList()
+                    .blockingGet();
+            //the current value, then the same value repeated after each silence interval
+            Assert.assertTrue(values.stream().allMatch(data -> Integer.valueOf(7).equals(data.getValue())));
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+        }
+    }
+
+    @Test
+    public void testConflatedStream() throws Exception {
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(10))
+                .withOverflowPolicy(OverflowPolicy.LATEST)).blockingGet()) {
+            TestSubscriber<OpcSample> subscriber = session.streamSamples(Arrays.asList("Random.Real8", "Random.Int4"),
+                    Duration.ofMillis(10))
+                    .test(0);
+            Thread.sleep(500);
+            //one conflated value per tag is pending. Request exactly those so that no new value can race in.
+            subscriber.requestMore(2);
+            subscriber.awaitCount(2);
+            subscriber.assertValueCount(2);
+            Assert.assertNotEquals(subscriber.values().get(0).getTag(), subscriber.values().get(1).getTag());
+            Assert.assertTrue(session.getDroppedSamples() > 0);
+            subscriber.cancel();
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        List<String> completed = new CopyOnWriteArrayList<>();
+        AtomicLong samples = new AtomicLong();
+        Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+        opcDaOperations.setMetrics(new OpcMetrics() {
+            @Override
+            public void completed(Operation operation, long durationNanos, int items, Outcome outcome) {
+                completed.add(operation + ":" + items + ":" + outcome);
+            }
+
+            @Override
+            public void samplesEmitted(String session, String tagId, int count) {
+                samples.addAndGet(count);
+            }
+
+            @Override
+            public void registerGauge(String session, String name, LongSupplier value) {
+                gauges.put(name, value);
+            }
+
+            @Override
+            public void sessionClosed(String session) {
+                gauges.clear();
+            }
+        });
+        try (OpcDaSession session = opcDaOperations.createSession(new OpcDaSessionProfile()
+                .withRefreshInterval(Duration.ofMillis(20))).blockingGet()) {
+            session.read("Random.Int4", "Random.Real8").blockingGet();
+            session.stream("Random.Int4", Duration.ofMillis(10))
+                    .take(5)
+                    .timeout(5, TimeUnit.SECONDS)
+                    .blockingSubscribe();
+            Assert.assertEquals(2, gauges.get(OpcMetrics.MONITORED_ITEMS).getAsLong());
+        }
+        Assert.assertTrue(completed.contains("CREATE_SESSION:1:SUCCESS"));
+        Assert.assertTrue(completed.contains("READ:2:SUCCESS"));
+        Assert.assertTrue(completed.contains("STREAM:5:CANCELLED"));
+        Assert.assertTrue(samples.get() >= 5);
+        Assert.assertTrue(gauges.isEmpty());
+    }
+
+    @Test
+    public void testDisconnectWhenServerFails() throws Exception {
+        server.setRunning(false);
+        opcDaOperations.getConnectionState()
+                .filter(ConnectionState.DISCONNECTED::equals)
+                .timeout(5, TimeUnit.SECONDS)
+                .blockingFirst();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import com.hurence.opc.DoubleSample;
+import com.hurence.opc.ObjectSample;
+import com.hurence.opc.OpcSample;
+import com.hurence.opc.OperationStatus;
+import com.hurence.opc.Quality;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * {@link OpcDaStreamFilter} tests.
+ *
+ * @author amarziali
+ */
+public class OpcDaStreamFilterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static OpcSample sample(long second, double value) {
+        return sample(second, value, Quality.Good);
+    }
+
+    private static OpcSample sample(long second, double value, Quality quality) {
+        return new DoubleSample("tag", second * SECOND, 0, quality, new OperationStatus(OperationStatus.Level.INFO, 0, Optional.empty()), value);
+    }
+
+    /**
+     * Filters values sampled each second.
+     */
+    private static List<Double> filter(OpcDaStreamFilter filter, double... values) {
+        OpcDaStreamFilter.State state = filter.newState();
+        List<OpcSample> emitted = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            state.accept(sample(i, values[i]), i * SECOND, emitted::add);
+        }
+        return emitted.stream().map(s -> ((DoubleSample) s).getDoubleValue()).collect(Collectors.toList());
+    }
+
+    private static List<Double> list(double... values) {
+        List<Double> ret = new ArrayList<>();
+        for (double value : values) {
+            ret.add(value);
+        }
+        return ret;
+    }
+
+    @Test
+    public void testNone() {
+        Assert.assertEquals(list(1, 1, 1.1), filter(OpcDaStreamFilter.NONE, 1, 1, 1.1));
+    }
+
+    @Test
+    public void testDeadband() {
+        Assert.assertEquals(list(0, 1.5, 0.4),
+                filter(OpcDaStreamFilter.absoluteDeadband(1.0), 0, 0.5, 1.0, 1.5, 1.0, 0.6, 0.4));
+        //10% of [0, 20] is 2
+        Assert.assertEquals(list(0, 3),
+                filter(OpcDaStreamFilter.percentDeadband(10, 0, 20), 0, 1, 2, 3));
+    }
+
+    @Test
+    public void testBoxcar() {
+        //the last dropped value is emitted before the step
+        Assert.assertEquals(list(0, 0.2, 5),
+                filter(OpcDaStreamFilter.boxcar(1.0), 0, 0.1, 0.2, 5, 5.5));
+    }
+
+    @Test
+    public void testSwingingDoor() {
+        //a ramp is compressed to its ends. The end is emitted when the slope changes.
+        Assert.assertEquals(list(0, 4, 4),
+                filter(OpcDaStreamFilter.swingingDoor(0.1), 0, 1, 2, 3, 4, 4, 4, 4, 0));
+        //noise within the deviation around a line is dropped
+        Assert.assertEquals(list(0, 3.05),
+                filter(OpcDaStreamFilter.swingingDoor(0.1), 0, 1.05, 1.95, 3.05, 10));
+    }
+
+    @Test
+    public void testMaxSilence() {
+        Assert.assertEquals(list(0, 0, 0),
+                filter(OpcDaStreamFilter.absoluteDeadband(1.0).withMaxSilence(Duration.ofSeconds(2)), 0, 0, 0, 0, 0));
+        //held values are flushed first
+        Assert.assertEquals(list(0, 0.1, 0.2),
+                filter(OpcDaStreamFilter.boxcar(1.0).withMaxSilence(Duration.ofSeconds(2)), 0, 0.1, 0.2));
+    }
+
+    @Test
+    public void testMaxSilenceWithoutNewValues() {
+        OpcDaStreamFilter.State state = OpcDaStreamFilter.absoluteDeadband(1.0)
+                .withMaxSilence(Duration.ofSeconds(2))
+                .newState();
+        List<OpcSample> emitted = new ArrayList<>();
+        state.tick(0, emitted::add);
+        Assert.assertTrue(emitted.isEmpty());
+        state.accept(sample(0, 0), 0, emitted::add);
+        for (int i = 1; i <= 4; i++) {
+            state.tick(i * SECOND, emitted::add);
+        }
+        Assert.assertEquals(3, emitted.size());
+
+        //repeated values are dropped by the filter itself, even without deviation
+        emitted.clear();
+        state = OpcDaStreamFilter.NONE.withMaxSilence(Duration.ofSeconds(2)).newState();
+        OpcSample sample = sample(0, 1);
+        state.accept(sample, 0, emitted::add);
+        state.accept(sample, SECOND, emitted::add);
+        state.accept(sample(1, 1), SECOND, emitted::add);
+        state.tick(3 * SECOND, emitted::add);
+        Assert.assertEquals(3, emitted.size());
+        Assert.assertSame(emitted.get(1), emitted.get(2));
+    }
+
+    @Test
+    public void testStatusAndNonNumericChanges() {
+        OpcDaStreamFilter.State state = OpcDaStreamFilter.absoluteDeadband(10).newState();
+        List<OpcSample> emitted = new ArrayList<>();
+        state.accept(sample(0, 1), 0, emitted::add);
+        state.accept(sample(1, 1, Quality.Bad), 0, emitted::add);
+        state.accept(sample(2, 1, Quality.Bad), 0, emitted::add);
+        Assert.assertEquals(2, emitted.size());
+
+        emitted.clear();
+        state = OpcDaStreamFilter.absoluteDeadband(10).newState();
+        OperationStatus ok = new OperationStatus(OperationStatus.Level.INFO, 0, Optional.empty());
+        state.accept(new ObjectSample("tag", 0, 0, Quality.Good, ok, "a"), 0, emitted::add);
+        state.accept(new ObjectSample("tag", 1, 0, Quality.Good, ok, "a"), 0, emitted::add);
+        state.accept(new ObjectSample("tag", 2, 0, Quality.Good, ok, "b"), 0, emitted::add);
+        Assert.assertEquals(2, emitted.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        OpcDaStreamFilter.percentDeadband(10, 1, 0);
+    }
+}
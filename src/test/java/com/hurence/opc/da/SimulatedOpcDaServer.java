@@ -0,0 +1,726 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.da;
+
+import org.jinterop.dcom.common.JIException;
+import org.jinterop.dcom.core.IJIComObject;
+import org.jinterop.dcom.core.JIVariant;
+import org.openscada.opc.dcom.common.EventHandler;
+import org.openscada.opc.dcom.common.FILETIME;
+import org.openscada.opc.dcom.common.KeyedResult;
+import org.openscada.opc.dcom.common.KeyedResultSet;
+import org.openscada.opc.dcom.common.Result;
+import org.openscada.opc.dcom.common.ResultSet;
+import org.openscada.opc.dcom.da.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory OPC-DA server reachable through {@link OpcDaTemplate#OpcDaTemplate(OpcDaTransport.Factory)}.
+ * <p>
+ * Exposes a Matrikon-like address space (Random, Square Waves and Bucket Brigade branches) and optionally
+ * some generated items. Every server call can be delayed to simulate the DCOM round trip.
+ *
+ * @author amarziali
+ */
+public class SimulatedOpcDaServer implements OpcDaTransport.Factory {
+
+    /**
+     * OPC_E_INVALIDHANDLE.
+     */
+    static final int OPC_E_INVALIDHANDLE = 0xC0040001;
+    /**
+     * OPC_E_BADRIGHTS.
+     */
+    static final int OPC_E_BADRIGHTS = 0xC0040006;
+    /**
+     * OPC_E_UNKNOWNITEMID.
+     */
+    static final int OPC_E_UNKNOWNITEMID = 0xC0040007;
+    /**
+     * CONNECT_E_NOCONNECTION.
+     */
+    static final int CONNECT_E_NOCONNECTION = 0x80040200;
+    /**
+     * E_FAIL.
+     */
+    static final int E_FAIL = 0x80004005;
+
+    private static final long FILETIME_EPOCH_OFFSET = 116_444_736_000_000_000L;
+    private static final short GOOD_QUALITY = (short) OpcDaQualityExtractor.OPC_QUALITY_GOOD;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "simulated-opc-da");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Item> items = new ConcurrentHashMap<>();
+    private final AtomicInteger handleCounter = new AtomicInteger();
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong deviceReadCount = new AtomicLong();
+    private final AtomicLong asyncCallCount = new AtomicLong();
+    private final AtomicLong cancelCount = new AtomicLong();
+    private final Set<Group> liveGroups = ConcurrentHashMap.newKeySet();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration asyncCompletionDelay = Duration.ZERO;
+    private volatile boolean running = true;
+
+    public SimulatedOpcDaServer() {
+        addDynamicItem("Random.Real8", () -> ThreadLocalRandom.current().nextDouble());
+        addDynamicItem("Random.Real4", () -> ThreadLocalRandom.current().nextFloat());
+        addDynamicItem("Random.Int4", () -> ThreadLocalRandom.current().nextInt());
+        addDynamicItem("Random.Int2", () -> (short) ThreadLocalRandom.current().nextInt(Short.MAX_VALUE));
+        addDynamicItem("Random.Boolean", () -> ThreadLocalRandom.current().nextBoolean());
+        addDynamicItem("Random.String", () -> Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        addDynamicItem("Square Waves.Real8", () -> (System.currentTimeMillis() / 1000) % 2 == 0 ? 1.0 : -1.0);
+        addDynamicItem("Square Waves.Int4", () -> (int) ((System.currentTimeMillis() / 1000) % 2));
+        addItem("Bucket Brigade.Real8", 0.0, true);
+        addItem("Bucket Brigade.Int4", 0, true);
+        addItem("Bucket Brigade.String", "", true);
+    }
+
+    /**
+     * Adds a read-only item whose value is computed at each read.
+     *
+     * @param itemId    the item id. Branches are separated by dots.
+     * @param generator the value generator.
+     * @return itself.
+     */
+    public SimulatedOpcDaServer addDynamicItem(String itemId, Supplier<Object> generator) {
+        items.put(itemId, new Item(itemId, generator, JIVariant.makeVariant(generator.get()), false));
+        return this;
+    }
+
+    /**
+     * Adds an item holding a static value.
+     *
+     * @param itemId   the item id. Branches are separated by dots.
+     * @param value    the initial value.
+     * @param writable true if the item can be written.
+     * @return itself.
+     */
+    public SimulatedOpcDaServer addItem(String itemId, Object value, boolean writable) {
+        items.put(itemId, new Item(itemId, null, JIVariant.makeVariant(value), writable));
+        return this;
+    }
+
+    /**
+     * Adds random double items named Load.B{branch}.I{item}.
+     *
+     * @param branches       the number of branches.
+     * @param itemsPerBranch the number of items per branch.
+     * @return itself.
+     */
+    public SimulatedOpcDaServer withGeneratedItems(int branches, int itemsPerBranch) {
+        for (int b = 0; b < branches; b++) {
+            for (int i = 0; i < itemsPerBranch; i++) {
+                addDynamicItem(generatedItemId(b, i), () -> ThreadLocalRandom.current().nextDouble());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets the id of a generated item.
+     *
+     * @param branch the branch index.
+     * @param item   the item index within the branch.
+     * @return the item id.
+     */
+    public static String generatedItemId(int branch, int item) {
+        return "Load.B" + branch + ".I" + item;
+    }
+
+    /**
+     * Sets the delay added to each server call.
+     *
+     * @param latency the latency.
+     * @return itself.
+     */
+    public SimulatedOpcDaServer withLatency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Sets the delay before asynchronous reads and writes complete.
+     *
+     * @param asyncCompletionDelay the delay.
+     * @return itself.
+     */
+    public SimulatedOpcDaServer withAsyncCompletionDelay(Duration asyncCompletionDelay) {
+        this.asyncCompletionDelay = asyncCompletionDelay;
+        return this;
+    }
+
+    /**
+     * Makes the server report a running or failed state.
+     *
+     * @param running the state.
+     */
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    /**
+     * Gets the number of server calls (round trips) performed so far.
+     *
+     * @return the call count.
+     */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /**
+     * Gets the number of synchronous reads performed so far from the device rather than from the cache.
+     *
+     * @return the device read count.
+     */
+    public long getDeviceReadCount() {
+        return deviceReadCount.get();
+    }
+
+    /**
+     * Gets the number of asynchronous reads and writes performed so far.
+     *
+     * @return the async call count.
+     */
+    public long getAsyncCallCount() {
+        return asyncCallCount.get();
+    }
+
+    /**
+     * Gets the number of asynchronous reads and writes cancelled so far.
+     *
+     * @return the cancel count.
+     */
+    public long getCancelCount() {
+        return cancelCount.get();
+    }
+
+    /**
+     * Gets the update rates of the groups currently registered on the server.
+     *
+     * @return the sorted update rates in milliseconds.
+     */
+    public List<Integer> getGroupUpdateRates() {
+        return liveGroups.stream().map(group -> group.updateRate).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the number of items of the groups currently registered on the server.
+     *
+     * @return the item counts sorted by group update rate.
+     */
+    public List<Integer> getGroupItemCounts() {
+        return liveGroups.stream().sorted(Comparator.comparingInt(group -> group.updateRate))
+                .map(group -> group.groupItems.size()).collect(Collectors.toList());
+    }
+
+    @Override
+    public OpcDaTransport connect(OpcDaConnectionProfile connectionProfile) {
+        call();
+        return new Transport();
+    }
+
+    /**
+     * Accounts a server call and waits for the configured latency.
+     */
+    private void call() {
+        callCount.incrementAndGet();
+        long nanos = latency.toNanos();
+        if (nanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static FILETIME filetime(Instant instant) {
+        long ticks = instant.getEpochSecond() * 10_000_000L + instant.getNano() / 100 + FILETIME_EPOCH_OFFSET;
+        return new FILETIME((int) (ticks >>> 32), (int) ticks);
+    }
+
+    private Item item(String itemId) throws JIException {
+        Item item = itemId != null ? items.get(itemId) : null;
+        if (item == null) {
+            throw new JIException(OPC_E_UNKNOWNITEMID);
+        }
+        return item;
+    }
+
+    /**
+     * A simulated item.
+     */
+    private static final class Item {
+        private final String id;
+        private final Supplier<Object> generator;
+        private final short type;
+        private final boolean writable;
+        private volatile JIVariant value;
+
+        private Item(String id, Supplier<Object> generator, JIVariant value, boolean writable) {
+            this.id = id;
+            this.generator = generator;
+            this.value = value;
+            this.writable = writable;
+            try {
+                this.type = (short) value.getType();
+            } catch (JIException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        private JIVariant read() {
+            return generator != null ? JIVariant.makeVariant(generator.get()) : value;
+        }
+    }
+
+    /**
+     * A client connection.
+     */
+    private final class Transport implements OpcDaTransport {
+
+        private final Set<Group> groups = ConcurrentHashMap.newKeySet();
+        private volatile String position = "";
+
+        @Override
+        public OPCSERVERSTATUS getStatus() {
+            call();
+            OPCSERVERSTATUS ret = new OPCSERVERSTATUS();
+            ret.setServerState(running ? OPCSERVERSTATE.OPC_STATUS_RUNNING : OPCSERVERSTATE.OPC_STATUS_FAILED);
+            ret.setCurrentTime(filetime(Instant.now()));
+            ret.setGroupCount(groups.size());
+            ret.setVendorInfo("Hurence simulated OPC-DA server");
+            return ret;
+        }
+
+        @Override
+        public void changeBrowsePosition(String position) {
+            call();
+            this.position = position != null ? position : "";
+        }
+
+        @Override
+        public Collection<String> browse(OPCBROWSETYPE browseType) {
+            call();
+            if (browseType == OPCBROWSETYPE.OPC_FLAT) {
+                return new TreeSet<>(items.keySet());
+            }
+            String prefix = position.isEmpty() ? "" : position + ".";
+            Set<String> ret = new TreeSet<>();
+            for (String itemId : items.keySet()) {
+                if (!itemId.startsWith(prefix)) {
+                    continue;
+                }
+                String relative = itemId.substring(prefix.length());
+                int idx = relative.indexOf('.');
+                if (browseType == OPCBROWSETYPE.OPC_BRANCH && idx > 0) {
+                    ret.add(relative.substring(0, idx));
+                } else if (browseType == OPCBROWSETYPE.OPC_LEAF && idx < 0) {
+                    ret.add(relative);
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public String getItemId(String name) {
+            call();
+            return position.isEmpty() ? name : position + "." + name;
+        }
+
+        @Override
+        public Collection<PropertyDescription> queryAvailableProperties(String itemId) throws JIException {
+            call();
+            item(itemId);
+            return Arrays.asList(
+                    property(OpcDaItemProperties.MANDATORY_DATA_TYPE, "Item Canonical DataType", JIVariant.VT_I2),
+                    property(OpcDaItemProperties.MANDATORY_ITEM_VALUE, "Item Value", JIVariant.VT_VARIANT),
+                    property(OpcDaItemProperties.MANDATORY_ITEM_QUALITY, "Item Quality", JIVariant.VT_I2),
+                    property(OpcDaItemProperties.MANDATORY_ITEM_ACCESS_RIGHTS, "Item Access Rights", JIVariant.VT_I4),
+                    property(OpcDaItemProperties.MANDATORY_SERVER_SCAN_RATE, "Server Scan Rate", JIVariant.VT_R4),
+                    property(OpcDaItemProperties.RECOMMENDED_ITEM_DESCRIPTION, "Item Description", JIVariant.VT_BSTR));
+        }
+
+        private PropertyDescription property(int id, String description, int type) {
+            PropertyDescription ret = new PropertyDescription();
+            ret.setId(id);
+            ret.setDescription(description);
+            ret.setVarType((short) type);
+            return ret;
+        }
+
+        @Override
+        public KeyedResultSet<Integer, JIVariant> getItemProperties(String itemId, int... propertyIds) throws JIException {
+            call();
+            Item item = item(itemId);
+            KeyedResultSet<Integer, JIVariant> ret = new KeyedResultSet<>();
+            for (int id : propertyIds) {
+                Object value;
+                switch (id) {
+                    case OpcDaItemProperties.MANDATORY_DATA_TYPE:
+                        value = item.type;
+                        break;
+                    case OpcDaItemProperties.MANDATORY_ITEM_VALUE:
+                        ret.add(new KeyedResult<>(id, item.read(), 0));
+                        continue;
+                    case OpcDaItemProperties.MANDATORY_ITEM_QUALITY:
+                        value = GOOD_QUALITY;
+                        break;
+                    case OpcDaItemProperties.MANDATORY_ITEM_ACCESS_RIGHTS:
+                        value = OpcDaItemProperties.OPC_ACCESS_RIGHTS_READABLE |
+                                (item.writable ? OpcDaItemProperties.OPC_ACCESS_RIGHTS_WRITABLE : 0);
+                        break;
+                    case OpcDaItemProperties.MANDATORY_SERVER_SCAN_RATE:
+                        value = 10.0f;
+                        break;
+                    case OpcDaItemProperties.RECOMMENDED_ITEM_DESCRIPTION:
+                        value = "Simulated " + item.id;
+                        break;
+                    default:
+                        ret.add(new KeyedResult<>(id, null, OPC_E_UNKNOWNITEMID));
+                        continue;
+                }
+                ret.add(new KeyedResult<>(id, JIVariant.makeVariant(value), 0));
+            }
+            return ret;
+        }
+
+        @Override
+        public OpcDaGroupTransport addGroup(int updateRate, int clientHandle) {
+            call();
+            Group group = new Group(Math.max(10, updateRate), clientHandle);
+            groups.add(group);
+            liveGroups.add(group);
+            return group;
+        }
+
+        @Override
+        public void removeGroup(OpcDaGroupTransport group) {
+            call();
+            if (groups.remove(group)) {
+                liveGroups.remove(group);
+                ((Group) group).detach();
+            }
+        }
+
+        @Override
+        public void close() {
+            groups.forEach(Group::detach);
+            liveGroups.removeAll(groups);
+            groups.clear();
+        }
+    }
+
+    /**
+     * An item registered in a group.
+     */
+    private static final class GroupItem {
+        private final Item item;
+        private final int clientHandle;
+        private Object lastNotified;
+
+        private GroupItem(Item item, int clientHandle) {
+            this.item = item;
+            this.clientHandle = clientHandle;
+        }
+    }
+
+    /**
+     * A simulated group.
+     */
+    private final class Group implements OpcDaGroupTransport {
+
+        private final int updateRate;
+        private final int clientHandle;
+        private final Map<Integer, GroupItem> groupItems = new ConcurrentHashMap<>();
+        /**
+         * The client transaction ids of the asynchronous transactions not yet completed by cancel id.
+         */
+        private final Map<Integer, Integer> pendingTransactions = new ConcurrentHashMap<>();
+        private volatile ScheduledFuture<?> callbackTask;
+        private volatile IOPCDataCallback callback;
+
+        private Group(int updateRate, int clientHandle) {
+            this.updateRate = updateRate;
+            this.clientHandle = clientHandle;
+        }
+
+        @Override
+        public int getUpdateRate() {
+            call();
+            return updateRate;
+        }
+
+        @Override
+        public KeyedResultSet<OPCITEMDEF, OPCITEMRESULT> addItems(OPCITEMDEF... defs) {
+            call();
+            KeyedResultSet<OPCITEMDEF, OPCITEMRESULT> ret = new KeyedResultSet<>();
+            for (OPCITEMDEF def : defs) {
+                Item item = items.get(def.getItemID());
+                if (item == null) {
+                    ret.add(new KeyedResult<>(def, null, OPC_E_UNKNOWNITEMID));
+                    continue;
+                }
+                int serverHandle = handleCounter.incrementAndGet();
+                groupItems.put(serverHandle, new GroupItem(item, def.getClientHandle()));
+                OPCITEMRESULT result = new OPCITEMRESULT();
+                result.setServerHandle(serverHandle);
+                result.setCanonicalDataType(item.type);
+                result.setAccessRights(OpcDaItemProperties.OPC_ACCESS_RIGHTS_READABLE |
+                        (item.writable ? OpcDaItemProperties.OPC_ACCESS_RIGHTS_WRITABLE : 0));
+                ret.add(new KeyedResult<>(def, result, 0));
+            }
+            return ret;
+        }
+
+        @Override
+        public ResultSet<Integer> removeItems(Integer... serverHandles) {
+            call();
+            ResultSet<Integer> ret = new ResultSet<>();
+            for (Integer serverHandle : serverHandles) {
+                ret.add(new Result<>(serverHandle, groupItems.remove(serverHandle) == null ? OPC_E_INVALIDHANDLE : 0));
+            }
+            return ret;
+        }
+
+        @Override
+        public KeyedResultSet<Integer, OPCITEMSTATE> read(OPCDATASOURCE source, Integer... serverHandles) {
+            call();
+            if (source == OPCDATASOURCE.OPC_DS_DEVICE) {
+                deviceReadCount.incrementAndGet();
+            }
+            FILETIME now = filetime(Instant.now());
+            KeyedResultSet<Integer, OPCITEMSTATE> ret = new KeyedResultSet<>();
+            for (Integer serverHandle : serverHandles) {
+                GroupItem groupItem = groupItems.get(serverHandle);
+                OPCITEMSTATE state = new OPCITEMSTATE();
+                state.setTimestamp(now);
+                if (groupItem == null) {
+                    state.setValue(JIVariant.EMPTY());
+                    ret.add(new KeyedResult<>(serverHandle, state, OPC_E_INVALIDHANDLE));
+                } else {
+                    state.setClientHandle(groupItem.clientHandle);
+                    state.setQuality(GOOD_QUALITY);
+                    state.setValue(groupItem.item.read());
+                    ret.add(new KeyedResult<>(serverHandle, state, 0));
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public ResultSet<WriteRequest> write(WriteRequest... requests) {
+            call();
+            ResultSet<WriteRequest> ret = new ResultSet<>();
+            for (WriteRequest request : requests) {
+                GroupItem groupItem = groupItems.get(request.getServerHandle());
+                int errorCode = 0;
+                if (groupItem == null) {
+                    errorCode = OPC_E_INVALIDHANDLE;
+                } else if (!groupItem.item.writable) {
+                    errorCode = OPC_E_BADRIGHTS;
+                } else {
+                    groupItem.item.value = request.getValue();
+                }
+                ret.add(new Result<>(request, errorCode));
+            }
+            return ret;
+        }
+
+        @Override
+        public AsyncRequest asyncRead(int transactionId, Integer... serverHandles) throws JIException {
+            call();
+            asyncCallCount.incrementAndGet();
+            final IOPCDataCallback target = attachedCallback();
+            final Calendar now = Calendar.getInstance();
+            final ResultSet<Integer> ret = new ResultSet<>();
+            final KeyedResultSet<Integer, ValueData> values = new KeyedResultSet<>();
+            for (Integer serverHandle : serverHandles) {
+                GroupItem groupItem = groupItems.get(serverHandle);
+                if (groupItem == null) {
+                    ret.add(new Result<>(serverHandle, OPC_E_INVALIDHANDLE));
+                    continue;
+                }
+                ValueData valueData = new ValueData();
+                valueData.setQuality(GOOD_QUALITY);
+                valueData.setTimestamp(now);
+                valueData.setValue(groupItem.item.read());
+                values.add(new KeyedResult<>(groupItem.clientHandle, valueData, 0));
+                ret.add(new Result<>(serverHandle, 0));
+            }
+            int cancelId = 0;
+            if (!values.isEmpty()) {
+                cancelId = complete(transactionId, () -> target.readComplete(transactionId, clientHandle, 0, 0, values));
+            }
+            return new AsyncRequest(ret, cancelId);
+        }
+
+        @Override
+        public AsyncRequest asyncWrite(int transactionId, WriteRequest... requests) throws JIException {
+            call();
+            asyncCallCount.incrementAndGet();
+            final IOPCDataCallback target = attachedCallback();
+            final ResultSet<Integer> ret = new ResultSet<>();
+            final Map<GroupItem, JIVariant> accepted = new LinkedHashMap<>();
+            for (WriteRequest request : requests) {
+                GroupItem groupItem = groupItems.get(request.getServerHandle());
+                int errorCode = 0;
+                if (groupItem == null) {
+                    errorCode = OPC_E_INVALIDHANDLE;
+                } else if (!groupItem.item.writable) {
+                    errorCode = OPC_E_BADRIGHTS;
+                } else {
+                    accepted.put(groupItem, request.getValue());
+                }
+                ret.add(new Result<>(request.getServerHandle(), errorCode));
+            }
+            int cancelId = 0;
+            if (!accepted.isEmpty()) {
+                //values reach the device with the completion.
+                cancelId = complete(transactionId, () -> {
+                    ResultSet<Integer> outcomes = new ResultSet<>();
+                    accepted.forEach((groupItem, value) -> {
+                        groupItem.item.value = value;
+                        outcomes.add(new Result<>(groupItem.clientHandle, 0));
+                    });
+                    target.writeComplete(transactionId, clientHandle, 0, outcomes);
+                });
+            }
+            return new AsyncRequest(ret, cancelId);
+        }
+
+        @Override
+        public void cancel(int cancelId) throws JIException {
+            call();
+            final Integer transactionId = pendingTransactions.remove(cancelId);
+            if (transactionId == null) {
+                throw new JIException(E_FAIL);
+            }
+            cancelCount.incrementAndGet();
+            final IOPCDataCallback target = attachedCallback();
+            scheduler.execute(() -> target.cancelComplete(transactionId, clientHandle));
+        }
+
+        /**
+         * Completes an asynchronous transaction after the completion delay unless cancelled.
+         *
+         * @param transactionId the client transaction id.
+         * @param completion    sends the completion.
+         * @return the cancel id of the transaction.
+         */
+        private int complete(int transactionId, Runnable completion) {
+            final int cancelId = handleCounter.incrementAndGet();
+            pendingTransactions.put(cancelId, transactionId);
+            scheduler.schedule(() -> {
+                if (pendingTransactions.remove(cancelId) != null) {
+                    completion.run();
+                }
+            }, asyncCompletionDelay.toNanos(), TimeUnit.NANOSECONDS);
+            return cancelId;
+        }
+
+        private IOPCDataCallback attachedCallback() throws JIException {
+            IOPCDataCallback ret = callback;
+            if (ret == null) {
+                throw new JIException(CONNECT_E_NOCONNECTION);
+            }
+            return ret;
+        }
+
+        @Override
+        public EventHandler attach(IOPCDataCallback callback) {
+            call();
+            this.callback = callback;
+            callbackTask = scheduler.scheduleAtFixedRate(() -> notifyChanges(callback),
+                    updateRate, updateRate, TimeUnit.MILLISECONDS);
+            return new EventHandler() {
+                @Override
+                public String getIdentifier() {
+                    return "simulated-" + clientHandle;
+                }
+
+                @Override
+                public IJIComObject getObject() {
+                    return null;
+                }
+
+                @Override
+                public void detach() {
+                    call();
+                    Group.this.detach();
+                }
+            };
+        }
+
+        /**
+         * Pushes the items whose value changed since the last notification.
+         *
+         * @param callback the data change callback.
+         */
+        private void notifyChanges(IOPCDataCallback callback) {
+            Calendar now = Calendar.getInstance();
+            KeyedResultSet<Integer, ValueData> changes = new KeyedResultSet<>();
+            for (GroupItem groupItem : groupItems.values()) {
+                try {
+                    JIVariant variant = groupItem.item.read();
+                    Object value = JIVariantMarshaller.toJavaType(variant);
+                    if (Objects.equals(value, groupItem.lastNotified)) {
+                        continue;
+                    }
+                    groupItem.lastNotified = value;
+                    ValueData valueData = new ValueData();
+                    valueData.setQuality(GOOD_QUALITY);
+                    valueData.setTimestamp(now);
+                    valueData.setValue(variant);
+                    changes.add(new KeyedResult<>(groupItem.clientHandle, valueData, 0));
+                } catch (JIException e) {
+                    //skip undecodable values
+                }
+            }
+            if (!changes.isEmpty()) {
+                callback.dataChange(0, clientHandle, 0, 0, changes);
+            }
+        }
+
+        private void detach() {
+            callback = null;
+            ScheduledFuture<?> task = callbackTask;
+            if (task != null) {
+                task.cancel(false);
+                callbackTask = null;
+            }
+        }
+    }
+}
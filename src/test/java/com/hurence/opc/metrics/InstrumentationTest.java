@@ -0,0 +1,95 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.metrics;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OpcMetrics} instrumentation tests.
+ *
+ * @author amarziali
+ */
+public class InstrumentationTest {
+
+    private static final class RecordingMetrics implements OpcMetrics {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void completed(Operation operation, long durationNanos, int items, Outcome outcome) {
+            events.add(operation + ":" + items + ":" + outcome);
+        }
+    }
+
+    @Test
+    public void testSingle() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        Instrumentation.single(metrics, OpcMetrics.Operation.READ, Single.just("abc"), String::length).blockingGet();
+        try {
+            Instrumentation.single(metrics, OpcMetrics.Operation.WRITE, Single.<String>error(new IllegalStateException()),
+                    String::length).blockingGet();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        Assert.assertEquals("READ:3:SUCCESS", metrics.events.get(0));
+        Assert.assertEquals("WRITE:0:FAILURE", metrics.events.get(1));
+    }
+
+    @Test
+    public void testFlowableCancellation() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        Instrumentation.flowable(metrics, OpcMetrics.Operation.STREAM, Flowable.range(0, 100))
+                .take(10)
+                .blockingSubscribe();
+        Assert.assertEquals("STREAM:10:CANCELLED", metrics.events.get(0));
+    }
+
+    @Test
+    public void testDisposeAfterTerminationIsNotCounted() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        Instrumentation.single(metrics, OpcMetrics.Operation.READ, Single.just("abc"), String::length)
+                .subscribe(ignored -> {
+                })
+                .dispose();
+        Instrumentation.completable(metrics, OpcMetrics.Operation.DISCONNECT, Completable.complete())
+                .subscribe()
+                .dispose();
+        //a downstream timeout disposes the source after the error
+        Instrumentation.single(metrics, OpcMetrics.Operation.WRITE, Single.<String>error(new IllegalStateException()),
+                String::length)
+                .timeout(1, TimeUnit.SECONDS)
+                .onErrorReturnItem("")
+                .blockingGet();
+        Assert.assertEquals(Arrays.asList("READ:3:SUCCESS", "DISCONNECT:0:SUCCESS", "WRITE:0:FAILURE"), metrics.events);
+    }
+
+    @Test
+    public void testNoopIsUntouched() {
+        Single<String> source = Single.just("abc");
+        Assert.assertSame(source, Instrumentation.single(OpcMetrics.NOOP, OpcMetrics.Operation.READ, source, String::length));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.metrics.micrometer;
+
+import com.hurence.opc.metrics.Instrumentation;
+import com.hurence.opc.metrics.OpcMetrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MicrometerOpcMetrics} tests.
+ */
+public class MicrometerOpcMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerOpcMetrics metrics = new MicrometerOpcMetrics(registry, Tags.of("server", "test"));
+
+    @Test
+    public void testReadAndStream() {
+        final AtomicLong monitoredItems = new AtomicLong();
+        metrics.registerGauge("s1", OpcMetrics.MONITORED_ITEMS, monitoredItems::get);
+
+        List<Integer> read = Instrumentation.single(metrics, OpcMetrics.Operation.READ,
+                Single.just(Arrays.asList(1, 2, 3)), List::size).blockingGet();
+        Assert.assertEquals(3, read.size());
+        Assert.assertEquals(1, registry.get("opc.calls")
+                .tags("server", "test", "operation", "read", "outcome", "success")
+                .timer().count());
+        Assert.assertEquals(3.0, registry.get("opc.call.items")
+                .tags("server", "test", "operation", "read")
+                .summary().totalAmount(), 0.0);
+        Assert.assertEquals(0.0, registry.get("opc.calls.inflight")
+                .tags("server", "test", "operation", "read")
+                .gauge().value(), 0.0);
+
+        monitoredItems.set(2);
+        Instrumentation.flowable(metrics, OpcMetrics.Operation.STREAM, Flowable.range(0, 100)
+                .doOnNext(i -> metrics.samplesEmitted("s1", i % 2 == 0 ? "even" : "odd", 1)))
+                .take(10)
+                .blockingSubscribe();
+        metrics.samplesDropped("s1", 4);
+        Assert.assertEquals(1, registry.get("opc.calls")
+                .tags("server", "test", "operation", "stream", "outcome", "cancelled")
+                .timer().count());
+        Assert.assertEquals(0, registry.get("opc.calls")
+                .tags("server", "test", "operation", "stream", "outcome", "success")
+                .timer().count());
+        Assert.assertEquals(0.0, registry.get("opc.calls.inflight")
+                .tags("server", "test", "operation", "stream")
+                .gauge().value(), 0.0);
+        Assert.assertEquals(5.0, registry.get("opc.samples")
+                .tags("server", "test", "session", "s1", "tag", "even")
+                .counter().count(), 0.0);
+        Assert.assertEquals(5.0, registry.get("opc.samples")
+                .tags("server", "test", "session", "s1", "tag", "odd")
+                .counter().count(), 0.0);
+        Assert.assertEquals(4.0, registry.get("opc.samples.dropped")
+                .tags("server", "test", "session", "s1")
+                .counter().count(), 0.0);
+        Assert.assertEquals(2.0, registry.get(OpcMetrics.MONITORED_ITEMS)
+                .tags("server", "test", "session", "s1")
+                .gauge().value(), 0.0);
+
+        metrics.sessionClosed("s1");
+        Assert.assertNull(registry.find(OpcMetrics.MONITORED_ITEMS).gauge());
+        Assert.assertNull(registry.find("opc.samples").counter());
+        Assert.assertNull(registry.find("opc.samples.dropped").counter());
+        Assert.assertNotNull(registry.find("opc.calls").timer());
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.core.ValueRanks;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.*;
+import org.eclipse.milo.opcua.sdk.server.model.nodes.objects.FolderNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.*;
+import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.*;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A configurable load generator namespace.
+ * <p>
+ * Exposes {@link LoadNamespaceProfile#getFolders()} folders of {@link LoadNamespaceProfile#getVariablesPerFolder()}
+ * variables of mixed types (double, float, int, long, boolean, string and optionally double arrays).
+ * Values are changed round robin at the configured rate. Read, write and browse requests can be delayed to
+ * simulate network latency and jitter.
+ *
+ * @author amarziali
+ */
+public class LoadNamespace implements Namespace, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadNamespace.class);
+
+    public static final String URI = "urn:test:load-namespace";
+
+    /**
+     * The kinds of generated variables.
+     */
+    private enum Kind {
+        DOUBLE(Identifiers.Double),
+        FLOAT(Identifiers.Float),
+        INT(Identifiers.Int32),
+        LONG(Identifiers.Int64),
+        BOOLEAN(Identifiers.Boolean),
+        STRING(Identifiers.String),
+        DOUBLE_ARRAY(Identifiers.Double);
+
+        private final NodeId dataType;
+
+        Kind(NodeId dataType) {
+            this.dataType = dataType;
+        }
+    }
+
+    private final UShort index;
+    private final LoadNamespaceProfile profile;
+    private final ServerNodeMap nodeMap;
+    private final SubscriptionModel subscriptionModel;
+    private final UaVariableNode[] variables;
+    private final Kind[] kinds;
+    private final ScheduledExecutorService executor;
+    private int cursor;
+    private long generation;
+    private double pendingChanges;
+
+    public LoadNamespace(final UShort index, final OpcUaServer server, final LoadNamespaceProfile profile) {
+        this.index = index;
+        this.profile = profile;
+        this.nodeMap = server.getNodeMap();
+        this.subscriptionModel = new SubscriptionModel(server, this);
+        int count = profile.getFolders() * profile.getVariablesPerFolder();
+        this.variables = new UaVariableNode[count];
+        this.kinds = new Kind[count];
+        this.executor = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "load-namespace");
+            thread.setDaemon(true);
+            return thread;
+        });
+        registerItems();
+        long period = profile.getUpdatePeriod().toNanos();
+        executor.scheduleAtFixedRate(this::update, period, period, TimeUnit.NANOSECONDS);
+        logger.info("Created load namespace with {} variables. {}", count, profile);
+    }
+
+    /**
+     * Gets the tag id of a variable.
+     *
+     * @param folder   the folder index.
+     * @param variable the variable index within the folder.
+     * @return the parseable node id.
+     */
+    public String tagId(int folder, int variable) {
+        return new NodeId(index, "Load/F" + folder + "/V" + variable).toParseableString();
+    }
+
+    /**
+     * Gets the tag ids of every variable.
+     *
+     * @return the parseable node ids.
+     */
+    public List<String> getTagIds() {
+        List<String> ret = new ArrayList<>(variables.length);
+        for (int f = 0; f < profile.getFolders(); f++) {
+            for (int v = 0; v < profile.getVariablesPerFolder(); v++) {
+                ret.add(tagId(f, v));
+            }
+        }
+        return ret;
+    }
+
+    private void registerItems() {
+        final UaFolderNode root = new UaFolderNode(
+                this.nodeMap,
+                new NodeId(this.index, "Load"),
+                new QualifiedName(this.index, "Load"),
+                LocalizedText.english("Load generator"));
+        nodeMap.addNode(root);
+        this.nodeMap.getNode(Identifiers.ObjectsFolder).ifPresent(node -> ((FolderNode) node).addComponent(root));
+
+        Kind[] available = Kind.values();
+        int kindCount = profile.getArraySize() > 0 ? available.length : available.length - 1;
+        int i = 0;
+        for (int f = 0; f < profile.getFolders(); f++) {
+            final UaFolderNode folder = new UaFolderNode(
+                    this.nodeMap,
+                    new NodeId(this.index, "Load/F" + f),
+                    new QualifiedName(this.index, "F" + f),
+                    LocalizedText.english("Folder " + f));
+            nodeMap.addNode(folder);
+            root.addOrganizes(folder);
+            for (int v = 0; v < profile.getVariablesPerFolder(); v++, i++) {
+                Kind kind = available[i % kindCount];
+                String name = "V" + v;
+                UaVariableNode.UaVariableNodeBuilder builder = new UaVariableNode.UaVariableNodeBuilder(nodeMap)
+                        .setNodeId(new NodeId(index, "Load/F" + f + "/" + name))
+                        .setAccessLevel(UByte.valueOf(AccessLevel.getMask(AccessLevel.READ_WRITE)))
+                        .setUserAccessLevel(UByte.valueOf(AccessLevel.getMask(AccessLevel.READ_WRITE)))
+                        .setBrowseName(new QualifiedName(index, name))
+                        .setDisplayName(LocalizedText.english(name))
+                        .setDataType(kind.dataType)
+                        .setTypeDefinition(Identifiers.BaseDataVariableType);
+                if (kind == Kind.DOUBLE_ARRAY) {
+                    builder.setValueRank(ValueRanks.OneDimension)
+                            .setArrayDimensions(new UInteger[]{UInteger.valueOf(profile.getArraySize())});
+                } else {
+                    builder.setValueRank(ValueRanks.Scalar);
+                }
+                UaVariableNode node = builder.build();
+                node.setValue(new DataValue(value(kind, i, 0)));
+                nodeMap.addNode(node);
+                folder.addOrganizes(node);
+                variables[i] = node;
+                kinds[i] = kind;
+            }
+        }
+    }
+
+    /**
+     * Generates a value.
+     *
+     * @param kind       the kind of variable.
+     * @param variable   the variable index.
+     * @param generation the update generation.
+     * @return the variant.
+     */
+    private Variant value(Kind kind, int variable, long generation) {
+        double phase = 2.0 * Math.PI * ((variable + generation) % 360) / 360.0;
+        switch (kind) {
+            case DOUBLE:
+                return new Variant(Math.sin(phase));
+            case FLOAT:
+                return new Variant((float) Math.cos(phase));
+            case INT:
+                return new Variant((int) (generation + variable));
+            case LONG:
+                return new Variant(generation * 1000L + variable);
+            case BOOLEAN:
+                return new Variant(((generation + variable) & 1L) == 0L);
+            case STRING:
+                return new Variant("value-" + generation);
+            default:
+                Double[] array = new Double[profile.getArraySize()];
+                for (int j = 0; j < array.length; j++) {
+                    array[j] = Math.sin(phase + j);
+                }
+                return new Variant(array);
+        }
+    }
+
+    /**
+     * Changes the value of the next variables in a round robin fashion.
+     */
+    private void update() {
+        try {
+            pendingChanges += profile.getChangesPerSecond() * (profile.getUpdatePeriod().toNanos() / 1.0e9);
+            int changes = (int) pendingChanges;
+            pendingChanges -= changes;
+            DateTime now = DateTime.now();
+            for (int c = 0; c < changes; c++) {
+                if (cursor == 0) {
+                    generation++;
+                }
+                variables[cursor].setValue(new DataValue(value(kinds[cursor], cursor, generation),
+                        StatusCode.GOOD, now, now));
+                cursor = (cursor + 1) % variables.length;
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to update load namespace values", e);
+        }
+    }
+
+    /**
+     * Runs a request completion after the configured latency and jitter.
+     *
+     * @param completion the task completing the request.
+     */
+    private void respond(Runnable completion) {
+        long delay = profile.getLatency().toNanos();
+        long jitter = profile.getJitter().toNanos();
+        if (jitter > 0) {
+            delay += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (delay <= 0) {
+            completion.run();
+        } else {
+            executor.schedule(completion, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void read(ReadContext context, Double maxAge, TimestampsToReturn timestamps, List<ReadValueId> readValueIds) {
+        final List<DataValue> results = new ArrayList<>(readValueIds.size());
+        for (final ReadValueId id : readValueIds) {
+            final ServerNode node = this.nodeMap.get(id.getNodeId());
+            results.add(node != null
+                    ? node.readAttribute(new AttributeContext(context), id.getAttributeId())
+                    : new DataValue(StatusCodes.Bad_NodeIdUnknown));
+        }
+        respond(() -> context.complete(results));
+    }
+
+    @Override
+    public void write(final WriteContext context, final List<WriteValue> writeValues) {
+        final List<StatusCode> results = writeValues.stream()
+                .map(value -> {
+                    if (!this.nodeMap.containsKey(value.getNodeId())) {
+                        return new StatusCode(StatusCodes.Bad_NodeIdUnknown);
+                    }
+                    try {
+                        nodeMap.getNode(value.getNodeId()).get().writeAttribute(
+                                new AttributeContext(context.getServer(), context.getSession().orElse(null)),
+                                value.getAttributeId(),
+                                value.getValue(),
+                                value.getIndexRange());
+                    } catch (UaException e) {
+                        return e.getStatusCode();
+                    }
+                    return StatusCode.GOOD;
+                })
+                .collect(Collectors.toList());
+        respond(() -> context.complete(results));
+    }
+
+    @Override
+    public CompletableFuture<List<Reference>> browse(final AccessContext context, final NodeId nodeId) {
+        final CompletableFuture<List<Reference>> ret = new CompletableFuture<>();
+        final ServerNode node = this.nodeMap.get(nodeId);
+        respond(() -> {
+            if (node != null) {
+                ret.complete(node.getReferences());
+            } else {
+                ret.completeExceptionally(new UaException(StatusCodes.Bad_NodeIdUnknown));
+            }
+        });
+        return ret;
+    }
+
+    @Override
+    public Optional<MethodInvocationHandler> getInvocationHandler(final NodeId methodId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void onDataItemsCreated(final List<DataItem> dataItems) {
+        this.subscriptionModel.onDataItemsCreated(dataItems);
+    }
+
+    @Override
+    public void onDataItemsModified(final List<DataItem> dataItems) {
+        this.subscriptionModel.onDataItemsModified(dataItems);
+    }
+
+    @Override
+    public void onDataItemsDeleted(final List<DataItem> dataItems) {
+        this.subscriptionModel.onDataItemsDeleted(dataItems);
+    }
+
+    @Override
+    public void onMonitoringModeChanged(final List<MonitoredItem> monitoredItems) {
+        this.subscriptionModel.onMonitoringModeChanged(monitoredItems);
+    }
+
+    @Override
+    public UShort getNamespaceIndex() {
+        return this.index;
+    }
+
+    @Override
+    public String getNamespaceUri() {
+        return URI;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import java.time.Duration;
+
+/**
+ * Configuration of a {@link LoadNamespace}.
+ *
+ * @author amarziali
+ */
+public class LoadNamespaceProfile {
+
+    /**
+     * The number of folders. Defaults to 10.
+     */
+    private int folders = 10;
+    /**
+     * The number of variables per folder. Defaults to 100.
+     */
+    private int variablesPerFolder = 100;
+    /**
+     * The total number of value changes per second (spread over all variables). Defaults to 1000.
+     */
+    private int changesPerSecond = 1000;
+    /**
+     * The period of value updates. Defaults to 10 milliseconds.
+     */
+    private Duration updatePeriod = Duration.ofMillis(10);
+    /**
+     * The size of array variables. Zero means no array variable at all. Defaults to 0.
+     */
+    private int arraySize = 0;
+    /**
+     * The latency added to each read, write and browse request. Defaults to none.
+     */
+    private Duration latency = Duration.ZERO;
+    /**
+     * The maximum random delay added on top of the latency. Defaults to none.
+     */
+    private Duration jitter = Duration.ZERO;
+
+    public int getFolders() {
+        return folders;
+    }
+
+    public void setFolders(int folders) {
+        if (folders <= 0) {
+            throw new IllegalArgumentException("The number of folders must be strictly positive");
+        }
+        this.folders = folders;
+    }
+
+    public int getVariablesPerFolder() {
+        return variablesPerFolder;
+    }
+
+    public void setVariablesPerFolder(int variablesPerFolder) {
+        if (variablesPerFolder <= 0) {
+            throw new IllegalArgumentException("The number of variables per folder must be strictly positive");
+        }
+        this.variablesPerFolder = variablesPerFolder;
+    }
+
+    public int getChangesPerSecond() {
+        return changesPerSecond;
+    }
+
+    public void setChangesPerSecond(int changesPerSecond) {
+        if (changesPerSecond < 0) {
+            throw new IllegalArgumentException("The number of changes per second must be positive");
+        }
+        this.changesPerSecond = changesPerSecond;
+    }
+
+    public Duration getUpdatePeriod() {
+        return updatePeriod;
+    }
+
+    public void setUpdatePeriod(Duration updatePeriod) {
+        if (updatePeriod == null || updatePeriod.isNegative() || updatePeriod.isZero()) {
+            throw new IllegalArgumentException("The update period must be strictly positive");
+        }
+        this.updatePeriod = updatePeriod;
+    }
+
+    public int getArraySize() {
+        return arraySize;
+    }
+
+    public void setArraySize(int arraySize) {
+        if (arraySize < 0) {
+            throw new IllegalArgumentException("The array size must be positive");
+        }
+        this.arraySize = arraySize;
+    }
+
+    public Duration getLatency() {
+        return latency;
+    }
+
+    public void setLatency(Duration latency) {
+        if (latency == null || latency.isNegative()) {
+            throw new IllegalArgumentException("The latency must be positive");
+        }
+        this.latency = latency;
+    }
+
+    public Duration getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(Duration jitter) {
+        if (jitter == null || jitter.isNegative()) {
+            throw new IllegalArgumentException("The jitter must be positive");
+        }
+        this.jitter = jitter;
+    }
+
+    public LoadNamespaceProfile withFolders(int folders) {
+        setFolders(folders);
+        return this;
+    }
+
+    public LoadNamespaceProfile withVariablesPerFolder(int variablesPerFolder) {
+        setVariablesPerFolder(variablesPerFolder);
+        return this;
+    }
+
+    public LoadNamespaceProfile withChangesPerSecond(int changesPerSecond) {
+        setChangesPerSecond(changesPerSecond);
+        return this;
+    }
+
+    public LoadNamespaceProfile withUpdatePeriod(Duration updatePeriod) {
+        setUpdatePeriod(updatePeriod);
+        return this;
+    }
+
+    public LoadNamespaceProfile withArraySize(int arraySize) {
+        setArraySize(arraySize);
+        return this;
+    }
+
+    public LoadNamespaceProfile withLatency(Duration latency) {
+        setLatency(latency);
+        return this;
+    }
+
+    public LoadNamespaceProfile withJitter(Duration jitter) {
+        setJitter(jitter);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadNamespaceProfile{" +
+                "folders=" + folders +
+                ", variablesPerFolder=" + variablesPerFolder +
+                ", changesPerSecond=" + changesPerSecond +
+                ", updatePeriod=" + updatePeriod +
+                ", arraySize=" + arraySize +
+                ", latency=" + latency +
+                ", jitter=" + jitter +
+                '}';
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import com.hurence.opc.OpcData;
+import com.hurence.opc.OpcTagInfo;
+import com.hurence.opc.OperationStatus;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@link LoadNamespace} tests.
+ *
+ * @author amarziali
+ */
+public class LoadNamespaceTest {
+
+    private static final LoadNamespaceProfile PROFILE = new LoadNamespaceProfile()
+            .withFolders(3)
+            .withVariablesPerFolder(7)
+            .withArraySize(4)
+            .withChangesPerSecond(1000)
+            .withUpdatePeriod(Duration.ofMillis(10))
+            .withLatency(Duration.ofMillis(5))
+            .withJitter(Duration.ofMillis(5));
+
+    private static TestOpcServer server;
+
+    @BeforeClass
+    public static void initServer() throws Exception {
+        server = new TestOpcServer(InetAddress.getLoopbackAddress(), null, PROFILE);
+        server.getInstance().startup().get();
+    }
+
+    @AfterClass
+    public static void teardownServer() {
+        try {
+            server.close();
+        } catch (Exception e) {
+            //nothing to do here
+        }
+    }
+
+    private OpcUaConnectionProfile createConnectionProfile() {
+        return new OpcUaConnectionProfile()
+                .withConnectionUri(URI.create(server.getBindEndpoint()))
+                .withClientIdUri("hurence:opc-simple:client:test")
+                .withClientName("Simple OPC test client")
+                .withSocketTimeout(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testBrowse() throws Exception {
+        List<String> tagIds = server.getLoadNamespace().getTagIds();
+        Assert.assertEquals(21, tagIds.size());
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            Set<String> browsed = opcUaTemplate.connect(createConnectionProfile())
+                    .toFlowable()
+                    .flatMap(client -> client.browseTags())
+                    .map(OpcTagInfo::getId)
+                    .collectInto(new HashSet<String>(), Set::add)
+                    .blockingGet();
+            Assert.assertTrue(browsed.containsAll(tagIds));
+        }
+    }
+
+    @Test
+    public void testReadMixedTypes() throws Exception {
+        List<String> tagIds = server.getLoadNamespace().getTagIds();
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            List<OpcData> values = opcUaTemplate.connect(createConnectionProfile())
+                    .ignoreElement()
+                    .andThen(opcUaTemplate.createSession(new OpcUaSessionProfile()))
+                    .flatMap(session -> session.read(tagIds.toArray(new String[0]))
+                            .doFinally(session::close))
+                    .blockingGet();
+            Assert.assertEquals(tagIds.size(), values.size());
+            values.forEach(data -> Assert.assertEquals(OperationStatus.Level.INFO,
+                    data.getOperationStatus().getLevel()));
+            Set<Class<?>> types = values.stream().map(data -> data.getValue().getClass()).collect(Collectors.toSet());
+            Assert.assertTrue(types.contains(Double.class));
+            Assert.assertTrue(types.contains(Float.class));
+            Assert.assertTrue(types.contains(Integer.class));
+            Assert.assertTrue(types.contains(Long.class));
+            Assert.assertTrue(types.contains(Boolean.class));
+            Assert.assertTrue(types.contains(String.class));
+            Assert.assertTrue(types.contains(Double[].class));
+        }
+    }
+
+    @Test
+    public void testValuesChange() throws Exception {
+        String tagId = server.getLoadNamespace().tagId(0, 0);
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            List<OpcData> values = opcUaTemplate.connect(createConnectionProfile())
+                    .ignoreElement()
+                    .andThen(opcUaTemplate.createSession(new OpcUaSessionProfile()
+                            .withPublicationInterval(Duration.ofMillis(10))))
+                    .toFlowable()
+                    .flatMap(session -> session.stream(tagId, Duration.ofMillis(10))
+                            .doFinally(session::close))
+                    .take(3)
+                    .timeout(10, TimeUnit.SECONDS)
+                    .toList()
+                    .blockingGet();
+            Assert.assertEquals(3, values.stream().map(OpcData::getValue).distinct().count());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright (C) 2018 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link OpcUaDataChangeFilter} tests.
+ *
+ * @author amarziali
+ */
+public class OpcUaDataChangeFilterTest {
+
+    @Test
+    public void testFactories() {
+        OpcUaDataChangeFilter filter = OpcUaDataChangeFilter.percentDeadband(5)
+                .withTrigger(OpcUaDataChangeFilter.Trigger.STATUS_VALUE_TIMESTAMP);
+        Assert.assertEquals(OpcUaDataChangeFilter.Deadband.PERCENT, filter.getDeadband());
+        Assert.assertEquals(5.0, filter.getDeadbandValue(), 0.0);
+        Assert.assertEquals(OpcUaDataChangeFilter.Trigger.STATUS_VALUE_TIMESTAMP, filter.getTrigger());
+        Assert.assertEquals(OpcUaDataChangeFilter.absoluteDeadband(0.5), OpcUaDataChangeFilter.absoluteDeadband(0.5));
+        Assert.assertNotEquals(OpcUaDataChangeFilter.absoluteDeadband(0.5), OpcUaDataChangeFilter.percentDeadband(0.5));
+        Assert.assertNotEquals(OpcUaDataChangeFilter.DEFAULT, OpcUaDataChangeFilter.absoluteDeadband(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDeadband() {
+        OpcUaDataChangeFilter.absoluteDeadband(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentOutOfRange() {
+        OpcUaDataChangeFilter.percentDeadband(101);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (C) 2019 Hurence (support@hurence.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.hurence.opc.ua;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * {@link OpcUaNodeRegistry} tests.
+ */
+public class OpcUaNodeRegistryTest {
+
+    private static final NodeId FIRST = new NodeId(2, "first");
+    private static final NodeId SECOND = new NodeId(2, "second");
+
+    @Test
+    public void testExpiredCountersAreEvicted() throws Exception {
+        OpcUaNodeRegistry registry = new OpcUaNodeRegistry(10, Duration.ofMillis(5));
+        registry.accessed(null, Collections.singletonList(FIRST));
+        Assert.assertEquals(1, registry.countedNodes());
+        Thread.sleep(20);
+        registry.accessed(null, Collections.singletonList(SECOND));
+        Assert.assertEquals(1, registry.countedNodes());
+    }
+
+    @Test
+    public void testForget() {
+        OpcUaNodeRegistry registry = new OpcUaNodeRegistry(10, Duration.ofMinutes(1));
+        registry.accessed(null, Collections.singletonList(FIRST));
+        int version = registry.getVersion();
+        registry.forget();
+        Assert.assertEquals(0, registry.countedNodes());
+        Assert.assertNotEquals(version, registry.getVersion());
+        Assert.assertEquals(FIRST, registry.resolve(FIRST));
+    }
+
+    @Test
+    public void testNothingCountedOnceReleased() {
+        OpcUaNodeRegistry registry = new OpcUaNodeRegistry(10, Duration.ofMinutes(1));
+        registry.unregisterAll(null);
+        registry.accessed(null, Collections.singletonList(FIRST));
+        Assert.assertEquals(0, registry.countedNodes());
+    }
+}
@@ -22,10 +22,12 @@ import com.hurence.opc.auth.Credentials;
 import com.hurence.opc.auth.UsernamePasswordCredentials;
 import com.hurence.opc.auth.X509Credentials;
 import com.hurence.opc.exception.OpcException;
+import com.hurence.opc.metrics.OpcMetrics;
 import io.reactivex.Flowable;
 import io.reactivex.flowables.ConnectableFlowable;
 import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subscribers.TestSubscriber;
+import org.eclipse.milo.opcua.stack.core.types.structured.Range;
 import org.eclipse.milo.opcua.stack.core.util.SelfSignedCertificateGenerator;
 import org.junit.*;
 import org.slf4j.Logger;
@@ -38,10 +40,16 @@ import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * {@link OpcUaTemplate} tests.
@@ -171,6 +179,7 @@ public class OpcUaTemplateTest {
                         .doFinally(client::close))
                 .subscribe(subscriber);
 
+        subscriber.await();
         subscriber.assertComplete();
         subscriber.assertValueCount(229);
         subscriber.dispose();
@@ -199,6 +208,31 @@ public class OpcUaTemplateTest {
         }
     }
 
+    @Test
+    public void testBrowseBatchSizes() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            Set<String> expected = opcUaTemplate.connect(createConnectionProfile())
+                    .toFlowable()
+                    .flatMap(client -> client.browseTags())
+                    .map(OpcTagInfo::getId)
+                    .collectInto(new HashSet<String>(), Set::add)
+                    .blockingGet();
+            opcUaTemplate.disconnect().blockingAwait();
+
+            Set<String> actual = opcUaTemplate.connect(createConnectionProfile()
+                    .withBrowseBatchSize(1)
+                    .withMaxConcurrentBrowseRequests(8))
+                    .toFlowable()
+                    .flatMap(client -> client.browseTags())
+                    .map(OpcTagInfo::getId)
+                    .collectInto(new HashSet<String>(), Set::add)
+                    .blockingGet();
+
+            Assert.assertFalse(expected.isEmpty());
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
     @Test
     public void testFetchMetadata() throws Exception {
         try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
@@ -248,6 +282,103 @@ public class OpcUaTemplateTest {
         }
     }
 
+    @Test
+    public void testChunkedReadWrite() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withReadBatchSize(2)
+                    .withWriteBatchSize(1)
+                    .withMaxConcurrentRequests(2)).blockingGet()) {
+                String[] tags = {"ns=2;s=sint", "ns=2;s=HelloWorld/Dynamic/Double", "ns=2;s=sint",
+                        "ns=2;s=HelloWorld/Dynamic/Double", "ns=2;s=sint"};
+                List<OpcData> read = session.read(tags).blockingGet();
+                Assert.assertEquals(tags.length, read.size());
+                for (int i = 0; i < tags.length; i++) {
+                    Assert.assertEquals(tags[i], read.get(i).getTag());
+                }
+                List<OperationStatus> result = session.write(
+                        new OpcData("ns=2;s=HelloWorld/Dynamic/Double", Instant.now(), 3.1415d),
+                        new OpcData("ns=2;s=sint", Instant.now(), true),
+                        new OpcData("ns=2;s=HelloWorld/Dynamic/Double", Instant.now(), 2.71d)
+                ).blockingGet();
+                Assert.assertEquals(3, result.size());
+                Assert.assertEquals(OperationStatus.Level.INFO, result.get(0).getLevel());
+                Assert.assertEquals(OperationStatus.Level.ERROR, result.get(1).getLevel());
+                Assert.assertEquals(OperationStatus.Level.INFO, result.get(2).getLevel());
+            }
+        }
+    }
+
+    @Test
+    public void testPreparedReadWrite() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withReadBatchSize(1)).blockingGet()) {
+                OpcUaPreparedWrite preparedWrite = session.prepareWrite("ns=2;s=HelloWorld/Dynamic/Double");
+                OpcUaPreparedRead preparedRead = session.prepareRead("ns=2;s=sint", "ns=2;s=HelloWorld/Dynamic/Double");
+                Assert.assertEquals(Arrays.asList("ns=2;s=sint", "ns=2;s=HelloWorld/Dynamic/Double"),
+                        preparedRead.getTags());
+                for (double value : new double[]{1.0, 2.0}) {
+                    List<OperationStatus> written = preparedWrite.write(value).blockingGet();
+                    Assert.assertEquals(OperationStatus.Level.INFO, written.get(0).getLevel());
+                    List<OpcData> read = preparedRead.read().blockingGet();
+                    Assert.assertEquals(2, read.size());
+                    Assert.assertEquals("ns=2;s=sint", read.get(0).getTag());
+                    Assert.assertEquals(value, read.get(1).getValue());
+                    OpcDataBatch batch = preparedRead.readBatch().blockingGet();
+                    Assert.assertEquals(2, batch.size());
+                    Assert.assertEquals(value, batch.getDouble(1), 0.0);
+                }
+                preparedWrite.write(1.0, 2.0).test().assertError(IllegalArgumentException.class);
+            }
+        }
+    }
+
+    @Test
+    public void testReadOptions() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()).blockingGet()) {
+                session.write(new OpcData("ns=2;s=HelloWorld/Dynamic/Double", Instant.now(), 4.0)).blockingGet();
+                for (ReadOptions options : new ReadOptions[]{ReadOptions.DEVICE, ReadOptions.CACHE,
+                        ReadOptions.maxAge(Duration.ofSeconds(5))}) {
+                    List<OpcData> read = session.read(options, "ns=2;s=sint", "ns=2;s=HelloWorld/Dynamic/Double")
+                            .blockingGet();
+                    Assert.assertEquals(Quality.Good, read.get(0).getQuality());
+                    Assert.assertEquals(4.0, read.get(1).getValue());
+                    Assert.assertEquals(4.0, session.prepareRead("ns=2;s=HelloWorld/Dynamic/Double")
+                            .readBatch(options).blockingGet().getDouble(0), 0.0);
+                }
+                Assert.assertSame(ReadOptions.DEVICE, ReadOptions.maxAge(Duration.ZERO));
+                Assert.assertSame(ReadOptions.CACHE, ReadOptions.maxAge(Duration.ofDays(365)));
+            }
+        }
+    }
+
+    @Test
+    public void testRegisteredNodes() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withRegisterNodes(2, Duration.ofMinutes(1))).blockingGet()) {
+                session.registerNodes("ns=2;s=HelloWorld/Dynamic/Double").blockingAwait();
+                OpcUaPreparedRead preparedRead = session.prepareRead("ns=2;s=sint", "ns=2;s=HelloWorld/Dynamic/Double");
+                for (int i = 0; i < 5; i++) {
+                    List<OperationStatus> written = session.write(
+                            new OpcData("ns=2;s=HelloWorld/Dynamic/Double", Instant.now(), (double) i)).blockingGet();
+                    Assert.assertEquals(OperationStatus.Level.INFO, written.get(0).getLevel());
+                    List<OpcData> read = preparedRead.read().blockingGet();
+                    Assert.assertEquals(Quality.Good, read.get(0).getQuality());
+                    Assert.assertEquals((double) i, read.get(1).getValue());
+                    Assert.assertEquals((double) i,
+                            session.read("ns=2;s=HelloWorld/Dynamic/Double").blockingGet().get(0).getValue());
+                }
+            }
+        }
+    }
+
     @Test
     public void testStream() throws Exception {
         final OpcUaTemplate opcUaTemplate = new OpcUaTemplate();
@@ -272,6 +403,152 @@ public class OpcUaTemplateTest {
     }
 
 
+    @Test
+    public void testStreamMultipleTags() throws Exception {
+        final OpcUaTemplate opcUaTemplate = new OpcUaTemplate();
+        final TestSubscriber<OpcData> subscriber = new TestSubscriber<>();
+        opcUaTemplate.connect(createConnectionProfile())
+                .subscribeOn(Schedulers.newThread())
+                .flatMap(client -> client.createSession(new OpcUaSessionProfile()
+                        .withPublicationInterval(Duration.ofMillis(100))
+                        .withMonitoredItemsBatchSize(1)
+                ))
+                .toFlowable()
+                .flatMap(opcUaSession -> opcUaSession.stream(
+                        Arrays.asList("ns=2;s=sint", "ns=2;s=HelloWorld/Dynamic/Double"), Duration.ofMillis(1))
+                        .doFinally(opcUaSession::close)
+                        .onBackpressureBuffer()
+                ).take(1000)
+                .doFinally(opcUaTemplate::close)
+                .subscribe(subscriber);
+
+        subscriber
+                .await()
+                .assertComplete()
+                .assertValueCount(1000);
+        Assert.assertEquals(2, subscriber.values().stream().map(OpcData::getTag).distinct().count());
+    }
+
+
+    @Test
+    public void testStreamSameTagTwice() throws Exception {
+        final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.setMetrics(new OpcMetrics() {
+                @Override
+                public void registerGauge(String session, String name, LongSupplier value) {
+                    gauges.put(name, value);
+                }
+            });
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withPublicationInterval(Duration.ofMillis(100))).blockingGet()) {
+                final TestSubscriber<OpcData> first = new TestSubscriber<>();
+                final TestSubscriber<OpcData> second = new TestSubscriber<>();
+                session.stream("ns=2;s=sint", Duration.ofMillis(10)).subscribe(first);
+                session.stream("ns=2;s=sint", Duration.ofMillis(10)).subscribe(second);
+                first.awaitCount(100);
+                second.awaitCount(100);
+                //both streams are backed by the same monitored item
+                Assert.assertEquals(1L, gauges.get(OpcMetrics.MONITORED_ITEMS).getAsLong());
+                first.dispose();
+                second.dispose();
+                first.assertNoErrors();
+                second.assertNoErrors();
+                Assert.assertTrue(first.valueCount() >= 100);
+                Assert.assertTrue(second.valueCount() >= 100);
+            }
+        }
+    }
+
+
+    @Test
+    public void testStreamUnknownTag() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withPublicationInterval(Duration.ofMillis(100))).blockingGet()) {
+                final TestSubscriber<OpcData> subscriber = new TestSubscriber<>();
+                session.stream(Arrays.asList("ns=2;s=sint", "ns=2;s=unknown"), Duration.ofMillis(10))
+                        .subscribe(subscriber);
+                subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+                subscriber.assertError(OpcException.class);
+                //the healthy tag must still be streamable afterwards
+                session.stream("ns=2;s=sint", Duration.ofMillis(10))
+                        .take(10)
+                        .timeout(10, TimeUnit.SECONDS)
+                        .blockingLast();
+            }
+        }
+    }
+
+
+    @Test
+    public void testStreamMixedRatesAcrossSubscriptions() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withPublicationInterval(Duration.ofMillis(100))
+                    .withMaxMonitoredItemsPerSubscription(1)).blockingGet()) {
+                final TestSubscriber<OpcData> fast = new TestSubscriber<>();
+                final TestSubscriber<OpcData> slow = new TestSubscriber<>();
+                session.stream(Arrays.asList("ns=2;s=sint", "ns=2;s=HelloWorld/Dynamic/Double"), Duration.ofMillis(10))
+                        .take(100)
+                        .subscribe(fast);
+                session.stream("ns=2;s=sint", Duration.ofMillis(500)).take(3).subscribe(slow);
+                fast.await(10, TimeUnit.SECONDS);
+                slow.await(10, TimeUnit.SECONDS);
+                fast.assertComplete().assertValueCount(100);
+                slow.assertComplete().assertValueCount(3);
+                Assert.assertEquals(2, fast.values().stream().map(OpcData::getTag).distinct().count());
+            }
+        }
+    }
+
+
+    @Test
+    public void testStreamWithDeadband() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            Range range = opcUaTemplate.fetchEuRange("ns=2;s=sint").blockingGet().orElse(null);
+            Assert.assertNotNull(range);
+            Assert.assertEquals(-1.0, range.getLow(), 0.0);
+            Assert.assertEquals(1.0, range.getHigh(), 0.0);
+            Assert.assertFalse(opcUaTemplate.fetchEuRange("ns=2;s=HelloWorld/Dynamic/Double").blockingGet().isPresent());
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withPublicationInterval(Duration.ofMillis(100))).blockingGet()) {
+                List<Double> values = session.stream("ns=2;s=sint", Duration.ofMillis(10),
+                        OpcUaDataChangeFilter.absoluteDeadband(0.5))
+                        .map(data -> (Double) data.getValue())
+                        .take(10)
+                        .timeout(10, TimeUnit.SECONDS)
+                        .toList()
+                        .blockingGet();
+                for (int i = 1; i < values.size(); i++) {
+                    Assert.assertTrue(Math.abs(values.get(i) - values.get(i - 1)) > 0.5);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testStreamWithUnsupportedPercentDeadband() throws Exception {
+        try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
+            opcUaTemplate.connect(createConnectionProfile()).ignoreElement().blockingAwait();
+            try (OpcUaSession session = opcUaTemplate.createSession(new OpcUaSessionProfile()
+                    .withPublicationInterval(Duration.ofMillis(100))).blockingGet()) {
+                //no EURange: the server refuses the percent deadband
+                session.stream("ns=2;s=HelloWorld/Dynamic/Double", Duration.ofMillis(10),
+                        OpcUaDataChangeFilter.percentDeadband(25))
+                        .test()
+                        .awaitDone(10, TimeUnit.SECONDS)
+                        .assertError(OpcException.class);
+            }
+        }
+    }
+
+
     @Test
     public void testfetchNextTreeLevel() throws Exception {
         try (OpcUaTemplate opcUaTemplate = new OpcUaTemplate()) {
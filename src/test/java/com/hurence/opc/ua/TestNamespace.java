@@ -101,6 +101,7 @@ public class TestNamespace implements Namespace {
 
 
             variable.setInstrumentRange((new Range(-1.0, +1.0)));
+            variable.setEURange(new Range(-1.0, +1.0));
             variable.setDataType(Identifiers.Double);
             variable.setValueRank(ValueRanks.Scalar);
             variable.setAccessLevel(UByte.valueOf(AccessLevel.getMask(AccessLevel.READ_ONLY)));
@@ -71,8 +71,23 @@ public class TestOpcServer implements AutoCloseable {
 
 
     private final OpcUaServer instance;
+    private final LoadNamespaceProfile loadProfile;
+    private volatile LoadNamespace loadNamespace;
 
     public TestOpcServer(InetAddress bindAddress, Integer port) throws Exception {
+        this(bindAddress, port, null);
+    }
+
+    /**
+     * Creates a server also exposing a {@link LoadNamespace}.
+     *
+     * @param bindAddress the address to bind.
+     * @param port        the port or null to pick a free one.
+     * @param loadProfile the load namespace configuration or null to skip it.
+     * @throws Exception on any error.
+     */
+    public TestOpcServer(InetAddress bindAddress, Integer port, LoadNamespaceProfile loadProfile) throws Exception {
+        this.loadProfile = loadProfile;
         UsernameIdentityValidator identityValidator = new UsernameIdentityValidator(
                 true,
                 authChallenge -> {
@@ -164,6 +179,10 @@ public class TestOpcServer implements AutoCloseable {
     private void registerSampleObjects() throws Exception {
 
         instance.getNamespaceManager().registerAndAdd(TestNamespace.URI, uShort -> new TestNamespace(uShort, instance));
+        if (loadProfile != null) {
+            instance.getNamespaceManager().registerAndAdd(LoadNamespace.URI,
+                    uShort -> loadNamespace = new LoadNamespace(uShort, instance, loadProfile));
+        }
 
 
     }
@@ -173,8 +192,20 @@ public class TestOpcServer implements AutoCloseable {
         return instance;
     }
 
+    /**
+     * Gets the load namespace.
+     *
+     * @return the {@link LoadNamespace} or null if the server has been created without a load profile.
+     */
+    public LoadNamespace getLoadNamespace() {
+        return loadNamespace;
+    }
+
     @Override
     public void close() throws Exception {
+        if (loadNamespace != null) {
+            loadNamespace.close();
+        }
         if (instance != null) {
             instance.shutdown().get();
         }